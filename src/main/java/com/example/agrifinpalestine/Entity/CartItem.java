@@ -8,7 +8,18 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cart_items")  // dropped the unique constraint
+@NamedEntityGraph(name = "CartItem.cartView", attributeNodes = {
+        @NamedAttributeNode("cart"),
+        @NamedAttributeNode("product")
+})
+@NamedEntityGraph(name = "CartItem.checkout", attributeNodes = @NamedAttributeNode("product"))
+@Table(
+        name = "cart_items",
+        uniqueConstraints = {
+                // Add-to-cart relies on this key to merge concurrent adds of the same product
+                @UniqueConstraint(name = "UK_cart_product", columnNames = {"cart_id", "product_id"})
+        }
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,63 @@
+package com.example.agrifinpalestine.Entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Stock taken from a product for one line of a checkout.
+ * The product quantity is decremented when the reservation is created, so a reservation
+ * only has to be undone (released) when the payment fails or times out.
+ */
+@Entity
+@Table(
+        name = "inventory_reservations",
+        indexes = {
+                @Index(name = "idx_reservation_payment_intent", columnList = "payment_intent_id"),
+                @Index(name = "idx_reservation_user_status", columnList = "user_id, status"),
+                @Index(name = "idx_reservation_status_expires", columnList = "status, expires_at")
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "reservation_id")
+    private Integer reservationId;
+
+    @Column(name = "payment_intent_id", nullable = false)
+    private String paymentIntentId;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    // The price the payment was created for, so the order charges what the customer paid
+    @Column(name = "unit_price", precision = 10, scale = 2)
+    private BigDecimal unitPrice;
+
+    @Column(name = "status", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private ReservationStatus status = ReservationStatus.RESERVED;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+}
@@ -10,7 +10,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@NamedEntityGraph(name = "Order.withItems", attributeNodes = @NamedAttributeNode(value = "orderItems", subgraph = "items"),
+        subgraphs = @NamedSubgraph(name = "items", attributeNodes = @NamedAttributeNode("product")))
+@Table(
+        name = "orders",
+        uniqueConstraints = {
+                // A payment reported twice must not create a second order
+                @UniqueConstraint(name = "UK_order_payment_intent", columnNames = {"payment_intent_id"})
+        }
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,7 +29,7 @@ public class Order {
     @Column(name = "order_id")
     private Integer orderId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
@@ -46,6 +54,10 @@ public class Order {
     @Column(name = "payment_status", length = 50)
     private String paymentStatus;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<OrderItem> orderItems = new ArrayList<>();
 
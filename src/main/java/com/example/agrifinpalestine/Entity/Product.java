@@ -10,6 +10,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@NamedEntityGraph(name = "Product.detail", attributeNodes = {
+        @NamedAttributeNode("store"),
+        @NamedAttributeNode("category")
+})
+@NamedEntityGraph(name = "Product.withCategory", attributeNodes = @NamedAttributeNode("category"))
 @Table(name = "products")
 @Data
 @NoArgsConstructor
@@ -17,15 +22,17 @@ import java.util.List;
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "product_ids")
+    @TableGenerator(name = "product_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "products", allocationSize = 50)
     @Column(name = "product_id")
     private Integer productId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "store_id", nullable = false)
     private Store store;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", nullable = false)
     private ProductCategory category;
 
@@ -1,11 +1,16 @@
 package com.example.agrifinpalestine.Entity;
 
+import com.example.agrifinpalestine.cache.CacheRegions;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.PRODUCT_CATEGORIES)
 @Table(name = "product_categories")
 @Data
 @NoArgsConstructor
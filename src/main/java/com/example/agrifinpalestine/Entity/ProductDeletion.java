@@ -0,0 +1,42 @@
+package com.example.agrifinpalestine.Entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A deleted product, or every product of a deleted store. Rows are written in the
+ * deleting transaction, so other application nodes can drop the products from their
+ * search index; they are kept for a day.
+ */
+@Entity
+@Table(
+        name = "product_deletions",
+        indexes = {
+                @Index(name = "idx_product_deletion_deleted_at", columnList = "deleted_at")
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDeletion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "deletion_id")
+    private Long deletionId;
+
+    // Set when a single product is deleted
+    @Column(name = "product_id")
+    private Integer productId;
+
+    // Set when a store is deleted with all its products
+    @Column(name = "store_id")
+    private Integer storeId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt = LocalDateTime.now();
+}
@@ -17,7 +17,7 @@ public class ProductImage {
     @Column(name = "image_id")
     private Integer imageId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
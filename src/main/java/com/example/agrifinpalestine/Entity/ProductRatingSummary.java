@@ -0,0 +1,76 @@
+package com.example.agrifinpalestine.Entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated rating statistics for a product.
+ * Maintained incrementally whenever a review is created or deleted so that
+ * product listings never have to load the individual reviews.
+ */
+@Entity
+@Table(name = "product_rating_summaries")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRatingSummary {
+
+    /**
+     * Ranking score assumed for products without reviews
+     */
+    public static final double PRIOR_MEAN = 3.0;
+
+    /**
+     * Number of PRIOR_MEAN votes every product starts with, so a single 5-star review
+     * does not outrank a long track record of 4.8
+     */
+    public static final int PRIOR_WEIGHT = 5;
+
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Column(name = "review_count", nullable = false)
+    private Integer reviewCount = 0;
+
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum = 0L;
+
+    @Column(name = "one_star_count", nullable = false)
+    private Integer oneStarCount = 0;
+
+    @Column(name = "two_star_count", nullable = false)
+    private Integer twoStarCount = 0;
+
+    @Column(name = "three_star_count", nullable = false)
+    private Integer threeStarCount = 0;
+
+    @Column(name = "four_star_count", nullable = false)
+    private Integer fourStarCount = 0;
+
+    @Column(name = "five_star_count", nullable = false)
+    private Integer fiveStarCount = 0;
+
+    // Bayesian average (rating_sum + PRIOR_MEAN * PRIOR_WEIGHT) / (review_count + PRIOR_WEIGHT),
+    // maintained by the summary upserts and used to rank related products
+    @Column(name = "score")
+    private Double score = PRIOR_MEAN;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    /**
+     * Get the average rating for the product
+     * @return the average rating, or 0.0 if the product has no reviews
+     */
+    public double getAverageRating() {
+        if (reviewCount == null || reviewCount == 0 || ratingSum == null) {
+            return 0.0;
+        }
+        return (double) ratingSum / reviewCount;
+    }
+}
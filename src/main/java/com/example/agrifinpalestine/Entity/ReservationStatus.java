@@ -0,0 +1,21 @@
+package com.example.agrifinpalestine.Entity;
+
+/**
+ * Enum representing the status of an inventory reservation
+ */
+public enum ReservationStatus {
+    /**
+     * Stock is held for a payment that has not completed yet
+     */
+    RESERVED,
+
+    /**
+     * The payment succeeded and the stock is sold
+     */
+    COMMITTED,
+
+    /**
+     * The payment failed or timed out and the stock was returned
+     */
+    RELEASED
+}
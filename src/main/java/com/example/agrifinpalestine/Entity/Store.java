@@ -1,14 +1,19 @@
 package com.example.agrifinpalestine.Entity;
 
+import com.example.agrifinpalestine.cache.CacheRegions;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.STORES)
 @Table(name = "stores")
 @Data
 @NoArgsConstructor
@@ -20,7 +25,7 @@ public class Store {
     @Column(name = "store_id")
     private Integer storeId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
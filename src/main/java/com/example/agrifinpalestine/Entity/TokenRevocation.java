@@ -0,0 +1,54 @@
+package com.example.agrifinpalestine.Entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A revoked token (by its token ID) or a revocation of every token of a user issued
+ * before a point in time. Rows are written in ID order, so application nodes pick up
+ * revocations made elsewhere by reading the rows after the last ID they have seen.
+ */
+@Entity
+@Table(
+        name = "token_revocations",
+        indexes = {
+                @Index(name = "idx_token_revocation_expires", columnList = "expires_at")
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRevocation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "revocation_id")
+    private Long revocationId;
+
+    // Set when a single token is revoked
+    @Column(name = "token_id", length = 64)
+    private String tokenId;
+
+    // Set when all tokens of a user are revoked
+    @Column(name = "username", length = 50)
+    private String username;
+
+    // Tokens of the user issued before this time (epoch milliseconds) are revoked
+    @Column(name = "not_before")
+    private Long notBefore;
+
+    // Set when a refresh token was revoked because it was exchanged for new tokens
+    @Column(name = "rotated_at")
+    private LocalDateTime rotatedAt;
+
+    // The row can be deleted once every token it revokes has expired
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
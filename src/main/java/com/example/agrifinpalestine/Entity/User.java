@@ -1,14 +1,22 @@
 package com.example.agrifinpalestine.Entity;
 
+import com.example.agrifinpalestine.cache.CacheRegions;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@NamedEntityGraph(name = "User.account", attributeNodes = {
+        @NamedAttributeNode("roles"),
+        @NamedAttributeNode("cart")
+})
 @Table(name = "users")
 @Data
 @NoArgsConstructor
@@ -60,7 +68,8 @@ public class User {
     @Column(name = "is_active")
     private Boolean isActive;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.USER_ROLES)
     @JoinTable(
             name = "user_roles",
             joinColumns = @JoinColumn(name = "user_id"),
@@ -68,7 +77,10 @@ public class User {
     )
     private Set<Role> roles = new HashSet<>();
 
-    @OneToOne(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    // Hibernate cannot proxy the side without the foreign key, so this is still loaded with the user.
+    // Not serialized: the cart refers back to the user, and its items are not loaded
+    @JsonIgnore
+    @OneToOne(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private Cart cart;
 
     /**
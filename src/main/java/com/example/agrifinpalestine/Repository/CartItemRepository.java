@@ -1,6 +1,8 @@
 package com.example.agrifinpalestine.Repository;
 
 import com.example.agrifinpalestine.Entity.CartItem;
+import com.example.agrifinpalestine.dto.CheckoutLine;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -21,6 +23,25 @@ public interface CartItemRepository extends JpaRepository<CartItem, Integer> {
      */
     List<CartItem> findAllByCartCartId(Integer cartId);
 
+    /**
+     * Find all items in a given cart together with their products and the cart, so that
+     * converting the items to responses runs no further queries
+     * @param cartId the cart ID
+     * @return the cart items, in the order they were added
+     */
+    @EntityGraph("CartItem.cartView")
+    @Query("SELECT ci FROM CartItem ci WHERE ci.cart.cartId = :cartId ORDER BY ci.cartItemId")
+    List<CartItem> findAllWithProductsByCartId(@Param("cartId") Integer cartId);
+
+    /**
+     * Find all items in a given cart together with their products, for pricing the cart at checkout
+     * @param cartId the cart ID
+     * @return the cart items, in the order they were added
+     */
+    @EntityGraph("CartItem.checkout")
+    @Query("SELECT ci FROM CartItem ci WHERE ci.cart.cartId = :cartId ORDER BY ci.cartItemId")
+    List<CartItem> findCheckoutItemsByCartId(@Param("cartId") Integer cartId);
+
     /**
      * Find all items in a given cart (simplified method name)
      * @param cartId the cart ID
@@ -44,6 +65,42 @@ public interface CartItemRepository extends JpaRepository<CartItem, Integer> {
      */
     Optional<CartItem> findByCart_CartIdAndProduct_ProductId(Integer cartId, Integer productId);
 
+    /**
+     * Find a specific line by cart + product together with its product
+     * @param cartId the cart ID
+     * @param productId the product ID
+     * @return an optional containing the cart item, or empty if none exists
+     */
+    @Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product WHERE ci.cart.cartId = :cartId AND ci.product.productId = :productId")
+    Optional<CartItem> findLineWithProduct(@Param("cartId") Integer cartId, @Param("productId") Integer productId);
+
+    /**
+     * Add a quantity of a product to a cart in a single statement.
+     * A new line is inserted at the product's current price; if the line already exists, the
+     * unique (cart_id, product_id) key turns the insert into a quantity increment instead.
+     * Nothing is written when the product is missing or unavailable, or when its stock does
+     * not cover the line's new quantity.
+     * The new line is selected through a derived table so that the update can refer to it by
+     * name; MySQL only allows a row alias after VALUES, and VALUES(col) is deprecated.
+     * @param cartId the cart ID
+     * @param productId the product ID
+     * @param quantity the quantity to add
+     * @return the number of rows affected; 0 if the product could not be added
+     */
+    @Modifying
+    @Query(value = "INSERT INTO cart_items (cart_id, product_id, quantity, price, created_at, updated_at) " +
+            "SELECT * FROM (SELECT :cartId AS cart_id, p.product_id, :quantity AS quantity, p.price, " +
+            "CURRENT_TIMESTAMP AS created_at, CURRENT_TIMESTAMP AS updated_at " +
+            "FROM products p WHERE p.product_id = :productId " +
+            "AND (p.is_available IS NULL OR p.is_available = TRUE) " +
+            "AND p.quantity >= :quantity + COALESCE((SELECT ci.quantity FROM cart_items ci " +
+            "WHERE ci.cart_id = :cartId AND ci.product_id = :productId), 0)) AS new_line " +
+            "ON DUPLICATE KEY UPDATE cart_items.quantity = cart_items.quantity + new_line.quantity, " +
+            "cart_items.updated_at = new_line.updated_at", nativeQuery = true)
+    int upsertLine(@Param("cartId") Integer cartId,
+                   @Param("productId") Integer productId,
+                   @Param("quantity") Integer quantity);
+
     /**
      * Delete all lines belonging to a cart
      * @param cartId the cart ID
@@ -117,4 +174,15 @@ public interface CartItemRepository extends JpaRepository<CartItem, Integer> {
     @Transactional
     @Query(value = "DELETE FROM cart_items WHERE cart_id IN (SELECT cart_id FROM carts WHERE user_id = :userId AND status = 'ACTIVE')", nativeQuery = true)
     int deleteAllCartItemsByUserIdNative(@Param("userId") Integer userId);
+
+    /**
+     * Load the lines of a user's active cart with the current product prices for checkout
+     * @param userId the user ID
+     * @return the checkout lines, in the order they were added
+     */
+    @Query("SELECT new com.example.agrifinpalestine.dto.CheckoutLine(" +
+           "ci.cart.cartId, ci.cart.version, ci.product.productId, ci.quantity, ci.product.price) " +
+           "FROM CartItem ci WHERE ci.cart.user.userId = :userId AND ci.cart.status = 'ACTIVE' " +
+           "ORDER BY ci.cartItemId")
+    List<CheckoutLine> findCheckoutLines(@Param("userId") Integer userId);
 }
@@ -2,6 +2,7 @@ package com.example.agrifinpalestine.Repository;
 
 import com.example.agrifinpalestine.Entity.Cart;
 import com.example.agrifinpalestine.Entity.CartStatus;
+import com.example.agrifinpalestine.dto.CartTotals;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -9,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -63,9 +65,32 @@ public interface CartRepository extends JpaRepository<Cart, Integer> {
      */
     @Modifying
     @Transactional
-    @Query("UPDATE Cart c SET c.status = 'COMPLETED', c.updatedAt = CURRENT_TIMESTAMP WHERE c.user.userId = :userId AND c.status = 'ACTIVE'")
+    @Query("UPDATE Cart c SET c.status = 'COMPLETED', c.updatedAt = CURRENT_TIMESTAMP, c.version = c.version + 1 " +
+            "WHERE c.user.userId = :userId AND c.status = 'ACTIVE'")
     int updateCartStatusToCompletedByUserId(@Param("userId") Integer userId);
 
+    /**
+     * Delete the completed cart of a user; its items are removed by the ON DELETE CASCADE key.
+     * A user keeps at most one cart per status (UK_user_active_cart), so this must run
+     * before the active cart is completed
+     * @param userId the user ID
+     * @return the number of carts deleted
+     */
+    @Modifying
+    @Query("DELETE FROM Cart c WHERE c.user.userId = :userId AND c.status = 'COMPLETED'")
+    int deleteCompletedCartsByUserId(@Param("userId") Integer userId);
+
+    /**
+     * Complete an active cart if it has not changed since it was read
+     * @param cartId the cart ID
+     * @param version the version of the cart when it was read
+     * @return 1 if the cart was completed, 0 if it changed or is no longer active
+     */
+    @Modifying
+    @Query("UPDATE Cart c SET c.status = 'COMPLETED', c.updatedAt = CURRENT_TIMESTAMP, c.version = c.version + 1 " +
+            "WHERE c.cartId = :cartId AND c.status = 'ACTIVE' AND c.version = :version")
+    int completeCart(@Param("cartId") Integer cartId, @Param("version") Long version);
+
     /**
      * Check if a user has any active carts
      * @param userId the user ID
@@ -81,4 +106,69 @@ public interface CartRepository extends JpaRepository<Cart, Integer> {
      */
     @Query("SELECT c.cartId FROM Cart c WHERE c.user.userId = :userId AND c.status = 'ACTIVE'")
     List<Integer> findAllActiveCartIdsByUserId(@Param("userId") Integer userId);
+
+    /**
+     * Apply the change of a single cart line to the cart totals.
+     * The addition is done by the database, so the other lines are never reloaded.
+     * @param cartId the cart ID
+     * @param priceDelta the change of the line amount (snapshot price x quantity)
+     * @param quantityDelta the change of the line quantity
+     * @return the number of carts updated
+     */
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalPrice = c.totalPrice + :priceDelta, " +
+            "c.totalQuantity = c.totalQuantity + :quantityDelta, c.updatedAt = CURRENT_TIMESTAMP, " +
+            "c.version = c.version + 1 " +
+            "WHERE c.cartId = :cartId")
+    int applyTotalsDelta(@Param("cartId") Integer cartId,
+                         @Param("priceDelta") BigDecimal priceDelta,
+                         @Param("quantityDelta") int quantityDelta);
+
+    /**
+     * Add a quantity of one line to the cart totals at that line's price
+     * @param cartId the cart ID
+     * @param productId the product ID of the line
+     * @param quantity the quantity added to the line
+     * @return the number of carts updated
+     */
+    @Modifying
+    @Query(value = "UPDATE carts c JOIN cart_items ci ON ci.cart_id = c.cart_id " +
+            "SET c.total_price = c.total_price + ci.price * :quantity, " +
+            "c.total_quantity = c.total_quantity + :quantity, c.updated_at = CURRENT_TIMESTAMP, " +
+            "c.version = c.version + 1 " +
+            "WHERE c.cart_id = :cartId AND ci.product_id = :productId", nativeQuery = true)
+    int addLineQuantityToTotals(@Param("cartId") Integer cartId,
+                                @Param("productId") Integer productId,
+                                @Param("quantity") Integer quantity);
+
+    /**
+     * Recompute the totals of active carts whose stored totals no longer match their items
+     * @return the recomputed totals, with the version of each cart they were computed at
+     */
+    @Query("SELECT new com.example.agrifinpalestine.dto.CartTotals(c.cartId, c.version, " +
+            "COALESCE(SUM(ci.price * ci.quantity), 0), COALESCE(SUM(ci.quantity), 0)) " +
+            "FROM Cart c LEFT JOIN c.cartItems ci WHERE c.status = 'ACTIVE' " +
+            "GROUP BY c.cartId, c.version, c.totalPrice, c.totalQuantity " +
+            "HAVING c.totalPrice <> COALESCE(SUM(ci.price * ci.quantity), 0) " +
+            "OR c.totalQuantity <> COALESCE(SUM(ci.quantity), 0)")
+    List<CartTotals> findDriftedActiveCartTotals();
+
+    /**
+     * Store recomputed totals, unless the cart changed after they were computed.
+     * Every item change bumps the cart version, so a concurrent add-to-cart is never overwritten.
+     * @param cartId the cart ID
+     * @param version the version of the cart when its totals were computed
+     * @param totalPrice the recomputed total price
+     * @param totalQuantity the recomputed total quantity
+     * @return 1 if the totals were stored, 0 if the cart changed in between
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Cart c SET c.totalPrice = :totalPrice, c.totalQuantity = :totalQuantity, " +
+            "c.updatedAt = CURRENT_TIMESTAMP, c.version = c.version + 1 " +
+            "WHERE c.cartId = :cartId AND c.version = :version AND c.status = 'ACTIVE'")
+    int repairTotals(@Param("cartId") Integer cartId,
+                     @Param("version") Long version,
+                     @Param("totalPrice") BigDecimal totalPrice,
+                     @Param("totalQuantity") int totalQuantity);
 }
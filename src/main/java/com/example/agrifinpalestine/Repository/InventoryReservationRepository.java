@@ -0,0 +1,59 @@
+package com.example.agrifinpalestine.Repository;
+
+import com.example.agrifinpalestine.Entity.InventoryReservation;
+import com.example.agrifinpalestine.Entity.ReservationStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface InventoryReservationRepository extends JpaRepository<InventoryReservation, Integer> {
+
+    /**
+     * Find the reservations made for a payment intent
+     * @param paymentIntentId the Stripe payment intent ID
+     * @return the reservations, one per product
+     */
+    List<InventoryReservation> findByPaymentIntentId(String paymentIntentId);
+
+    /**
+     * Find a user's reservations in a given status
+     * @param userId the user ID
+     * @param status the reservation status
+     * @return the reservations
+     */
+    List<InventoryReservation> findByUserIdAndStatus(Integer userId, ReservationStatus status);
+
+    /**
+     * Find reservations that are still held after their expiry time, oldest first
+     * @param status the held status
+     * @param now the current time
+     * @param pageable the batch size
+     * @return the expired reservations
+     */
+    @Query("SELECT r FROM InventoryReservation r WHERE r.status = :status AND r.expiresAt < :now ORDER BY r.expiresAt")
+    List<InventoryReservation> findExpired(@Param("status") ReservationStatus status,
+                                           @Param("now") LocalDateTime now,
+                                           Pageable pageable);
+
+    /**
+     * Move a reservation from one status to another.
+     * Only one caller can win the transition, so stock is never returned or taken twice.
+     * @param reservationId the reservation ID
+     * @param from the expected current status
+     * @param to the new status
+     * @return 1 if the reservation was in the expected status, 0 otherwise
+     */
+    @Modifying
+    @Query("UPDATE InventoryReservation r SET r.status = :to, r.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE r.reservationId = :reservationId AND r.status = :from")
+    int transition(@Param("reservationId") Integer reservationId,
+                   @Param("from") ReservationStatus from,
+                   @Param("to") ReservationStatus to);
+}
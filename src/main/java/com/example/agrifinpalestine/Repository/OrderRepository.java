@@ -1,10 +1,21 @@
 package com.example.agrifinpalestine.Repository;
 
 import com.example.agrifinpalestine.Entity.Order;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Integer> {
     // الحصول على جميع الطلبات لمستخدم معين
+    // The orders page lists the items and their products, so they are loaded with the orders
+    @EntityGraph("Order.withItems")
     List<Order> findByUser_UserId(Integer userId);
+
+    /**
+     * Find the order paid with a payment intent
+     * @param paymentIntentId the Stripe payment intent ID
+     * @return the order, if the payment was already processed
+     */
+    Optional<Order> findByPaymentIntentId(String paymentIntentId);
 }
@@ -0,0 +1,33 @@
+package com.example.agrifinpalestine.Repository;
+
+import com.example.agrifinpalestine.Entity.ProductDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProductDeletionRepository extends JpaRepository<ProductDeletion, Long> {
+
+    /**
+     * Find the deletions made since a given time
+     * @param since the earliest deletion time
+     * @return the deletions
+     */
+    List<ProductDeletion> findByDeletedAtGreaterThanEqual(LocalDateTime since);
+
+    /**
+     * Delete deletions that every node has had time to apply
+     * @param before the deletion time before which rows are dropped
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ProductDeletion d WHERE d.deletedAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,53 @@
+package com.example.agrifinpalestine.Repository;
+
+import com.example.agrifinpalestine.Entity.Product;
+import com.example.agrifinpalestine.dto.ProductListingRow;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Projection queries for product listings; implemented by {@link ProductListingRepositoryImpl}
+ * and exposed through {@link ProductRepository}
+ */
+public interface ProductListingRepository {
+
+    /**
+     * Find listing rows matching a filter
+     * @param filter the filter, or null for all products
+     * @param sort the sort; must end with a unique key when used with keyset paging
+     * @param after sort key values of the last row already returned, or null to start at the beginning
+     * @param limit the maximum number of rows, or 0 for no limit
+     * @return the listing rows in sort order
+     */
+    List<ProductListingRow> findListings(Specification<Product> filter, Sort sort, Map<String, Object> after, int limit);
+
+    /**
+     * Find a page of listing rows matching a filter
+     * @param filter the filter, or null for all products
+     * @param pageable pagination information
+     * @return the page of listing rows
+     */
+    Page<ProductListingRow> findListings(Specification<Product> filter, Pageable pageable);
+
+    /**
+     * Find listing rows by product ID
+     * @param productIds the product IDs
+     * @return the rows that exist, in no particular order
+     */
+    List<ProductListingRow> findListingsByIds(Collection<Integer> productIds);
+
+    /**
+     * Find the best ranked available products of a category, excluding one product
+     * @param categoryId the category ID
+     * @param excludedProductId the product to exclude, usually the one being viewed
+     * @param limit the maximum number of rows
+     * @return the listing rows, highest rating score first
+     */
+    List<ProductListingRow> findRelatedListings(Integer categoryId, Integer excludedProductId, int limit);
+}
@@ -0,0 +1,216 @@
+package com.example.agrifinpalestine.Repository;
+
+import com.example.agrifinpalestine.Entity.Product;
+import com.example.agrifinpalestine.Entity.ProductCategory;
+import com.example.agrifinpalestine.Entity.ProductRatingSummary;
+import com.example.agrifinpalestine.Entity.Store;
+import com.example.agrifinpalestine.dto.ProductListingRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.query.criteria.JpaEntityJoin;
+import org.hibernate.query.criteria.JpaRoot;
+import org.hibernate.query.sqm.tree.SqmJoinType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds listing queries that select only the columns of {@link ProductListingRow}.
+ * Product, store, category and rating summary are read in one SQL statement; the store's
+ * owner is referenced through its foreign key column only.
+ */
+public class ProductListingRepositoryImpl implements ProductListingRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductListingRow> findListings(Specification<Product> filter, Sort sort,
+                                                Map<String, Object> after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductListingRow> query = cb.createQuery(ProductListingRow.class);
+        Root<Product> product = selectListing(query, cb);
+
+        List<Predicate> predicates = new ArrayList<>();
+        addFilter(predicates, filter, product, query, cb);
+        if (after != null && !after.isEmpty()) {
+            predicates.add(seekAfter(sort, after, product, cb));
+        }
+
+        query.where(predicates.toArray(new Predicate[0]));
+        query.orderBy(QueryUtils.toOrders(sort, product, cb));
+
+        TypedQuery<ProductListingRow> typedQuery = entityManager.createQuery(query);
+        if (limit > 0) {
+            typedQuery.setMaxResults(limit);
+        }
+        return typedQuery.getResultList();
+    }
+
+    @Override
+    public Page<ProductListingRow> findListings(Specification<Product> filter, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductListingRow> query = cb.createQuery(ProductListingRow.class);
+        Root<Product> product = selectListing(query, cb);
+
+        List<Predicate> predicates = new ArrayList<>();
+        addFilter(predicates, filter, product, query, cb);
+        query.where(predicates.toArray(new Predicate[0]));
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), product, cb));
+
+        TypedQuery<ProductListingRow> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+
+        // The count query only runs when the page size does not already tell us the total
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, () -> count(filter));
+    }
+
+    @Override
+    public List<ProductListingRow> findListingsByIds(Collection<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductListingRow> query = cb.createQuery(ProductListingRow.class);
+        Root<Product> product = selectListing(query, cb);
+        query.where(product.get("productId").in(productIds));
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public List<ProductListingRow> findRelatedListings(Integer categoryId, Integer excludedProductId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductListingRow> query = cb.createQuery(ProductListingRow.class);
+        Root<Product> product = query.from(Product.class);
+        JpaEntityJoin<ProductRatingSummary> ratingSummary = select(query, cb, product);
+
+        query.where(
+                cb.equal(product.get("category").get("categoryId"), categoryId),
+                cb.notEqual(product.get("productId"), excludedProductId),
+                cb.isTrue(product.get("isAvailable")));
+
+        // Products without reviews rank with the prior score
+        Expression<Double> score = cb.coalesce(ratingSummary.get("score"), ProductRatingSummary.PRIOR_MEAN);
+        query.orderBy(cb.desc(score), cb.asc(product.get("productId")));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private long count(Specification<Product> filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> product = query.from(Product.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        addFilter(predicates, filter, product, query, cb);
+        query.select(cb.count(product)).where(predicates.toArray(new Predicate[0]));
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private Root<Product> selectListing(CriteriaQuery<ProductListingRow> query, CriteriaBuilder cb) {
+        Root<Product> product = query.from(Product.class);
+        select(query, cb, product);
+        return product;
+    }
+
+    private JpaEntityJoin<ProductRatingSummary> select(CriteriaQuery<ProductListingRow> query, CriteriaBuilder cb,
+                                                       Root<Product> product) {
+        Join<Product, Store> store = product.join("store");
+        Join<Product, ProductCategory> category = product.join("category");
+
+        // Rating summaries have no association to Product, so join them as an entity on the key
+        JpaEntityJoin<ProductRatingSummary> ratingSummary =
+                ((JpaRoot<Product>) product).join(ProductRatingSummary.class, SqmJoinType.LEFT);
+        ratingSummary.on(cb.equal(ratingSummary.get("productId"), product.get("productId")));
+
+        query.select(cb.construct(ProductListingRow.class,
+                product.get("productId"),
+                store.get("storeId"),
+                store.get("storeName"),
+                store.get("user").get("userId"),
+                store.get("location"),
+                category.get("categoryId"),
+                category.get("categoryNameEn"),
+                product.get("productName"),
+                product.get("productDescription"),
+                product.get("price"),
+                product.get("quantity"),
+                product.get("unit"),
+                product.get("productImage"),
+                product.get("isOrganic"),
+                product.get("isAvailable"),
+                product.get("createdAt"),
+                product.get("updatedAt"),
+                ratingSummary.get("reviewCount"),
+                ratingSummary.get("ratingSum")));
+        return ratingSummary;
+    }
+
+    private static void addFilter(List<Predicate> predicates, Specification<Product> filter, Root<Product> product,
+                                  CriteriaQuery<?> query, CriteriaBuilder cb) {
+        if (filter != null) {
+            Predicate predicate = filter.toPredicate(product, query, cb);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+    }
+
+    /**
+     * Keyset condition for rows strictly after the given sort key values:
+     * (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ... with the comparison flipped for descending keys
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate seekAfter(Sort sort, Map<String, Object> after, Root<Product> product, CriteriaBuilder cb) {
+        List<Predicate> alternatives = new ArrayList<>();
+        List<Predicate> equalPrefix = new ArrayList<>();
+
+        for (Sort.Order order : sort) {
+            Expression<Comparable> key = product.get(order.getProperty());
+            Comparable value = (Comparable) after.get(order.getProperty());
+
+            Predicate beyond = beyond(key, value, order.isAscending(), cb);
+            if (beyond != null) {
+                List<Predicate> alternative = new ArrayList<>(equalPrefix);
+                alternative.add(beyond);
+                alternatives.add(cb.and(alternative.toArray(new Predicate[0])));
+            }
+
+            equalPrefix.add(value == null ? cb.isNull(key) : cb.equal(key, value));
+        }
+
+        return cb.or(alternatives.toArray(new Predicate[0]));
+    }
+
+    // The rows that sort after the value, with MySQL's order that puts NULL before any value;
+    // null if there are none
+    private static Predicate beyond(Expression<Comparable> key, Comparable value, boolean ascending,
+                                    CriteriaBuilder cb) {
+        if (value == null) {
+            return ascending ? cb.isNotNull(key) : null;
+        }
+        return ascending ? cb.greaterThan(key, value) : cb.or(cb.lessThan(key, value), cb.isNull(key));
+    }
+}
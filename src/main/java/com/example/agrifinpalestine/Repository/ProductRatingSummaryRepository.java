@@ -0,0 +1,109 @@
+package com.example.agrifinpalestine.Repository;
+
+import com.example.agrifinpalestine.Entity.ProductRatingSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductRatingSummaryRepository extends JpaRepository<ProductRatingSummary, Integer> {
+
+    // Compile-time SQL fragments for the score formula documented on ProductRatingSummary
+    String PRIOR_SUM = "" + ProductRatingSummary.PRIOR_MEAN * ProductRatingSummary.PRIOR_WEIGHT;
+    String PRIOR_WEIGHT = "" + ProductRatingSummary.PRIOR_WEIGHT;
+
+    /**
+     * Find the rating summaries for a set of products in a single query
+     * @param productIds the product IDs
+     * @return the summaries that exist for the given products
+     */
+    List<ProductRatingSummary> findByProductIdIn(Collection<Integer> productIds);
+
+    /**
+     * Add a single rating to a product's summary, creating the row if it does not exist yet.
+     * The increment is applied by the database so concurrent reviews never lose updates.
+     * @param productId the product ID
+     * @param rating the rating (1-5)
+     * @return the number of rows affected
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_rating_summaries " +
+            "(product_id, review_count, rating_sum, one_star_count, two_star_count, three_star_count, " +
+            "four_star_count, five_star_count, score, updated_at) VALUES (:productId, 1, :rating, " +
+            "CASE WHEN :rating = 1 THEN 1 ELSE 0 END, CASE WHEN :rating = 2 THEN 1 ELSE 0 END, " +
+            "CASE WHEN :rating = 3 THEN 1 ELSE 0 END, CASE WHEN :rating = 4 THEN 1 ELSE 0 END, " +
+            "CASE WHEN :rating = 5 THEN 1 ELSE 0 END, (:rating + " + PRIOR_SUM + ") / (1 + " + PRIOR_WEIGHT + "), " +
+            "CURRENT_TIMESTAMP) AS new " +
+            "ON DUPLICATE KEY UPDATE review_count = review_count + 1, " +
+            "rating_sum = rating_sum + new.rating_sum, " +
+            "one_star_count = one_star_count + new.one_star_count, " +
+            "two_star_count = two_star_count + new.two_star_count, " +
+            "three_star_count = three_star_count + new.three_star_count, " +
+            "four_star_count = four_star_count + new.four_star_count, " +
+            "five_star_count = five_star_count + new.five_star_count, " +
+            // Assignments apply left to right, so these are the updated sums
+            "score = (rating_sum + " + PRIOR_SUM + ") / (review_count + " + PRIOR_WEIGHT + "), " +
+            "updated_at = new.updated_at", nativeQuery = true)
+    int addRating(@Param("productId") Integer productId, @Param("rating") Integer rating);
+
+    /**
+     * Remove a single rating from a product's summary
+     * @param productId the product ID
+     * @param rating the rating (1-5) of the removed review
+     * @return the number of rows affected
+     */
+    @Modifying
+    @Query(value = "UPDATE product_rating_summaries SET review_count = review_count - 1, " +
+            "rating_sum = rating_sum - :rating, " +
+            "one_star_count = GREATEST(one_star_count - CASE WHEN :rating = 1 THEN 1 ELSE 0 END, 0), " +
+            "two_star_count = GREATEST(two_star_count - CASE WHEN :rating = 2 THEN 1 ELSE 0 END, 0), " +
+            "three_star_count = GREATEST(three_star_count - CASE WHEN :rating = 3 THEN 1 ELSE 0 END, 0), " +
+            "four_star_count = GREATEST(four_star_count - CASE WHEN :rating = 4 THEN 1 ELSE 0 END, 0), " +
+            "five_star_count = GREATEST(five_star_count - CASE WHEN :rating = 5 THEN 1 ELSE 0 END, 0), " +
+            "score = (rating_sum + " + PRIOR_SUM + ") / (review_count + " + PRIOR_WEIGHT + "), " +
+            "updated_at = CURRENT_TIMESTAMP " +
+            "WHERE product_id = :productId AND review_count > 0", nativeQuery = true)
+    int removeRating(@Param("productId") Integer productId, @Param("rating") Integer rating);
+
+    /**
+     * Recompute every summary from the reviews table.
+     * Used to backfill summaries for reviews written before the summaries (or their score) existed.
+     * The rows are selected through a derived table so that the update can refer to them by name,
+     * as MySQL only allows a row alias after VALUES.
+     * @return the number of rows affected
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_rating_summaries " +
+            "(product_id, review_count, rating_sum, one_star_count, two_star_count, three_star_count, " +
+            "four_star_count, five_star_count, score, updated_at) " +
+            "SELECT * FROM (SELECT r.product_id, COUNT(*) AS review_count, SUM(r.rating) AS rating_sum, " +
+            "SUM(CASE WHEN r.rating = 1 THEN 1 ELSE 0 END) AS one_star_count, " +
+            "SUM(CASE WHEN r.rating = 2 THEN 1 ELSE 0 END) AS two_star_count, " +
+            "SUM(CASE WHEN r.rating = 3 THEN 1 ELSE 0 END) AS three_star_count, " +
+            "SUM(CASE WHEN r.rating = 4 THEN 1 ELSE 0 END) AS four_star_count, " +
+            "SUM(CASE WHEN r.rating = 5 THEN 1 ELSE 0 END) AS five_star_count, " +
+            "(SUM(r.rating) + " + PRIOR_SUM + ") / (COUNT(*) + " + PRIOR_WEIGHT + ") AS score, " +
+            "CURRENT_TIMESTAMP AS updated_at " +
+            "FROM reviews r GROUP BY r.product_id) AS rebuilt " +
+            "ON DUPLICATE KEY UPDATE review_count = rebuilt.review_count, " +
+            "rating_sum = rebuilt.rating_sum, " +
+            "one_star_count = rebuilt.one_star_count, " +
+            "two_star_count = rebuilt.two_star_count, " +
+            "three_star_count = rebuilt.three_star_count, " +
+            "four_star_count = rebuilt.four_star_count, " +
+            "five_star_count = rebuilt.five_star_count, " +
+            "score = rebuilt.score, " +
+            "updated_at = rebuilt.updated_at", nativeQuery = true)
+    int rebuildAllFromReviews();
+
+    /**
+     * Count summaries whose ranking score has not been computed yet
+     * @return the number of summaries without a score
+     */
+    long countByScoreIsNull();
+}
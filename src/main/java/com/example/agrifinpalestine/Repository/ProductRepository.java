@@ -3,10 +3,15 @@ package com.example.agrifinpalestine.Repository;
 import com.example.agrifinpalestine.Entity.Product;
 import com.example.agrifinpalestine.Entity.ProductCategory;
 import com.example.agrifinpalestine.Entity.Store;
+import com.example.agrifinpalestine.dto.StoreProductCount;
+import com.example.agrifinpalestine.search.ProductDocument;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -14,9 +19,12 @@ import jakarta.persistence.LockModeType;
 import java.util.Optional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
-public interface ProductRepository extends JpaRepository<Product, Integer> {
+public interface ProductRepository extends JpaRepository<Product, Integer>, JpaSpecificationExecutor<Product>,
+        ProductListingRepository {
 
     // Find products by store
     List<Product> findByStore(Store store);
@@ -28,6 +36,8 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
 
     // Find products by name containing a keyword
     List<Product> findByProductNameContainingIgnoreCase(String keyword);
+    // Used for suggestions, which show the category of each product
+    @EntityGraph("Product.withCategory")
     Page<Product> findByProductNameContainingIgnoreCase(String keyword, Pageable pageable);
 
     // Find products by price range
@@ -53,6 +63,23 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     // Count products by store
     long countByStore(Store store);
 
+    /**
+     * Count the products of several stores in one query
+     * @param storeIds the store IDs
+     * @return the counts of the stores that have products
+     */
+    @Query("SELECT new com.example.agrifinpalestine.dto.StoreProductCount(p.store.storeId, COUNT(p)) " +
+           "FROM Product p WHERE p.store.storeId IN :storeIds GROUP BY p.store.storeId")
+    List<StoreProductCount> countByStoreIds(@Param("storeIds") Collection<Integer> storeIds);
+
+    /**
+     * Find a product with its store and category, for the product detail response
+     * @param productId the product ID
+     * @return the product, if found
+     */
+    @EntityGraph("Product.detail")
+    Optional<Product> findDetailByProductId(Integer productId);
+
     /**
      * Find a product by ID with a pessimistic lock to prevent concurrent modifications
      * This is used for inventory management to ensure consistency
@@ -61,6 +88,37 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     @Query("SELECT p FROM Product p WHERE p.productId = :id")
     Optional<Product> findByIdWithPessimisticLock(@Param("id") Integer id);
 
+    /**
+     * Take stock from a product if enough is left.
+     * The check and the decrement are one statement, so concurrent checkouts cannot oversell;
+     * only the product's row is locked, and only for the duration of the statement's transaction.
+     * @param productId the product ID
+     * @param quantity the quantity to take
+     * @return 1 if the stock was taken, 0 if the product is missing or has too little stock
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity - :quantity " +
+            "WHERE p.productId = :productId AND p.quantity >= :quantity")
+    int decrementStock(@Param("productId") Integer productId, @Param("quantity") Integer quantity);
+
+    /**
+     * Return stock to a product
+     * @param productId the product ID
+     * @param quantity the quantity to return
+     * @return the number of rows affected
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity + :quantity WHERE p.productId = :productId")
+    int incrementStock(@Param("productId") Integer productId, @Param("quantity") Integer quantity);
+
+    /**
+     * Find the category of a product without loading the product
+     * @param productId the product ID
+     * @return the category ID, or empty if the product does not exist
+     */
+    @Query("SELECT p.category.categoryId FROM Product p WHERE p.productId = :productId")
+    Optional<Integer> findCategoryIdByProductId(@Param("productId") Integer productId);
+
     // Advanced search with multiple criteria
     @Query("SELECT p FROM Product p WHERE " +
            "(:storeId IS NULL OR p.store.storeId = :storeId) AND " +
@@ -79,4 +137,29 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
             @Param("isOrganic") Boolean isOrganic,
             @Param("isAvailable") Boolean isAvailable,
             Pageable pageable);
+
+    /**
+     * Load search index documents in primary key order, starting after the given product ID
+     * @param afterId the last product ID already loaded
+     * @param pageable the batch size
+     * @return the next batch of documents
+     */
+    @Query("SELECT new com.example.agrifinpalestine.search.ProductDocument(" +
+           "p.productId, p.store.storeId, p.category.categoryId, p.category.categoryNameEn, " +
+           "p.category.categoryNameAr, p.productName, p.productDescription, " +
+           "p.price, p.isOrganic, p.isAvailable, p.createdAt) " +
+           "FROM Product p WHERE p.productId > :afterId ORDER BY p.productId")
+    List<ProductDocument> findSearchDocumentsAfter(@Param("afterId") Integer afterId, Pageable pageable);
+
+    /**
+     * Load search index documents for products changed since the given time
+     * @param since the time of the previous refresh
+     * @return the changed documents
+     */
+    @Query("SELECT new com.example.agrifinpalestine.search.ProductDocument(" +
+           "p.productId, p.store.storeId, p.category.categoryId, p.category.categoryNameEn, " +
+           "p.category.categoryNameAr, p.productName, p.productDescription, " +
+           "p.price, p.isOrganic, p.isAvailable, p.createdAt) " +
+           "FROM Product p WHERE p.updatedAt >= :since")
+    List<ProductDocument> findSearchDocumentsUpdatedSince(@Param("since") LocalDateTime since);
 }
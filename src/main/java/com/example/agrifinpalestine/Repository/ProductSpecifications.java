@@ -0,0 +1,68 @@
+package com.example.agrifinpalestine.Repository;
+
+import com.example.agrifinpalestine.Entity.Product;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filters for product listing queries
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    /**
+     * Match the products of a store
+     */
+    public static Specification<Product> inStore(Integer storeId) {
+        return (root, query, cb) -> cb.equal(root.get("store").get("storeId"), storeId);
+    }
+
+    /**
+     * Match the products of a category
+     */
+    public static Specification<Product> inCategory(Integer categoryId) {
+        return (root, query, cb) -> cb.equal(root.get("category").get("categoryId"), categoryId);
+    }
+
+    /**
+     * Match products against the same filters as {@link ProductRepository#searchProducts}.
+     * Null arguments are ignored.
+     */
+    public static Specification<Product> matching(Integer storeId, Integer categoryId, String keyword,
+                                                  BigDecimal minPrice, BigDecimal maxPrice,
+                                                  Boolean isOrganic, Boolean isAvailable) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (storeId != null) {
+                predicates.add(cb.equal(root.get("store").get("storeId"), storeId));
+            }
+            if (categoryId != null) {
+                predicates.add(cb.equal(root.get("category").get("categoryId"), categoryId));
+            }
+            if (keyword != null && !keyword.isBlank()) {
+                predicates.add(cb.like(cb.lower(root.get("productName")), "%" + keyword.trim().toLowerCase() + "%"));
+            }
+            if (minPrice != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), minPrice));
+            }
+            if (maxPrice != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("price"), maxPrice));
+            }
+            if (isOrganic != null) {
+                predicates.add(cb.equal(root.get("isOrganic"), isOrganic));
+            }
+            if (isAvailable != null) {
+                predicates.add(cb.equal(root.get("isAvailable"), isAvailable));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -1,7 +1,11 @@
 package com.example.agrifinpalestine.Repository;
 
 import com.example.agrifinpalestine.Entity.Review;
+import com.example.agrifinpalestine.dto.ReviewResponse;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.List;
 
 public interface ReviewRepository extends JpaRepository<Review, Integer> {
@@ -10,4 +14,24 @@ public interface ReviewRepository extends JpaRepository<Review, Integer> {
 
     // الحصول على جميع التقييمات لمستخدم معين
     List<Review> findByUser_UserId(Integer userId);
+
+    /**
+     * Select the reviews of a product as responses, without loading the review, product or user entities
+     * @param productId the product ID
+     * @return the reviews of the product
+     */
+    @Query("SELECT new com.example.agrifinpalestine.dto.ReviewResponse(" +
+           "r.reviewId, r.product.productId, r.user.userId, r.user.username, r.rating, r.reviewText, r.createdAt) " +
+           "FROM Review r WHERE r.product.productId = :productId ORDER BY r.reviewId")
+    List<ReviewResponse> findResponsesByProductId(@Param("productId") Integer productId);
+
+    /**
+     * Select the reviews of a user as responses, without loading the review, product or user entities
+     * @param userId the user ID
+     * @return the reviews of the user
+     */
+    @Query("SELECT new com.example.agrifinpalestine.dto.ReviewResponse(" +
+           "r.reviewId, r.product.productId, r.user.userId, r.user.username, r.rating, r.reviewText, r.createdAt) " +
+           "FROM Review r WHERE r.user.userId = :userId ORDER BY r.reviewId")
+    List<ReviewResponse> findResponsesByUserId(@Param("userId") Integer userId);
 }
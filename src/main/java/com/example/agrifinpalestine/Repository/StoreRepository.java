@@ -5,6 +5,7 @@ import com.example.agrifinpalestine.Entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +17,9 @@ public interface StoreRepository extends JpaRepository<Store, Integer> {
     // Find store by user
     Optional<Store> findByUser(User user);
 
+    // Find the stores of several users in one query
+    List<Store> findAllByUserIn(Collection<User> users);
+
     // Find store by user ID (returns a single store)
     Optional<Store> findByUser_UserId(Integer userId);
 
@@ -0,0 +1,31 @@
+package com.example.agrifinpalestine.Repository;
+
+import com.example.agrifinpalestine.Entity.TokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocation, Long> {
+
+    /**
+     * Find the revocations written after a given revocation, in the order they were written
+     * @param revocationId the last revocation ID already seen
+     * @return the newer revocations
+     */
+    List<TokenRevocation> findByRevocationIdGreaterThanOrderByRevocationId(Long revocationId);
+
+    /**
+     * Delete revocations whose tokens have all expired
+     * @param now the current time
+     * @return the number of deleted revocations
+     */
+    @Modifying
+    @Query("DELETE FROM TokenRevocation r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
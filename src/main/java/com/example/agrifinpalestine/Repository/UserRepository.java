@@ -4,6 +4,7 @@ import com.example.agrifinpalestine.Entity.Role;
 import com.example.agrifinpalestine.Entity.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -15,7 +16,21 @@ public interface UserRepository extends JpaRepository<User, Integer> {
 
     Logger logger = LoggerFactory.getLogger(UserRepository.class);
 
+    /**
+     * Find a user with the roles and cart, which are read by most users of this method
+     * @param id the user ID
+     * @return the user, if found
+     */
+    @Override
+    @EntityGraph("User.account")
+    Optional<User> findById(Integer id);
+
+    @Override
+    @EntityGraph("User.account")
+    List<User> findAll();
+
     // Find by username
+    @EntityGraph("User.account")
     Optional<User> findByUsername(String username);
 
     // Safer version of find by email to avoid duplicate results due to roles
@@ -51,7 +66,8 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     @Query("SELECT DISTINCT u.region FROM User u")
     List<String> findDistinctRegions();
 
-    // Find users by role name
+    // Find users by role name, with their roles and cart in the same query
+    @EntityGraph("User.account")
     @Query("SELECT DISTINCT u FROM User u JOIN u.roles r WHERE r.name = :roleName")
     List<User> findByRoleName(@Param("roleName") Role.ERole roleName);
 }
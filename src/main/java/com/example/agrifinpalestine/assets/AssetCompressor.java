@@ -0,0 +1,111 @@
+package com.example.agrifinpalestine.assets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Build step that writes a gzip variant next to every compressible static asset,
+ * e.g. {@code common.js.gz} next to {@code common.js}. The variants are served by
+ * the EncodedResourceResolver configured in WebConfig, so assets are compressed
+ * once at build time instead of on every request.
+ *
+ * Run by the build with the static output directory as the only argument.
+ */
+public final class AssetCompressor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetCompressor.class);
+
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of("js", "css", "svg", "html", "json");
+
+    // Below this size the gzip header costs more than compression saves
+    private static final int MIN_SIZE_BYTES = 256;
+
+    private AssetCompressor() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: AssetCompressor <static directory>");
+        }
+        Path directory = Paths.get(args[0]);
+        if (!Files.isDirectory(directory)) {
+            logger.info("No static assets in {}, nothing to compress", directory);
+            return;
+        }
+        int written = compressAll(directory);
+        logger.info("Wrote {} gzip asset variants in {}", written, directory);
+    }
+
+    /**
+     * Write gzip variants for every compressible file below a directory.
+     * Variants that are up to date or would not be smaller than the original are skipped.
+     * @param directory the static asset directory
+     * @return the number of variants written
+     * @throws IOException if a file cannot be read or written
+     */
+    public static int compressAll(Path directory) throws IOException {
+        List<Path> assets;
+        try (Stream<Path> files = Files.walk(directory)) {
+            assets = files.filter(Files::isRegularFile)
+                    .filter(AssetCompressor::isCompressible)
+                    .collect(Collectors.toList());
+        }
+
+        int written = 0;
+        for (Path asset : assets) {
+            if (compress(asset)) {
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private static boolean compress(Path asset) throws IOException {
+        Path variant = asset.resolveSibling(asset.getFileName() + ".gz");
+        if (Files.exists(variant)
+                && !Files.getLastModifiedTime(variant).toInstant().isBefore(Files.getLastModifiedTime(asset).toInstant())) {
+            return false;
+        }
+
+        byte[] original = Files.readAllBytes(asset);
+        byte[] compressed = gzip(original);
+        if (original.length < MIN_SIZE_BYTES || compressed.length >= original.length) {
+            Files.deleteIfExists(variant);
+            return false;
+        }
+        Files.write(variant, compressed);
+        return true;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(data.length / 2 + 64);
+        try (OutputStream gzip = new GZIPOutputStream(buffer) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(data);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static boolean isCompressible(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && COMPRESSIBLE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.agrifinpalestine.cache;
+
+/**
+ * Hit and miss counts of one second-level cache region. Counts stay at zero unless
+ * hibernate.generate_statistics is enabled.
+ */
+public class CacheRegionMetrics {
+
+    private final String region;
+    private final long hits;
+    private final long misses;
+    private final long puts;
+
+    public CacheRegionMetrics(String region, long hits, long misses, long puts) {
+        this.region = region;
+        this.hits = hits;
+        this.misses = misses;
+        this.puts = puts;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getPuts() {
+        return puts;
+    }
+
+    /**
+     * @return the share of lookups served from the cache, or 0 if there were none
+     */
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : hits / (double) lookups;
+    }
+}
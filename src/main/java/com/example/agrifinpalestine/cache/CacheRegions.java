@@ -0,0 +1,20 @@
+package com.example.agrifinpalestine.cache;
+
+import java.util.List;
+
+/**
+ * Names of the Hibernate second-level cache regions, which hold reference data that is
+ * read on almost every request and rarely written
+ */
+public final class CacheRegions {
+
+    public static final String PRODUCT_CATEGORIES = "product-categories";
+    public static final String ROLES = "roles";
+    public static final String STORES = "stores";
+    public static final String USER_ROLES = "user-roles";
+
+    public static final List<String> ALL = List.of(PRODUCT_CATEGORIES, ROLES, STORES, USER_ROLES);
+
+    private CacheRegions() {
+    }
+}
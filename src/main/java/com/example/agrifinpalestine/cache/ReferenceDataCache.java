@@ -0,0 +1,58 @@
+package com.example.agrifinpalestine.cache;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evicts changed reference entities from the second-level cache and reports its hit ratios.
+ *
+ * Changes made through Hibernate already update the cache of this instance. The eviction
+ * after commit also covers changes to the rows that bypass the entity, and the expiry of the
+ * regions bounds how long other instances serve the old state.
+ */
+@Component
+public class ReferenceDataCache {
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public ReferenceDataCache(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        logger.debug("Evicting cached {} {}", event.getEntityType().getSimpleName(), event.getId());
+        if (event.getId() == null) {
+            entityManagerFactory.getCache().evict(event.getEntityType());
+        } else {
+            entityManagerFactory.getCache().evict(event.getEntityType(), event.getId());
+        }
+    }
+
+    /**
+     * Get the hit and miss counts of the reference data regions since start-up
+     * @return one entry per region
+     */
+    public List<CacheRegionMetrics> getMetrics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<CacheRegionMetrics> metrics = new ArrayList<>();
+        for (String region : CacheRegions.ALL) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            metrics.add(regionStatistics == null
+                    ? new CacheRegionMetrics(region, 0, 0, 0)
+                    : new CacheRegionMetrics(region, regionStatistics.getHitCount(),
+                            regionStatistics.getMissCount(), regionStatistics.getPutCount()));
+        }
+        return metrics;
+    }
+}
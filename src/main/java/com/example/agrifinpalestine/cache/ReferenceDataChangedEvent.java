@@ -0,0 +1,24 @@
+package com.example.agrifinpalestine.cache;
+
+/**
+ * Published when a cached reference entity is created, updated or deleted, so that its
+ * second-level cache entry is dropped once the change is committed
+ */
+public class ReferenceDataChangedEvent {
+
+    private final Class<?> entityType;
+    private final Object id;
+
+    public ReferenceDataChangedEvent(Class<?> entityType, Object id) {
+        this.entityType = entityType;
+        this.id = id;
+    }
+
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+
+    public Object getId() {
+        return id;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.agrifinpalestine.config;
+
+import com.example.agrifinpalestine.lock.LockService;
+import com.example.agrifinpalestine.lock.MySqlLockService;
+import com.example.agrifinpalestine.lock.StripedLockService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Selects the lock service: in-JVM locks by default, MySQL named locks when several
+ * application instances share the database (lock.provider=mysql)
+ */
+@Configuration
+public class LockConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "lock.provider", havingValue = "jvm", matchIfMissing = true)
+    public LockService stripedLockService(@Value("${lock.stripes:1024}") int stripes) {
+        return new StripedLockService(stripes);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "lock.provider", havingValue = "mysql")
+    public LockService mySqlLockService(DataSource dataSource) {
+        return new MySqlLockService(dataSource);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.agrifinpalestine.config;
+
+import com.example.agrifinpalestine.Repository.ProductRatingSummaryRepository;
+import com.example.agrifinpalestine.Repository.ReviewRepository;
+import com.example.agrifinpalestine.service.ProductRatingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RatingSummaryInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RatingSummaryInitializer.class);
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private ProductRatingSummaryRepository ratingSummaryRepository;
+
+    @Autowired
+    private ProductRatingService productRatingService;
+
+    @Bean
+    public CommandLineRunner initRatingSummaries() {
+        return args -> {
+            // Backfill summaries once for reviews written before the summary table existed
+            if (ratingSummaryRepository.count() == 0 && reviewRepository.count() > 0) {
+                logger.info("Initializing product rating summaries from existing reviews...");
+                productRatingService.rebuildSummaries();
+            } else if (ratingSummaryRepository.countByScoreIsNull() > 0) {
+                // Summaries created before the ranking score column was added
+                logger.info("Computing ranking scores for existing product rating summaries...");
+                productRatingService.rebuildSummaries();
+            }
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.agrifinpalestine.config;
+
+import com.example.agrifinpalestine.datasource.ReadWriteRoutingDataSource;
+import com.example.agrifinpalestine.datasource.RecentWriters;
+import com.example.agrifinpalestine.datasource.ReplicaLagMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Adds a replica pool when datasource.replica.enabled=true. Read-only transactions, which
+ * include the finder methods of the Spring Data repositories, run on the replica while it
+ * is at most datasource.replica.max-lag-seconds behind; everything else runs on the primary.
+ * A user's reads stay on the primary for datasource.replica.pin-after-write-ms after a write.
+ *
+ * The primary pool is configured with the usual spring.datasource.* properties and the
+ * replica pool with datasource.replica.url, .username, .password and .hikari.*.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${datasource.replica.url}") String url,
+                                              @Value("${datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        if (properties.getDriverClassName() != null) {
+            dataSource.setDriverClassName(properties.getDriverClassName());
+        }
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                               @Value("${datasource.replica.max-lag-seconds:5}") long maxLagSeconds) {
+        return new ReplicaLagMonitor(replicaDataSource, maxLagSeconds);
+    }
+
+    @Bean
+    public RecentWriters recentWriters(@Value("${datasource.replica.pin-after-write-ms:10000}") long pinAfterWriteMillis) {
+        return new RecentWriters(pinAfterWriteMillis);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor,
+                                 RecentWriters recentWriters,
+                                 @Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        // With open-in-view, the first transaction of a request keeps its connection until the
+        // response is written, so a write after a read would be sent to the read-only replica
+        if (openInView) {
+            throw new IllegalStateException("datasource.replica.enabled requires spring.jpa.open-in-view=false");
+        }
+
+        // Measure the lag once now rather than sending all reads to the primary until the first scheduled check
+        replicaLagMonitor.check();
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor, recentWriters));
+    }
+}
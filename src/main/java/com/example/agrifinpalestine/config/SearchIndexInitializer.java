@@ -0,0 +1,32 @@
+package com.example.agrifinpalestine.config;
+
+import com.example.agrifinpalestine.search.ProductSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SearchIndexInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexInitializer.class);
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Bean
+    public CommandLineRunner initSearchIndex() {
+        return args -> {
+            logger.info("Building product search index...");
+
+            try {
+                productSearchIndex.rebuild();
+            } catch (Exception e) {
+                // Keyword searches fall back to the database until the index is ready
+                logger.error("Error building product search index: {}", e.getMessage(), e);
+            }
+        };
+    }
+}
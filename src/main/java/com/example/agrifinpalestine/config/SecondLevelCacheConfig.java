@@ -0,0 +1,47 @@
+package com.example.agrifinpalestine.config;
+
+import com.example.agrifinpalestine.cache.CacheRegions;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enables the Hibernate second-level cache on a JCache provider (Caffeine) for the reference
+ * entities annotated with @Cache. Entries expire after cache.reference-data.ttl-seconds, which
+ * bounds how long an instance serves data changed by another instance.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    @Bean
+    public CacheManager referenceDataCacheManager(@Value("${cache.reference-data.ttl-seconds:300}") long ttlSeconds) {
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager();
+        MutableConfiguration<Object, Object> configuration = new MutableConfiguration<Object, Object>()
+                .setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(new Duration(TimeUnit.SECONDS, ttlSeconds)))
+                .setStoreByValue(false);
+        for (String region : CacheRegions.ALL) {
+            if (cacheManager.getCache(region) == null) {
+                cacheManager.createCache(region, configuration);
+            }
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager referenceDataCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put("hibernate.javax.cache.cache_manager", referenceDataCacheManager);
+        };
+    }
+}
@@ -1,23 +1,92 @@
 package com.example.agrifinpalestine.config;
 
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceChainRegistration;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
 import org.springframework.web.servlet.resource.PathResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.regex.Pattern;
 
+/**
+ * Serves the static assets.
+ *
+ * Templates link assets with {@code th:src="@{/js/...}"}, which {@link ResourceUrlEncodingFilter}
+ * rewrites to a fingerprinted URL containing the MD5 hash of the file, e.g.
+ * {@code /js/common-5d41402abc4b2a76b9719d911017c592.js}. Fingerprinted URLs never change
+ * content, so they are cached for a year as immutable. Gzip variants written by
+ * {@link com.example.agrifinpalestine.assets.AssetCompressor} at build time are served to
+ * clients that accept them.
+ */
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private static final String[] ASSET_PATHS = {"/css/", "/js/", "/images/"};
+
+    // File name ending in "-<md5 hex>.<extension>", as produced by the content version strategy
+    private static final String FINGERPRINTED_FILE = "{file:.+-[0-9a-f]{32}\\.\\w+}";
+
+    private static final Pattern FINGERPRINTED_ASSET =
+            Pattern.compile("^/(css|js|images)/(.+/)?[^/]+-[0-9a-f]{32}\\.\\w+$");
+
+    private static final Duration IMMUTABLE_MAX_AGE = Duration.ofDays(365);
+
+    /**
+     * Check if a request path points to a fingerprinted asset
+     * @param path the request path, without the context path
+     * @return true if the path ends with a content hash
+     */
+    public static boolean isFingerprintedAsset(String path) {
+        return path != null && FINGERPRINTED_ASSET.matcher(path).matches();
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        registry.addResourceHandler("/css/**", "/js/**", "/images/**", "/webjars/**", "/favicon.ico")
-                .addResourceLocations("classpath:/static/css/", "classpath:/static/js/",
-                                     "classpath:/static/images/", "classpath:/META-INF/resources/webjars/",
-                                     "classpath:/static/favicon.ico")
-                .resourceChain(true)
+        // Fingerprinted URLs, up to two directories deep; more specific than the patterns below
+        String[] fingerprintedPatterns = new String[ASSET_PATHS.length * 3];
+        for (int i = 0; i < ASSET_PATHS.length; i++) {
+            fingerprintedPatterns[i * 3] = ASSET_PATHS[i] + FINGERPRINTED_FILE;
+            fingerprintedPatterns[i * 3 + 1] = ASSET_PATHS[i] + "*/" + FINGERPRINTED_FILE;
+            fingerprintedPatterns[i * 3 + 2] = ASSET_PATHS[i] + "*/*/" + FINGERPRINTED_FILE;
+        }
+        configureChain(registry.addResourceHandler(fingerprintedPatterns)
+                .addResourceLocations(staticLocations())
+                .setCacheControl(CacheControl.maxAge(IMMUTABLE_MAX_AGE).cachePublic().immutable())
+                .resourceChain(true));
+
+        // Plain URLs, still used by static pages and scripts loaded from JavaScript
+        configureChain(registry.addResourceHandler("/css/**", "/js/**", "/images/**", "/webjars/**", "/favicon.ico")
+                .addResourceLocations(staticLocations())
+                .setCacheControl(CacheControl.noCache())
+                .resourceChain(true));
+    }
+
+    @Bean
+    public FilterRegistrationBean<ResourceUrlEncodingFilter> resourceUrlEncodingFilter() {
+        FilterRegistrationBean<ResourceUrlEncodingFilter> registration =
+                new FilterRegistrationBean<>(new ResourceUrlEncodingFilter());
+        registration.addUrlPatterns("/*");
+        return registration;
+    }
+
+    private static String[] staticLocations() {
+        return new String[] {"classpath:/static/css/", "classpath:/static/js/",
+                "classpath:/static/images/", "classpath:/META-INF/resources/webjars/",
+                "classpath:/static/favicon.ico"};
+    }
+
+    private static void configureChain(ResourceChainRegistration chain) {
+        chain.addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"))
                 .addResolver(new PathResourceResolver() {
                     @Override
                     protected Resource getResource(String resourcePath, Resource location) throws IOException {
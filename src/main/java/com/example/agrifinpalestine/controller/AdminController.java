@@ -7,21 +7,31 @@ import com.example.agrifinpalestine.Entity.UserStatus;
 import com.example.agrifinpalestine.Repository.ProductRepository;
 import com.example.agrifinpalestine.Repository.StoreRepository;
 import com.example.agrifinpalestine.Repository.UserRepository;
+import com.example.agrifinpalestine.cache.CacheRegionMetrics;
+import com.example.agrifinpalestine.cache.ReferenceDataCache;
+import com.example.agrifinpalestine.datasource.DataSourceMetrics;
 import com.example.agrifinpalestine.dto.ApiResponse;
 import com.example.agrifinpalestine.dto.CategoryResponse;
 import com.example.agrifinpalestine.dto.ProductResponse;
 import com.example.agrifinpalestine.dto.RegistrationRequest;
 import com.example.agrifinpalestine.dto.RegistrationResponse;
+import com.example.agrifinpalestine.dto.StoreProductCount;
+import com.example.agrifinpalestine.lock.LockMetrics;
+import com.example.agrifinpalestine.lock.LockService;
 import com.example.agrifinpalestine.security.RoleManager;
+import com.example.agrifinpalestine.security.TokenRevocationService;
+import com.example.agrifinpalestine.security.UserAccountChangedEvent;
 import com.example.agrifinpalestine.service.CategoryService;
 import com.example.agrifinpalestine.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
+import javax.sql.DataSource;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -50,19 +60,36 @@ public class AdminController {
     @Autowired
     private RoleManager roleManager;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     @Autowired
     private ProductService productService;
 
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private LockService lockService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
     @GetMapping("/users")
+    @QueryBudget(1)
     public ResponseEntity<List<User>> getAllUsers() {
         List<User> users = userRepository.findAll();
         return ResponseEntity.ok(users);
     }
 
     @GetMapping("/users/{id}")
+    @QueryBudget(2)
     public ResponseEntity<?> getUserById(@PathVariable Integer id) {
         Optional<User> userOpt = userRepository.findById(id);
         if (userOpt.isPresent()) {
@@ -115,6 +142,7 @@ public class AdminController {
             user.setStatus(UserStatus.ACTIVE);
             user.setIsActive(true); // For backward compatibility
             userRepository.save(user);
+            eventPublisher.publishEvent(new UserAccountChangedEvent(user.getUsername()));
             return ResponseEntity.ok(new ApiResponse(true, "User activated successfully"));
         } else {
             return ResponseEntity.notFound().build();
@@ -129,6 +157,8 @@ public class AdminController {
             user.setStatus(UserStatus.INACTIVE);
             user.setIsActive(false); // For backward compatibility
             userRepository.save(user);
+            eventPublisher.publishEvent(new UserAccountChangedEvent(user.getUsername()));
+            tokenRevocationService.revokeAllTokens(user.getUsername());
             return ResponseEntity.ok(new ApiResponse(true, "User deactivated successfully"));
         } else {
             return ResponseEntity.notFound().build();
@@ -143,6 +173,8 @@ public class AdminController {
             user.setStatus(UserStatus.SUSPENDED);
             user.setIsActive(false); // For backward compatibility
             userRepository.save(user);
+            eventPublisher.publishEvent(new UserAccountChangedEvent(user.getUsername()));
+            tokenRevocationService.revokeAllTokens(user.getUsername());
             return ResponseEntity.ok(new ApiResponse(true, "User suspended successfully"));
         } else {
             return ResponseEntity.notFound().build();
@@ -157,6 +189,8 @@ public class AdminController {
             user.setStatus(UserStatus.BANNED);
             user.setIsActive(false); // For backward compatibility
             userRepository.save(user);
+            eventPublisher.publishEvent(new UserAccountChangedEvent(user.getUsername()));
+            tokenRevocationService.revokeAllTokens(user.getUsername());
             return ResponseEntity.ok(new ApiResponse(true, "User banned successfully"));
         } else {
             return ResponseEntity.notFound().build();
@@ -171,6 +205,8 @@ public class AdminController {
             user.setStatus(UserStatus.PENDING);
             user.setIsActive(false); // For backward compatibility
             userRepository.save(user);
+            eventPublisher.publishEvent(new UserAccountChangedEvent(user.getUsername()));
+            tokenRevocationService.revokeAllTokens(user.getUsername());
             return ResponseEntity.ok(new ApiResponse(true, "User set to pending status successfully"));
         } else {
             return ResponseEntity.notFound().build();
@@ -188,6 +224,10 @@ public class AdminController {
                 // Update isActive field for backward compatibility
                 user.setIsActive(status == UserStatus.ACTIVE);
                 userRepository.save(user);
+                eventPublisher.publishEvent(new UserAccountChangedEvent(user.getUsername()));
+                if (status != UserStatus.ACTIVE) {
+                    tokenRevocationService.revokeAllTokens(user.getUsername());
+                }
                 return ResponseEntity.ok(new ApiResponse(true, "User status updated to " + status + " successfully"));
             } catch (IllegalArgumentException e) {
                 return ResponseEntity.badRequest().body(new ApiResponse(false, "Invalid status: " + statusName));
@@ -202,6 +242,8 @@ public class AdminController {
         Optional<User> userOptional = userRepository.findById(id);
         if (userOptional.isPresent()) {
             userRepository.deleteById(id);
+            eventPublisher.publishEvent(new UserAccountChangedEvent(userOptional.get().getUsername()));
+            tokenRevocationService.revokeAllTokens(userOptional.get().getUsername());
             return ResponseEntity.ok(new ApiResponse(true, "User deleted successfully"));
         } else {
             return ResponseEntity.notFound().build();
@@ -216,11 +258,27 @@ public class AdminController {
      * @return List of sellers
      */
     @GetMapping("/sellers")
+    @QueryBudget(3)
     public ResponseEntity<List<Map<String, Object>>> getAllSellers() {
         try {
             // Get all users with ROLE_SELLER role
             List<User> sellers = userRepository.findByRoleName(Role.ERole.ROLE_SELLER);
 
+            // Load the stores of all sellers and their product counts up front, instead of per seller
+            Map<Integer, Store> storesByUserId = new HashMap<>();
+            for (Store store : storeRepository.findAllByUserIn(sellers)) {
+                storesByUserId.putIfAbsent(store.getUser().getUserId(), store);
+            }
+            Map<Integer, Long> productCounts = new HashMap<>();
+            if (!storesByUserId.isEmpty()) {
+                List<Integer> storeIds = storesByUserId.values().stream()
+                    .map(Store::getStoreId)
+                    .collect(Collectors.toList());
+                for (StoreProductCount count : productRepository.countByStoreIds(storeIds)) {
+                    productCounts.put(count.getStoreId(), count.getProductCount());
+                }
+            }
+
             // Convert to Maps
             List<Map<String, Object>> sellerMaps = sellers.stream().map(seller -> {
                 Map<String, Object> map = new HashMap<>();
@@ -244,10 +302,9 @@ public class AdminController {
                     .collect(Collectors.toSet());
                 map.put("roles", roleNames);
 
-                // Get store information for this seller
-                Optional<Store> storeOpt = storeRepository.findByUser(seller);
-                if (storeOpt.isPresent()) {
-                    Store store = storeOpt.get();
+                // Add store information for this seller
+                Store store = storesByUserId.get(seller.getUserId());
+                if (store != null) {
                     map.put("storeId", store.getStoreId());
                     map.put("storeName", store.getStoreName());
                     map.put("storeDescription", store.getStoreDescription());
@@ -255,10 +312,7 @@ public class AdminController {
                     map.put("storeBannerUrl", store.getStoreBanner());
                     map.put("location", store.getLocation());
                     map.put("contactInfo", store.getContactInfo());
-
-                    // Get product count for this store
-                    long productCount = productRepository.countByStore(store);
-                    map.put("productCount", productCount);
+                    map.put("productCount", productCounts.getOrDefault(store.getStoreId(), 0L));
                 }
 
                 return map;
@@ -275,6 +329,7 @@ public class AdminController {
      * @return List of buyers
      */
     @GetMapping("/buyers")
+    @QueryBudget(1)
     public ResponseEntity<List<Map<String, Object>>> getAllBuyers() {
         try {
             // Get all users with ROLE_USER role
@@ -317,6 +372,7 @@ public class AdminController {
      * @return List of administrators
      */
     @GetMapping("/admins")
+    @QueryBudget(1)
     public ResponseEntity<List<Map<String, Object>>> getAllAdmins() {
         try {
             // Get all users with ROLE_ADMIN role
@@ -358,6 +414,7 @@ public class AdminController {
      * @return Dashboard statistics
      */
     @GetMapping("/dashboard-stats")
+    @QueryBudget(3)
     public ResponseEntity<Map<String, Object>> getDashboardStats() {
         try {
             Map<String, Object> stats = new HashMap<>();
@@ -396,6 +453,36 @@ public class AdminController {
         }
     }
 
+    /**
+     * Get lock acquisition statistics of this application instance
+     * @return Lock metrics
+     */
+    @GetMapping("/locks/metrics")
+    @QueryBudget(0)
+    public ResponseEntity<LockMetrics> getLockMetrics() {
+        return ResponseEntity.ok(lockService.getMetrics());
+    }
+
+    /**
+     * Get connection pool statistics, and the primary/replica routing counts when a replica is configured
+     * @return DataSource metrics
+     */
+    @GetMapping("/datasource/metrics")
+    @QueryBudget(0)
+    public ResponseEntity<DataSourceMetrics> getDataSourceMetrics() {
+        return ResponseEntity.ok(DataSourceMetrics.of(dataSource));
+    }
+
+    /**
+     * Get the hit ratios of the second-level cache regions of categories, roles and stores
+     * @return Cache metrics, one entry per region
+     */
+    @GetMapping("/cache/metrics")
+    @QueryBudget(0)
+    public ResponseEntity<List<CacheRegionMetrics>> getCacheMetrics() {
+        return ResponseEntity.ok(referenceDataCache.getMetrics());
+    }
+
     /**
      * Delete an administrator
      * @param id The user ID of the administrator to delete
@@ -418,6 +505,8 @@ public class AdminController {
 
                 // Delete the administrator
                 userRepository.delete(admin);
+                eventPublisher.publishEvent(new UserAccountChangedEvent(admin.getUsername()));
+                tokenRevocationService.revokeAllTokens(admin.getUsername());
 
                 return ResponseEntity.ok(new ApiResponse(true, "Administrator deleted successfully"));
             } else {
@@ -458,6 +547,10 @@ public class AdminController {
                 // Update isActive field for backward compatibility
                 admin.setIsActive(!isCurrentlyActive);
                 userRepository.save(admin);
+                eventPublisher.publishEvent(new UserAccountChangedEvent(admin.getUsername()));
+                if (isCurrentlyActive) {
+                    tokenRevocationService.revokeAllTokens(admin.getUsername());
+                }
 
                 String statusMessage = !isCurrentlyActive ? "activated" : "deactivated";
                 return ResponseEntity.ok(new ApiResponse(true, "Administrator " + statusMessage + " successfully"));
@@ -496,6 +589,10 @@ public class AdminController {
                     // Update isActive field for backward compatibility
                     admin.setIsActive(status == UserStatus.ACTIVE);
                     userRepository.save(admin);
+                    eventPublisher.publishEvent(new UserAccountChangedEvent(admin.getUsername()));
+                    if (status != UserStatus.ACTIVE) {
+                        tokenRevocationService.revokeAllTokens(admin.getUsername());
+                    }
                     return ResponseEntity.ok(new ApiResponse(true, "Administrator status updated to " + status + " successfully"));
                 } catch (IllegalArgumentException e) {
                     return ResponseEntity.badRequest().body(new ApiResponse(false, "Invalid status: " + statusName));
@@ -513,6 +610,7 @@ public class AdminController {
      * @return List of all products
      */
     @GetMapping("/products")
+    @QueryBudget(1)
     public ResponseEntity<List<ProductResponse>> getAllProducts() {
         try {
             List<ProductResponse> products = productService.getAllProducts();
@@ -527,6 +625,7 @@ public class AdminController {
      * @return List of all categories
      */
     @GetMapping("/categories")
+    @QueryBudget(1)
     public ResponseEntity<List<CategoryResponse>> getAllCategories() {
         try {
             List<CategoryResponse> categories = categoryService.getAllCategories();
@@ -602,6 +701,7 @@ public class AdminController {
      * @return The store associated with the user
      */
     @GetMapping("/stores/user/{userId}")
+    @QueryBudget(3)
     public ResponseEntity<?> getStoreByUserId(@PathVariable Integer userId) {
         try {
             // Get user from database
@@ -653,6 +753,7 @@ public class AdminController {
      * @return The store with the given ID
      */
     @GetMapping("/stores/{storeId}")
+    @QueryBudget(2)
     public ResponseEntity<?> getStoreById(@PathVariable Integer storeId) {
         try {
             // Get store from database
@@ -694,6 +795,7 @@ public class AdminController {
      * @return List of products for the store
      */
     @GetMapping("/stores/{storeId}/products")
+    @QueryBudget(3)
     public ResponseEntity<?> getProductsByStoreId(@PathVariable Integer storeId) {
         try {
             // Get store from database
@@ -715,6 +817,7 @@ public class AdminController {
      * @return List of orders
      */
     @GetMapping("/orders")
+    @QueryBudget(0)
     public ResponseEntity<?> getAllOrders() {
         try {
             // Create a list of mock orders for now
@@ -1,6 +1,8 @@
 package com.example.agrifinpalestine.controller;
 
 import com.example.agrifinpalestine.dto.LoginRequest;
+import com.example.agrifinpalestine.security.TokenCookieService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,14 +16,29 @@ import org.springframework.web.bind.annotation.RequestParam;
 @RequestMapping("/admin")
 public class AdminLoginController {
 
+    private final TokenCookieService tokenCookieService;
+
+    public AdminLoginController(TokenCookieService tokenCookieService) {
+        this.tokenCookieService = tokenCookieService;
+    }
+
     /**
      * Show the admin login page
      * @param error Error flag from failed login attempts
+     * @param logout Logout flag, clears the token cookies
      * @param model The model to add attributes to
+     * @param response The HTTP response
      * @return The admin login page
      */
     @GetMapping("/login")
-    public String showAdminLoginPage(@RequestParam(required = false) String error, Model model) {
+    @QueryBudget(0)
+    public String showAdminLoginPage(@RequestParam(required = false) String error,
+                                     @RequestParam(required = false) String logout,
+                                     Model model, HttpServletResponse response) {
+        if (logout != null) {
+            tokenCookieService.clearCookies(response);
+        }
+
         // Add login request object to model
         model.addAttribute("loginRequest", new LoginRequest());
 
@@ -27,6 +27,7 @@ public class AdminRedirectController {
      * @return Redirect to the admin dashboard
      */
     @GetMapping("")
+    @QueryBudget(0)
     public String redirectToAdminDashboard() {
         logger.info("Admin redirect requested");
 
@@ -37,6 +37,7 @@ public class AdminViewController {
     private UserDetailsService userDetailsService;
 
     @GetMapping("/dashboard")
+    @QueryBudget(1)
     public String adminDashboard(@RequestParam(required = false) String token,
                                Model model,
                                HttpServletRequest request) {
@@ -44,6 +45,7 @@ public class AdminViewController {
     }
 
     @GetMapping("/store-details")
+    @QueryBudget(1)
     public String storeDetails(@RequestParam(required = false) String token,
                              @RequestParam(required = false) String id,
                              Model model,
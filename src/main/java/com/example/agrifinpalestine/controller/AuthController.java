@@ -6,7 +6,12 @@ import com.example.agrifinpalestine.dto.LoginRequest;
 import com.example.agrifinpalestine.dto.LoginResponse;
 import com.example.agrifinpalestine.dto.RegistrationRequest;
 import com.example.agrifinpalestine.dto.RegistrationResponse;
+import com.example.agrifinpalestine.security.LoginRateLimiter;
 import com.example.agrifinpalestine.security.RoleManager;
+import com.example.agrifinpalestine.security.TokenCookieService;
+import com.example.agrifinpalestine.security.TokenManager;
+import com.example.agrifinpalestine.security.TokenPair;
+import com.example.agrifinpalestine.security.TokenRevocationService;
 import com.example.agrifinpalestine.security.UserDetailsImpl;
 import com.example.agrifinpalestine.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,20 +47,37 @@ public class AuthController {
     private final UserService userService;
     private final UserRepository userRepository;
     private final RoleManager roleManager;
+    private final TokenCookieService tokenCookieService;
+    private final TokenManager tokenManager;
+    private final TokenRevocationService tokenRevocationService;
+    private final LoginRateLimiter loginRateLimiter;
 
     @Autowired
-    public AuthController(UserService userService, UserRepository userRepository, RoleManager roleManager) {
+    public AuthController(UserService userService, UserRepository userRepository, RoleManager roleManager,
+                          TokenCookieService tokenCookieService, TokenManager tokenManager,
+                          TokenRevocationService tokenRevocationService, LoginRateLimiter loginRateLimiter) {
         this.userService = userService;
         this.userRepository = userRepository;
         this.roleManager = roleManager;
+        this.tokenCookieService = tokenCookieService;
+        this.tokenManager = tokenManager;
+        this.tokenRevocationService = tokenRevocationService;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
 
     @PostMapping("/login")
-    public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest loginRequest,
+                                               HttpServletRequest httpRequest,
+                                               HttpServletResponse httpResponse) {
+        // Refuse floods before any password hashing is done
+        loginRateLimiter.checkLogin(httpRequest.getRemoteAddr(), loginRequest.getUsername());
+
         LoginResponse response = userService.authenticateUser(loginRequest);
 
         if (response.isSuccess()) {
+            // Pages rendered on the server authenticate with the token cookies
+            tokenCookieService.issueCookies(httpResponse, response.getUsername(), response.getToken());
             return ResponseEntity.ok(response);
         } else {
             return ResponseEntity.badRequest().body(response);
@@ -63,7 +85,10 @@ public class AuthController {
     }
 
     @PostMapping("/register")
-    public ResponseEntity<RegistrationResponse> register(@Valid @RequestBody RegistrationRequest registrationRequest) {
+    public ResponseEntity<RegistrationResponse> register(@Valid @RequestBody RegistrationRequest registrationRequest,
+                                                         HttpServletRequest httpRequest) {
+        loginRateLimiter.checkRegistration(httpRequest.getRemoteAddr());
+
         RegistrationResponse response = userService.registerUser(registrationRequest);
 
         if (response.isSuccess()) {
@@ -74,6 +99,7 @@ public class AuthController {
     }
 
     @GetMapping("/me")
+    @QueryBudget(1)
     public ResponseEntity<?> getCurrentUser() {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -106,9 +132,36 @@ public class AuthController {
         }
     }
 
+    /**
+     * Exchange the refresh token cookie for a new access token. The refresh token
+     * cookie is rotated, and both cookies are cleared if the refresh token is rejected.
+     * @param request The HTTP request
+     * @param response The HTTP response
+     * @return The new access token
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginResponse> refresh(HttpServletRequest request, HttpServletResponse response) {
+        TokenPair tokens = tokenCookieService.refresh(request, response);
+        if (tokens == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(LoginResponse.builder()
+                    .message("Session expired, please log in again")
+                    .success(false)
+                    .build());
+        }
+
+        return ResponseEntity.ok(LoginResponse.builder()
+                .username(tokens.getUsername())
+                .token(tokens.getAccessToken())
+                .tokenType("Bearer")
+                .message("Token refreshed")
+                .success(true)
+                .build());
+    }
+
     // Old logout method removed to avoid ambiguous mapping
 
     @GetMapping("/check-auth")
+    @QueryBudget(0)
     public ResponseEntity<?> checkAuthentication() {
         logger.info("Checking authentication status");
 
@@ -153,9 +206,23 @@ public class AuthController {
      * @return ResponseEntity with logout status
      */
     @GetMapping("/logout")
+    @QueryBudget(2)
     public ResponseEntity<?> logout(HttpServletRequest request, HttpServletResponse response) {
         logger.info("Logout request received");
 
+        // Revoke the tokens so they cannot be used again before they expire
+        String accessToken = tokenManager.parseTokenFromRequest(request);
+        if (accessToken == null) {
+            accessToken = tokenCookieService.readAccessToken(request);
+        }
+        if (accessToken != null) {
+            tokenRevocationService.revokeAccessToken(accessToken);
+        }
+        String refreshToken = tokenCookieService.readRefreshToken(request);
+        if (refreshToken != null) {
+            tokenRevocationService.revokeRefreshToken(refreshToken);
+        }
+
         // Invalidate session if exists
         HttpSession session = request.getSession(false);
         if (session != null) {
@@ -168,6 +235,7 @@ public class AuthController {
         logger.info("Security context cleared");
 
         // Clear cookies
+        tokenCookieService.clearCookies(response);
         Cookie[] cookies = request.getCookies();
         if (cookies != null) {
             for (Cookie cookie : cookies) {
@@ -15,7 +15,6 @@ import com.example.agrifinpalestine.exception.user.UnauthorizedAccessException;
 import com.example.agrifinpalestine.exception.user.UserNotFoundException;
 import com.example.agrifinpalestine.security.CartSecurityUtils;
 import com.example.agrifinpalestine.security.TokenManager;
-import com.example.agrifinpalestine.service.CartCleanupService;
 import com.example.agrifinpalestine.service.CartItemService;
 import com.example.agrifinpalestine.service.CartService;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -49,7 +48,6 @@ public class CartController {
     private final CartItemService cartItemService;
     private final CartSecurityUtils cartSecurityUtils;
     private final TokenManager tokenManager;
-    private final CartCleanupService cartCleanupService;
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final JdbcTemplate jdbcTemplate;
@@ -58,14 +56,13 @@ public class CartController {
     @Autowired
     public CartController(CartService cartService, CartItemService cartItemService,
                          CartSecurityUtils cartSecurityUtils, TokenManager tokenManager,
-                         CartCleanupService cartCleanupService, CartRepository cartRepository,
+                         CartRepository cartRepository,
                          CartItemRepository cartItemRepository, JdbcTemplate jdbcTemplate,
                          UserRepository userRepository) {
         this.cartService = cartService;
         this.cartItemService = cartItemService;
         this.cartSecurityUtils = cartSecurityUtils;
         this.tokenManager = tokenManager;
-        this.cartCleanupService = cartCleanupService;
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
         this.jdbcTemplate = jdbcTemplate;
@@ -78,6 +75,7 @@ public class CartController {
      * @return the cart items
      */
     @GetMapping
+    @QueryBudget(3)
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<?> getCart(HttpServletRequest request) {
         try {
@@ -162,6 +160,7 @@ public class CartController {
      * @return the response entity
      */
     @GetMapping("/check/{productId}")
+    @QueryBudget(2)
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<?> isProductInCart(@PathVariable Integer productId, HttpServletRequest request) {
         try {
@@ -357,7 +356,7 @@ public class CartController {
 
     /**
      * Clear the cart after a successful payment
-     * This method uses multiple approaches to ensure the cart is properly cleared
+     * The cart is already completed by checkout, so this only reports the active cart
      * @param request the HTTP request containing the token
      * @param orderId the ID of the order that was created from the cart (optional)
      * @return the response entity with details about the clearing process
@@ -369,7 +368,6 @@ public class CartController {
         // Initialize userId outside try-catch so it's available in all blocks
         Integer userId = null;
         Map<String, Object> responseData = new HashMap<>();
-        boolean overallSuccess = false;
 
         try {
             // Validate token
@@ -385,117 +383,15 @@ public class CartController {
             responseData.put("timestamp", LocalDateTime.now());
             responseData.put("orderId", orderId);
 
-            // Check if user has any cart items before processing
-            List<CartItem> initialCartItems = cartItemRepository.findAllByUserIdAndCartStatusActive(userId);
-            int initialItemCount = initialCartItems.size();
-            logger.info("[PAYMENT_CLEANUP] User has {} cart items before cleanup", initialItemCount);
-            responseData.put("initialItemCount", initialItemCount);
-
-            if (initialItemCount == 0) {
-                logger.info("[PAYMENT_CLEANUP] Cart is already empty, nothing to clean up");
-                responseData.put("cartStatus", "ALREADY_EMPTY");
-                responseData.put("message", "Cart is already empty");
-                return ResponseEntity.ok(new ApiResponse(true, "Cart is already empty", responseData));
-            }
-
-            // APPROACH 1: Use CartItemService's clearCart method
-            boolean approach1Success = false;
-            try {
-                logger.info("[PAYMENT_CLEANUP] APPROACH 1: Using CartItemService.clearCart");
-                boolean cleared = cartItemService.clearCart(userId);
-                logger.info("[PAYMENT_CLEANUP] APPROACH 1 result: {}", cleared);
-                approach1Success = cleared;
-                responseData.put("approach1", cleared ? "SUCCESS" : "FAILED");
-            } catch (Exception e) {
-                logger.warn("[PAYMENT_CLEANUP] APPROACH 1 error: {}", e.getMessage());
-                responseData.put("approach1", "ERROR: " + e.getMessage());
-            }
-
-            // APPROACH 2: Use native SQL for maximum reliability
-            int approach2DeletedCount = 0;
-            try {
-                logger.info("[PAYMENT_CLEANUP] APPROACH 2: Using native SQL");
-                int deleted = cartItemRepository.deleteAllCartItemsByUserIdNative(userId);
-                logger.info("[PAYMENT_CLEANUP] APPROACH 2 deleted {} cart items", deleted);
-                approach2DeletedCount = deleted;
-                responseData.put("approach2", deleted > 0 ? "SUCCESS: " + deleted + " items deleted" : "NO_ITEMS_DELETED");
-            } catch (Exception e) {
-                logger.warn("[PAYMENT_CLEANUP] APPROACH 2 error: {}", e.getMessage());
-                responseData.put("approach2", "ERROR: " + e.getMessage());
-            }
-
-            // APPROACH 3: Use CartCleanupService for a comprehensive cleanup
-            boolean approach3Success = false;
-            try {
-                logger.info("[PAYMENT_CLEANUP] APPROACH 3: Using CartCleanupService");
-                boolean success = false;
-
-                if (orderId != null) {
-                    // If we have an order ID, use the completeCheckoutProcess method
-                    success = cartCleanupService.completeCheckoutProcess(userId, orderId);
-                    logger.info("[PAYMENT_CLEANUP] APPROACH 3 (with orderId) result: {}", success);
-                } else {
-                    // Otherwise, use the cleanupUserCart method
-                    int deleted = cartCleanupService.cleanupUserCart(userId);
-                    success = deleted > 0;
-                    logger.info("[PAYMENT_CLEANUP] APPROACH 3 (without orderId) deleted {} items", deleted);
-                }
-
-                approach3Success = success;
-                responseData.put("approach3", success ? "SUCCESS" : "FAILED");
-            } catch (Exception e) {
-                logger.warn("[PAYMENT_CLEANUP] APPROACH 3 error: {}", e.getMessage());
-                responseData.put("approach3", "ERROR: " + e.getMessage());
-            }
-
-            // Final verification
-            List<CartItem> finalCartItems = cartItemRepository.findAllByUserIdAndCartStatusActive(userId);
-            int finalItemCount = finalCartItems.size();
-            logger.info("[PAYMENT_CLEANUP] Final verification: User has {} cart items after cleanup", finalItemCount);
-            responseData.put("finalItemCount", finalItemCount);
-
-            if (finalItemCount > 0) {
-                logger.warn("[PAYMENT_CLEANUP] Cart items STILL exist after all cleanup attempts!");
-                responseData.put("cartStatus", "CLEANUP_INCOMPLETE");
-                responseData.put("message", "Cart cleanup incomplete, " + finalItemCount + " items remain");
+            // Checkout completes the cart in the same transaction that creates the order, so any
+            // items in the active cart were added afterwards and are left in place
+            long activeItemCount = cartItemRepository.countByUserIdAndCartStatusActive(userId);
+            logger.info("[PAYMENT_CLEANUP] User has {} items in the active cart", activeItemCount);
+            responseData.put("finalItemCount", activeItemCount);
+            responseData.put("cartStatus", activeItemCount == 0 ? "CLEARED" : "NEW_ITEMS");
+            responseData.put("overallSuccess", true);
 
-                // Try one last direct approach if all else failed
-                try {
-                    logger.info("[PAYMENT_CLEANUP] Attempting final direct cleanup");
-                    // Create a final copy of userId for use in lambda
-                    final Integer finalUserId = userId;
-                    Optional<Cart> activeCart = cartRepository.findActiveCartByUserId(finalUserId);
-                    if (activeCart.isPresent()) {
-                        Cart cart = activeCart.get();
-                        cart.getCartItems().clear();
-                        cartRepository.save(cart);
-                        logger.info("[PAYMENT_CLEANUP] Final direct cleanup completed");
-                        responseData.put("finalCleanup", "ATTEMPTED");
-                    }
-                } catch (Exception e) {
-                    logger.error("[PAYMENT_CLEANUP] Error in final cleanup: {}", e.getMessage());
-                    responseData.put("finalCleanup", "ERROR: " + e.getMessage());
-                }
-
-                // Check one more time
-                List<CartItem> lastCheck = cartItemRepository.findAllByUserIdAndCartStatusActive(userId);
-                responseData.put("finalCheckItemCount", lastCheck.size());
-                overallSuccess = lastCheck.isEmpty();
-            } else {
-                logger.info("[PAYMENT_CLEANUP] Cart is empty after cleanup");
-                responseData.put("cartStatus", "CLEARED");
-                responseData.put("message", "Cart cleared successfully");
-                overallSuccess = true;
-            }
-
-            // Determine overall success based on the final state
-            responseData.put("overallSuccess", overallSuccess);
-
-            if (overallSuccess) {
-                return ResponseEntity.ok(new ApiResponse(true, "Cart cleared successfully after payment", responseData));
-            } else {
-                return ResponseEntity.ok(new ApiResponse(false, "Cart cleanup incomplete after payment", responseData));
-            }
+            return ResponseEntity.ok(new ApiResponse(true, "Cart was completed at checkout", responseData));
         } catch (UnauthorizedAccessException e) {
             logger.warn("[PAYMENT_CLEANUP] Unauthorized access: {}", e.getMessage());
             return cartSecurityUtils.createUnauthorizedResponse(e.getMessage());
@@ -603,7 +499,7 @@ public class CartController {
             // APPROACH 3: Update cart status to COMPLETED
             try {
                 logger.info("[FORCE_CLEAR] APPROACH 3: Updating cart status to COMPLETED");
-                String sql = "UPDATE carts SET status = 'COMPLETED', updated_at = NOW() WHERE user_id = ? AND status = 'ACTIVE'";
+                String sql = "UPDATE carts SET status = 'COMPLETED', updated_at = NOW(), version = version + 1 WHERE user_id = ? AND status = 'ACTIVE'";
                 int updated = jdbcTemplate.update(sql, userId);
                 logger.info("[FORCE_CLEAR] APPROACH 3 updated {} carts to COMPLETED", updated);
                 responseData.put("approach3Updated", updated);
@@ -707,7 +603,7 @@ public class CartController {
             // APPROACH 2: Update cart status to COMPLETED
             int updatedCarts = 0;
             try {
-                String sql = "UPDATE carts SET status = 'COMPLETED', updated_at = NOW() WHERE user_id = ? AND status = 'ACTIVE'";
+                String sql = "UPDATE carts SET status = 'COMPLETED', updated_at = NOW(), version = version + 1 WHERE user_id = ? AND status = 'ACTIVE'";
                 updatedCarts = jdbcTemplate.update(sql, userId);
                 logger.info("[EMERGENCY] Updated {} carts to COMPLETED", updatedCarts);
                 responseData.put("updatedCarts", updatedCarts);
@@ -760,6 +656,7 @@ public class CartController {
      * @return the response entity
      */
     @GetMapping("/test")
+    @QueryBudget(0)
     public ResponseEntity<?> testEndpoint(HttpServletRequest request) {
         // For the test endpoint, we'll check if a token is present but not require it
         String token = tokenManager.parseTokenFromRequest(request);
@@ -17,6 +17,7 @@ public class CartViewController {
      * @return The cart page view name
      */
     @GetMapping
+    @QueryBudget(0)
     @PreAuthorize("hasRole('USER')")
     public String cartPage() {
         return "cart";
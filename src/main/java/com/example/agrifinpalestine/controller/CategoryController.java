@@ -37,6 +37,7 @@ public class CategoryController {
     }
 
     @GetMapping("/{categoryId}")
+    @QueryBudget(1)
     public ResponseEntity<CategoryResponse> getCategoryById(@PathVariable Integer categoryId) {
         try {
             CategoryResponse category = categoryService.getCategoryById(categoryId);
@@ -74,6 +75,7 @@ public class CategoryController {
     }
 
     @GetMapping
+    @QueryBudget(1)
     public ResponseEntity<List<CategoryResponse>> getAllCategories() {
         List<CategoryResponse> categories = categoryService.getAllCategories();
         return ResponseEntity.ok(categories);
@@ -2,13 +2,14 @@ package com.example.agrifinpalestine.controller;
 
 import com.example.agrifinpalestine.Entity.*;
 import com.example.agrifinpalestine.Repository.CartItemRepository;
-import com.example.agrifinpalestine.Repository.CartRepository;
 import com.example.agrifinpalestine.Repository.UserRepository;
 import com.example.agrifinpalestine.dto.ApiResponse;
+import com.example.agrifinpalestine.dto.CheckoutLine;
+import com.example.agrifinpalestine.exception.inventory.InsufficientInventoryException;
+import com.example.agrifinpalestine.exception.inventory.ReservationMismatchException;
 import com.example.agrifinpalestine.security.UserDetailsImpl;
 import com.example.agrifinpalestine.service.CartService;
-import com.example.agrifinpalestine.service.CartItemService;
-import com.example.agrifinpalestine.service.CartCleanupService;
+import com.example.agrifinpalestine.service.InventoryService;
 import com.example.agrifinpalestine.service.OrderService;
 import com.example.agrifinpalestine.service.StripeService;
 import com.stripe.exception.StripeException;
@@ -33,7 +34,7 @@ import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/checkout")
@@ -41,15 +42,18 @@ public class CheckoutController {
 
     private static final Logger logger = LoggerFactory.getLogger(CheckoutController.class);
 
+    private static final String CURRENCY = "ils";
+
+    // Payment intent statuses in which the customer can no longer be charged
+    private static final Set<String> RELEASABLE_STATUSES = Set.of(
+            "requires_payment_method", "requires_confirmation", "requires_action", "canceled");
+
     @Autowired
     private StripeService stripeService;
 
     @Autowired
     private CartService cartService;
 
-    @Autowired
-    private CartRepository cartRepository;
-
     @Autowired
     private CartItemRepository cartItemRepository;
 
@@ -60,10 +64,7 @@ public class CheckoutController {
     private OrderService orderService;
 
     @Autowired
-    private CartItemService cartItemService;
-
-    @Autowired
-    private CartCleanupService cartCleanupService;
+    private InventoryService inventoryService;
 
     // Stripe is now initialized in StripeConfig
 
@@ -79,19 +80,17 @@ public class CheckoutController {
             UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
             Integer userId = userDetails.getId();
 
-            // Get active cart
-            Optional<Cart> cartOptional = cartRepository.findActiveCartByUserId(userId);
-            if (cartOptional.isEmpty() || cartOptional.get().getCartItems().isEmpty()) {
+            // Get the active cart lines with the prices the payment is created for
+            List<CheckoutLine> lines = cartItemRepository.findCheckoutLines(userId);
+            if (lines.isEmpty()) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("error", "Cart is empty");
                 return ResponseEntity.badRequest().body(response);
             }
-            Cart cart = cartOptional.get();
-            List<CartItem> cartItems = cart.getCartItems();
 
             // Calculate total in cents (Stripe requires amount in smallest currency unit)
-            long totalCents = cartItems.stream()
-                    .map(item -> item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+            long totalCents = lines.stream()
+                    .map(CheckoutLine::getLineTotal)
                     .reduce(BigDecimal.ZERO, BigDecimal::add)
                     .multiply(BigDecimal.valueOf(100))
                     .longValue();
@@ -99,14 +98,29 @@ public class CheckoutController {
             // Create metadata for the payment intent
             Map<String, String> metadata = new HashMap<>();
             metadata.put("userId", userId.toString());
-            metadata.put("cartId", cart.getCartId().toString());
+            metadata.put("cartId", lines.get(0).getCartId().toString());
             metadata.put("description", "Order from AgriFinPalestine");
 
             // Create payment intent with metadata included
-            PaymentIntent paymentIntent = stripeService.createPaymentIntent(totalCents, "ils", metadata);
+            PaymentIntent paymentIntent = stripeService.createPaymentIntent(totalCents, CURRENCY, metadata);
+
+            // Hold the stock at the charged prices until the payment succeeds, fails or times out
+            try {
+                inventoryService.reserve(userId, paymentIntent.getId(), lines);
+            } catch (InsufficientInventoryException e) {
+                logger.warn("[CHECKOUT] Could not reserve stock for user {}: {}", userId, e.getMessage());
+                cancelPaymentIntentQuietly(paymentIntent.getId());
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("error", e.getMessage());
+                response.put("productId", e.getProductId());
+                response.put("availableQuantity", e.getAvailableQuantity());
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
 
             Map<String, Object> response = new HashMap<>();
             response.put("clientSecret", paymentIntent.getClientSecret());
+            response.put("paymentIntentId", paymentIntent.getId());
             return ResponseEntity.ok(response);
         } catch (StripeException e) {
             Map<String, Object> response = new HashMap<>();
@@ -115,6 +129,48 @@ public class CheckoutController {
         }
     }
 
+    /**
+     * Return the stock held for a payment that failed or was abandoned
+     * @param payload the request body containing the payment intent ID
+     * @return the number of released reservations
+     */
+    @PostMapping("/release-reservation")
+    @PreAuthorize("hasRole('USER')")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> releaseReservation(@RequestBody Map<String, String> payload) {
+        Map<String, Object> response = new HashMap<>();
+
+        String paymentIntentId = payload.get("paymentIntentId");
+        if (paymentIntentId == null || paymentIntentId.isEmpty()) {
+            response.put("error", "Payment intent ID is required");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        // A payment that went through keeps its stock, whatever the client reports
+        try {
+            String status = stripeService.retrievePaymentIntent(paymentIntentId).getStatus();
+            if (!RELEASABLE_STATUSES.contains(status)) {
+                response.put("error", "Payment intent " + paymentIntentId + " is " + status + " and cannot be released");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+        } catch (StripeException e) {
+            logger.warn("[CHECKOUT] Could not check payment intent {}: {}", paymentIntentId, e.getMessage());
+            response.put("error", "Could not check the payment status");
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(response);
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+
+        int released = inventoryService.release(userDetails.getId(), paymentIntentId);
+        if (released > 0) {
+            cancelPaymentIntentQuietly(paymentIntentId);
+        }
+
+        response.put("released", released);
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/payment-success")
     @PreAuthorize("hasRole('USER')")
     @ResponseBody
@@ -135,206 +191,17 @@ public class CheckoutController {
             }
             logger.info("[PAYMENT] Payment intent ID: {}", paymentIntentId);
 
-            // Check if user has any cart items before processing
-            try {
-                List<CartItem> initialCartItems = cartItemRepository.findAllByUserIdAndCartStatusActive(userId);
-                logger.info("[PAYMENT] User has {} cart items before processing", initialCartItems.size());
-
-                // Log each item for debugging
-                for (CartItem item : initialCartItems) {
-                    logger.info("[PAYMENT] Cart item before processing: ID={}, productId={}, quantity={}, cartId={}",
-                            item.getCartItemId(), item.getProduct().getProductId(),
-                            item.getQuantity(), item.getCart().getCartId());
-                }
-            } catch (Exception e) {
-                logger.warn("[PAYMENT] Error checking initial cart items: {}", e.getMessage());
+            // Only a payment that Stripe reports as charged, for what was reserved, becomes an order.
+            // Otherwise the reservation is left to expire
+            ResponseEntity<Map<String, Object>> unpaid = checkPaymentIntent(userId, paymentIntentId);
+            if (unpaid != null) {
+                return unpaid;
             }
 
-            // Create order from cart (this doesn't finalize the cart yet)
-            logger.info("[PAYMENT] Creating order from cart for user: {}", userId);
-            Order order = orderService.createOrderFromCart(userId, paymentIntentId);
+            // Create the order, complete the cart and open a new one in a single transaction
+            Order order = orderService.completeCheckout(userId, paymentIntentId);
             logger.info("[PAYMENT] Order created with ID: {}", order.getOrderId());
 
-            // Now finalize the order (mark cart as completed and clear items)
-            logger.info("[PAYMENT] Finalizing order: {} for user: {}", order.getOrderId(), userId);
-            boolean finalized = orderService.finalizeOrder(userId, order.getOrderId());
-            logger.info("[PAYMENT] Order finalized: {}, finalized status: {}", order.getOrderId(), finalized);
-
-            // Double-check if cart items were cleared
-            Optional<Cart> cartCheck = cartRepository.findActiveCartByUserId(userId);
-            if (cartCheck.isPresent()) {
-                Cart cart = cartCheck.get();
-                List<CartItem> cartItems = cart.getCartItems();
-                int itemCount = cartItems != null ? cartItems.size() : 0;
-
-                logger.info("[PAYMENT] After finalization, user has active cart ID: {} with {} items",
-                        cart.getCartId(), itemCount);
-
-                if (itemCount > 0) {
-                    logger.warn("[PAYMENT] Cart items still exist after finalization, attempting additional cleanup");
-
-                    // Log the items that remain
-                    for (CartItem item : cartItems) {
-                        logger.warn("[PAYMENT] Remaining item: ID={}, productId={}, quantity={}",
-                                item.getCartItemId(), item.getProduct().getProductId(), item.getQuantity());
-                    }
-
-                    // Use multiple approaches to ensure cart is cleared
-                    try {
-                        // 1. First try the CartItemService's clearCart method
-                        try {
-                            logger.info("[PAYMENT] Using CartItemService to clear cart");
-                            boolean cleared = cartItemService.clearCart(userId);
-                            logger.info("[PAYMENT] CartItemService.clearCart result: {}", cleared);
-                        } catch (Exception e) {
-                            logger.warn("[PAYMENT] CartItemService.clearCart failed: {}", e.getMessage());
-                        }
-
-                        // 2. Try the native SQL approach for maximum reliability
-                        try {
-                            logger.info("[PAYMENT] Using native SQL to delete cart items");
-                            int deleted = cartItemRepository.deleteAllCartItemsByUserIdNative(userId);
-                            logger.info("[PAYMENT] Native SQL deleted {} cart items", deleted);
-                        } catch (Exception e) {
-                            logger.warn("[PAYMENT] Native SQL deletion failed: {}", e.getMessage());
-                        }
-
-                        // 3. Then use the CartCleanupService for a comprehensive cleanup
-                        logger.info("[PAYMENT] Using CartCleanupService to complete checkout process");
-                        boolean success = cartCleanupService.completeCheckoutProcess(userId, order.getOrderId());
-                        logger.info("[PAYMENT] CartCleanupService.completeCheckoutProcess result: {}", success);
-
-                        // Check if items were cleared after using CartCleanupService
-                        try {
-                            List<CartItem> remainingItems = cartItemRepository.findAllByUserIdAndCartStatusActive(userId);
-                            logger.info("[PAYMENT] After CartCleanupService, user has {} cart items", remainingItems.size());
-
-                            if (!remainingItems.isEmpty()) {
-                                logger.warn("[PAYMENT] Items still remain after CartCleanupService");
-
-                                // Log remaining items
-                                for (CartItem item : remainingItems) {
-                                    logger.warn("[PAYMENT] Remaining item: ID={}, productId={}, quantity={}, cartId={}",
-                                            item.getCartItemId(), item.getProduct().getProductId(),
-                                            item.getQuantity(), item.getCart().getCartId());
-                                }
-
-                                // Try using the CartItemService as a last resort
-                                try {
-                                    logger.info("[PAYMENT] Using CartItemService for final cleanup");
-                                    boolean cleared = cartItemService.clearCart(userId);
-                                    logger.info("[PAYMENT] CartItemService.clearCart result: {}", cleared);
-                                } catch (Exception e) {
-                                    logger.error("[PAYMENT] Error using CartItemService for cleanup: {}", e.getMessage(), e);
-                                }
-                            }
-                        } catch (Exception e) {
-                            logger.error("[PAYMENT] Error checking remaining items: {}", e.getMessage(), e);
-                        }
-                    } catch (Exception e) {
-                        logger.error("[PAYMENT] Error using CartCleanupService: {}", e.getMessage(), e);
-
-                        // If CartCleanupService fails, try direct approach
-                        try {
-                            logger.warn("[PAYMENT] CartCleanupService failed, trying direct approach");
-
-                            // Try using the CartItemService clearCart method
-                            try {
-                                logger.info("[PAYMENT] Attempting to clear cart using CartItemService");
-                                boolean cleared = cartItemService.clearCart(userId);
-                                logger.info("[PAYMENT] CartItemService.clearCart result: {}", cleared);
-                            } catch (Exception ex) {
-                                logger.error("[PAYMENT] Error using CartItemService to clear cart: {}", ex.getMessage(), ex);
-                            }
-
-                            // Try one more time with CartItemService
-                            try {
-                                logger.info("[PAYMENT] Attempting one more cleanup with CartItemService");
-                                boolean cleared = cartItemService.clearCart(userId);
-                                logger.info("[PAYMENT] Final CartItemService.clearCart result: {}", cleared);
-                            } catch (Exception ex) {
-                                logger.error("[PAYMENT] Error in final CartItemService cleanup: {}", ex.getMessage(), ex);
-                            }
-                        } catch (Exception ex) {
-                            logger.error("[PAYMENT] Error in fallback cleanup: {}", ex.getMessage(), ex);
-                        }
-                    }
-                } else {
-                    logger.info("[PAYMENT] Cart is already empty after finalization");
-                }
-            } else {
-                logger.info("[PAYMENT] No active cart found after finalization");
-            }
-
-            // Final verification
-            try {
-                List<CartItem> finalCheck = cartItemRepository.findAllByUserIdAndCartStatusActive(userId);
-                logger.info("[PAYMENT] Final verification: User has {} active cart items", finalCheck.size());
-
-                if (!finalCheck.isEmpty()) {
-                    logger.warn("[PAYMENT] Cart items STILL exist after all cleanup attempts!");
-
-                    // Log remaining items
-                    for (CartItem item : finalCheck) {
-                        logger.warn("[PAYMENT] Final remaining item: ID={}, productId={}, quantity={}, cartId={}",
-                                item.getCartItemId(), item.getProduct().getProductId(),
-                                item.getQuantity(), item.getCart().getCartId());
-                    }
-
-                    // Use a comprehensive approach to clear the cart
-                    try {
-                        logger.info("[PAYMENT] Using comprehensive approach to clear cart");
-
-                        // APPROACH 1: Use CartItemService's clearCart method
-                        try {
-                            logger.info("[PAYMENT] Using CartItemService.clearCart");
-                            boolean cleared = cartItemService.clearCart(userId);
-                            logger.info("[PAYMENT] CartItemService.clearCart result: {}", cleared);
-                        } catch (Exception e) {
-                            logger.warn("[PAYMENT] CartItemService.clearCart failed: {}", e.getMessage());
-                        }
-
-                        // APPROACH 2: Use native SQL for maximum reliability
-                        try {
-                            logger.info("[PAYMENT] Using native SQL to delete cart items");
-                            int deleted = cartItemRepository.deleteAllCartItemsByUserIdNative(userId);
-                            logger.info("[PAYMENT] Native SQL deleted {} cart items", deleted);
-                        } catch (Exception e) {
-                            logger.warn("[PAYMENT] Native SQL deletion failed: {}", e.getMessage());
-                        }
-
-                        // APPROACH 3: Use CartCleanupService for a comprehensive cleanup
-                        try {
-                            logger.info("[PAYMENT] Using CartCleanupService to complete checkout process");
-                            boolean success = cartCleanupService.completeCheckoutProcess(userId, order.getOrderId());
-                            logger.info("[PAYMENT] CartCleanupService.completeCheckoutProcess result: {}", success);
-                        } catch (Exception e) {
-                            logger.warn("[PAYMENT] CartCleanupService failed: {}", e.getMessage());
-                        }
-
-                        // Final direct approach if all else failed
-                        try {
-                            logger.info("[PAYMENT] Attempting final direct cleanup");
-                            Optional<Cart> activeCart = cartRepository.findActiveCartByUserId(userId);
-                            if (activeCart.isPresent()) {
-                                Cart cart = activeCart.get();
-                                cart.getCartItems().clear();
-                                cartRepository.save(cart);
-                                logger.info("[PAYMENT] Final direct cleanup completed");
-                            }
-                        } catch (Exception e) {
-                            logger.error("[PAYMENT] Error in final cleanup: {}", e.getMessage());
-                        }
-                    } catch (Exception e) {
-                        logger.error("[PAYMENT] Error in comprehensive cart clearing: {}", e.getMessage(), e);
-                    }
-                } else {
-                    logger.info("[PAYMENT] Cart is empty after all cleanup attempts");
-                }
-            } catch (Exception e) {
-                logger.error("[PAYMENT] Error in final verification: {}", e.getMessage(), e);
-            }
-
             // Return success response with order details
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -342,11 +209,19 @@ public class CheckoutController {
             response.put("orderId", order.getOrderId());
             response.put("orderDate", order.getOrderDate());
             response.put("totalAmount", order.getTotalAmount());
-            response.put("finalized", finalized);
+            response.put("finalized", true);
             response.put("paymentIntentId", paymentIntentId);
             response.put("redirectUrl", "/payment-success?orderId=" + order.getOrderId());
             logger.info("[PAYMENT] Returning success response for order: {}", order.getOrderId());
             return ResponseEntity.ok(response);
+        } catch (ReservationMismatchException | InsufficientInventoryException e) {
+            // The payment cannot be turned into the order it was made for, so it is given back
+            logger.error("[PAYMENT] Refunding payment intent {}: {}", payload.get("paymentIntentId"), e.getMessage());
+            boolean refunded = refundPaymentIntentQuietly(payload.get("paymentIntentId"));
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            response.put("refunded", refunded);
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         } catch (Exception e) {
             logger.error("[PAYMENT] Error processing payment success: {}", e.getMessage(), e);
             Map<String, Object> response = new HashMap<>();
@@ -354,4 +229,90 @@ public class CheckoutController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
+
+    /**
+     * Check with Stripe that a payment intent succeeded for the amount and currency of the
+     * user's reservations
+     * @param userId the ID of the user who reports the payment
+     * @param paymentIntentId the payment intent ID
+     * @return the error response if the payment cannot be turned into an order, or null if it can
+     */
+    private ResponseEntity<Map<String, Object>> checkPaymentIntent(Integer userId, String paymentIntentId) {
+        Map<String, Object> response = new HashMap<>();
+
+        PaymentIntent paymentIntent;
+        try {
+            paymentIntent = stripeService.retrievePaymentIntent(paymentIntentId);
+        } catch (StripeException e) {
+            logger.warn("[PAYMENT] Could not check payment intent {}: {}", paymentIntentId, e.getMessage());
+            response.put("error", "Could not check the payment status");
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(response);
+        }
+
+        if (!"succeeded".equals(paymentIntent.getStatus())) {
+            logger.warn("[PAYMENT] User {} reported payment intent {} which is {}",
+                    userId, paymentIntentId, paymentIntent.getStatus());
+            response.put("error", "Payment intent " + paymentIntentId + " is " + paymentIntent.getStatus());
+            return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body(response);
+        }
+
+        List<InventoryReservation> reservations = inventoryService.getReservations(userId, paymentIntentId);
+        if (reservations.isEmpty()) {
+            logger.warn("[PAYMENT] User {} holds no reservation for payment intent {}", userId, paymentIntentId);
+            response.put("error", "No reservation for payment intent " + paymentIntentId);
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+
+        long reservedCents = reservedAmountCents(userId, reservations);
+        if (!CURRENCY.equalsIgnoreCase(paymentIntent.getCurrency())
+                || paymentIntent.getAmount() == null || paymentIntent.getAmount() != reservedCents) {
+            logger.error("[PAYMENT] Payment intent {} is for {} {}, but {} {} was reserved", paymentIntentId,
+                    paymentIntent.getAmount(), paymentIntent.getCurrency(), reservedCents, CURRENCY);
+            response.put("error", "Payment intent " + paymentIntentId + " does not match the reserved items");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        return null;
+    }
+
+    /**
+     * Total of the reservations in the smallest currency unit, rounded as the payment intent was
+     */
+    private long reservedAmountCents(Integer userId, List<InventoryReservation> reservations) {
+        Map<Integer, BigDecimal> cartPrices = new HashMap<>();
+        if (reservations.stream().anyMatch(reservation -> reservation.getUnitPrice() == null)) {
+            // Reservations made before prices were recorded on them were charged at the cart price
+            cartItemRepository.findCheckoutLines(userId)
+                    .forEach(line -> cartPrices.putIfAbsent(line.getProductId(), line.getPrice()));
+        }
+        return reservations.stream()
+                .map(reservation -> {
+                    BigDecimal price = reservation.getUnitPrice() != null
+                            ? reservation.getUnitPrice()
+                            : cartPrices.getOrDefault(reservation.getProductId(), BigDecimal.ZERO);
+                    return price.multiply(BigDecimal.valueOf(reservation.getQuantity()));
+                })
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .multiply(BigDecimal.valueOf(100))
+                .longValue();
+    }
+
+    private void cancelPaymentIntentQuietly(String paymentIntentId) {
+        try {
+            stripeService.cancelPaymentIntent(paymentIntentId);
+        } catch (Exception e) {
+            // An unconfirmed payment intent cannot be charged, so this only leaves it open in Stripe
+            logger.warn("[CHECKOUT] Could not cancel payment intent {}: {}", paymentIntentId, e.getMessage());
+        }
+    }
+
+    private boolean refundPaymentIntentQuietly(String paymentIntentId) {
+        try {
+            stripeService.refundPaymentIntent(paymentIntentId);
+            return true;
+        } catch (Exception e) {
+            // The order was not created, so the payment has to be refunded by hand
+            logger.error("[PAYMENT] Could not refund payment intent {}: {}", paymentIntentId, e.getMessage());
+            return false;
+        }
+    }
 }
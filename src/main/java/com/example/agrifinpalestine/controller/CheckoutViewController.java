@@ -3,6 +3,7 @@ package com.example.agrifinpalestine.controller;
 import com.example.agrifinpalestine.Entity.Cart;
 import com.example.agrifinpalestine.Entity.CartItem;
 import com.example.agrifinpalestine.Entity.User;
+import com.example.agrifinpalestine.Repository.CartItemRepository;
 import com.example.agrifinpalestine.Repository.CartRepository;
 import com.example.agrifinpalestine.Repository.UserRepository;
 import com.example.agrifinpalestine.security.UserDetailsImpl;
@@ -28,10 +29,14 @@ public class CheckoutViewController {
     @Autowired
     private CartRepository cartRepository;
 
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
     @Autowired
     private UserRepository userRepository;
 
     @GetMapping("/checkout-page")
+    @QueryBudget(3)
     @PreAuthorize("hasRole('USER')")
     public String checkout(Model model) {
         // Get current authenticated user
@@ -48,11 +53,12 @@ public class CheckoutViewController {
 
         // Get active cart
         Optional<Cart> cartOptional = cartRepository.findActiveCartByUserId(userId);
-        if (!cartOptional.isPresent() || cartOptional.get().getCartItems().isEmpty()) {
+        List<CartItem> cartItems = cartOptional
+                .map(cart -> cartItemRepository.findCheckoutItemsByCartId(cart.getCartId()))
+                .orElse(List.of());
+        if (cartItems.isEmpty()) {
             return "redirect:/cart?error=empty";
         }
-        Cart cart = cartOptional.get();
-        List<CartItem> cartItems = cart.getCartItems();
 
         // Calculate total
         BigDecimal total = cartItems.stream()
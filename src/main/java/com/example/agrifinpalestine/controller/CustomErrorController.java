@@ -19,6 +19,7 @@ public class CustomErrorController implements ErrorController {
      * @return The error page
      */
     @RequestMapping("/error")
+    @QueryBudget(0)
     public String handleError(HttpServletRequest request) {
         // Get the error status code
         Object status = request.getAttribute(RequestDispatcher.ERROR_STATUS_CODE);
@@ -16,6 +16,7 @@ public class ErrorController {
      * @return The name of the unauthorized template
      */
     @GetMapping("/unauthorized")
+    @QueryBudget(0)
     public String unauthorized() {
         return "error/unauthorized";
     }
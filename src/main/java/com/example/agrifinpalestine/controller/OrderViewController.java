@@ -40,6 +40,7 @@ public class OrderViewController {
      * @return The orders page view name
      */
     @GetMapping
+    @QueryBudget(2)
     @PreAuthorize("hasRole('USER')")
     public String ordersPage(Model model) {
         // Get current authenticated user
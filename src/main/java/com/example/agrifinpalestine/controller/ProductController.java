@@ -1,8 +1,10 @@
 package com.example.agrifinpalestine.controller;
 
+import com.example.agrifinpalestine.dto.CursorPageResponse;
 import com.example.agrifinpalestine.dto.ProductRequest;
 import com.example.agrifinpalestine.dto.ProductResponse;
 import com.example.agrifinpalestine.dto.ProductSearchRequest;
+import com.example.agrifinpalestine.dto.ProductSuggestionResponse;
 import com.example.agrifinpalestine.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -19,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 
 import com.example.agrifinpalestine.Entity.Store;
 import com.example.agrifinpalestine.Repository.StoreRepository;
+import com.example.agrifinpalestine.exception.product.ProductException;
 import com.example.agrifinpalestine.security.UserDetailsImpl;
 
 import jakarta.validation.Valid;
@@ -35,6 +38,8 @@ import java.util.Map;
 @Validated
 public class ProductController {
 
+    private static final int MAX_BATCH_SIZE = 100;
+
     private final ProductService productService;
     private final StoreRepository storeRepository;
 
@@ -91,7 +96,27 @@ public class ProductController {
         }
     }
 
+    /**
+     * Get several products in one request, e.g. for cart and checkout widgets
+     *
+     * @param ids Comma-separated product IDs (at most 100)
+     * @return List of products in the requested order; unknown IDs are skipped
+     */
+    @GetMapping("/batch")
+    @QueryBudget(1)
+    public ResponseEntity<?> getProductsByIds(@RequestParam List<Integer> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("message", "At most " + MAX_BATCH_SIZE + " product IDs can be requested at once");
+            return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+        }
+
+        List<ProductResponse> products = productService.getProductsByIds(ids);
+        return ResponseEntity.ok(products);
+    }
+
     @GetMapping("/{productId}")
+    @QueryBudget(2)
     public ResponseEntity<ProductResponse> getProductById(@PathVariable @Min(value = 1, message = "Product ID must be positive") Integer productId) {
         try {
             ProductResponse product = productService.getProductById(productId);
@@ -101,6 +126,26 @@ public class ProductController {
         }
     }
 
+    /**
+     * Get the best rated products from the same category as a product
+     *
+     * @param productId The product being viewed
+     * @param limit Maximum number of related products (at most 20)
+     * @return List of related products, highest rating score first
+     */
+    @GetMapping("/{productId}/related")
+    @QueryBudget(2)
+    public ResponseEntity<List<ProductResponse>> getRelatedProducts(
+            @PathVariable @Min(value = 1, message = "Product ID must be positive") Integer productId,
+            @RequestParam(defaultValue = "4") @Min(1) int limit) {
+        try {
+            List<ProductResponse> products = productService.getRelatedProducts(productId, Math.min(limit, 20));
+            return ResponseEntity.ok(products);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
     @PutMapping("/{productId}")
     @PreAuthorize("hasRole('SELLER') or hasRole('ADMIN')")
     public ResponseEntity<ProductResponse> updateProduct(
@@ -173,6 +218,7 @@ public class ProductController {
     }
 
     @GetMapping("/all")
+    @QueryBudget(1)
     public ResponseEntity<List<ProductResponse>> getAllProducts() {
         List<ProductResponse> products = productService.getAllProducts();
         return ResponseEntity.ok(products);
@@ -187,16 +233,20 @@ public class ProductController {
      * @param categoryId Optional category ID filter
      * @param organic Optional filter for organic products
      * @param sort Optional sort field and direction (e.g., "name,asc" or "price,desc")
-     * @return Page of ProductResponse objects
+     * @param cursor Optional continuation token; when present (empty for the first page) the
+     *               response is a cursor page with nextCursor instead of a Page with totals
+     * @return Page of ProductResponse objects, or a CursorPageResponse in cursor mode
      */
     @GetMapping
-    public ResponseEntity<Page<ProductResponse>> getPaginatedProducts(
+    @QueryBudget(2)
+    public ResponseEntity<?> getPaginatedProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String search,
             @RequestParam(required = false) Integer categoryId,
             @RequestParam(required = false) Boolean organic,
-            @RequestParam(defaultValue = "productId,asc") String sort) {
+            @RequestParam(defaultValue = "productId,asc") String sort,
+            @RequestParam(required = false) String cursor) {
 
         // Parse sort parameter
         String[] sortParams = sort.split(",");
@@ -204,6 +254,21 @@ public class ProductController {
         Sort.Direction direction = sortParams.length > 1 && sortParams[1].equalsIgnoreCase("desc") ?
                 Sort.Direction.DESC : Sort.Direction.ASC;
 
+        // Cursor mode: seek to the next page without counting the whole result set
+        if (cursor != null) {
+            ProductSearchRequest cursorRequest = new ProductSearchRequest();
+            cursorRequest.setSearchTerm(search);
+            cursorRequest.setCategoryId(categoryId);
+            cursorRequest.setIsOrganic(organic);
+            cursorRequest.setSize(Math.max(1, Math.min(size, 100)));
+            cursorRequest.setSortBy(sortField);
+            cursorRequest.setSortDirection(direction == Sort.Direction.DESC ? "desc" : "asc");
+            cursorRequest.setCursor(cursor);
+
+            CursorPageResponse<ProductResponse> products = productService.searchProductsByCursor(cursorRequest);
+            return ResponseEntity.ok(products);
+        }
+
         // Create pageable object
         Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortField));
 
@@ -218,7 +283,24 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * Typeahead suggestions for the product search box
+     *
+     * @param q The text typed so far (Arabic or English)
+     * @param limit Maximum number of suggestions
+     * @return List of matching products, most relevant first
+     */
+    @GetMapping("/suggest")
+    @QueryBudget(2)
+    public ResponseEntity<List<ProductSuggestionResponse>> suggestProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") @Min(1) int limit) {
+        List<ProductSuggestionResponse> suggestions = productService.suggestProducts(q, Math.min(limit, 20));
+        return ResponseEntity.ok(suggestions);
+    }
+
     @GetMapping("/store/{storeId}")
+    @QueryBudget(2)
     public ResponseEntity<List<ProductResponse>> getProductsByStore(@PathVariable Integer storeId) {
         try {
             List<ProductResponse> products = productService.getProductsByStore(storeId);
@@ -229,6 +311,7 @@ public class ProductController {
     }
 
     @GetMapping("/category/{categoryId}")
+    @QueryBudget(2)
     public ResponseEntity<List<ProductResponse>> getProductsByCategory(@PathVariable Integer categoryId) {
         try {
             List<ProductResponse> products = productService.getProductsByCategory(categoryId);
@@ -244,6 +327,7 @@ public class ProductController {
      * @return List of products owned by the current user
      */
     @GetMapping("/user")
+    @QueryBudget(3)
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> getUserProducts() {
         try {
@@ -273,15 +357,28 @@ public class ProductController {
     @PostMapping("/search")
     public ResponseEntity<Map<String, Object>> searchProducts(@RequestBody ProductSearchRequest searchRequest) {
         try {
+            Map<String, Object> response = new HashMap<>();
+
+            // Cursor mode: no total count, the client follows nextCursor instead
+            if (searchRequest.getCursor() != null) {
+                CursorPageResponse<ProductResponse> cursorPage = productService.searchProductsByCursor(searchRequest);
+                response.put("products", cursorPage.getContent());
+                response.put("hasNext", cursorPage.isHasNext());
+                response.put("nextCursor", cursorPage.getNextCursor());
+                return ResponseEntity.ok(response);
+            }
+
             Page<ProductResponse> productPage = productService.searchProducts(searchRequest);
 
-            Map<String, Object> response = new HashMap<>();
             response.put("products", productPage.getContent());
             response.put("currentPage", productPage.getNumber());
             response.put("totalItems", productPage.getTotalElements());
             response.put("totalPages", productPage.getTotalPages());
 
             return ResponseEntity.ok(response);
+        } catch (ProductException e) {
+            // Invalid cursors are reported by the global exception handler
+            throw e;
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -13,6 +13,7 @@ public class ProductViewController {
      * @return the edit-product template
      */
     @GetMapping("/edit-product/{productId}")
+    @QueryBudget(0)
     public String editProductPage(@PathVariable Integer productId) {
         return "edit-product";
     }
@@ -22,6 +23,7 @@ public class ProductViewController {
      * @return the marketplace template
      */
     @GetMapping("/marketplace")
+    @QueryBudget(0)
     public String marketplacePage() {
         return "marketplace";
     }
@@ -32,6 +34,7 @@ public class ProductViewController {
      * @return the product-details template
      */
     @GetMapping("/product/{productId}")
+    @QueryBudget(0)
     public String productDetailsPage(@PathVariable Integer productId) {
         return "product-details";
     }
@@ -11,6 +11,7 @@ public class ProfileViewController {
      * @return the edit-profile template
      */
     @GetMapping("/edit-profile")
+    @QueryBudget(0)
     public String editProfilePage() {
         return "edit-profile";
     }
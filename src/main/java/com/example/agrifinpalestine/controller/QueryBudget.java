@@ -0,0 +1,23 @@
+package com.example.agrifinpalestine.controller;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The most SQL statements a request to the annotated handler may execute, whatever the
+ * size of the data it returns. Every GET handler declares one; QueryBudgetTest checks them
+ * and fails when the number of statements exceeds the budget or grows with the result.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+
+    /**
+     * @return the maximum number of statements per request
+     */
+    int value();
+}
@@ -30,6 +30,7 @@ public class RegionController {
      * @return List of regions
      */
     @GetMapping("/stores")
+    @QueryBudget(1)
     public ResponseEntity<List<Map<String, String>>> getRegionsWithStores() {
         List<String> regions = userRepository.findDistinctRegionsWithStores();
         
@@ -50,6 +51,7 @@ public class RegionController {
      * @return List of regions
      */
     @GetMapping
+    @QueryBudget(1)
     public ResponseEntity<List<Map<String, String>>> getAllRegions() {
         List<String> regions = userRepository.findDistinctRegions();
         
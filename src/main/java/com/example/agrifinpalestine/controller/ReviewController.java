@@ -11,6 +11,7 @@ import com.example.agrifinpalestine.dto.ReviewResponse;
 import com.example.agrifinpalestine.exception.auth.UnauthorizedAccessException;
 import com.example.agrifinpalestine.security.RoleBasedAccessControl;
 import com.example.agrifinpalestine.security.UserDetailsImpl;
+import com.example.agrifinpalestine.service.ProductRatingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -26,7 +27,6 @@ import jakarta.validation.constraints.Min;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/reviews")
@@ -36,14 +36,17 @@ public class ReviewController {
     private final ReviewRepository reviewRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final ProductRatingService productRatingService;
 
     @Autowired
     public ReviewController(ReviewRepository reviewRepository,
                            ProductRepository productRepository,
-                           UserRepository userRepository) {
+                           UserRepository userRepository,
+                           ProductRatingService productRatingService) {
         this.reviewRepository = reviewRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
+        this.productRatingService = productRatingService;
     }
 
     /**
@@ -53,14 +56,9 @@ public class ReviewController {
      * @return list of reviews for the product
      */
     @GetMapping("/product/{productId}")
+    @QueryBudget(1)
     public ResponseEntity<List<ReviewResponse>> getReviewsByProduct(@PathVariable @Min(value = 1, message = "Product ID must be positive") Integer productId) {
-        List<Review> reviews = reviewRepository.findByProduct_ProductId(productId);
-
-        List<ReviewResponse> reviewResponses = reviews.stream()
-                .map(this::mapToReviewResponse)
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(reviewResponses);
+        return ResponseEntity.ok(reviewRepository.findResponsesByProductId(productId));
     }
 
     /**
@@ -70,14 +68,9 @@ public class ReviewController {
      * @return list of reviews by the user
      */
     @GetMapping("/user/{userId}")
+    @QueryBudget(1)
     public ResponseEntity<List<ReviewResponse>> getReviewsByUser(@PathVariable @Min(value = 1, message = "User ID must be positive") Integer userId) {
-        List<Review> reviews = reviewRepository.findByUser_UserId(userId);
-
-        List<ReviewResponse> reviewResponses = reviews.stream()
-                .map(this::mapToReviewResponse)
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(reviewResponses);
+        return ResponseEntity.ok(reviewRepository.findResponsesByUserId(userId));
     }
 
     /**
@@ -123,8 +116,8 @@ public class ReviewController {
             review.setReviewText(reviewRequest.getComment());
             review.setCreatedAt(LocalDateTime.now());
 
-            // Save review
-            Review savedReview = reviewRepository.save(review);
+            // Save review and update the product's rating summary
+            Review savedReview = productRatingService.saveReview(review);
 
             return ResponseEntity.status(HttpStatus.CREATED)
                     .body(mapToReviewResponse(savedReview));
@@ -167,8 +160,8 @@ public class ReviewController {
                         .body(e.getMessage());
             }
 
-            // Delete review
-            reviewRepository.delete(review);
+            // Delete review and update the product's rating summary
+            productRatingService.deleteReview(review);
 
             return ResponseEntity.ok("Review deleted successfully");
         } catch (Exception e) {
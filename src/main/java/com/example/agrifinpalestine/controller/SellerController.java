@@ -6,6 +6,7 @@ import com.example.agrifinpalestine.Repository.StoreRepository;
 import com.example.agrifinpalestine.Repository.UserRepository;
 import com.example.agrifinpalestine.dto.ApiResponse;
 import com.example.agrifinpalestine.security.UserDetailsImpl;
+import com.example.agrifinpalestine.service.StoreService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -27,7 +28,11 @@ public class SellerController {
     @Autowired
     private StoreRepository storeRepository;
 
+    @Autowired
+    private StoreService storeService;
+
     @GetMapping("/dashboard")
+    @QueryBudget(3)
     public ResponseEntity<?> getSellerDashboard() {
         // Get current authenticated user
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -42,14 +47,15 @@ public class SellerController {
         
         if (storeOptional.isPresent()) {
             Store store = storeOptional.get();
-            // Return store information and other seller-specific data
-            return ResponseEntity.ok(store);
+            // Return store information and other seller-specific data; the entity's owner is not loaded
+            return ResponseEntity.ok(storeService.getStoreById(store.getStoreId()));
         } else {
             return ResponseEntity.ok(new ApiResponse(false, "No store found for this seller"));
         }
     }
 
     @GetMapping("/sales")
+    @QueryBudget(0)
     public ResponseEntity<?> getSalesData() {
         // Get current authenticated user
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -62,6 +68,7 @@ public class SellerController {
     }
 
     @GetMapping("/products")
+    @QueryBudget(2)
     public ResponseEntity<?> getSellerProducts() {
         // Get current authenticated user
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -44,6 +44,7 @@ public class SellerViewController {
     private UserDetailsService userDetailsService;
 
     @GetMapping("/dashboard")
+    @QueryBudget(2)
     public String sellerDashboard(@RequestParam(required = false) String token,
                                  Model model,
                                  HttpServletRequest request) {
@@ -59,6 +59,7 @@ public class StoreController {
     }
 
     @GetMapping("/{storeId}")
+    @QueryBudget(1)
     public ResponseEntity<StoreResponse> getStoreById(@PathVariable Integer storeId) {
         try {
             StoreResponse store = storeService.getStoreById(storeId);
@@ -69,6 +70,7 @@ public class StoreController {
     }
 
     @GetMapping("/user/{userId}")
+    @QueryBudget(1)
     public ResponseEntity<StoreResponse> getStoreByUserId(@PathVariable Integer userId) {
         try {
             StoreResponse store = storeService.getStoreByUserId(userId);
@@ -148,12 +150,14 @@ public class StoreController {
     }
 
     @GetMapping
+    @QueryBudget(1)
     public ResponseEntity<List<StoreResponse>> getAllStores() {
         List<StoreResponse> stores = storeService.getAllStores();
         return ResponseEntity.ok(stores);
     }
 
     @GetMapping("/region/{region}")
+    @QueryBudget(1)
     public ResponseEntity<List<StoreResponse>> getStoresByRegion(@PathVariable String region) {
         List<StoreResponse> stores = storeService.getStoresByRegion(region);
         return ResponseEntity.ok(stores);
@@ -164,6 +168,7 @@ public class StoreController {
      * @return ResponseEntity with a map containing hasStore (boolean) and storeId (Integer, if exists)
      */
     @GetMapping("/check")
+    @QueryBudget(1)
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Map<String, Object>> checkUserHasStore() {
         Map<String, Object> response = new HashMap<>();
@@ -14,6 +14,7 @@ public class StoreViewController {
      * @return the create-store template
      */
     @GetMapping("/create-store")
+    @QueryBudget(0)
     public String createStorePage() {
         return "create-store";
     }
@@ -24,6 +25,7 @@ public class StoreViewController {
      * @return the edit-store template or redirect to dashboard if ID is invalid
      */
     @GetMapping("/edit-store/{storeId}")
+    @QueryBudget(0)
     public String editStorePageWithPathVariable(@PathVariable(required = false) String storeId) {
         return validateAndReturnEditStorePage(storeId);
     }
@@ -34,6 +36,7 @@ public class StoreViewController {
      * @return the edit-store template or redirect to dashboard if ID is invalid
      */
     @GetMapping("/edit-store")
+    @QueryBudget(0)
     public String editStorePageWithQueryParam(@RequestParam(required = false) String id) {
         return validateAndReturnEditStorePage(id);
     }
@@ -63,6 +66,7 @@ public class StoreViewController {
      * @return the add-product template
      */
     @GetMapping("/add-product")
+    @QueryBudget(0)
     public String addProductPage() {
         return "add-product";
     }
@@ -73,6 +77,7 @@ public class StoreViewController {
      * @return the edit-product template or redirect to dashboard if ID is invalid
      */
     @GetMapping("/edit-product")
+    @QueryBudget(0)
     public String editProductPageWithQueryParam(@RequestParam(required = false) String id) {
         // Check if id is valid
         if (id == null || id.equals("undefined") || !id.matches("\\d+")) {
@@ -95,6 +100,7 @@ public class StoreViewController {
      * @return the category-management template
      */
     @GetMapping("/category-management")
+    @QueryBudget(0)
     public String categoryManagementPage() {
         return "category-management";
     }
@@ -26,6 +26,7 @@ public class StripeController {
      * @return The Stripe public key
      */
     @GetMapping("/config")
+    @QueryBudget(0)
     public ResponseEntity<Map<String, String>> getStripeConfig() {
         Map<String, String> config = new HashMap<>();
         config.put("publicKey", stripeService.getPublicKey());
@@ -45,6 +45,7 @@ public class TestCartController {
      * @return the response entity
      */
     @GetMapping("/add/{productId}/{quantity}")
+    @QueryBudget(8)
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<?> testAddToCart(
             @PathVariable("productId") Integer productId,
@@ -117,7 +118,7 @@ public class TestCartController {
             Long totalQuantityLong = (Long) totals.get("total_quantity");
             int totalQuantity = totalQuantityLong != null ? totalQuantityLong.intValue() : 0;
 
-            String updateCartSql = "UPDATE carts SET total_price = ?, total_quantity = ?, updated_at = ? WHERE cart_id = ?";
+            String updateCartSql = "UPDATE carts SET total_price = ?, total_quantity = ?, updated_at = ?, version = version + 1 WHERE cart_id = ?";
             int updateCartResult = jdbcTemplate.update(updateCartSql, totalPrice, totalQuantity,
                     Timestamp.valueOf(LocalDateTime.now()), cartId);
             logger.info("Updated cart totals, result: {}", updateCartResult);
@@ -146,6 +147,7 @@ public class TestCartController {
      * @return the response entity
      */
     @GetMapping("/check")
+    @QueryBudget(2)
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<?> testCheckCart() {
         try {
@@ -3,8 +3,10 @@ package com.example.agrifinpalestine.controller;
 import com.example.agrifinpalestine.Entity.User;
 import com.example.agrifinpalestine.Repository.UserRepository;
 import com.example.agrifinpalestine.dto.UserUpdateRequest;
+import com.example.agrifinpalestine.security.UserAccountChangedEvent;
 import com.example.agrifinpalestine.security.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -23,10 +25,12 @@ import java.util.Map;
 public class UserController {
 
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public UserController(UserRepository userRepository) {
+    public UserController(UserRepository userRepository, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -89,6 +93,7 @@ public class UserController {
 
             // Save the updated user
             User updatedUser = userRepository.save(user);
+            eventPublisher.publishEvent(new UserAccountChangedEvent(updatedUser.getUsername()));
 
             // Create response
             Map<String, Object> response = new HashMap<>();
@@ -58,6 +58,7 @@ public class UserMessageController {
      * @return list of all messages
      */
     @GetMapping
+    @QueryBudget(1)
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<List<UserMessageResponse>> getAllMessages() {
         List<UserMessageResponse> messages = userMessageService.getAllMessages();
@@ -71,6 +72,7 @@ public class UserMessageController {
      * @return list of messages with the specified status
      */
     @GetMapping("/status/{status}")
+    @QueryBudget(1)
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<List<UserMessageResponse>> getMessagesByStatus(@PathVariable String status) {
         List<UserMessageResponse> messages = userMessageService.getMessagesByStatus(status);
@@ -84,6 +86,7 @@ public class UserMessageController {
      * @return the message with the specified ID
      */
     @GetMapping("/{messageId}")
+    @QueryBudget(1)
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<UserMessageResponse> getMessageById(@PathVariable Integer messageId) {
         try {
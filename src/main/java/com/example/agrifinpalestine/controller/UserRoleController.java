@@ -26,6 +26,7 @@ public class UserRoleController {
      * @return ResponseEntity with a boolean indicating if the user is a buyer
      */
     @GetMapping("/is-buyer")
+    @QueryBudget(0)
     public ResponseEntity<?> isBuyer() {
         try {
             // Get current authenticated user
@@ -1,6 +1,7 @@
 package com.example.agrifinpalestine.controller;
 
 import com.example.agrifinpalestine.dto.LoginRequest;
+import com.example.agrifinpalestine.security.TokenCookieService;
 import com.example.agrifinpalestine.security.UserDetailsImpl;
 import com.example.agrifinpalestine.service.UserService;
 import org.slf4j.Logger;
@@ -17,6 +18,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import jakarta.servlet.http.HttpServletResponse;
 import java.security.Principal;
 import java.util.Collection;
 
@@ -28,23 +30,35 @@ public class WebController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TokenCookieService tokenCookieService;
+
     @GetMapping("/login")
-    public String loginPage(Model model) {
+    @QueryBudget(0)
+    public String loginPage(@RequestParam(required = false) String logout, Model model,
+                            HttpServletResponse response) {
+        // Scripts that log out without calling the API cannot clear the HttpOnly token cookies
+        if (logout != null) {
+            tokenCookieService.clearCookies(response);
+        }
         model.addAttribute("loginRequest", new LoginRequest());
         return "login";
     }
 
     @GetMapping("/register")
+    @QueryBudget(0)
     public String registerPage() {
         return "register";
     }
 
     @GetMapping("/")
+    @QueryBudget(0)
     public String homePage() {
         return "home";
     }
 
     @GetMapping("/dashboard")
+    @QueryBudget(0)
     public String dashboard(@RequestParam(required = false) String token, Model model) {
         logger.info("Dashboard request received" + (token != null ? " with token" : ""));
 
@@ -105,21 +119,25 @@ public class WebController {
     }
 
     @GetMapping("/products")
+    @QueryBudget(0)
     public String products() {
         return "products";
     }
 
     @GetMapping("/product")
+    @QueryBudget(0)
     public String productDetail() {
         return "product-detail";
     }
 
     @GetMapping("/stores")
+    @QueryBudget(0)
     public String stores() {
         return "stores";
     }
 
     @GetMapping("/store")
+    @QueryBudget(0)
     public String storeDetail() {
         return "store-detail";
     }
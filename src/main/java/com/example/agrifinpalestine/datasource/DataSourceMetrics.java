@@ -0,0 +1,158 @@
+package com.example.agrifinpalestine.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A snapshot of the connection pools and, when a replica is configured, of how connections
+ * were routed between the primary and the replica
+ */
+public class DataSourceMetrics {
+
+    private final List<PoolMetrics> pools;
+    private final Long primaryConnections;
+    private final Long replicaConnections;
+    private final Long fallbackConnections;
+    private final Long pinnedConnections;
+    private final Boolean replicaUsable;
+    private final Long replicaLagSeconds;
+
+    private DataSourceMetrics(List<PoolMetrics> pools, ReadWriteRoutingDataSource routing) {
+        this.pools = pools;
+        this.primaryConnections = routing == null ? null : routing.getPrimaryConnections();
+        this.replicaConnections = routing == null ? null : routing.getReplicaConnections();
+        this.fallbackConnections = routing == null ? null : routing.getFallbackConnections();
+        this.pinnedConnections = routing == null ? null : routing.getPinnedConnections();
+        this.replicaUsable = routing == null ? null : routing.getLagMonitor().isReplicaUsable();
+        this.replicaLagSeconds = routing == null ? null : routing.getLagMonitor().getLagSeconds();
+    }
+
+    /**
+     * Take a snapshot of the application DataSource
+     * @param dataSource the application DataSource: a Hikari pool, or a routing DataSource over two pools
+     * @return the metrics
+     */
+    public static DataSourceMetrics of(DataSource dataSource) {
+        DataSource target = dataSource;
+        while (target instanceof DelegatingDataSource delegating && delegating.getTargetDataSource() != null) {
+            target = delegating.getTargetDataSource();
+        }
+
+        List<PoolMetrics> pools = new ArrayList<>();
+        if (target instanceof ReadWriteRoutingDataSource routing) {
+            for (Map.Entry<Object, DataSource> pool : routing.getPools().entrySet()) {
+                unwrapHikari(pool.getValue()).ifPresent(hikari -> pools.add(PoolMetrics.of(hikari)));
+            }
+            pools.sort(Comparator.comparing(PoolMetrics::getName));
+            return new DataSourceMetrics(pools, routing);
+        }
+
+        unwrapHikari(target).ifPresent(hikari -> pools.add(PoolMetrics.of(hikari)));
+        return new DataSourceMetrics(pools, null);
+    }
+
+    private static Optional<HikariDataSource> unwrapHikari(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class)
+                    ? Optional.of(dataSource.unwrap(HikariDataSource.class))
+                    : Optional.empty();
+        } catch (SQLException e) {
+            return Optional.empty();
+        }
+    }
+
+    public List<PoolMetrics> getPools() {
+        return pools;
+    }
+
+    public Long getPrimaryConnections() {
+        return primaryConnections;
+    }
+
+    public Long getReplicaConnections() {
+        return replicaConnections;
+    }
+
+    public Long getFallbackConnections() {
+        return fallbackConnections;
+    }
+
+    public Long getPinnedConnections() {
+        return pinnedConnections;
+    }
+
+    public Boolean getReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public Long getReplicaLagSeconds() {
+        return replicaLagSeconds;
+    }
+
+    /**
+     * The state of one Hikari pool
+     */
+    public static class PoolMetrics {
+
+        private final String name;
+        private final int maximumPoolSize;
+        private final int activeConnections;
+        private final int idleConnections;
+        private final int totalConnections;
+        private final int threadsAwaitingConnection;
+
+        private PoolMetrics(String name, int maximumPoolSize, int activeConnections, int idleConnections,
+                            int totalConnections, int threadsAwaitingConnection) {
+            this.name = name;
+            this.maximumPoolSize = maximumPoolSize;
+            this.activeConnections = activeConnections;
+            this.idleConnections = idleConnections;
+            this.totalConnections = totalConnections;
+            this.threadsAwaitingConnection = threadsAwaitingConnection;
+        }
+
+        static PoolMetrics of(HikariDataSource dataSource) {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            if (pool == null) {
+                // The pool starts with its first connection
+                return new PoolMetrics(dataSource.getPoolName(), dataSource.getMaximumPoolSize(), 0, 0, 0, 0);
+            }
+            return new PoolMetrics(dataSource.getPoolName(), dataSource.getMaximumPoolSize(),
+                    pool.getActiveConnections(), pool.getIdleConnections(), pool.getTotalConnections(),
+                    pool.getThreadsAwaitingConnection());
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public int getActiveConnections() {
+            return activeConnections;
+        }
+
+        public int getIdleConnections() {
+            return idleConnections;
+        }
+
+        public int getTotalConnections() {
+            return totalConnections;
+        }
+
+        public int getThreadsAwaitingConnection() {
+            return threadsAwaitingConnection;
+        }
+    }
+}
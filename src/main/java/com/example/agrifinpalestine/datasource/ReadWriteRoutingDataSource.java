@@ -0,0 +1,140 @@
+package com.example.agrifinpalestine.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends connections of read-only transactions to the replica and all others to the primary.
+ *
+ * The transaction is only known once it has begun, after the transaction manager has asked
+ * for a connection, so this DataSource must be wrapped in a LazyConnectionDataSourceProxy,
+ * which fetches the connection at the first statement. Connections requested outside a
+ * transaction, e.g. for migrations and named locks, always come from the primary.
+ *
+ * A user who committed a read-write transaction keeps reading from the primary for a while,
+ * so that the user sees their own writes even while the replica is catching up.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final RecentWriters recentWriters;
+
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder fallbackConnections = new LongAdder();
+    private final LongAdder pinnedConnections = new LongAdder();
+
+    /**
+     * @param primary the pool for writes and read-write transactions
+     * @param replica the pool for read-only transactions
+     * @param lagMonitor decides whether the replica is current enough to use
+     * @param recentWriters the users whose reads stay on the primary after a write
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor,
+                                      RecentWriters recentWriters) {
+        this.lagMonitor = lagMonitor;
+        this.recentWriters = recentWriters;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String username = currentUsername();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (username != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                recordWriteOnCommit(username);
+            }
+            primaryConnections.increment();
+            return Target.PRIMARY;
+        }
+        if (username != null && recentWriters.wroteRecently(username)) {
+            pinnedConnections.increment();
+            return Target.PRIMARY;
+        }
+        if (!lagMonitor.isReplicaUsable()) {
+            fallbackConnections.increment();
+            return Target.PRIMARY;
+        }
+        replicaConnections.increment();
+        return Target.REPLICA;
+    }
+
+    // The window starts when the write is visible on the primary, i.e. after the commit
+    private void recordWriteOnCommit(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recentWriters.recordWrite(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.recordWrite(username);
+            }
+        });
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * @return the number of connections handed out from the primary for writes
+     */
+    public long getPrimaryConnections() {
+        return primaryConnections.sum();
+    }
+
+    /**
+     * @return the number of connections handed out from the replica
+     */
+    public long getReplicaConnections() {
+        return replicaConnections.sum();
+    }
+
+    /**
+     * @return the number of read-only connections handed out from the primary because the replica was not usable
+     */
+    public long getFallbackConnections() {
+        return fallbackConnections.sum();
+    }
+
+    /**
+     * @return the number of read-only connections handed out from the primary because the user wrote recently
+     */
+    public long getPinnedConnections() {
+        return pinnedConnections.sum();
+    }
+
+    /**
+     * @return the lag monitor of the replica
+     */
+    public ReplicaLagMonitor getLagMonitor() {
+        return lagMonitor;
+    }
+
+    /**
+     * @return the primary and replica pools
+     */
+    public Map<Object, DataSource> getPools() {
+        return getResolvedDataSources();
+    }
+}
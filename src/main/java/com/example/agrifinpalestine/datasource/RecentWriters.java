@@ -0,0 +1,74 @@
+package com.example.agrifinpalestine.datasource;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the users who recently committed a read-write transaction, so that their read-only
+ * transactions stay on the primary until the replica has had time to apply their writes, e.g.
+ * the order page that follows a payment.
+ *
+ * Users are identified by the name of the authenticated principal. The window only covers the
+ * requests served by this instance.
+ */
+public class RecentWriters {
+
+    private final long windowMillis;
+    private final Clock clock;
+    private final Map<String, Long> pinnedUntil = new ConcurrentHashMap<>();
+
+    /**
+     * @param windowMillis how long after a write the reads of the user stay on the primary
+     */
+    public RecentWriters(long windowMillis) {
+        this(windowMillis, Clock.systemUTC());
+    }
+
+    RecentWriters(long windowMillis, Clock clock) {
+        this.windowMillis = windowMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Record that a user committed a write now
+     * @param username the username
+     */
+    public void recordWrite(String username) {
+        pinnedUntil.put(username, clock.millis() + windowMillis);
+    }
+
+    /**
+     * @param username the username
+     * @return true if the user wrote within the window, so the replica may not have the write yet
+     */
+    public boolean wroteRecently(String username) {
+        Long until = pinnedUntil.get(username);
+        if (until == null) {
+            return false;
+        }
+        if (until > clock.millis()) {
+            return true;
+        }
+        pinnedUntil.remove(username, until);
+        return false;
+    }
+
+    /**
+     * @return the number of users whose reads are on the primary
+     */
+    public int size() {
+        return pinnedUntil.size();
+    }
+
+    /**
+     * Drop the users whose window has passed and who have not read since
+     */
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:5000}")
+    public void purge() {
+        long now = clock.millis();
+        pinnedUntil.values().removeIf(until -> until <= now);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.agrifinpalestine.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
+
+/**
+ * Checks how far the replica is behind the primary, so that read-only transactions fall
+ * back to the primary while the replica is lagging, unreachable or not replicating.
+ *
+ * An instance that reports no replication status at all is a standalone copy, e.g. a
+ * second local instance in development, and is treated as current.
+ */
+public class ReplicaLagMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    // SHOW REPLICA STATUS was added in MySQL 8.0.22; older servers only know the old name
+    private static final String REPLICA_STATUS = "SHOW REPLICA STATUS";
+    private static final String LEGACY_REPLICA_STATUS = "SHOW SLAVE STATUS";
+
+    private final DataSource replicaDataSource;
+    private final long maxLagSeconds;
+
+    private volatile boolean usable;
+    private volatile Long lagSeconds;
+    private volatile String statusStatement = REPLICA_STATUS;
+
+    /**
+     * @param replicaDataSource the replica pool
+     * @param maxLagSeconds the largest lag at which the replica still serves reads
+     */
+    public ReplicaLagMonitor(DataSource replicaDataSource, long maxLagSeconds) {
+        this.replicaDataSource = replicaDataSource;
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    /**
+     * @return true if read-only transactions may use the replica
+     */
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    /**
+     * @return the lag measured by the last check in seconds, or null if it could not be measured
+     */
+    public Long getLagSeconds() {
+        return lagSeconds;
+    }
+
+    /**
+     * Measure the replica lag
+     */
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:5000}")
+    public void check() {
+        try (Connection connection = replicaDataSource.getConnection()) {
+            recordLag(queryLag(connection));
+        } catch (SQLException e) {
+            logger.debug("Replica status check failed: {}", e.getMessage());
+            recordLag(null);
+        }
+    }
+
+    private Long queryLag(Connection connection) throws SQLException {
+        try {
+            return queryLag(connection, statusStatement);
+        } catch (SQLException e) {
+            if (!statusStatement.equals(REPLICA_STATUS) || !isSyntaxError(e)) {
+                throw e;
+            }
+            logger.info("Replica does not support {}, using {}", REPLICA_STATUS, LEGACY_REPLICA_STATUS);
+            statusStatement = LEGACY_REPLICA_STATUS;
+            return queryLag(connection, LEGACY_REPLICA_STATUS);
+        }
+    }
+
+    private static Long queryLag(Connection connection, String statusStatement) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet status = statement.executeQuery(statusStatement)) {
+            return status.next() ? readLag(status) : Long.valueOf(0);
+        }
+    }
+
+    private static boolean isSyntaxError(SQLException e) {
+        return e instanceof SQLSyntaxErrorException || "42000".equals(e.getSQLState());
+    }
+
+    void recordLag(Long measuredLagSeconds) {
+        boolean wasUsable = usable;
+        lagSeconds = measuredLagSeconds;
+        usable = measuredLagSeconds != null && measuredLagSeconds <= maxLagSeconds;
+
+        if (wasUsable && !usable) {
+            logger.warn("Replica is {}, sending reads to the primary", measuredLagSeconds == null
+                    ? "unavailable" : measuredLagSeconds + "s behind");
+        } else if (!wasUsable && usable) {
+            logger.info("Replica is {}s behind, sending read-only transactions to it", measuredLagSeconds);
+        }
+    }
+
+    // Null when replication is stopped; the column was renamed in MySQL 8.0.22
+    private static Long readLag(ResultSet status) throws SQLException {
+        ResultSetMetaData metaData = status.getMetaData();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            String column = metaData.getColumnLabel(i);
+            if (column.equalsIgnoreCase("Seconds_Behind_Source") || column.equalsIgnoreCase("Seconds_Behind_Master")) {
+                long lag = status.getLong(i);
+                return status.wasNull() ? null : lag;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.agrifinpalestine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * The totals of a cart recomputed from its items, with the cart version they were read at
+ */
+@Getter
+@AllArgsConstructor
+public class CartTotals {
+
+    private final Integer cartId;
+    private final Long version;
+    private final BigDecimal totalPrice;
+    private final Long totalQuantity;
+}
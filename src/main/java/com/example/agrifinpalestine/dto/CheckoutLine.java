@@ -0,0 +1,28 @@
+package com.example.agrifinpalestine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * One line of the cart being checked out, selected in a single query together with
+ * the current product price, so checkout never loads the cart, product or user entities.
+ */
+@Getter
+@AllArgsConstructor
+public class CheckoutLine {
+
+    private final Integer cartId;
+    private final Long cartVersion;
+    private final Integer productId;
+    private final Integer quantity;
+    private final BigDecimal price;
+
+    /**
+     * @return the amount charged for this line
+     */
+    public BigDecimal getLineTotal() {
+        return price.multiply(BigDecimal.valueOf(quantity));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.agrifinpalestine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Flat read model for product listings, selected column by column in a single query.
+ * Carries exactly what a listing ProductResponse needs, so listings never load the
+ * Store (with its logo/banner TEXT columns), its owner with roles and cart, or the reviews.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductListingRow {
+
+    private final Integer productId;
+    private final Integer storeId;
+    private final String storeName;
+    private final Integer storeUserId;
+    private final String storeLocation;
+    private final Integer categoryId;
+    private final String categoryName;
+    private final String productName;
+    private final String productDescription;
+    private final BigDecimal price;
+    private final Integer quantity;
+    private final String unit;
+    private final String productImage;
+    private final Boolean isOrganic;
+    private final Boolean isAvailable;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final Integer reviewCount;
+    private final Long ratingSum;
+
+    /**
+     * Get the average rating for the product
+     * @return the average rating, or 0.0 if the product has no reviews
+     */
+    public double getAverageRating() {
+        if (reviewCount == null || reviewCount == 0 || ratingSum == null) {
+            return 0.0;
+        }
+        return (double) ratingSum / reviewCount;
+    }
+}
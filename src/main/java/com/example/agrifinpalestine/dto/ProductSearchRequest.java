@@ -45,4 +45,8 @@ public class ProductSearchRequest {
 
     @Pattern(regexp = "^(asc|desc)$", message = "Sort direction must be 'asc' or 'desc'")
     private String sortDirection = "asc";
+
+    // Continuation token for cursor pagination; an empty string requests the first page
+    @Size(max = 512, message = "Cursor cannot exceed 512 characters")
+    private String cursor;
 }
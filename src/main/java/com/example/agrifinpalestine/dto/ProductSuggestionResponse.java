@@ -0,0 +1,23 @@
+package com.example.agrifinpalestine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Lightweight product entry returned by the search typeahead
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSuggestionResponse {
+    private Integer productId;
+    private String productName;
+    private Integer categoryId;
+    private String categoryName;
+    private BigDecimal price;
+}
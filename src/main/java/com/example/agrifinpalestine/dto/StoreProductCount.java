@@ -0,0 +1,15 @@
+package com.example.agrifinpalestine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The number of products of a store, counted for many stores in a single query
+ */
+@Getter
+@AllArgsConstructor
+public class StoreProductCount {
+
+    private final Integer storeId;
+    private final Long productCount;
+}
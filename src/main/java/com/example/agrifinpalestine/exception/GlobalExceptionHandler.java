@@ -6,11 +6,13 @@ import com.example.agrifinpalestine.exception.auth.RoleRequiredException;
 import com.example.agrifinpalestine.exception.auth.SellerRoleRequiredException;
 import com.example.agrifinpalestine.exception.inventory.InsufficientInventoryException;
 import com.example.agrifinpalestine.exception.product.ProductException;
+import com.example.agrifinpalestine.exception.ratelimit.TooManyRequestsException;
 import com.example.agrifinpalestine.exception.store.StoreException;
 import com.example.agrifinpalestine.exception.store.UserAlreadyHasStoreException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -63,6 +65,23 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, ex.getStatus());
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorResponse> handleTooManyRequestsException(TooManyRequestsException ex, HttpServletRequest request) {
+        logger.warn("Too many requests: {} {}", request.getRequestURI(), ex.getMessage());
+
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .errorCode(ex.getErrorCode())
+                .message(ex.getMessage())
+                .status(ex.getStatus().value())
+                .timestamp(LocalDateTime.now())
+                .path(request.getRequestURI())
+                .build();
+
+        return ResponseEntity.status(ex.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
     @ExceptionHandler(ProductException.class)
     public ResponseEntity<ErrorResponse> handleProductException(ProductException ex, HttpServletRequest request) {
         logger.error("Product exception: {}", ex.getMessage());
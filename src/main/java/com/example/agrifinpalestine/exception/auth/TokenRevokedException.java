@@ -0,0 +1,13 @@
+package com.example.agrifinpalestine.exception.auth;
+
+public class TokenRevokedException extends AuthenticationException {
+    private static final String ERROR_CODE = "TOKEN_REVOKED";
+
+    public TokenRevokedException() {
+        super("Authentication token has been revoked", ERROR_CODE);
+    }
+
+    public TokenRevokedException(String message) {
+        super(message, ERROR_CODE);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.agrifinpalestine.exception.inventory;
+
+import com.example.agrifinpalestine.exception.BaseException;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when the cart being checked out is not the one the stock was reserved for
+ */
+@Getter
+public class ReservationMismatchException extends BaseException {
+    private static final String ERROR_CODE = "RESERVATION_MISMATCH";
+
+    private final String paymentIntentId;
+
+    public ReservationMismatchException(String paymentIntentId) {
+        super("The cart changed after payment intent " + paymentIntentId + " was created",
+                HttpStatus.CONFLICT, ERROR_CODE);
+        this.paymentIntentId = paymentIntentId;
+    }
+}
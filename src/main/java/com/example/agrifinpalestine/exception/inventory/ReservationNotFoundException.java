@@ -0,0 +1,20 @@
+package com.example.agrifinpalestine.exception.inventory;
+
+import com.example.agrifinpalestine.exception.BaseException;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when a payment is reported for an intent the user holds no stock for
+ */
+@Getter
+public class ReservationNotFoundException extends BaseException {
+    private static final String ERROR_CODE = "RESERVATION_NOT_FOUND";
+
+    private final String paymentIntentId;
+
+    public ReservationNotFoundException(String paymentIntentId) {
+        super("No stock is reserved for payment intent " + paymentIntentId, HttpStatus.NOT_FOUND, ERROR_CODE);
+        this.paymentIntentId = paymentIntentId;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.agrifinpalestine.exception.lock;
+
+import com.example.agrifinpalestine.exception.BaseException;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when a named lock could not be acquired within its timeout
+ */
+@Getter
+public class LockTimeoutException extends BaseException {
+    private static final String ERROR_CODE = "LOCK_TIMEOUT";
+
+    private final String lockName;
+
+    public LockTimeoutException(String lockName, Duration timeout) {
+        super(String.format("Could not acquire lock %s within %d ms", lockName, timeout.toMillis()),
+                HttpStatus.SERVICE_UNAVAILABLE, ERROR_CODE);
+        this.lockName = lockName;
+    }
+
+    public LockTimeoutException(String lockName, String message, Throwable cause) {
+        super(message, cause, HttpStatus.SERVICE_UNAVAILABLE, ERROR_CODE);
+        this.lockName = lockName;
+    }
+}
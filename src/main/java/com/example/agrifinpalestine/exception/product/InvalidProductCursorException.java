@@ -0,0 +1,15 @@
+package com.example.agrifinpalestine.exception.product;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidProductCursorException extends ProductException {
+    private static final String ERROR_CODE = "INVALID_CURSOR";
+    
+    public InvalidProductCursorException(String message) {
+        super(message, HttpStatus.BAD_REQUEST, ERROR_CODE);
+    }
+    
+    public InvalidProductCursorException(String message, Throwable cause) {
+        super(message, cause, HttpStatus.BAD_REQUEST, ERROR_CODE);
+    }
+}
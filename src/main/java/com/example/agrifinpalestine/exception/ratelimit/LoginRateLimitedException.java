@@ -0,0 +1,12 @@
+package com.example.agrifinpalestine.exception.ratelimit;
+
+/**
+ * Exception thrown when a client or an account has made too many login attempts
+ */
+public class LoginRateLimitedException extends TooManyRequestsException {
+    private static final String ERROR_CODE = "LOGIN_RATE_LIMITED";
+
+    public LoginRateLimitedException(long retryAfterSeconds) {
+        super("Too many login attempts. Please try again later.", ERROR_CODE, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.agrifinpalestine.exception.ratelimit;
+
+/**
+ * Exception thrown when the password hashing executor has no room for another request
+ */
+public class PasswordHashingBusyException extends TooManyRequestsException {
+    private static final String ERROR_CODE = "PASSWORD_HASHING_BUSY";
+
+    public PasswordHashingBusyException() {
+        super("The server is busy. Please try again in a moment.", ERROR_CODE, 1);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.agrifinpalestine.exception.ratelimit;
+
+import com.example.agrifinpalestine.exception.BaseException;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Base exception for requests refused because the server or the client is over a limit
+ */
+@Getter
+public abstract class TooManyRequestsException extends BaseException {
+
+    private final long retryAfterSeconds;
+
+    protected TooManyRequestsException(String message, String errorCode, long retryAfterSeconds) {
+        super(message, HttpStatus.TOO_MANY_REQUESTS, errorCode);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
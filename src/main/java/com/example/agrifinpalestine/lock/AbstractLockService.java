@@ -0,0 +1,102 @@
+package com.example.agrifinpalestine.lock;
+
+import com.example.agrifinpalestine.exception.lock.LockTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Acquire/release bookkeeping shared by the lock implementations: timing, metrics and
+ * holding the lock until the surrounding transaction completes
+ */
+public abstract class AbstractLockService implements LockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractLockService.class);
+
+    private final LockMetrics metrics;
+
+    protected AbstractLockService(String provider) {
+        this.metrics = new LockMetrics(provider);
+    }
+
+    /**
+     * A lock acquired by {@link #tryAcquire}
+     */
+    protected interface Handle {
+        void release();
+    }
+
+    /**
+     * Try to acquire a lock
+     * @param name the lock name
+     * @param timeout the maximum time to wait
+     * @return the handle, or null if the lock was not acquired in time
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    protected abstract Handle tryAcquire(String name, Duration timeout) throws InterruptedException;
+
+    @Override
+    public <T> T callWithLock(String name, Duration timeout, Supplier<T> action) {
+        Handle handle = acquire(name, timeout);
+
+        boolean releaseAfterTransaction = false;
+        try {
+            T result = action.get();
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        release(name, handle);
+                    }
+                });
+                releaseAfterTransaction = true;
+            }
+            return result;
+        } finally {
+            if (!releaseAfterTransaction) {
+                release(name, handle);
+            }
+        }
+    }
+
+    @Override
+    public LockMetrics getMetrics() {
+        return metrics;
+    }
+
+    private Handle acquire(String name, Duration timeout) {
+        long startedAt = System.nanoTime();
+        Handle handle;
+        try {
+            handle = tryAcquire(name, timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            metrics.recordTimeout(System.nanoTime() - startedAt);
+            throw new LockTimeoutException(name, "Interrupted while waiting for lock " + name, e);
+        }
+
+        long waited = System.nanoTime() - startedAt;
+        if (handle == null) {
+            metrics.recordTimeout(waited);
+            logger.warn("Timed out after {} ms waiting for lock {}", timeout.toMillis(), name);
+            throw new LockTimeoutException(name, timeout);
+        }
+
+        metrics.recordAcquired(waited);
+        return handle;
+    }
+
+    private void release(String name, Handle handle) {
+        try {
+            handle.release();
+        } catch (Exception e) {
+            logger.error("Error releasing lock {}: {}", name, e.getMessage(), e);
+        } finally {
+            metrics.recordReleased();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.agrifinpalestine.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for lock acquisitions, timeouts and wait times.
+ * Getters return the current values, so the object can be serialized as a snapshot.
+ */
+public class LockMetrics {
+
+    private final String provider;
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicInteger held = new AtomicInteger();
+
+    public LockMetrics(String provider) {
+        this.provider = provider;
+    }
+
+    void recordAcquired(long waitNanos) {
+        acquired.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        held.incrementAndGet();
+    }
+
+    void recordReleased() {
+        held.decrementAndGet();
+    }
+
+    void recordTimeout(long waitNanos) {
+        timeouts.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public long getAcquired() {
+        return acquired.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public int getHeld() {
+        return held.get();
+    }
+
+    public double getAverageWaitMillis() {
+        long attempts = acquired.sum() + timeouts.sum();
+        return attempts == 0 ? 0 : totalWaitNanos.sum() / (double) attempts / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.agrifinpalestine.lock;
+
+import com.example.agrifinpalestine.exception.lock.LockTimeoutException;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Mutual exclusion on named locks, e.g. "cart:user:42".
+ *
+ * The implementation is chosen with the lock.provider property: "jvm" (default) serializes
+ * threads of this application instance only, "mysql" uses database named locks so that all
+ * instances sharing the database are serialized.
+ */
+public interface LockService {
+
+    /**
+     * Run an action while holding a named lock.
+     * When called inside a transaction the lock is held until the transaction completes,
+     * so the next holder sees the committed result of the action.
+     * @param name the lock name
+     * @param timeout the maximum time to wait for the lock
+     * @param action the action to run
+     * @return the result of the action
+     * @throws LockTimeoutException if the lock could not be acquired in time
+     */
+    <T> T callWithLock(String name, Duration timeout, Supplier<T> action);
+
+    /**
+     * Get the lock statistics of this application instance
+     * @return the metrics
+     */
+    LockMetrics getMetrics();
+}
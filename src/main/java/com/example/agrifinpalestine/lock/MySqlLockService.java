@@ -0,0 +1,123 @@
+package com.example.agrifinpalestine.lock;
+
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * Lock service for multi-instance deployments based on MySQL named locks (GET_LOCK).
+ *
+ * Named locks belong to a database session. Inside a transaction the lock is taken on the
+ * transaction's connection and released before that connection goes back to the pool, so a
+ * lock does not need a second connection. Outside a transaction, e.g. for migrations, the lock
+ * keeps a connection of its own until it is released. If an instance dies, MySQL releases its
+ * locks when the session ends.
+ *
+ * Read-only transactions may run on a replica, where the lock would not exclude the other
+ * instances, so locks are not allowed in them.
+ */
+public class MySqlLockService extends AbstractLockService {
+
+    // MySQL rejects lock names longer than 64 characters
+    private static final int MAX_NAME_LENGTH = 64;
+    private static final String NAME_PREFIX = "agrifin:";
+
+    private final DataSource dataSource;
+
+    public MySqlLockService(DataSource dataSource) {
+        super("mysql");
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    protected Handle tryAcquire(String name, Duration timeout) {
+        String lockName = toLockName(name);
+        // GET_LOCK waits in whole seconds
+        long timeoutSeconds = (timeout.toMillis() + 999) / 1000;
+
+        boolean transactional = TransactionSynchronizationManager.isActualTransactionActive();
+        if (transactional && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            throw new IllegalStateException("Lock " + name + " requested in a read-only transaction");
+        }
+
+        Connection connection = null;
+        try {
+            connection = transactional ? DataSourceUtils.getConnection(dataSource) : dataSource.getConnection();
+            boolean acquired;
+            try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+                statement.setString(1, lockName);
+                statement.setLong(2, timeoutSeconds);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    // 1 when acquired, 0 on timeout, NULL on error
+                    acquired = resultSet.next() && resultSet.getInt(1) == 1;
+                }
+            }
+
+            if (!acquired) {
+                returnConnection(connection, transactional);
+                return null;
+            }
+
+            Connection lockConnection = connection;
+            return () -> release(lockConnection, lockName, transactional);
+        } catch (SQLException e) {
+            returnConnection(connection, transactional);
+            throw new CannotAcquireLockException("Error acquiring database lock " + lockName, e);
+        }
+    }
+
+    // In a transaction this runs after completion, before the transaction manager releases the connection
+    private void release(Connection connection, String lockName, boolean transactional) {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, lockName);
+            statement.execute();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error releasing database lock " + lockName, e);
+        } finally {
+            returnConnection(connection, transactional);
+        }
+    }
+
+    // The transaction's connection stays with the transaction, our own goes back to the pool
+    private void returnConnection(Connection connection, boolean transactional) {
+        if (transactional) {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        } else {
+            closeQuietly(connection);
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // The connection is discarded by the pool
+            }
+        }
+    }
+
+    static String toLockName(String name) {
+        String lockName = NAME_PREFIX + name;
+        if (lockName.length() <= MAX_NAME_LENGTH) {
+            return lockName;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(name.getBytes(StandardCharsets.UTF_8));
+            return NAME_PREFIX + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+}
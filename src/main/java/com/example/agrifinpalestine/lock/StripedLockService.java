@@ -0,0 +1,32 @@
+package com.example.agrifinpalestine.lock;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-JVM lock service for single-instance deployments.
+ * Names are hashed onto a fixed array of locks, so memory use does not grow with the number
+ * of names; unrelated names sharing a stripe only wait for each other briefly.
+ */
+public class StripedLockService extends AbstractLockService {
+
+    private final ReentrantLock[] stripes;
+
+    public StripedLockService(int stripeCount) {
+        super("jvm");
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    protected Handle tryAcquire(String name, Duration timeout) throws InterruptedException {
+        ReentrantLock lock = stripes[Math.floorMod(name.hashCode(), stripes.length)];
+        if (!lock.tryLock(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            return null;
+        }
+        return lock::unlock;
+    }
+}
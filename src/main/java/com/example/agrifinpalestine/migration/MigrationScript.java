@@ -0,0 +1,101 @@
+package com.example.agrifinpalestine.migration;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A versioned SQL migration script named {@code V<version>__<description>.sql},
+ * e.g. {@code V11__add_cart_version.sql}. Versions are dot-separated numbers, so
+ * {@code V7.1} sorts between {@code V7} and {@code V8}.
+ */
+public class MigrationScript implements Comparable<MigrationScript> {
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+(?:\\.\\d+)*)__(.+)\\.sql");
+
+    private final String version;
+    private final int[] versionParts;
+    private final String description;
+    private final String fileName;
+    private final String sql;
+    private final String checksum;
+
+    private MigrationScript(String version, String description, String fileName, String sql) {
+        this.version = version;
+        this.versionParts = parseVersion(version);
+        this.description = description;
+        this.fileName = fileName;
+        this.sql = sql;
+        this.checksum = checksum(sql);
+    }
+
+    /**
+     * Create a migration script from its file name and content
+     * @param fileName the file name, e.g. V11__add_cart_version.sql
+     * @param sql the content of the file
+     * @return the migration script
+     * @throws IllegalArgumentException if the file name does not follow the naming scheme
+     */
+    public static MigrationScript of(String fileName, String sql) {
+        Matcher matcher = FILE_NAME.matcher(fileName);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Migration file name must look like V<version>__<description>.sql: " + fileName);
+        }
+        return new MigrationScript(matcher.group(1), matcher.group(2).replace('_', ' '), fileName, sql);
+    }
+
+    /**
+     * Compare two versions numerically, e.g. "7.1" comes after "7" and before "10"
+     * @return a negative number, zero or a positive number as the first version is lower, equal or higher
+     */
+    public static int compareVersions(String first, String second) {
+        return Arrays.compare(parseVersion(first), parseVersion(second));
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return the SHA-256 of the script with line endings normalized, so that a checkout
+     *         with CRLF line endings has the same checksum
+     */
+    public String getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    public int compareTo(MigrationScript other) {
+        return Arrays.compare(versionParts, other.versionParts);
+    }
+
+    private static int[] parseVersion(String version) {
+        return Arrays.stream(version.split("\\.")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static String checksum(String sql) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(sql.replace("\r\n", "\n").strip().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
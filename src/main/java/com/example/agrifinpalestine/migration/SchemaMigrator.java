@@ -0,0 +1,219 @@
+package com.example.agrifinpalestine.migration;
+
+import com.example.agrifinpalestine.lock.LockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.FileCopyUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies the versioned SQL scripts in db/migration exactly once each, in version order.
+ *
+ * Applied versions are recorded in the schema_history table together with the checksum
+ * of their script. When the schema is current, a start-up costs one metadata lookup and
+ * one SELECT and runs no DDL. A script whose checksum differs from the recorded one stops
+ * the start-up, since the database no longer matches what the scripts describe.
+ *
+ * On a database without a history table, scripts up to the baseline version are recorded
+ * as already applied instead of being run. Hibernate creates the schema for new databases,
+ * and existing databases had these scripts re-run on every start-up before versions were
+ * tracked.
+ */
+public class SchemaMigrator {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    static final String HISTORY_TABLE = "schema_history";
+
+    private static final String LOCK_NAME = "schema-migration";
+    private static final Duration LOCK_TIMEOUT = Duration.ofMinutes(5);
+
+    private static final String CREATE_HISTORY_TABLE = "CREATE TABLE " + HISTORY_TABLE + " ("
+            + "version VARCHAR(50) NOT NULL PRIMARY KEY, "
+            + "description VARCHAR(200) NOT NULL, "
+            + "script VARCHAR(255) NOT NULL, "
+            + "checksum VARCHAR(64) NOT NULL, "
+            + "type VARCHAR(10) NOT NULL, "
+            + "installed_on TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+            + "execution_time_ms INT NOT NULL)";
+
+    private final DataSource dataSource;
+    private final LockService lockService;
+    private final String location;
+    private final String baselineVersion;
+
+    /**
+     * @param dataSource the database to migrate
+     * @param lockService serializes application instances migrating the same database
+     * @param location the location pattern of the scripts, e.g. classpath:db/migration/V*.sql
+     * @param baselineVersion scripts up to this version are not run on a database without history
+     */
+    public SchemaMigrator(DataSource dataSource, LockService lockService, String location, String baselineVersion) {
+        this.dataSource = dataSource;
+        this.lockService = lockService;
+        this.location = location;
+        this.baselineVersion = baselineVersion;
+    }
+
+    /**
+     * Apply the pending migrations
+     * @return the number of scripts that were run
+     * @throws IllegalStateException if a script fails or an applied script has changed
+     */
+    public int migrate() {
+        List<MigrationScript> scripts = loadScripts();
+        return lockService.callWithLock(LOCK_NAME, LOCK_TIMEOUT, () -> {
+            try (Connection connection = dataSource.getConnection()) {
+                return migrate(connection, scripts);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Database migration failed: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    int migrate(Connection connection, List<MigrationScript> scripts) throws SQLException {
+        connection.setAutoCommit(true);
+
+        Map<String, String> appliedChecksums;
+        if (historyTableExists(connection)) {
+            appliedChecksums = readHistory(connection);
+        } else {
+            createHistoryTable(connection);
+            appliedChecksums = baseline(connection, scripts);
+        }
+
+        int applied = 0;
+        for (MigrationScript script : scripts) {
+            String appliedChecksum = appliedChecksums.get(script.getVersion());
+            if (appliedChecksum == null) {
+                apply(connection, script);
+                applied++;
+            } else if (!appliedChecksum.equals(script.getChecksum())) {
+                throw new IllegalStateException("Migration " + script.getFileName()
+                        + " was changed after it was applied; add a new migration instead");
+            }
+        }
+
+        if (applied == 0) {
+            logger.info("Database schema is up to date ({} migrations)", scripts.size());
+        } else {
+            logger.info("Applied {} database migrations", applied);
+        }
+        return applied;
+    }
+
+    private List<MigrationScript> loadScripts() {
+        ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        List<MigrationScript> scripts = new ArrayList<>();
+        Map<String, String> fileNamesByVersion = new HashMap<>();
+        try {
+            for (Resource resource : resolver.getResources(location)) {
+                MigrationScript script = MigrationScript.of(resource.getFilename(), asString(resource));
+                String duplicate = fileNamesByVersion.put(script.getVersion(), script.getFileName());
+                if (duplicate != null) {
+                    throw new IllegalStateException("Migrations " + duplicate + " and " + script.getFileName()
+                            + " have the same version " + script.getVersion());
+                }
+                scripts.add(script);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read migrations from " + location, e);
+        }
+        scripts.sort(null);
+        return scripts;
+    }
+
+    private boolean historyTableExists(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet tables = metaData.getTables(connection.getCatalog(), connection.getSchema(),
+                HISTORY_TABLE, new String[] {"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    private void createHistoryTable(Connection connection) throws SQLException {
+        logger.info("Creating {} table", HISTORY_TABLE);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_HISTORY_TABLE);
+        }
+    }
+
+    private Map<String, String> readHistory(Connection connection) throws SQLException {
+        Map<String, String> checksums = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT version, checksum FROM " + HISTORY_TABLE)) {
+            while (rows.next()) {
+                checksums.put(rows.getString(1), rows.getString(2));
+            }
+        }
+        return checksums;
+    }
+
+    private Map<String, String> baseline(Connection connection, List<MigrationScript> scripts) throws SQLException {
+        Map<String, String> checksums = new HashMap<>();
+        for (MigrationScript script : scripts) {
+            if (MigrationScript.compareVersions(script.getVersion(), baselineVersion) <= 0) {
+                record(connection, script, "BASELINE", 0);
+                checksums.put(script.getVersion(), script.getChecksum());
+            }
+        }
+        logger.info("Recorded {} migrations up to version {} as baseline", checksums.size(), baselineVersion);
+        return checksums;
+    }
+
+    private void apply(Connection connection, MigrationScript script) throws SQLException {
+        logger.info("Applying migration {}", script.getFileName());
+        long start = System.currentTimeMillis();
+
+        // MySQL commits DDL implicitly, so a failed script cannot be rolled back; it is not recorded
+        // and start-up stops, so that it can be fixed and run again
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : SqlScriptSplitter.split(script.getSql())) {
+                logger.debug("Executing SQL statement: {}", sql);
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Migration " + script.getFileName() + " failed: " + e.getMessage(), e);
+        }
+
+        record(connection, script, "SQL", System.currentTimeMillis() - start);
+    }
+
+    private void record(Connection connection, MigrationScript script, String type, long executionTimeMillis)
+            throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + HISTORY_TABLE
+                + " (version, description, script, checksum, type, execution_time_ms) VALUES (?, ?, ?, ?, ?, ?)")) {
+            insert.setString(1, script.getVersion());
+            insert.setString(2, script.getDescription());
+            insert.setString(3, script.getFileName());
+            insert.setString(4, script.getChecksum());
+            insert.setString(5, type);
+            insert.setInt(6, (int) executionTimeMillis);
+            insert.executeUpdate();
+        }
+    }
+
+    private static String asString(Resource resource) throws IOException {
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            return FileCopyUtils.copyToString(reader);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.agrifinpalestine.search;
+
+import com.example.agrifinpalestine.Entity.Product;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable snapshot of the product fields used by the search index
+ * for full-text matching, filtering and sorting.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductDocument {
+
+    private final Integer productId;
+    private final Integer storeId;
+    private final Integer categoryId;
+    private final String categoryNameEn;
+    private final String categoryNameAr;
+    private final String productName;
+    private final String productDescription;
+    private final BigDecimal price;
+    private final Boolean isOrganic;
+    private final Boolean isAvailable;
+    private final LocalDateTime createdAt;
+
+    /**
+     * Create a document from a product entity
+     * @param product the product
+     * @return the search document
+     */
+    public static ProductDocument from(Product product) {
+        return new ProductDocument(
+                product.getProductId(),
+                product.getStore() != null ? product.getStore().getStoreId() : null,
+                product.getCategory() != null ? product.getCategory().getCategoryId() : null,
+                product.getCategory() != null ? product.getCategory().getCategoryNameEn() : null,
+                product.getCategory() != null ? product.getCategory().getCategoryNameAr() : null,
+                product.getProductName(),
+                product.getProductDescription(),
+                product.getPrice(),
+                product.getIsOrganic(),
+                product.getIsAvailable(),
+                product.getCreatedAt());
+    }
+
+    /**
+     * Copy this document with new category names
+     * @param nameEn the English category name
+     * @param nameAr the Arabic category name
+     * @return the updated document
+     */
+    public ProductDocument withCategoryNames(String nameEn, String nameAr) {
+        return new ProductDocument(productId, storeId, categoryId, nameEn, nameAr, productName,
+                productDescription, price, isOrganic, isAvailable, createdAt);
+    }
+}
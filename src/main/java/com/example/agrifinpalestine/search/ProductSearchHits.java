@@ -0,0 +1,17 @@
+package com.example.agrifinpalestine.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The best matches of a search, in result order, and how many products matched in total
+ */
+@Getter
+@AllArgsConstructor
+public class ProductSearchHits {
+
+    private final List<Integer> productIds;
+    private final int totalMatches;
+}
@@ -0,0 +1,597 @@
+package com.example.agrifinpalestine.search;
+
+import com.example.agrifinpalestine.Entity.Product;
+import com.example.agrifinpalestine.Entity.ProductDeletion;
+import com.example.agrifinpalestine.Repository.ProductDeletionRepository;
+import com.example.agrifinpalestine.Repository.ProductRepository;
+import com.example.agrifinpalestine.dto.ProductSearchRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory inverted index over product names, category names and descriptions.
+ *
+ * Keyword searches are answered from the index instead of a LIKE '%keyword%' table scan.
+ * Text is run through {@link ProductTextAnalyzer} at index and query time, so Arabic and
+ * English terms match regardless of diacritics, hamza/alef forms or simple plurals, and
+ * both full-term and prefix (typeahead) lookups are plain hash-map hits.
+ * The index is built from the database at startup, updated after each committed product
+ * write on this node and periodically refreshed with products changed on other nodes.
+ * Deletions are recorded in the product_deletions table so other nodes can drop them too.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_LENGTH = 15;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final Duration DELETION_RETENTION = Duration.ofDays(1);
+
+    private final ProductTextAnalyzer analyzer;
+    private final ProductRepository productRepository;
+    private final ProductDeletionRepository deletionRepository;
+    private final Duration refreshOverlap;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IndexData data = new IndexData();
+    private volatile boolean ready = false;
+    private volatile LocalDateTime lastRefresh;
+
+    @Autowired
+    public ProductSearchIndex(ProductTextAnalyzer analyzer, ProductRepository productRepository,
+                              ProductDeletionRepository deletionRepository,
+                              // Must exceed the longest product write transaction and the clock skew between nodes
+                              @Value("${search.index.refresh-overlap-ms:120000}") long refreshOverlapMs) {
+        this.analyzer = analyzer;
+        this.productRepository = productRepository;
+        this.deletionRepository = deletionRepository;
+        this.refreshOverlap = Duration.ofMillis(refreshOverlapMs);
+    }
+
+    /**
+     * Check if the index has been built and can answer queries
+     * @return true if the index is ready
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Check if a keyword produces any index terms
+     * @param keyword the keyword
+     * @return true if the keyword can be answered by the index
+     */
+    public boolean isSearchable(String keyword) {
+        return !analyzer.tokenize(keyword).isEmpty();
+    }
+
+    /**
+     * Get the number of indexed products
+     * @return the number of documents in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return data.documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add or replace a product once the current transaction commits
+     * @param product the product to index
+     */
+    public void index(Product product) {
+        ProductDocument document = ProductDocument.from(product);
+        runAfterCommit(() -> put(document));
+    }
+
+    /**
+     * Record the deletion of a product in the current transaction and remove it once the
+     * transaction commits
+     * @param productId the product ID
+     */
+    public void remove(Integer productId) {
+        ProductDeletion deletion = new ProductDeletion();
+        deletion.setProductId(productId);
+        deletionRepository.save(deletion);
+        runAfterCommit(() -> delete(productId));
+    }
+
+    /**
+     * Record the deletion of a store in the current transaction and remove all its products
+     * once the transaction commits
+     * @param storeId the store ID
+     */
+    public void removeByStore(Integer storeId) {
+        ProductDeletion deletion = new ProductDeletion();
+        deletion.setStoreId(storeId);
+        deletionRepository.save(deletion);
+        runAfterCommit(() -> deleteByStore(storeId));
+    }
+
+    /**
+     * Update the category names of all indexed products in a category once the current transaction commits
+     * @param categoryId the category ID
+     * @param nameEn the new English name
+     * @param nameAr the new Arabic name
+     */
+    public void updateCategoryNames(Integer categoryId, String nameEn, String nameAr) {
+        runAfterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                List<ProductDocument> affected = data.documents.values().stream()
+                        .filter(document -> categoryId.equals(document.getCategoryId()))
+                        .collect(Collectors.toList());
+                for (ProductDocument document : affected) {
+                    data.remove(document.getProductId());
+                    data.add(document.withCategoryNames(nameEn, nameAr));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Add or replace a document immediately
+     * @param document the document to index
+     */
+    public void put(ProductDocument document) {
+        lock.writeLock().lock();
+        try {
+            data.remove(document.getProductId());
+            data.add(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a document immediately
+     * @param productId the product ID
+     */
+    public void delete(Integer productId) {
+        lock.writeLock().lock();
+        try {
+            data.remove(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void deleteByStore(Integer storeId) {
+        lock.writeLock().lock();
+        try {
+            List<Integer> productIds = data.documents.values().stream()
+                    .filter(document -> storeId.equals(document.getStoreId()))
+                    .map(ProductDocument::getProductId)
+                    .collect(Collectors.toList());
+            productIds.forEach(data::remove);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuild the whole index from the database
+     */
+    public void rebuild() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        IndexData rebuilt = new IndexData();
+
+        // Walk the products table by primary key so each batch is a cheap range scan
+        int lastProductId = 0;
+        List<ProductDocument> batch;
+        do {
+            batch = productRepository.findSearchDocumentsAfter(lastProductId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (ProductDocument document : batch) {
+                rebuilt.add(document);
+                lastProductId = document.getProductId();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+
+        lock.writeLock().lock();
+        try {
+            data = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        lastRefresh = startedAt;
+        ready = true;
+        logger.info("Product search index built with {} products", rebuilt.documents.size());
+    }
+
+    /**
+     * Pick up products created, updated or deleted by other application nodes.
+     * Each refresh reads back over the overlap window before the previous one, because
+     * updatedAt is set before the writing transaction commits; applying a change twice is harmless.
+     */
+    @Scheduled(fixedDelayString = "${search.index.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            LocalDateTime since = lastRefresh.minus(refreshOverlap);
+            List<ProductDocument> changed = productRepository.findSearchDocumentsUpdatedSince(since);
+            List<ProductDeletion> deletions = deletionRepository.findByDeletedAtGreaterThanEqual(since);
+            changed.forEach(this::put);
+            for (ProductDeletion deletion : deletions) {
+                if (deletion.getProductId() != null) {
+                    delete(deletion.getProductId());
+                } else if (deletion.getStoreId() != null) {
+                    deleteByStore(deletion.getStoreId());
+                }
+            }
+            deletionRepository.deleteOlderThan(startedAt.minus(DELETION_RETENTION));
+            lastRefresh = startedAt;
+            if (!changed.isEmpty() || !deletions.isEmpty()) {
+                logger.debug("Refreshed {} changed and {} deleted products in the search index",
+                        changed.size(), deletions.size());
+            }
+        } catch (Exception e) {
+            logger.warn("Error refreshing product search index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Search the index
+     * Every query term must match; the last term also matches as a prefix so partially typed
+     * words still find results. Results are ordered by relevance, then by the requested sort.
+     * Only the best {@code limit} matches are kept in a bounded heap, so a query matching
+     * n products costs O(n log limit) instead of a full sort.
+     *
+     * @param keyword the search keyword
+     * @param filters optional store, category, price, organic and availability filters
+     * @param sort the sort used to break relevance ties
+     * @param limit the number of leading results to return, e.g. offset + page size
+     * @return the leading matching product IDs and the total number of matches
+     */
+    public ProductSearchHits search(String keyword, ProductSearchRequest filters, Sort sort, int limit) {
+        List<String> queryTokens = analyzer.tokenize(keyword);
+        if (queryTokens.isEmpty()) {
+            return new ProductSearchHits(Collections.emptyList(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            List<ScoredDocument> results = score(queryTokens, filters);
+            List<Integer> productIds = best(results, resultOrder(sort), limit).stream()
+                    .map(result -> result.document.getProductId())
+                    .collect(Collectors.toList());
+            return new ProductSearchHits(productIds, results.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Typeahead suggestions for a partially typed query
+     *
+     * @param prefix the text typed so far
+     * @param limit the maximum number of suggestions
+     * @return the best matching products, most relevant first
+     */
+    public List<ProductDocument> suggest(String prefix, int limit) {
+        List<String> queryTokens = analyzer.tokenize(prefix);
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            return best(score(queryTokens, null), resultOrder(Sort.unsorted()), limit).stream()
+                    .map(result -> result.document)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Select the first results in the given order, keeping at most limit of them in a heap
+     * whose head is the worst result kept so far
+     */
+    private static List<ScoredDocument> best(List<ScoredDocument> results, Comparator<ScoredDocument> order, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        PriorityQueue<ScoredDocument> heap = new PriorityQueue<>(Math.min(limit, Math.max(results.size(), 1)) + 1,
+                order.reversed());
+        for (ScoredDocument result : results) {
+            if (heap.size() < limit) {
+                heap.add(result);
+            } else if (order.compare(result, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(result);
+            }
+        }
+
+        List<ScoredDocument> best = new ArrayList<>(heap);
+        best.sort(order);
+        return best;
+    }
+
+    /**
+     * Find and score the documents matching every query token; caller must hold the read lock
+     */
+    private List<ScoredDocument> score(List<String> queryTokens, ProductSearchRequest filters) {
+        List<Map<Integer, Float>> termMatches = new ArrayList<>();
+        for (int i = 0; i < queryTokens.size(); i++) {
+            boolean lastToken = i == queryTokens.size() - 1;
+            Map<Integer, Float> matches = data.match(queryTokens.get(i), lastToken);
+            if (matches.isEmpty()) {
+                return new ArrayList<>();
+            }
+            termMatches.add(matches);
+        }
+
+        // Drive the intersection from the rarest term
+        termMatches.sort(Comparator.comparingInt(Map::size));
+        int totalDocuments = data.documents.size();
+
+        List<ScoredDocument> results = new ArrayList<>();
+        Map<Integer, Float> rarest = termMatches.get(0);
+        float rarestIdf = idf(rarest.size(), totalDocuments);
+
+        for (Map.Entry<Integer, Float> candidate : rarest.entrySet()) {
+            Integer productId = candidate.getKey();
+            float score = candidate.getValue() * rarestIdf;
+            boolean matchesAllTerms = true;
+
+            for (int i = 1; i < termMatches.size(); i++) {
+                Float weight = termMatches.get(i).get(productId);
+                if (weight == null) {
+                    matchesAllTerms = false;
+                    break;
+                }
+                score += weight * idf(termMatches.get(i).size(), totalDocuments);
+            }
+
+            if (!matchesAllTerms) {
+                continue;
+            }
+
+            ProductDocument document = data.documents.get(productId);
+            if (document != null && matchesFilters(document, filters)) {
+                results.add(new ScoredDocument(document, score));
+            }
+        }
+        return results;
+    }
+
+    private static float idf(int documentFrequency, int totalDocuments) {
+        return (float) Math.log(1.0 + (double) totalDocuments / Math.max(documentFrequency, 1));
+    }
+
+    private static boolean matchesFilters(ProductDocument document, ProductSearchRequest filters) {
+        if (filters == null) {
+            return true;
+        }
+        if (filters.getStoreId() != null && !filters.getStoreId().equals(document.getStoreId())) {
+            return false;
+        }
+        if (filters.getCategoryId() != null && !filters.getCategoryId().equals(document.getCategoryId())) {
+            return false;
+        }
+        if (filters.getMinPrice() != null
+                && (document.getPrice() == null || document.getPrice().compareTo(filters.getMinPrice()) < 0)) {
+            return false;
+        }
+        if (filters.getMaxPrice() != null
+                && (document.getPrice() == null || document.getPrice().compareTo(filters.getMaxPrice()) > 0)) {
+            return false;
+        }
+        if (filters.getIsOrganic() != null && !filters.getIsOrganic().equals(document.getIsOrganic())) {
+            return false;
+        }
+        if (filters.getIsAvailable() != null && !filters.getIsAvailable().equals(document.getIsAvailable())) {
+            return false;
+        }
+        return true;
+    }
+
+    private static Comparator<ScoredDocument> resultOrder(Sort sort) {
+        Comparator<ScoredDocument> order = Comparator.comparingDouble((ScoredDocument result) -> result.score).reversed();
+
+        if (sort != null) {
+            for (Sort.Order sortOrder : sort) {
+                Comparator<ProductDocument> comparator = switch (sortOrder.getProperty()) {
+                    case "name", "productName" -> Comparator.comparing(ProductDocument::getProductName,
+                            Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+                    case "price" -> Comparator.comparing(ProductDocument::getPrice,
+                            Comparator.nullsLast(Comparator.naturalOrder()));
+                    case "createdAt" -> Comparator.comparing(ProductDocument::getCreatedAt,
+                            Comparator.nullsLast(Comparator.naturalOrder()));
+                    default -> Comparator.comparing(ProductDocument::getProductId);
+                };
+
+                if (sortOrder.isDescending()) {
+                    comparator = comparator.reversed();
+                }
+                order = order.thenComparing(result -> result.document, comparator);
+            }
+        }
+
+        return order.thenComparing(result -> result.document.getProductId());
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static final class ScoredDocument {
+        private final ProductDocument document;
+        private final float score;
+
+        private ScoredDocument(ProductDocument document, float score) {
+            this.document = document;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Index structures; guarded by the enclosing index's lock once published
+     */
+    private final class IndexData {
+        // term -> (product ID -> field-weighted term frequency)
+        private final Map<String, Map<Integer, Float>> postings = new HashMap<>();
+        // normalized prefix -> terms starting with it (edge n-grams of both surface form and stem)
+        private final Map<String, Set<String>> prefixes = new HashMap<>();
+        private final Map<Integer, ProductDocument> documents = new HashMap<>();
+        private final Map<Integer, String[]> documentTerms = new HashMap<>();
+
+        private void add(ProductDocument document) {
+            Map<String, Float> weights = new HashMap<>();
+            addField(weights, document.getProductName(), NAME_WEIGHT);
+            addField(weights, document.getCategoryNameEn(), CATEGORY_WEIGHT);
+            addField(weights, document.getCategoryNameAr(), CATEGORY_WEIGHT);
+            addField(weights, document.getProductDescription(), DESCRIPTION_WEIGHT);
+
+            for (Map.Entry<String, Float> entry : weights.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>())
+                        .put(document.getProductId(), entry.getValue());
+            }
+
+            documents.put(document.getProductId(), document);
+            documentTerms.put(document.getProductId(), weights.keySet().toArray(new String[0]));
+        }
+
+        private void addField(Map<String, Float> weights, String text, float fieldWeight) {
+            for (String token : analyzer.tokenize(text)) {
+                String term = analyzer.stem(token);
+                weights.merge(term, fieldWeight, Float::sum);
+                addPrefixes(token, term);
+                addPrefixes(term, term);
+            }
+        }
+
+        private void addPrefixes(String word, String term) {
+            int maxLength = Math.min(word.length() - 1, MAX_PREFIX_LENGTH);
+            for (int length = MIN_PREFIX_LENGTH; length <= maxLength; length++) {
+                prefixes.computeIfAbsent(word.substring(0, length), prefix -> new HashSet<>()).add(term);
+            }
+        }
+
+        private void remove(Integer productId) {
+            documents.remove(productId);
+            String[] previousTerms = documentTerms.remove(productId);
+            if (previousTerms == null) {
+                return;
+            }
+
+            for (String term : previousTerms) {
+                Map<Integer, Float> posting = postings.get(term);
+                if (posting != null) {
+                    posting.remove(productId);
+                    if (posting.isEmpty()) {
+                        postings.remove(term);
+                        removePrefixes(term);
+                    }
+                }
+            }
+        }
+
+        private void removePrefixes(String term) {
+            // Prefixes of other surface forms are skipped lazily in match() once the term is gone
+            int maxLength = Math.min(term.length() - 1, MAX_PREFIX_LENGTH);
+            for (int length = MIN_PREFIX_LENGTH; length <= maxLength; length++) {
+                String prefix = term.substring(0, length);
+                Set<String> terms = prefixes.get(prefix);
+                if (terms != null) {
+                    terms.remove(term);
+                    if (terms.isEmpty()) {
+                        prefixes.remove(prefix);
+                    }
+                }
+            }
+        }
+
+        private Map<Integer, Float> match(String token, boolean allowPrefix) {
+            String term = analyzer.stem(token);
+            Map<Integer, Float> exact = postings.getOrDefault(term, Collections.emptyMap());
+            if (!allowPrefix || token.length() < MIN_PREFIX_LENGTH) {
+                return exact;
+            }
+
+            Set<String> expansions = new HashSet<>();
+            collectExpansions(token, term, expansions);
+            collectExpansions(term, term, expansions);
+            if (expansions.isEmpty()) {
+                return exact;
+            }
+
+            Map<Integer, Float> merged = new HashMap<>(exact);
+            for (String expansion : expansions) {
+                Map<Integer, Float> posting = postings.get(expansion);
+                if (posting == null) {
+                    continue;
+                }
+                for (Map.Entry<Integer, Float> entry : posting.entrySet()) {
+                    merged.merge(entry.getKey(), entry.getValue() * PREFIX_MATCH_FACTOR, Math::max);
+                }
+            }
+            return merged;
+        }
+
+        private void collectExpansions(String prefix, String exactTerm, Set<String> expansions) {
+            Set<String> candidates = prefixes.get(prefix);
+            if (candidates == null) {
+                return;
+            }
+            for (String candidate : candidates) {
+                if (expansions.size() >= MAX_PREFIX_EXPANSIONS) {
+                    return;
+                }
+                if (!candidate.equals(exactTerm) && postings.containsKey(candidate)) {
+                    expansions.add(candidate);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.agrifinpalestine.search;
+
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Turns product text and search queries into index terms.
+ * The same analyzer must be used at index time and at query time.
+ *
+ * Pipeline: Unicode compatibility decomposition, diacritic stripping, Arabic letter folding
+ * (alef/hamza variants, alef maqsura, taa marbuta, Persian keheh/yeh, Arabic-Indic digits),
+ * lower-casing, tokenization and a light Arabic/English stemmer.
+ */
+@Component
+public class ProductTextAnalyzer {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final char TATWEEL = 'ـ';
+
+    // Longest prefixes first so "وال" wins over "و"
+    private static final String[] ARABIC_PREFIXES = {"وال", "بال", "كال", "فال", "لل", "ال", "و"};
+    private static final String[] ARABIC_SUFFIXES = {"ها", "ان", "ات", "ون", "ين", "يه", "ه", "ي"};
+
+    /**
+     * Analyze text into stemmed index terms
+     * @param text the text to analyze
+     * @return list of terms in the order they appear, or an empty list
+     */
+    public List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String token : tokenize(text)) {
+            terms.add(stem(token));
+        }
+        return terms;
+    }
+
+    /**
+     * Normalize and split text into tokens without stemming.
+     * Used for prefix (typeahead) matching, where a partially typed word cannot be stemmed.
+     * @param text the text to tokenize
+     * @return list of normalized tokens, or an empty list
+     */
+    public List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+
+        for (String token : TOKEN_SEPARATOR.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Normalize text: fold letter variants, strip diacritics and lower-case
+     * @param text the text to normalize
+     * @return the normalized text
+     */
+    public String normalize(String text) {
+        // NFKD maps Arabic presentation forms to base letters and splits hamza/madda and
+        // Latin accents into combining marks, which are then dropped below
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK || c == TATWEEL) {
+                continue;
+            }
+            normalized.append(foldArabicLetter(c));
+        }
+
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Apply light stemming to a normalized token
+     * @param token the normalized token
+     * @return the stem
+     */
+    public String stem(String token) {
+        if (token.isEmpty()) {
+            return token;
+        }
+        return isArabic(token.charAt(0)) ? stemArabic(token) : stemEnglish(token);
+    }
+
+    private static char foldArabicLetter(char c) {
+        switch (c) {
+            case 'آ': // alef with madda above
+            case 'أ': // alef with hamza above
+            case 'إ': // alef with hamza below
+            case 'ٱ': // alef wasla
+                return 'ا'; // alef
+            case 'ى': // alef maqsura
+            case 'ی': // farsi yeh
+                return 'ي'; // yeh
+            case 'ة': // taa marbuta
+                return 'ه'; // heh
+            case 'ک': // keheh
+                return 'ك'; // kaf
+            default:
+                // Arabic-Indic and extended Arabic-Indic digits
+                if (c >= '٠' && c <= '٩') {
+                    return (char) ('0' + (c - '٠'));
+                }
+                if (c >= '۰' && c <= '۹') {
+                    return (char) ('0' + (c - '۰'));
+                }
+                return c;
+        }
+    }
+
+    private static boolean isArabic(char c) {
+        return c >= '؀' && c <= 'ۿ';
+    }
+
+    /**
+     * Light Arabic stemmer: strips the definite article, common conjunction/preposition prefixes
+     * and plural/possessive suffixes while keeping at least a three-letter stem
+     */
+    private static String stemArabic(String token) {
+        String stem = token;
+
+        for (String prefix : ARABIC_PREFIXES) {
+            int minimumLength = prefix.equals("و") ? 4 : prefix.length() + 2;
+            if (stem.startsWith(prefix) && stem.length() >= minimumLength) {
+                stem = stem.substring(prefix.length());
+                break;
+            }
+        }
+
+        for (String suffix : ARABIC_SUFFIXES) {
+            // Two-letter suffixes need a four-letter remainder so words like "زيتون" keep their ending
+            int minimumStemLength = suffix.length() == 2 ? 4 : 3;
+            if (stem.endsWith(suffix) && stem.length() >= suffix.length() + minimumStemLength) {
+                stem = stem.substring(0, stem.length() - suffix.length());
+            }
+        }
+
+        return stem;
+    }
+
+    /**
+     * Minimal English plural stemmer ("apples" -> "apple", "berries" -> "berry",
+     * "tomatoes" -> "tomato"), deliberately conservative to avoid over-stemming
+     */
+    private static String stemEnglish(String token) {
+        int length = token.length();
+        if (length < 3 || token.charAt(length - 1) != 's') {
+            return token;
+        }
+
+        char beforeS = token.charAt(length - 2);
+        if (beforeS == 'u' || beforeS == 's') {
+            return token;
+        }
+
+        if (beforeS == 'e' && length > 3) {
+            char beforeE = token.charAt(length - 3);
+            if (beforeE == 'i' && length > 4 && token.charAt(length - 4) != 'a' && token.charAt(length - 4) != 'e') {
+                return token.substring(0, length - 3) + "y";
+            }
+            if (beforeE == 'o' && length > 4) {
+                return token.substring(0, length - 2);
+            }
+            if (beforeE == 'i' || beforeE == 'a' || beforeE == 'o' || beforeE == 'e') {
+                return token;
+            }
+        }
+
+        return token.substring(0, length - 1);
+    }
+}
@@ -1,20 +1,23 @@
 package com.example.agrifinpalestine.security;
 
+import com.example.agrifinpalestine.config.WebConfig;
 import com.example.agrifinpalestine.exception.auth.InvalidTokenException;
 import com.example.agrifinpalestine.exception.auth.TokenExpiredException;
+import com.example.agrifinpalestine.exception.auth.TokenRevokedException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
-import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
@@ -26,8 +29,21 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private TokenCookieService tokenCookieService;
+
+    // In stateless mode tokens come from the request or the token cookies, never from the HTTP session
+    @Value("${security.stateless:true}")
+    private boolean stateless;
+
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // This filter is also registered as a servlet filter, which runs even for ignored security paths
+        return WebConfig.isFingerprintedAsset(request.getServletPath());
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
@@ -51,84 +67,19 @@ public class AuthTokenFilter extends OncePerRequestFilter {
 
                 // If we have a token, try to validate and authenticate
                 if (jwt != null) {
-                    logger.info("Found JWT token: {}", jwt.substring(0, Math.min(10, jwt.length())) + "...");
-
-                    try {
-                        // Validate token
-                        if (tokenManager.validateToken(jwt)) {
-                            String username = tokenManager.getUsernameFromToken(jwt);
-                            logger.info("Valid token for user: {}", username);
-
-                            // Load user details and set authentication
-                            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-                            // Check if user is enabled (active)
-                            if (userDetails.isEnabled()) {
-                                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                                        userDetails, null, userDetails.getAuthorities());
-                                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                                SecurityContextHolder.getContext().setAuthentication(authentication);
-                                logger.info("User authenticated via JWT token: {}", username);
-                            } else {
-                                logger.warn("User {} is not active, denying authentication", username);
-                                // Don't set authentication in security context
-                                // This will cause the request to be treated as unauthenticated
-                            }
-
-                            // Store token in session for subsequent requests
-                            request.getSession().setAttribute("token", jwt);
-                        } else {
-                            logger.warn("Token validation failed");
-                        }
-                    } catch (UsernameNotFoundException e) {
-                        logger.error("User not found: {}", e.getMessage());
-                    } catch (TokenExpiredException e) {
-                        logger.error("JWT token expired: {}", e.getMessage());
-                    } catch (InvalidTokenException e) {
-                        logger.error("Invalid JWT token: {}", e.getMessage());
-                    } catch (Exception e) {
-                        logger.error("Token validation error: {}", e.getMessage());
+                    logger.debug("Found JWT token: {}", jwt.substring(0, Math.min(10, jwt.length())) + "...");
+
+                    boolean authenticated = authenticate(request, jwt, "JWT token");
+                    if (authenticated && !stateless) {
+                        // Store token in session for subsequent requests
+                        request.getSession().setAttribute("token", jwt);
+                    } else if (!authenticated && stateless) {
+                        authenticateFromCookies(request, response);
                     }
+                } else if (stateless) {
+                    authenticateFromCookies(request, response);
                 } else {
-                    // Check if token is stored in session
-                    String sessionToken = (String) request.getSession().getAttribute("token");
-                    if (sessionToken != null) {
-                        logger.info("Found token in session");
-
-                        try {
-                            // Validate token
-                            if (tokenManager.validateToken(sessionToken)) {
-                                String username = tokenManager.getUsernameFromToken(sessionToken);
-                                logger.info("Valid session token for user: {}", username);
-
-                                // Load user details and set authentication
-                                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-                                // Check if user is enabled (active)
-                                if (userDetails.isEnabled()) {
-                                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                                            userDetails, null, userDetails.getAuthorities());
-                                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                                    logger.info("User authenticated via session token: {}", username);
-                                } else {
-                                    logger.warn("User {} is not active, denying authentication", username);
-                                    // Remove token from session since user is not active
-                                    request.getSession().removeAttribute("token");
-                                }
-                            } else {
-                                logger.warn("Session token validation failed");
-                                request.getSession().removeAttribute("token");
-                            }
-                        } catch (Exception e) {
-                            logger.error("Session token validation error: {}", e.getMessage());
-                            request.getSession().removeAttribute("token");
-                        }
-                    } else {
-                        logger.debug("No JWT token found in request or session");
-                    }
+                    authenticateFromSession(request);
                 }
             }
         } catch (Exception e) {
@@ -138,6 +89,79 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Authenticate with the access token cookie, renewing the tokens with the
+     * refresh token cookie once the access token has expired
+     */
+    private void authenticateFromCookies(HttpServletRequest request, HttpServletResponse response) {
+        String accessToken = tokenCookieService.readAccessToken(request);
+        if (accessToken != null && authenticate(request, accessToken, "access token cookie")) {
+            return;
+        }
+
+        TokenPair tokens = tokenCookieService.refresh(request, response);
+        if (tokens != null) {
+            authenticate(request, tokens.getAccessToken(), "refreshed token");
+        } else {
+            logger.debug("No JWT token found in request or cookies");
+        }
+    }
+
+    private void authenticateFromSession(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        String sessionToken = session != null ? (String) session.getAttribute("token") : null;
+        if (sessionToken == null) {
+            logger.debug("No JWT token found in request or session");
+            return;
+        }
+
+        if (!authenticate(request, sessionToken, "session token")) {
+            // Remove the token from the session since it is invalid or the user is not active
+            session.removeAttribute("token");
+        }
+    }
+
+    /**
+     * Validate a token and put its user in the security context
+     * @return true if the token is valid and its user is active
+     */
+    private boolean authenticate(HttpServletRequest request, String token, String source) {
+        try {
+            // Validate token
+            String username = tokenManager.parseAndValidate(token).getSubject();
+
+            // Load user details and set authentication
+            UserDetails userDetails = userDetailsService.loadAuthenticatedUser(username);
+
+            // Check if user is enabled (active)
+            if (!userDetails.isEnabled()) {
+                logger.warn("User {} is not active, denying authentication", username);
+                // Don't set authentication in security context
+                // This will cause the request to be treated as unauthenticated
+                return false;
+            }
+
+            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                    userDetails, null, userDetails.getAuthorities());
+            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+            logger.debug("User authenticated via {}: {}", source, username);
+            return true;
+        } catch (UsernameNotFoundException e) {
+            logger.error("User not found: {}", e.getMessage());
+        } catch (TokenExpiredException e) {
+            logger.debug("Expired {}: {}", source, e.getMessage());
+        } catch (TokenRevokedException e) {
+            logger.warn("Revoked {}: {}", source, e.getMessage());
+        } catch (InvalidTokenException e) {
+            logger.error("Invalid {}: {}", source, e.getMessage());
+        } catch (Exception e) {
+            logger.error("Token validation error: {}", e.getMessage());
+        }
+        return false;
+    }
+
     // This method is no longer needed as we use TokenManager.parseTokenFromRequest
     @Deprecated
     private String parseJwt(HttpServletRequest request) {
@@ -46,12 +46,9 @@ public class CartSecurityUtils {
                 return false;
             }
 
-            boolean isValid = tokenManager.validateToken(token);
-            if (isValid) {
-                String username = tokenManager.getUsernameFromToken(token);
-                logger.info("Token validated for user: {}", username);
-            }
-            return isValid;
+            String username = tokenManager.parseAndValidate(token).getSubject();
+            logger.info("Token validated for user: {}", username);
+            return true;
         } catch (Exception e) {
             logger.error("Error validating token: {}", e.getMessage());
             return false;
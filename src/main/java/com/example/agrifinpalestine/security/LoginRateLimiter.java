@@ -0,0 +1,107 @@
+package com.example.agrifinpalestine.security;
+
+import com.example.agrifinpalestine.exception.ratelimit.LoginRateLimitedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control for the login and registration endpoints.
+ *
+ * Every client IP address and every username gets a token bucket. An attempt takes a
+ * token from both buckets and is refused with a 429 when either is empty, which stops
+ * a single client from flooding the password hashing executor and slows down password
+ * guessing against a single account. Buckets that have refilled are dropped periodically.
+ */
+@Component
+public class LoginRateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(LoginRateLimiter.class);
+
+    private final Limit ipLimit;
+    private final Limit usernameLimit;
+    private final int maxEntries;
+    private final LongSupplier nanoClock;
+
+    private final Map<String, TokenBucket> ipBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> usernameBuckets = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LoginRateLimiter(@Value("${security.login-rate-limit.ip.capacity:20}") int ipCapacity,
+                            @Value("${security.login-rate-limit.ip.per-minute:20}") int ipPerMinute,
+                            @Value("${security.login-rate-limit.username.capacity:5}") int usernameCapacity,
+                            @Value("${security.login-rate-limit.username.per-minute:5}") int usernamePerMinute,
+                            @Value("${security.login-rate-limit.max-entries:100000}") int maxEntries) {
+        this(ipCapacity, ipPerMinute, usernameCapacity, usernamePerMinute, maxEntries, System::nanoTime);
+    }
+
+    LoginRateLimiter(int ipCapacity, int ipPerMinute, int usernameCapacity, int usernamePerMinute,
+                     int maxEntries, LongSupplier nanoClock) {
+        this.ipLimit = new Limit(ipCapacity, ipPerMinute / 60d);
+        this.usernameLimit = new Limit(usernameCapacity, usernamePerMinute / 60d);
+        this.maxEntries = maxEntries;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Admit a login attempt
+     * @param clientIp the IP address of the client
+     * @param username the username being logged in to
+     * @throws LoginRateLimitedException if the client or the username is over its limit
+     */
+    public void checkLogin(String clientIp, String username) {
+        long now = nanoClock.getAsLong();
+        consume(ipBuckets, ipLimit, clientIp, now, "client " + clientIp);
+        if (username != null) {
+            consume(usernameBuckets, usernameLimit, username.toLowerCase(Locale.ROOT), now, "username " + username);
+        }
+    }
+
+    /**
+     * Admit a registration attempt, which is limited per client IP address only
+     * @param clientIp the IP address of the client
+     * @throws LoginRateLimitedException if the client is over its limit
+     */
+    public void checkRegistration(String clientIp) {
+        consume(ipBuckets, ipLimit, clientIp, nanoClock.getAsLong(), "client " + clientIp);
+    }
+
+    /**
+     * Drop buckets that have refilled completely; they would admit the next attempt anyway
+     */
+    @Scheduled(fixedDelayString = "${security.login-rate-limit.cleanup-interval-ms:60000}")
+    public void removeIdleBuckets() {
+        long now = nanoClock.getAsLong();
+        ipBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        usernameBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    int size() {
+        return ipBuckets.size() + usernameBuckets.size();
+    }
+
+    private void consume(Map<String, TokenBucket> buckets, Limit limit, String key, long now, String description) {
+        if (key == null || limit.capacity <= 0) {
+            return;
+        }
+        if (buckets.size() >= maxEntries && !buckets.containsKey(key)) {
+            removeIdleBuckets();
+        }
+
+        TokenBucket bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(limit.capacity, limit.tokensPerSecond, now));
+        if (!bucket.tryConsume(now)) {
+            logger.warn("Login rate limit exceeded for {}", description);
+            throw new LoginRateLimitedException(bucket.secondsUntilNextToken(now));
+        }
+    }
+
+    private record Limit(int capacity, double tokensPerSecond) {
+    }
+}
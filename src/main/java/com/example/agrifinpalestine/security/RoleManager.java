@@ -16,7 +16,10 @@ import org.springframework.stereotype.Component;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -28,6 +31,9 @@ public class RoleManager {
 
     private final RoleRepository roleRepository;
 
+    // Role ids never change; loading by id is served by the second-level cache, a query by name is not
+    private final Map<ERole, Integer> roleIds = new ConcurrentHashMap<>();
+
     @Autowired
     public RoleManager(RoleRepository roleRepository) {
         this.roleRepository = roleRepository;
@@ -39,7 +45,7 @@ public class RoleManager {
      * @throws RuntimeException if the role is not found
      */
     public Role getDefaultUserRole() {
-        return roleRepository.findByName(ERole.ROLE_USER)
+        return findRole(ERole.ROLE_USER)
                 .orElseThrow(() -> new RuntimeException("Error: User role not found"));
     }
 
@@ -49,7 +55,7 @@ public class RoleManager {
      * @throws RuntimeException if the role is not found
      */
     public Role getSellerRole() {
-        return roleRepository.findByName(ERole.ROLE_SELLER)
+        return findRole(ERole.ROLE_SELLER)
                 .orElseThrow(() -> new RuntimeException("Error: Seller role not found"));
     }
 
@@ -59,10 +65,25 @@ public class RoleManager {
      * @throws RuntimeException if the role is not found
      */
     public Role getAdminRole() {
-        return roleRepository.findByName(ERole.ROLE_ADMIN)
+        return findRole(ERole.ROLE_ADMIN)
                 .orElseThrow(() -> new RuntimeException("Error: Admin role not found"));
     }
 
+    private Optional<Role> findRole(ERole name) {
+        Integer id = roleIds.get(name);
+        if (id != null) {
+            Optional<Role> role = roleRepository.findById(id);
+            if (role.isPresent()) {
+                return role;
+            }
+            roleIds.remove(name, id);
+        }
+
+        Optional<Role> role = roleRepository.findByName(name);
+        role.ifPresent(found -> roleIds.put(name, found.getId()));
+        return role;
+    }
+
     /**
      * Get a role by its name
      * @param roleName The name of the role (e.g., "admin", "seller", "user")
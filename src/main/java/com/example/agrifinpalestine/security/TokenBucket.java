@@ -0,0 +1,62 @@
+package com.example.agrifinpalestine.security;
+
+/**
+ * Token bucket that starts full, holds at most {@code capacity} tokens and refills
+ * continuously at a fixed rate. Times are in nanoseconds from an arbitrary origin.
+ */
+class TokenBucket {
+
+    private final long capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(long capacity, double tokensPerSecond, long nowNanos) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * Take one token if there is one
+     * @param nowNanos the current time
+     * @return true if a token was taken
+     */
+    synchronized boolean tryConsume(long nowNanos) {
+        refill(nowNanos);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param nowNanos the current time
+     * @return the number of seconds until the next token is available, at least 1
+     */
+    synchronized long secondsUntilNextToken(long nowNanos) {
+        refill(nowNanos);
+        double missing = Math.max(0, 1 - tokens);
+        return Math.max(1, (long) Math.ceil(missing / tokensPerNano / 1_000_000_000d));
+    }
+
+    /**
+     * @param nowNanos the current time
+     * @return true if the bucket has refilled completely, i.e. it is no longer limiting anyone
+     */
+    synchronized boolean isFull(long nowNanos) {
+        refill(nowNanos);
+        return tokens >= capacity;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
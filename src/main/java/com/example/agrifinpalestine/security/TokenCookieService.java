@@ -0,0 +1,141 @@
+package com.example.agrifinpalestine.security;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Keeps the tokens of browser clients in HttpOnly cookies, so that pages rendered
+ * on the server are authenticated without storing anything in the HTTP session.
+ *
+ * The access token cookie lives as long as the access token. When it is gone, the
+ * refresh token cookie is exchanged for a new pair of tokens.
+ */
+@Component
+public class TokenCookieService {
+    private static final Logger logger = LoggerFactory.getLogger(TokenCookieService.class);
+
+    public static final String ACCESS_TOKEN_COOKIE = "access_token";
+    public static final String REFRESH_TOKEN_COOKIE = "refresh_token";
+
+    private final TokenManager tokenManager;
+    private final TokenRevocationService tokenRevocationService;
+    private final UserDetailsServiceImpl userDetailsService;
+    private final boolean secureCookies;
+
+    public TokenCookieService(TokenManager tokenManager, TokenRevocationService tokenRevocationService,
+                              UserDetailsServiceImpl userDetailsService,
+                              @Value("${jwt.cookie.secure:false}") boolean secureCookies) {
+        this.tokenManager = tokenManager;
+        this.tokenRevocationService = tokenRevocationService;
+        this.userDetailsService = userDetailsService;
+        this.secureCookies = secureCookies;
+    }
+
+    /**
+     * Write the cookies for a user who just logged in
+     * @param response the HTTP response
+     * @param username the username
+     * @param accessToken the access token issued at login
+     */
+    public void issueCookies(HttpServletResponse response, String username, String accessToken) {
+        writeCookies(response, new TokenPair(username, accessToken, tokenManager.generateRefreshToken(username)));
+    }
+
+    /**
+     * Exchange the refresh token cookie of the request for new tokens and write them as cookies.
+     * The refresh token is rotated on every exchange and the presented one is revoked.
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @return the new tokens, or null if the request has no usable refresh token
+     */
+    public TokenPair refresh(HttpServletRequest request, HttpServletResponse response) {
+        String refreshToken = readCookie(request, REFRESH_TOKEN_COOKIE);
+        if (refreshToken == null) {
+            return null;
+        }
+
+        try {
+            TokenPair tokens = tokenRevocationService.rotateRefreshToken(refreshToken);
+            if (!userDetailsService.loadAuthenticatedUser(tokens.getUsername()).isEnabled()) {
+                logger.warn("User {} is not active, refusing to refresh tokens", tokens.getUsername());
+                clearCookies(response);
+                return null;
+            }
+
+            writeCookies(response, tokens);
+            logger.debug("Refreshed tokens for user: {}", tokens.getUsername());
+            return tokens;
+        } catch (Exception e) {
+            logger.warn("Refresh token rejected: {}", e.getMessage());
+            clearCookies(response);
+            return null;
+        }
+    }
+
+    /**
+     * Read the access token cookie
+     * @param request the HTTP request
+     * @return the access token, or null if there is none
+     */
+    public String readAccessToken(HttpServletRequest request) {
+        return readCookie(request, ACCESS_TOKEN_COOKIE);
+    }
+
+    /**
+     * Read the refresh token cookie
+     * @param request the HTTP request
+     * @return the refresh token, or null if there is none
+     */
+    public String readRefreshToken(HttpServletRequest request) {
+        return readCookie(request, REFRESH_TOKEN_COOKIE);
+    }
+
+    /**
+     * Remove both token cookies
+     * @param response the HTTP response
+     */
+    public void clearCookies(HttpServletResponse response) {
+        addCookie(response, ACCESS_TOKEN_COOKIE, "", Duration.ZERO);
+        addCookie(response, REFRESH_TOKEN_COOKIE, "", Duration.ZERO);
+    }
+
+    private void writeCookies(HttpServletResponse response, TokenPair tokens) {
+        addCookie(response, ACCESS_TOKEN_COOKIE, tokens.getAccessToken(),
+                Duration.ofMillis(tokenManager.getAccessTokenExpirationMs()));
+        addCookie(response, REFRESH_TOKEN_COOKIE, tokens.getRefreshToken(),
+                Duration.ofMillis(tokenManager.getRefreshTokenExpirationMs()));
+    }
+
+    private void addCookie(HttpServletResponse response, String name, String value, Duration maxAge) {
+        ResponseCookie cookie = ResponseCookie.from(name, value)
+                .httpOnly(true)
+                .secure(secureCookies)
+                .sameSite("Strict")
+                .path("/")
+                .maxAge(maxAge)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    private static String readCookie(HttpServletRequest request, String name) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (name.equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -2,8 +2,10 @@ package com.example.agrifinpalestine.security;
 
 import com.example.agrifinpalestine.exception.auth.InvalidTokenException;
 import com.example.agrifinpalestine.exception.auth.TokenExpiredException;
+import com.example.agrifinpalestine.exception.auth.TokenRevokedException;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
@@ -22,6 +24,7 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 /**
@@ -33,14 +36,38 @@ public class TokenManager {
     private static final String AUTHORIZATION_HEADER = "Authorization";
     private static final String BEARER_PREFIX = "Bearer ";
     private static final String CART_TOKEN_HEADER = "X-Cart-Token";
+    private static final String TOKEN_TYPE_CLAIM = "token_type";
+    private static final String REFRESH_TOKEN_TYPE = "refresh";
 
-    @Value("${jwt.expirationMs:86400000}") // 24 hours by default
-    private int jwtExpirationMs;
+    private final long jwtExpirationMs;
+
+    private final long jwtRefreshExpirationMs;
 
     private final SecretKey jwtSigningKey;
 
-    public TokenManager(SecretKey jwtSigningKey) {
+    // Parsers are immutable and thread-safe, so one is shared by all requests
+    private final JwtParser jwtParser;
+
+    // Every authenticated request presents the same token again until it expires
+    private final VerifiedTokenCache verifiedTokens;
+
+    private final TokenRevocationList revocationList;
+
+    public TokenManager(SecretKey jwtSigningKey,
+                        TokenRevocationList revocationList,
+                        // 15 minutes by default, clients renew it with the refresh token
+                        @Value("${jwt.expirationMs:900000}") long jwtExpirationMs,
+                        // 7 days by default
+                        @Value("${jwt.refreshExpirationMs:604800000}") long jwtRefreshExpirationMs,
+                        @Value("${jwt.verified-cache.max-entries:10000}") int verifiedCacheMaxEntries) {
         this.jwtSigningKey = jwtSigningKey;
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.jwtRefreshExpirationMs = jwtRefreshExpirationMs;
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(jwtSigningKey)
+                .build();
+        this.verifiedTokens = new VerifiedTokenCache(verifiedCacheMaxEntries);
+        this.revocationList = revocationList;
     }
 
     /**
@@ -92,24 +119,53 @@ public class TokenManager {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(username)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
                 .signWith(getSigningKey(), io.jsonwebtoken.SignatureAlgorithm.HS512)
                 .compact();
     }
 
+    /**
+     * Generate a refresh token from a username. Refresh tokens carry their own ID
+     * and are only accepted by {@link TokenRevocationService#rotateRefreshToken(String)}.
+     * @param username The username
+     * @return The generated refresh token
+     */
+    public String generateRefreshToken(String username) {
+        return Jwts.builder()
+                .setSubject(username)
+                .setId(UUID.randomUUID().toString())
+                .claim(TOKEN_TYPE_CLAIM, REFRESH_TOKEN_TYPE)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + jwtRefreshExpirationMs))
+                .signWith(getSigningKey(), io.jsonwebtoken.SignatureAlgorithm.HS512)
+                .compact();
+    }
+
+    /**
+     * Get the lifetime of access tokens
+     * @return The lifetime in milliseconds
+     */
+    public long getAccessTokenExpirationMs() {
+        return jwtExpirationMs;
+    }
+
+    /**
+     * Get the lifetime of refresh tokens
+     * @return The lifetime in milliseconds
+     */
+    public long getRefreshTokenExpirationMs() {
+        return jwtRefreshExpirationMs;
+    }
+
     /**
      * Extract the username from a JWT token
      * @param token The JWT token
      * @return The username
      */
     public String getUsernameFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parseAndValidate(token).getSubject();
     }
 
     /**
@@ -129,11 +185,7 @@ public class TokenManager {
      * @return All claims from the token
      */
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parseAndValidate(token);
     }
 
     /**
@@ -145,7 +197,7 @@ public class TokenManager {
         try {
             final Date expiration = getExpirationDateFromToken(token);
             return expiration.before(new Date());
-        } catch (ExpiredJwtException e) {
+        } catch (TokenExpiredException e) {
             return true;
         }
     }
@@ -165,14 +217,82 @@ public class TokenManager {
      * @return true if the token is valid, false otherwise
      * @throws InvalidTokenException if the token is invalid
      * @throws TokenExpiredException if the token is expired
+     * @throws TokenRevokedException if the token has been revoked
      */
     public boolean validateToken(String token) {
+        parseAndValidate(token);
+        return true;
+    }
+
+    /**
+     * Verify a JWT token and return its claims. The signature of a token is checked
+     * once; later calls with the same token are answered from a cache until it expires.
+     * @param token The JWT token
+     * @return The verified claims
+     * @throws InvalidTokenException if the token is invalid
+     * @throws TokenExpiredException if the token is expired
+     * @throws TokenRevokedException if the token has been revoked
+     */
+    public Claims parseAndValidate(String token) {
+        if (!StringUtils.hasText(token)) {
+            throw new InvalidTokenException("JWT claims string is empty");
+        }
+
+        Claims claims = verifiedTokens.get(token);
+        if (claims == null) {
+            claims = verify(token);
+            if (isRefreshToken(claims)) {
+                throw new InvalidTokenException("Refresh token cannot be used as an access token");
+            }
+            verifiedTokens.put(token, claims);
+        }
+
+        // Checked on every call, a token can be revoked after its claims were cached
+        if (revocationList.isRevoked(claims)) {
+            throw new TokenRevokedException();
+        }
+        return claims;
+    }
+
+    /**
+     * Verify a refresh token and return its claims
+     * @param refreshToken The refresh token
+     * @return The verified claims
+     * @throws InvalidTokenException if the token is invalid or is not a refresh token
+     * @throws TokenExpiredException if the token is expired
+     * @throws TokenRevokedException if the token has been revoked
+     */
+    public Claims parseRefreshToken(String refreshToken) {
+        Claims claims = verifyRefreshToken(refreshToken);
+        if (revocationList.isRevoked(claims)) {
+            throw new TokenRevokedException();
+        }
+        return claims;
+    }
+
+    /**
+     * Verify the signature, expiry and type of a refresh token without checking whether
+     * it was revoked, so the caller can tell a reused token from a valid one
+     * @param refreshToken The refresh token
+     * @return The verified claims
+     * @throws InvalidTokenException if the token is invalid or is not a refresh token
+     * @throws TokenExpiredException if the token is expired
+     */
+    Claims verifyRefreshToken(String refreshToken) {
+        if (!StringUtils.hasText(refreshToken)) {
+            throw new InvalidTokenException("JWT claims string is empty");
+        }
+
+        Claims claims = verify(refreshToken);
+        if (!isRefreshToken(claims)) {
+            throw new InvalidTokenException("Not a refresh token");
+        }
+        return claims;
+    }
+
+    private Claims verify(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
+            return jwtParser.parseClaimsJws(token).getBody();
         } catch (SignatureException e) {
             logger.error("Invalid JWT signature: {}", e.getMessage());
             throw new InvalidTokenException("Invalid JWT signature");
@@ -191,13 +311,18 @@ public class TokenManager {
         }
     }
 
+    private static boolean isRefreshToken(Claims claims) {
+        return REFRESH_TOKEN_TYPE.equals(claims.get(TOKEN_TYPE_CLAIM, String.class));
+    }
+
     /**
-     * Refresh a JWT token
-     * @param token The JWT token to refresh
-     * @return The refreshed JWT token
+     * Issue a new access token and a new refresh token. Refresh tokens are exchanged
+     * through {@link TokenRevocationService#rotateRefreshToken(String)}, which revokes
+     * the presented token.
+     * @param username The username
+     * @return The new tokens
      */
-    public String refreshToken(String token) {
-        final String username = getUsernameFromToken(token);
-        return generateTokenFromUsername(username);
+    public TokenPair issueTokens(String username) {
+        return new TokenPair(username, generateTokenFromUsername(username), generateRefreshToken(username));
     }
 }
@@ -0,0 +1,29 @@
+package com.example.agrifinpalestine.security;
+
+/**
+ * An access token together with the refresh token that renews it
+ */
+public class TokenPair {
+
+    private final String username;
+    private final String accessToken;
+    private final String refreshToken;
+
+    public TokenPair(String username, String accessToken, String refreshToken) {
+        this.username = username;
+        this.accessToken = accessToken;
+        this.refreshToken = refreshToken;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+}
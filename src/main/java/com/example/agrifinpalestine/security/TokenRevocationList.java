@@ -0,0 +1,153 @@
+package com.example.agrifinpalestine.security;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of the revoked token IDs and per-user "not before" times.
+ *
+ * Every key is also added to a Bloom filter. Almost all tokens are not revoked, and for
+ * those the filter answers without touching the exact maps. The filter cannot forget keys,
+ * so it is rebuilt from the maps when expired revocations are purged.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final String TOKEN_KEY_PREFIX = "jti:";
+    private static final String USER_KEY_PREFIX = "user:";
+
+    private final int expectedEntries;
+
+    // Revoked token ID -> expiry of the token (epoch milliseconds)
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    // Refresh token ID -> time it was exchanged for new tokens (epoch milliseconds)
+    private final Map<String, Long> rotatedTokens = new ConcurrentHashMap<>();
+
+    // Username -> tokens issued before this time (epoch milliseconds) are revoked
+    private final Map<String, Long> userNotBefore = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filter;
+
+    public TokenRevocationList(@Value("${security.revocation.expected-entries:100000}") int expectedEntries) {
+        this.expectedEntries = expectedEntries;
+        this.filter = new BloomFilter(expectedEntries, FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Check if a verified token has been revoked
+     * @param claims the claims of the token
+     * @return true if the token ID is revoked or the token was issued before its user's "not before" time
+     */
+    public boolean isRevoked(Claims claims) {
+        BloomFilter current = filter;
+
+        String tokenId = claims.getId();
+        if (tokenId != null && current.mightContain(TOKEN_KEY_PREFIX + tokenId)
+                && revokedTokens.containsKey(tokenId)) {
+            return true;
+        }
+
+        return isRevokedWithUser(claims, current);
+    }
+
+    /**
+     * Check if a verified token was revoked together with every other token of its user
+     * @param claims the claims of the token
+     * @return true if the token was issued before its user's "not before" time
+     */
+    public boolean isRevokedWithUser(Claims claims) {
+        return isRevokedWithUser(claims, filter);
+    }
+
+    private boolean isRevokedWithUser(Claims claims, BloomFilter current) {
+        String username = claims.getSubject();
+        if (username != null && current.mightContain(USER_KEY_PREFIX + username)) {
+            Long notBefore = userNotBefore.get(username);
+            Date issuedAt = claims.getIssuedAt();
+            // Token times have whole-second precision, so a token issued in the same second is revoked too
+            return notBefore != null && (issuedAt == null || issuedAt.getTime() < notBefore);
+        }
+        return false;
+    }
+
+    /**
+     * Revoke a single token
+     * @param tokenId the token ID (jti)
+     * @param expiresAtMillis the expiry of the token
+     */
+    public void revokeToken(String tokenId, long expiresAtMillis) {
+        revokedTokens.merge(tokenId, expiresAtMillis, Math::max);
+        filter.add(TOKEN_KEY_PREFIX + tokenId);
+    }
+
+    /**
+     * Revoke a refresh token that was exchanged for new tokens
+     * @param tokenId the token ID (jti)
+     * @param expiresAtMillis the expiry of the token
+     * @param rotatedAtMillis the time of the exchange
+     */
+    public void revokeRotatedToken(String tokenId, long expiresAtMillis, long rotatedAtMillis) {
+        rotatedTokens.merge(tokenId, rotatedAtMillis, Math::min);
+        revokeToken(tokenId, expiresAtMillis);
+    }
+
+    /**
+     * Check if a token ID was revoked by itself, rather than with all tokens of its user
+     * @param tokenId the token ID (jti)
+     * @return true if the token ID is revoked
+     */
+    public boolean isTokenIdRevoked(String tokenId) {
+        return revokedTokens.containsKey(tokenId);
+    }
+
+    /**
+     * Get the time a refresh token was exchanged for new tokens
+     * @param tokenId the token ID (jti)
+     * @return the time in epoch milliseconds, or null if it was not revoked by an exchange
+     */
+    public Long getRotatedAt(String tokenId) {
+        return rotatedTokens.get(tokenId);
+    }
+
+    /**
+     * Revoke every token of a user issued before a point in time
+     * @param username the username
+     * @param notBeforeMillis the point in time
+     */
+    public void revokeUserTokens(String username, long notBeforeMillis) {
+        userNotBefore.merge(username, notBeforeMillis, Math::max);
+        filter.add(USER_KEY_PREFIX + username);
+    }
+
+    /**
+     * Forget revocations that no longer matter and rebuild the Bloom filter
+     * @param nowMillis the current time
+     * @param maxTokenLifetimeMillis the longest lifetime of any token
+     */
+    public void purge(long nowMillis, long maxTokenLifetimeMillis) {
+        revokedTokens.values().removeIf(expiresAt -> expiresAt < nowMillis);
+        rotatedTokens.keySet().retainAll(revokedTokens.keySet());
+        // Every token issued before this time has expired, whatever its type
+        userNotBefore.values().removeIf(notBefore -> notBefore + maxTokenLifetimeMillis < nowMillis);
+
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, size()), FALSE_POSITIVE_RATE);
+        revokedTokens.keySet().forEach(tokenId -> rebuilt.add(TOKEN_KEY_PREFIX + tokenId));
+        userNotBefore.keySet().forEach(username -> rebuilt.add(USER_KEY_PREFIX + username));
+        filter = rebuilt;
+
+        // Keys revoked while the filter was rebuilt may have gone to the old filter only
+        revokedTokens.keySet().forEach(tokenId -> rebuilt.add(TOKEN_KEY_PREFIX + tokenId));
+        userNotBefore.keySet().forEach(username -> rebuilt.add(USER_KEY_PREFIX + username));
+    }
+
+    public int size() {
+        return revokedTokens.size() + userNotBefore.size();
+    }
+}
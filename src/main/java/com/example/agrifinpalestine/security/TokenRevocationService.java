@@ -0,0 +1,262 @@
+package com.example.agrifinpalestine.security;
+
+import com.example.agrifinpalestine.Entity.TokenRevocation;
+import com.example.agrifinpalestine.Repository.TokenRevocationRepository;
+import com.example.agrifinpalestine.exception.auth.AuthenticationException;
+import com.example.agrifinpalestine.exception.auth.InvalidTokenException;
+import com.example.agrifinpalestine.exception.auth.TokenRevokedException;
+import com.example.agrifinpalestine.lock.LockService;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Revokes tokens before they expire, e.g. on logout or when an admin suspends a user.
+ *
+ * Revocations are stored in the token_revocations table and kept in memory in
+ * {@link TokenRevocationList}, so checking a token never needs the database.
+ * Revocations are written one at a time under a named lock, which makes their IDs
+ * become visible in order; every node polls for rows after the last ID it has seen.
+ */
+@Service
+public class TokenRevocationService {
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final String LOCK_NAME = "token-revocations";
+    private static final Duration LOCK_TIMEOUT = Duration.ofSeconds(10);
+
+    private final TokenRevocationRepository revocationRepository;
+    private final TokenRevocationList revocationList;
+    private final TokenManager tokenManager;
+    private final LockService lockService;
+    private final long refreshReuseGraceMillis;
+
+    private volatile long lastSeenRevocationId = 0;
+
+    public TokenRevocationService(TokenRevocationRepository revocationRepository,
+                                  TokenRevocationList revocationList,
+                                  TokenManager tokenManager,
+                                  LockService lockService,
+                                  // Parallel refreshes, e.g. from two tabs, present the same refresh token
+                                  @Value("${security.revocation.refresh-reuse-grace-ms:10000}") long refreshReuseGraceMillis) {
+        this.revocationRepository = revocationRepository;
+        this.revocationList = revocationList;
+        this.tokenManager = tokenManager;
+        this.lockService = lockService;
+        this.refreshReuseGraceMillis = refreshReuseGraceMillis;
+    }
+
+    /**
+     * Exchange a refresh token for new tokens and revoke it, so every refresh token is used once.
+     * A token presented again within the grace window of its exchange gets new tokens too.
+     * Presented later, or after it was revoked on logout, it was probably stolen, so every
+     * token of its user is revoked.
+     * @param refreshToken the refresh token
+     * @return the new tokens
+     * @throws AuthenticationException if the refresh token is invalid, expired or revoked
+     */
+    @Transactional(noRollbackFor = TokenRevokedException.class)
+    public TokenPair rotateRefreshToken(String refreshToken) {
+        Claims claims = tokenManager.verifyRefreshToken(refreshToken);
+        String username = claims.getSubject();
+        String tokenId = claims.getId();
+
+        if (tokenId == null || claims.getExpiration() == null) {
+            // Every refresh token is issued with an ID and an expiry, so it can be revoked on its own
+            throw new InvalidTokenException("Refresh token has no ID");
+        }
+
+        if (!revocationList.isRevoked(claims)) {
+            revokeRotatedToken(tokenId, claims.getExpiration().getTime());
+            return tokenManager.issueTokens(username);
+        }
+
+        Long rotatedAt = revocationList.getRotatedAt(tokenId);
+        if (rotatedAt != null && System.currentTimeMillis() - rotatedAt <= refreshReuseGraceMillis
+                && !revocationList.isRevokedWithUser(claims)) {
+            return tokenManager.issueTokens(username);
+        }
+        if (revocationList.isTokenIdRevoked(tokenId)) {
+            logger.warn("Revoked refresh token {} of user {} was presented again, revoking all tokens of the user",
+                    tokenId, username);
+            revokeAllTokens(username);
+        }
+        throw new TokenRevokedException();
+    }
+
+    /**
+     * Revoke an access token, e.g. on logout. Tokens that are already invalid are ignored.
+     * @param accessToken the access token
+     */
+    @Transactional
+    public void revokeAccessToken(String accessToken) {
+        Claims claims;
+        try {
+            claims = tokenManager.parseAndValidate(accessToken);
+        } catch (AuthenticationException e) {
+            logger.debug("Access token not revoked: {}", e.getMessage());
+            return;
+        }
+        revokeToken(claims);
+    }
+
+    /**
+     * Revoke a refresh token, e.g. on logout. Tokens that are already invalid are ignored.
+     * @param refreshToken the refresh token
+     */
+    @Transactional
+    public void revokeRefreshToken(String refreshToken) {
+        Claims claims;
+        try {
+            claims = tokenManager.parseRefreshToken(refreshToken);
+        } catch (AuthenticationException e) {
+            logger.debug("Refresh token not revoked: {}", e.getMessage());
+            return;
+        }
+        revokeToken(claims);
+    }
+
+    /**
+     * Revoke every token issued to a user so far, e.g. when the user is suspended or banned
+     * @param username the username
+     */
+    @Transactional
+    public void revokeAllTokens(String username) {
+        long now = System.currentTimeMillis();
+
+        TokenRevocation revocation = new TokenRevocation();
+        revocation.setUsername(username);
+        revocation.setNotBefore(now);
+        revocation.setExpiresAt(toLocalDateTime(now + maxTokenLifetimeMillis()));
+        save(revocation);
+
+        afterCommit(() -> revocationList.revokeUserTokens(username, now));
+        logger.info("Revoked all tokens of user {}", username);
+    }
+
+    private void revokeToken(Claims claims) {
+        if (claims.getId() == null || claims.getExpiration() == null) {
+            // Tokens issued before tokens had IDs can only be revoked per user
+            revokeAllTokens(claims.getSubject());
+            return;
+        }
+
+        String tokenId = claims.getId();
+        long expiresAt = claims.getExpiration().getTime();
+
+        TokenRevocation revocation = new TokenRevocation();
+        revocation.setTokenId(tokenId);
+        revocation.setExpiresAt(toLocalDateTime(expiresAt));
+        save(revocation);
+
+        afterCommit(() -> revocationList.revokeToken(tokenId, expiresAt));
+    }
+
+    private void revokeRotatedToken(String tokenId, long expiresAt) {
+        long now = System.currentTimeMillis();
+
+        TokenRevocation revocation = new TokenRevocation();
+        revocation.setTokenId(tokenId);
+        revocation.setRotatedAt(toLocalDateTime(now));
+        revocation.setExpiresAt(toLocalDateTime(expiresAt));
+        save(revocation);
+
+        afterCommit(() -> revocationList.revokeRotatedToken(tokenId, expiresAt, now));
+    }
+
+    private void save(TokenRevocation revocation) {
+        // Held until the transaction commits, so revocation IDs are committed in increasing order
+        lockService.callWithLock(LOCK_NAME, LOCK_TIMEOUT, () -> revocationRepository.save(revocation));
+    }
+
+    /**
+     * Load the revocations stored before this node started
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void load() {
+        poll();
+        logger.info("Loaded {} token revocations", revocationList.size());
+    }
+
+    /**
+     * Pick up revocations made by other application nodes
+     */
+    @Scheduled(fixedDelayString = "${security.revocation.poll-interval-ms:5000}")
+    public void poll() {
+        try {
+            List<TokenRevocation> revocations =
+                    revocationRepository.findByRevocationIdGreaterThanOrderByRevocationId(lastSeenRevocationId);
+            for (TokenRevocation revocation : revocations) {
+                apply(revocation);
+                lastSeenRevocationId = revocation.getRevocationId();
+            }
+        } catch (Exception e) {
+            logger.warn("Error polling token revocations: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Delete revocations whose tokens have all expired
+     */
+    @Scheduled(fixedDelayString = "${security.revocation.purge-interval-ms:3600000}",
+               initialDelayString = "${security.revocation.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = revocationRepository.deleteExpired(LocalDateTime.now());
+        revocationList.purge(System.currentTimeMillis(), maxTokenLifetimeMillis());
+        if (deleted > 0) {
+            logger.info("Purged {} expired token revocations", deleted);
+        }
+    }
+
+    private void apply(TokenRevocation revocation) {
+        if (revocation.getTokenId() != null && revocation.getRotatedAt() != null) {
+            revocationList.revokeRotatedToken(revocation.getTokenId(), toEpochMillis(revocation.getExpiresAt()),
+                    toEpochMillis(revocation.getRotatedAt()));
+        } else if (revocation.getTokenId() != null) {
+            revocationList.revokeToken(revocation.getTokenId(), toEpochMillis(revocation.getExpiresAt()));
+        }
+        if (revocation.getUsername() != null && revocation.getNotBefore() != null) {
+            revocationList.revokeUserTokens(revocation.getUsername(), revocation.getNotBefore());
+        }
+    }
+
+    private long maxTokenLifetimeMillis() {
+        return Math.max(tokenManager.getAccessTokenExpirationMs(), tokenManager.getRefreshTokenExpirationMs());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
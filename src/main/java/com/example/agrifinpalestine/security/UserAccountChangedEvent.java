@@ -0,0 +1,18 @@
+package com.example.agrifinpalestine.security;
+
+/**
+ * Published when a user's status, roles or profile change, so that cached
+ * authentication data for the user is dropped
+ */
+public class UserAccountChangedEvent {
+
+    private final String username;
+
+    public UserAccountChangedEvent(String username) {
+        this.username = username;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.agrifinpalestine.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache of the user details used to authenticate requests, keyed by username.
+ *
+ * Entries expire after a fixed time and are dropped when a {@link UserAccountChangedEvent}
+ * is published. Eviction happens after the publishing transaction commits, so a request
+ * running at the same time cannot put the old state back.
+ */
+@Component
+public class UserDetailsCache {
+    private static final Logger logger = LoggerFactory.getLogger(UserDetailsCache.class);
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // Incremented on every eviction; a load that overlaps an eviction is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public UserDetailsCache(@Value("${security.user-details-cache.ttl-ms:60000}") long ttlMillis,
+                            @Value("${security.user-details-cache.max-entries:10000}") int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Get the cached user details for a username, loading them on a miss
+     * @param username the username
+     * @param loader loads the user details from the database
+     * @return the user details
+     */
+    public UserDetailsImpl get(String username, Function<String, UserDetailsImpl> loader) {
+        Entry entry = entries.get(username);
+        long now = System.currentTimeMillis();
+        if (entry != null && entry.expiresAtMillis > now) {
+            return entry.userDetails;
+        }
+
+        long loadGeneration = generation.get();
+        UserDetailsImpl userDetails = loader.apply(username);
+        if (maxEntries > 0 && generation.get() == loadGeneration) {
+            if (entries.size() >= maxEntries) {
+                evictExpired(now);
+            }
+            entries.put(username, new Entry(userDetails, now + ttlMillis));
+        }
+        return userDetails;
+    }
+
+    /**
+     * Drop the cached user details of a user
+     * @param username the username
+     */
+    public void evict(String username) {
+        generation.incrementAndGet();
+        entries.remove(username);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserAccountChanged(UserAccountChangedEvent event) {
+        logger.debug("Evicting cached user details for {}", event.getUsername());
+        evict(event.getUsername());
+    }
+
+    private void evictExpired(long now) {
+        entries.values().removeIf(entry -> entry.expiresAtMillis <= now);
+
+        Iterator<String> usernames = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && usernames.hasNext()) {
+            usernames.next();
+            usernames.remove();
+        }
+    }
+
+    private record Entry(UserDetailsImpl userDetails, long expiresAtMillis) {
+    }
+}
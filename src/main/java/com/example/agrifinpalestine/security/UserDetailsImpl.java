@@ -72,6 +72,14 @@ public class UserDetailsImpl implements UserDetails {
                 isActive);
     }
 
+    /**
+     * Copy of these user details without the password hash, safe to keep in a cache
+     * @return An immutable snapshot of the id, roles and status
+     */
+    public UserDetailsImpl withoutPassword() {
+        return new UserDetailsImpl(id, username, email, null, List.copyOf(authorities), isActive);
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
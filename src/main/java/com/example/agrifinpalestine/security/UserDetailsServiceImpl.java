@@ -14,12 +14,28 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findDistinctByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
+        return UserDetailsImpl.build(findUser(username));
+    }
 
-        return UserDetailsImpl.build(user);
+    /**
+     * Load the user details of a user whose token was already verified. The details are
+     * served from {@link UserDetailsCache} and carry no password, so they cannot be used to log in.
+     * @param username the username from the token
+     * @return the user details
+     * @throws UsernameNotFoundException if the user does not exist
+     */
+    public UserDetailsImpl loadAuthenticatedUser(String username) throws UsernameNotFoundException {
+        return userDetailsCache.get(username, name -> UserDetailsImpl.build(findUser(name)).withoutPassword());
+    }
+
+    private User findUser(String username) {
+        return userRepository.findDistinctByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
     }
 }
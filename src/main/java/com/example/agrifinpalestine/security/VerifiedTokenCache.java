@@ -0,0 +1,106 @@
+package com.example.agrifinpalestine.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of the claims of tokens whose signature was already verified.
+ * Entries are keyed by a SHA-256 digest, so raw tokens are not kept in memory,
+ * and an entry is never returned once its token has expired.
+ */
+class VerifiedTokenCache {
+
+    private final int maxEntries;
+    private final Cache<String, Claims> entries;
+
+    VerifiedTokenCache(int maxEntries) {
+        this(maxEntries, Clock.systemUTC());
+    }
+
+    VerifiedTokenCache(int maxEntries, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(Math.max(maxEntries, 0))
+                .expireAfter(new UntilTokenExpiry(clock))
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                // Evict on the calling thread rather than in the common pool
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * Get the verified claims of a token
+     * @param token the token
+     * @return the claims, or null if the token is not cached or has expired
+     */
+    Claims get(String token) {
+        return entries.getIfPresent(digest(token));
+    }
+
+    /**
+     * Cache the claims of a verified token until the token expires
+     * @param token the token
+     * @param claims the verified claims
+     */
+    void put(String token, Claims claims) {
+        // Tokens without an expiry are verified every time
+        if (maxEntries <= 0 || claims.getExpiration() == null) {
+            return;
+        }
+        entries.put(digest(token), claims);
+    }
+
+    /**
+     * Remove a token, e.g. when it is revoked
+     * @param token the token
+     */
+    void remove(String token) {
+        entries.invalidate(digest(token));
+    }
+
+    int size() {
+        entries.cleanUp();
+        return (int) entries.estimatedSize();
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Keeps each entry until the exp claim of its token
+     */
+    private record UntilTokenExpiry(Clock clock) implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            Date expiration = claims.getExpiration();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(expiration.getTime() - clock.millis(), 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.agrifinpalestine.service;
+
+import com.example.agrifinpalestine.Entity.InventoryReservation;
+import com.example.agrifinpalestine.dto.CheckoutLine;
+import com.example.agrifinpalestine.exception.inventory.InsufficientInventoryException;
+import com.example.agrifinpalestine.exception.inventory.ReservationNotFoundException;
+
+import java.util.List;
+
+/**
+ * Service interface for holding product stock while a payment is in progress
+ */
+public interface InventoryService {
+
+    /**
+     * Reserve stock for a checkout.
+     * Each product is decremented with a single conditional update; if any product has too
+     * little stock, nothing is reserved. The user's earlier unpaid reservations are released.
+     * @param userId the ID of the user checking out
+     * @param paymentIntentId the Stripe payment intent ID the reservation belongs to
+     * @param lines the cart lines the payment is for, with the prices charged
+     * @return the created reservations
+     * @throws InsufficientInventoryException if a product does not have enough stock
+     */
+    List<InventoryReservation> reserve(Integer userId, String paymentIntentId, List<CheckoutLine> lines);
+
+    /**
+     * Get the reservations a user made for a payment intent, whatever their status
+     * @param userId the ID of the user
+     * @param paymentIntentId the Stripe payment intent ID
+     * @return the reservations, one per product; empty if the user made none
+     */
+    List<InventoryReservation> getReservations(Integer userId, String paymentIntentId);
+
+    /**
+     * Mark the reservations of a successful payment as sold.
+     * Reservations that expired before the payment completed take their stock again; if
+     * that stock is gone the commit fails and nothing is committed.
+     * @param userId the ID of the user who paid
+     * @param paymentIntentId the Stripe payment intent ID
+     * @return the committed reservations
+     * @throws ReservationNotFoundException if the user holds no reservations for the payment intent
+     * @throws InsufficientInventoryException if an expired reservation can no longer be filled
+     */
+    List<InventoryReservation> commit(Integer userId, String paymentIntentId);
+
+    /**
+     * Return the stock of a failed or abandoned payment.
+     * Nothing is released once the payment has been committed.
+     * @param userId the ID of the user who owns the reservations
+     * @param paymentIntentId the Stripe payment intent ID
+     * @return the number of reservations released
+     */
+    int release(Integer userId, String paymentIntentId);
+
+    /**
+     * Return the stock of reservations whose payment did not complete in time
+     * @return the number of reservations released
+     */
+    int releaseExpired();
+}
@@ -8,13 +8,16 @@ import java.util.List;
 public interface OrderService {
 
     /**
-     * Create a new order from the user's cart
+     * Complete a paid checkout in one transaction: commit the stock reservations,
+     * create the order and its lines from them, complete the cart and open a new empty
+     * cart. The order is refused if the active cart no longer matches the reservations.
+     * Calling it again for the same payment returns the existing order.
      *
      * @param userId The ID of the user placing the order
      * @param paymentIntentId The Stripe payment intent ID
      * @return The created order
      */
-    Order createOrderFromCart(Integer userId, String paymentIntentId);
+    Order completeCheckout(Integer userId, String paymentIntentId);
 
     /**
      * Get all orders for a user
@@ -32,6 +35,14 @@ public interface OrderService {
      */
     Order getOrderById(Integer orderId);
 
+    /**
+     * Get the order paid with a payment intent
+     *
+     * @param paymentIntentId The Stripe payment intent ID
+     * @return The order if found
+     */
+    Order getOrderByPaymentIntentId(String paymentIntentId);
+
     /**
      * Delete an order by ID
      *
@@ -49,14 +60,4 @@ public interface OrderService {
      * @return The updated order
      */
     Order updateOrderPaymentStatus(Integer orderId, String paymentStatus);
-
-    /**
-     * Finalize order after successful payment
-     * This will mark the cart as completed and clear cart items
-     *
-     * @param userId The ID of the user
-     * @param orderId The ID of the order
-     * @return true if successful
-     */
-    boolean finalizeOrder(Integer userId, Integer orderId);
 }
@@ -0,0 +1,39 @@
+package com.example.agrifinpalestine.service;
+
+import com.example.agrifinpalestine.Entity.ProductRatingSummary;
+import com.example.agrifinpalestine.Entity.Review;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Service interface for maintaining per-product rating summaries
+ */
+public interface ProductRatingService {
+
+    /**
+     * Save a new review and add its rating to the product's summary in the same transaction
+     * @param review the review to save
+     * @return the saved review
+     */
+    Review saveReview(Review review);
+
+    /**
+     * Delete a review and remove its rating from the product's summary in the same transaction
+     * @param review the review to delete
+     */
+    void deleteReview(Review review);
+
+    /**
+     * Get the rating summaries for a set of products using a single query
+     * @param productIds the product IDs
+     * @return map of product ID to summary; products without reviews are absent
+     */
+    Map<Integer, ProductRatingSummary> getSummaries(Collection<Integer> productIds);
+
+    /**
+     * Recompute all summaries from the reviews table
+     * @return the number of summary rows written
+     */
+    int rebuildSummaries();
+}
@@ -1,8 +1,10 @@
 package com.example.agrifinpalestine.service;
 
+import com.example.agrifinpalestine.dto.CursorPageResponse;
 import com.example.agrifinpalestine.dto.ProductRequest;
 import com.example.agrifinpalestine.dto.ProductResponse;
 import com.example.agrifinpalestine.dto.ProductSearchRequest;
+import com.example.agrifinpalestine.dto.ProductSuggestionResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -59,6 +61,21 @@ public interface ProductService {
      */
     List<ProductResponse> getProductsByCategory(Integer categoryId);
 
+    /**
+     * Get several products by ID with a single query
+     * @param productIds the product IDs; duplicates and unknown IDs are ignored
+     * @return List of ProductResponse objects in the order of the given IDs
+     */
+    List<ProductResponse> getProductsByIds(List<Integer> productIds);
+
+    /**
+     * Get the best rated products of the same category as a product
+     * @param productId the ID of the product being viewed
+     * @param limit the maximum number of products
+     * @return List of ProductResponse objects, highest rating score first
+     */
+    List<ProductResponse> getRelatedProducts(Integer productId, int limit);
+
     /**
      * Search for products based on various criteria
      * @param searchRequest containing search parameters
@@ -73,4 +90,20 @@ public interface ProductService {
      * @return Page of ProductResponse objects
      */
     Page<ProductResponse> searchProducts(ProductSearchRequest searchRequest, Pageable pageable);
+
+    /**
+     * Search for products with cursor (keyset) pagination.
+     * Seeks directly to the next page and skips the total count, so deep pages cost the same as the first.
+     * @param searchRequest containing search parameters, page size, sort and the cursor of the previous page
+     * @return CursorPageResponse of ProductResponse objects
+     */
+    CursorPageResponse<ProductResponse> searchProductsByCursor(ProductSearchRequest searchRequest);
+
+    /**
+     * Suggest products for a partially typed search query
+     * @param query the text typed so far
+     * @param limit the maximum number of suggestions
+     * @return List of ProductSuggestionResponse objects, most relevant first
+     */
+    List<ProductSuggestionResponse> suggestProducts(String query, int limit);
 }
@@ -11,6 +11,7 @@ import com.stripe.exception.StripeException;
 import com.stripe.model.Charge;
 import com.stripe.model.Customer;
 import com.stripe.model.PaymentIntent;
+import com.stripe.model.Refund;
 
 /**
  * Service for Stripe payment processing
@@ -106,6 +107,39 @@ public class StripeService {
         return paymentIntent.update(updateParams);
     }
 
+    /**
+     * Cancel a payment intent that will not be confirmed
+     * @param paymentIntentId The ID of the payment intent
+     * @return The canceled payment intent
+     * @throws StripeException If there is an error canceling the payment intent
+     */
+    public PaymentIntent cancelPaymentIntent(String paymentIntentId) throws StripeException {
+        return PaymentIntent.retrieve(paymentIntentId).cancel();
+    }
+
+    /**
+     * Retrieve a payment intent to check its status
+     * @param paymentIntentId The ID of the payment intent
+     * @return The payment intent
+     * @throws StripeException If there is an error retrieving the payment intent
+     */
+    public PaymentIntent retrievePaymentIntent(String paymentIntentId) throws StripeException {
+        return PaymentIntent.retrieve(paymentIntentId);
+    }
+
+    /**
+     * Refund the full amount of a payment that could not be turned into an order
+     * @param paymentIntentId The ID of the payment intent
+     * @return The refund
+     * @throws StripeException If there is an error creating the refund
+     */
+    public Refund refundPaymentIntent(String paymentIntentId) throws StripeException {
+        Map<String, Object> params = new HashMap<>();
+        params.put("payment_intent", paymentIntentId);
+
+        return Refund.create(params);
+    }
+
     /**
      * Get the Stripe public key
      * @return The Stripe public key
@@ -11,11 +11,12 @@ import com.example.agrifinpalestine.Repository.ProductRepository;
 import com.example.agrifinpalestine.Repository.UserRepository;
 import com.example.agrifinpalestine.dto.CartItemRequest;
 import com.example.agrifinpalestine.dto.CartItemResponse;
-import com.example.agrifinpalestine.exception.cart.ProductAlreadyInCartException;
+import com.example.agrifinpalestine.dto.CartTotals;
 import com.example.agrifinpalestine.exception.inventory.InsufficientInventoryException;
 import com.example.agrifinpalestine.exception.product.ProductNotFoundException;
 import com.example.agrifinpalestine.exception.user.UnauthorizedAccessException;
 import com.example.agrifinpalestine.exception.user.UserNotFoundException;
+import com.example.agrifinpalestine.lock.LockService;
 import com.example.agrifinpalestine.service.CartItemService;
 import com.example.agrifinpalestine.service.CartService;
 import org.slf4j.Logger;
@@ -24,11 +25,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Primary;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -43,122 +46,64 @@ public class CartItemServiceImpl implements CartItemService, CartService {
 
     private static final Logger logger = LoggerFactory.getLogger(CartItemServiceImpl.class);
 
+    private static final Duration CART_LOCK_TIMEOUT = Duration.ofSeconds(5);
+
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
     private final JdbcTemplate jdbcTemplate;
+    private final LockService lockService;
 
     @Autowired
     public CartItemServiceImpl(CartRepository cartRepository,
                                CartItemRepository cartItemRepository,
                                UserRepository userRepository,
                                ProductRepository productRepository,
-                               JdbcTemplate jdbcTemplate) {
+                               JdbcTemplate jdbcTemplate,
+                               LockService lockService) {
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
         this.userRepository = userRepository;
         this.productRepository = productRepository;
         this.jdbcTemplate = jdbcTemplate;
+        this.lockService = lockService;
     }
 
     /**
      * Add a product to the user's cart
-     * If the product is already in the cart, throw a ProductAlreadyInCartException
+     * If the product is already in the cart, its quantity is increased instead.
+     * The line is written with a single upsert guarded by the product's stock, so concurrent
+     * adds of the same product are merged by the unique (cart_id, product_id) key.
      * @param userId The ID of the user
      * @param request The cart item request containing product ID and quantity
-     * @return The added cart item
+     * @return The added or updated cart item
      */
     @Override
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public CartItemResponse addToCart(Integer userId, CartItemRequest request) {
         logger.info("Adding product {} to cart for user {}", request.getProductId(), userId);
 
         try {
-            // Get user
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new UserNotFoundException(userId));
-
-            // Check if user is a buyer
-            if (!user.isBuyer()) {
-                throw new UnauthorizedAccessException("Only buyers can have carts");
-            }
-
-            // Get product
-            Product product = productRepository.findById(request.getProductId())
-                    .orElseThrow(() -> new ProductNotFoundException(request.getProductId()));
-
-            // Check if product is available
-            if (product.getIsAvailable() != null && !product.getIsAvailable()) {
-                throw new IllegalStateException("Product is not available: " + request.getProductId());
-            }
-
-            // Check if there's enough inventory
-            if (product.getQuantity() < request.getQuantity()) {
-                throw new InsufficientInventoryException(
-                        request.getProductId(),
-                        request.getQuantity(),
-                        product.getQuantity()
-                );
-            }
-
-            // Get or create cart
-            Cart cart = getOrCreateActiveCart(user);
-
-            // Check if product already exists in cart
-            Optional<CartItem> existingCartItem = cartItemRepository.findByCartCartIdAndProductProductId(cart.getCartId(), product.getProductId());
+            // Only buyers get a cart, so the user is only loaded when the cart has to be created
+            Cart cart = cartRepository.findActiveCartByUserId(userId)
+                    .orElseGet(() -> createCartForBuyer(userId));
 
-            // If product already exists in cart, update the quantity instead of throwing an exception
-            if (existingCartItem.isPresent()) {
-                CartItem existingItem = existingCartItem.get();
-
-                // Calculate new quantity
-                int newQuantity = existingItem.getQuantity() + request.getQuantity();
-
-                // Check if there's enough inventory for the new total quantity
-                if (product.getQuantity() < newQuantity) {
-                    throw new InsufficientInventoryException(
-                            request.getProductId(),
-                            newQuantity,
-                            product.getQuantity()
-                    );
-                }
-
-                // Update the quantity
-                existingItem.setQuantity(newQuantity);
-                existingItem.setUpdatedAt(LocalDateTime.now());
-
-                // Save the updated cart item
-                CartItem updatedItem = cartItemRepository.save(existingItem);
-
-                // Update cart totals
-                updateCartTotals(cart);
-
-                // Return the updated item
-                logger.info("Updated quantity of existing cart item {} for product {} to {}", 
-                        updatedItem.getCartItemId(), product.getProductId(), newQuantity);
-                return convertToCartItemResponse(updatedItem);
+            int affected = cartItemRepository.upsertLine(cart.getCartId(), request.getProductId(), request.getQuantity());
+            if (affected == 0) {
+                throw rejectedAddToCart(cart, request);
             }
 
-            // Create new cart item
-            CartItem cartItem = new CartItem();
-            cartItem.setCart(cart);
-            cartItem.setProduct(product);
-            cartItem.setQuantity(request.getQuantity());
-            cartItem.setPrice(product.getPrice()); // Set the price from the product
-            cartItem.setCreatedAt(LocalDateTime.now());
-            cartItem.setUpdatedAt(LocalDateTime.now());
+            // Update cart totals with the added quantity at the line's price
+            cartRepository.addLineQuantityToTotals(cart.getCartId(), request.getProductId(), request.getQuantity());
 
-            // Save cart item
-            cartItem = cartItemRepository.save(cartItem);
+            CartItem cartItem = cartItemRepository.findLineWithProduct(cart.getCartId(), request.getProductId())
+                    .orElseThrow(() -> new IllegalStateException("Cart item not found after adding product "
+                            + request.getProductId()));
 
-            // Update cart totals
-            updateCartTotals(cart);
-
-            // Create response
-            CartItemResponse response = convertToCartItemResponse(cartItem);
-
-            return response;
+            logger.info("Cart item {} for product {} now has quantity {}",
+                    cartItem.getCartItemId(), request.getProductId(), cartItem.getQuantity());
+            return convertToCartItemResponse(cartItem);
         } catch (Exception e) {
             logger.error("Error adding product to cart: {}", e.getMessage(), e);
             throw e;
@@ -193,8 +138,8 @@ public class CartItemServiceImpl implements CartItemService, CartService {
                 return new ArrayList<>();
             }
 
-            // Get cart items
-            List<CartItem> cartItems = cartItemRepository.findAllByCartCartId(activeCart.get().getCartId());
+            // Get cart items with their products in one query
+            List<CartItem> cartItems = cartItemRepository.findAllWithProductsByCartId(activeCart.get().getCartId());
 
             // Convert to response DTOs
             return cartItems.stream()
@@ -248,6 +193,10 @@ public class CartItemServiceImpl implements CartItemService, CartService {
                 );
             }
 
+            // Remember the old line so only its difference is applied to the totals
+            BigDecimal oldAmount = lineAmount(cartItem.getPrice(), cartItem.getQuantity());
+            int oldQuantity = cartItem.getQuantity();
+
             // Update cart item
             cartItem.setQuantity(cartItemRequest.getQuantity());
             cartItem.setPrice(product.getPrice()); // Ensure price is updated
@@ -256,7 +205,9 @@ public class CartItemServiceImpl implements CartItemService, CartService {
             cartItemRepository.save(cartItem);
 
             // Update cart totals
-            updateCartTotals(activeCart.get());
+            applyLineDelta(activeCart.get(),
+                    lineAmount(cartItem.getPrice(), cartItem.getQuantity()).subtract(oldAmount),
+                    cartItem.getQuantity() - oldQuantity);
 
             // Create response
             CartItemResponse response = convertToCartItemResponse(cartItem);
@@ -308,7 +259,9 @@ public class CartItemServiceImpl implements CartItemService, CartService {
             cartItemRepository.delete(cartItem);
 
             // Update cart totals
-            updateCartTotals(activeCart.get());
+            applyLineDelta(activeCart.get(),
+                    lineAmount(cartItem.getPrice(), cartItem.getQuantity()).negate(),
+                    -cartItem.getQuantity());
 
             logger.info("Cart item {} removed for user {}", cartItemId, userId);
             return true;
@@ -467,7 +420,7 @@ public class CartItemServiceImpl implements CartItemService, CartService {
      * @return the created cart
      */
     @Override
-    @Transactional
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public Cart createCartForUser(User user) {
         logger.info("Creating cart for user {}", user.getUserId());
 
@@ -483,55 +436,63 @@ public class CartItemServiceImpl implements CartItemService, CartService {
                 throw new UnauthorizedAccessException("Only buyers can have carts");
             }
 
-            // Use a synchronized block to prevent race conditions
-            synchronized (String.valueOf(user.getUserId()).intern()) {
-                // Double-check if a cart was created while we were waiting for the lock
-                existingActiveCart = cartRepository.findActiveCartByUserId(user.getUserId());
-                if (existingActiveCart.isPresent()) {
-                    logger.info("User {} already has an active cart with ID {} (found after lock)",
-                            user.getUserId(), existingActiveCart.get().getCartId());
-                    return existingActiveCart.get();
-                }
+            // Serialize cart creation per user, across instances when the MySQL lock provider is used
+            return lockService.callWithLock("cart:user:" + user.getUserId(), CART_LOCK_TIMEOUT,
+                    () -> createCartLocked(user));
+        } catch (Exception e) {
+            logger.error("Error creating cart for user {}: {}", user.getUserId(), e.getMessage(), e);
+            throw e;
+        }
+    }
 
-                // First, clean up any potential issues
-                try {
-                    // Delete any existing active carts for this user (should not happen, but just in case)
-                    cartRepository.deleteByUserUserIdAndStatus(user.getUserId(), CartStatus.ACTIVE);
-                } catch (Exception e) {
-                    logger.warn("Error cleaning up existing carts: {}", e.getMessage());
-                    // Continue anyway
-                }
+    /**
+     * Create the cart while holding the user's cart lock
+     * @param user the user to create a cart for
+     * @return the created cart, or the active cart created by a concurrent request
+     */
+    private Cart createCartLocked(User user) {
+        // Double-check if a cart was created while we were waiting for the lock
+        Optional<Cart> existingActiveCart = cartRepository.findActiveCartByUserId(user.getUserId());
+        if (existingActiveCart.isPresent()) {
+            logger.info("User {} already has an active cart with ID {} (found after lock)",
+                    user.getUserId(), existingActiveCart.get().getCartId());
+            return existingActiveCart.get();
+        }
 
-                // Create a new cart
-                Cart cart = new Cart();
-                cart.setUser(user);
-                cart.setTotalPrice(BigDecimal.ZERO);
-                cart.setTotalQuantity(0);
-                cart.setStatus(CartStatus.ACTIVE);
-                cart.setCreatedAt(LocalDateTime.now());
-                cart.setUpdatedAt(LocalDateTime.now());
+        // First, clean up any potential issues
+        try {
+            // Delete any existing active carts for this user (should not happen, but just in case)
+            cartRepository.deleteByUserUserIdAndStatus(user.getUserId(), CartStatus.ACTIVE);
+        } catch (Exception e) {
+            logger.warn("Error cleaning up existing carts: {}", e.getMessage());
+            // Continue anyway
+        }
 
-                try {
-                    Cart savedCart = cartRepository.save(cart);
-                    logger.info("Created new cart with ID {} for user {}", savedCart.getCartId(), user.getUserId());
-                    return savedCart;
-                } catch (DataIntegrityViolationException e) {
-                    logger.warn("Constraint violation while creating cart for user {}: {}",
-                            user.getUserId(), e.getMessage());
-
-                    // Another thread likely created the cart, try to find it
-                    existingActiveCart = cartRepository.findActiveCartByUserId(user.getUserId());
-                    if (existingActiveCart.isPresent()) {
-                        logger.info("Found existing cart after constraint violation for user {}", user.getUserId());
-                        return existingActiveCart.get();
-                    }
+        // Create a new cart
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart.setTotalPrice(BigDecimal.ZERO);
+        cart.setTotalQuantity(0);
+        cart.setStatus(CartStatus.ACTIVE);
+        cart.setCreatedAt(LocalDateTime.now());
+        cart.setUpdatedAt(LocalDateTime.now());
 
-                    // If we still can't find it, rethrow the exception
-                    throw e;
-                }
+        try {
+            Cart savedCart = cartRepository.save(cart);
+            logger.info("Created new cart with ID {} for user {}", savedCart.getCartId(), user.getUserId());
+            return savedCart;
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("Constraint violation while creating cart for user {}: {}",
+                    user.getUserId(), e.getMessage());
+
+            // Another thread likely created the cart, try to find it
+            existingActiveCart = cartRepository.findActiveCartByUserId(user.getUserId());
+            if (existingActiveCart.isPresent()) {
+                logger.info("Found existing cart after constraint violation for user {}", user.getUserId());
+                return existingActiveCart.get();
             }
-        } catch (Exception e) {
-            logger.error("Error creating cart for user {}: {}", user.getUserId(), e.getMessage(), e);
+
+            // If we still can't find it, rethrow the exception
             throw e;
         }
     }
@@ -554,36 +515,81 @@ public class CartItemServiceImpl implements CartItemService, CartService {
     }
 
     /**
-     * Get or create an active cart for a user
-     * @param user the user
+     * Create the active cart for a user after checking that the user is a buyer
+     * @param userId the user ID
      * @return the active cart
      */
-    private Cart getOrCreateActiveCart(User user) {
-        return cartRepository.findActiveCartByUserId(user.getUserId())
-                .orElseGet(() -> createCartForUser(user));
+    private Cart createCartForBuyer(Integer userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new UserNotFoundException(userId));
+
+        if (!user.isBuyer()) {
+            throw new UnauthorizedAccessException("Only buyers can have carts");
+        }
+
+        return createCartForUser(user);
     }
 
-    private void updateCartTotals(Cart cart) {
-        // Get all cart items
-        List<CartItem> cartItems = cartItemRepository.findAllByCartCartId(cart.getCartId());
+    /**
+     * Work out why the add-to-cart upsert did not write a line
+     * @param cart the user's cart
+     * @param request the cart item request
+     * @return the exception to throw
+     */
+    private RuntimeException rejectedAddToCart(Cart cart, CartItemRequest request) {
+        Product product = productRepository.findById(request.getProductId()).orElse(null);
+        if (product == null) {
+            return new ProductNotFoundException(request.getProductId());
+        }
+        if (product.getIsAvailable() != null && !product.getIsAvailable()) {
+            return new IllegalStateException("Product is not available: " + request.getProductId());
+        }
 
-        // Calculate totals
-        BigDecimal totalPrice = BigDecimal.ZERO;
-        int totalQuantity = 0;
+        int inCart = cartItemRepository.findByCartCartIdAndProductProductId(cart.getCartId(), product.getProductId())
+                .map(CartItem::getQuantity)
+                .orElse(0);
+        return new InsufficientInventoryException(product.getProductId(), inCart + request.getQuantity(),
+                product.getQuantity());
+    }
 
-        for (CartItem item : cartItems) {
-            Product product = item.getProduct();
-            BigDecimal itemPrice = product.getPrice().multiply(new BigDecimal(item.getQuantity()));
-            totalPrice = totalPrice.add(itemPrice);
-            totalQuantity += item.getQuantity();
+    /**
+     * Apply the change of a single cart line to the cart totals in one UPDATE statement.
+     * The managed cart is not saved afterwards, so its stale totals never overwrite the database.
+     * @param cart the cart
+     * @param priceDelta the change of the line amount
+     * @param quantityDelta the change of the line quantity
+     */
+    private void applyLineDelta(Cart cart, BigDecimal priceDelta, int quantityDelta) {
+        if (priceDelta.signum() == 0 && quantityDelta == 0) {
+            return;
         }
+        cartRepository.applyTotalsDelta(cart.getCartId(), priceDelta, quantityDelta);
+    }
 
-        // Update cart
-        cart.setTotalPrice(totalPrice);
-        cart.setTotalQuantity(totalQuantity);
-        cart.setUpdatedAt(LocalDateTime.now());
+    private static BigDecimal lineAmount(BigDecimal price, int quantity) {
+        return price.multiply(BigDecimal.valueOf(quantity));
+    }
 
-        cartRepository.save(cart);
+    /**
+     * Repair active carts whose totals drifted from their items, e.g. after items were
+     * deleted with direct SQL or a delta update was lost
+     */
+    @Scheduled(fixedDelayString = "${cart.totals.reconcile-interval-ms:3600000}",
+            initialDelayString = "${cart.totals.reconcile-interval-ms:3600000}")
+    public void reconcileCartTotals() {
+        try {
+            int repaired = 0;
+            for (CartTotals totals : cartRepository.findDriftedActiveCartTotals()) {
+                // A cart changed since the totals were read is skipped and checked again next run
+                repaired += cartRepository.repairTotals(totals.getCartId(), totals.getVersion(),
+                        totals.getTotalPrice(), totals.getTotalQuantity().intValue());
+            }
+            if (repaired > 0) {
+                logger.warn("Repaired totals of {} active carts that drifted from their items", repaired);
+            }
+        } catch (Exception e) {
+            logger.warn("Error reconciling cart totals: {}", e.getMessage());
+        }
     }
 
     /**
@@ -2,6 +2,7 @@ package com.example.agrifinpalestine.service.impl;
 
 import com.example.agrifinpalestine.Entity.ProductCategory;
 import com.example.agrifinpalestine.Repository.ProductCategoryRepository;
+import com.example.agrifinpalestine.cache.ReferenceDataChangedEvent;
 import com.example.agrifinpalestine.dto.CategoryRequest;
 import com.example.agrifinpalestine.dto.CategoryResponse;
 import com.example.agrifinpalestine.exception.product.CategoryAlreadyExistsException;
@@ -9,10 +10,12 @@ import com.example.agrifinpalestine.exception.product.CategoryCreationException;
 import com.example.agrifinpalestine.exception.product.CategoryDeletionException;
 import com.example.agrifinpalestine.exception.product.CategoryNotFoundException;
 import com.example.agrifinpalestine.exception.product.CategoryUpdateException;
+import com.example.agrifinpalestine.search.ProductSearchIndex;
 import com.example.agrifinpalestine.service.CategoryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,10 +28,15 @@ public class CategoryServiceImpl implements CategoryService {
     private static final Logger logger = LoggerFactory.getLogger(CategoryServiceImpl.class);
 
     private final ProductCategoryRepository categoryRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public CategoryServiceImpl(ProductCategoryRepository categoryRepository) {
+    public CategoryServiceImpl(ProductCategoryRepository categoryRepository, ProductSearchIndex productSearchIndex,
+                               ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
+        this.productSearchIndex = productSearchIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -114,6 +122,11 @@ public class CategoryServiceImpl implements CategoryService {
             // Save updated category
             ProductCategory updatedCategory = categoryRepository.save(existingCategory);
 
+            // Category names are searchable, so refresh the indexed products of this category
+            productSearchIndex.updateCategoryNames(categoryId,
+                    updatedCategory.getCategoryNameEn(), updatedCategory.getCategoryNameAr());
+            eventPublisher.publishEvent(new ReferenceDataChangedEvent(ProductCategory.class, categoryId));
+
             // Return response
             return mapToCategoryResponse(updatedCategory);
         } catch (CategoryNotFoundException | CategoryAlreadyExistsException e) {
@@ -133,6 +146,7 @@ public class CategoryServiceImpl implements CategoryService {
                 throw new CategoryNotFoundException(categoryId);
             }
             categoryRepository.deleteById(categoryId);
+            eventPublisher.publishEvent(new ReferenceDataChangedEvent(ProductCategory.class, categoryId));
             return true;
         } catch (CategoryNotFoundException e) {
             // Re-throw this exception as it's already handled
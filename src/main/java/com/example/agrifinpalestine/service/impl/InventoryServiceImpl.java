@@ -0,0 +1,193 @@
+package com.example.agrifinpalestine.service.impl;
+
+import com.example.agrifinpalestine.Entity.InventoryReservation;
+import com.example.agrifinpalestine.Entity.Product;
+import com.example.agrifinpalestine.Entity.ReservationStatus;
+import com.example.agrifinpalestine.Repository.InventoryReservationRepository;
+import com.example.agrifinpalestine.Repository.ProductRepository;
+import com.example.agrifinpalestine.dto.CheckoutLine;
+import com.example.agrifinpalestine.exception.inventory.InsufficientInventoryException;
+import com.example.agrifinpalestine.exception.inventory.ReservationNotFoundException;
+import com.example.agrifinpalestine.service.InventoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Implementation of InventoryService.
+ * Stock is taken from the product when the payment intent is created and given back if the
+ * payment fails or is not completed within the reservation time.
+ */
+@Service
+public class InventoryServiceImpl implements InventoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryServiceImpl.class);
+
+    private static final int EXPIRY_BATCH_SIZE = 100;
+
+    private final InventoryReservationRepository reservationRepository;
+    private final ProductRepository productRepository;
+    private final long reservationTtlMinutes;
+
+    @Autowired
+    public InventoryServiceImpl(InventoryReservationRepository reservationRepository,
+                                ProductRepository productRepository,
+                                @Value("${inventory.reservation.ttl-minutes:15}") long reservationTtlMinutes) {
+        this.reservationRepository = reservationRepository;
+        this.productRepository = productRepository;
+        this.reservationTtlMinutes = reservationTtlMinutes;
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public List<InventoryReservation> reserve(Integer userId, String paymentIntentId, List<CheckoutLine> lines) {
+        logger.info("Reserving stock for payment intent {} of user {}: {} lines", paymentIntentId, userId, lines.size());
+
+        // A new payment intent replaces the user's unpaid ones, so their stock is returned first
+        for (InventoryReservation previous : reservationRepository.findByUserIdAndStatus(userId, ReservationStatus.RESERVED)) {
+            releaseReservation(previous);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusMinutes(reservationTtlMinutes);
+        List<InventoryReservation> reservations = new ArrayList<>();
+
+        // Decrement in product ID order so concurrent multi-product checkouts lock rows in the
+        // same order and cannot deadlock; a failure rolls back the lines already decremented
+        List<CheckoutLine> sorted = new ArrayList<>(lines);
+        sorted.sort(Comparator.comparing(CheckoutLine::getProductId));
+        for (CheckoutLine line : sorted) {
+            Integer productId = line.getProductId();
+            Integer quantity = line.getQuantity();
+
+            if (productRepository.decrementStock(productId, quantity) == 0) {
+                int available = productRepository.findById(productId).map(Product::getQuantity).orElse(0);
+                throw new InsufficientInventoryException(productId, quantity, available);
+            }
+
+            InventoryReservation reservation = new InventoryReservation();
+            reservation.setPaymentIntentId(paymentIntentId);
+            reservation.setUserId(userId);
+            reservation.setProductId(productId);
+            reservation.setQuantity(quantity);
+            reservation.setUnitPrice(line.getPrice());
+            reservation.setStatus(ReservationStatus.RESERVED);
+            reservation.setExpiresAt(expiresAt);
+            reservation.setCreatedAt(now);
+            reservation.setUpdatedAt(now);
+            reservations.add(reservation);
+        }
+
+        return reservationRepository.saveAll(reservations);
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public List<InventoryReservation> commit(Integer userId, String paymentIntentId) {
+        List<InventoryReservation> reservations = reservationRepository.findByPaymentIntentId(paymentIntentId).stream()
+                .filter(reservation -> reservation.getUserId().equals(userId))
+                .toList();
+        if (reservations.isEmpty()) {
+            throw new ReservationNotFoundException(paymentIntentId);
+        }
+
+        for (InventoryReservation reservation : reservations) {
+            if (reservationRepository.transition(reservation.getReservationId(),
+                    ReservationStatus.RESERVED, ReservationStatus.COMMITTED) == 1) {
+                continue;
+            }
+            if (reservationRepository.transition(reservation.getReservationId(),
+                    ReservationStatus.RELEASED, ReservationStatus.COMMITTED) == 0) {
+                // Another request committed it first; a retry finds the order that request created
+                throw new OptimisticLockingFailureException(
+                        "Reservation " + reservation.getReservationId() + " was committed concurrently");
+            }
+            // The reservation expired before the payment completed, so its stock was returned
+            // and has to be taken again; if it is gone the whole commit rolls back
+            if (productRepository.decrementStock(reservation.getProductId(), reservation.getQuantity()) == 0) {
+                int available = productRepository.findById(reservation.getProductId()).map(Product::getQuantity).orElse(0);
+                logger.error("Payment intent {} succeeded but product {} no longer has {} units in stock",
+                        paymentIntentId, reservation.getProductId(), reservation.getQuantity());
+                throw new InsufficientInventoryException(reservation.getProductId(), reservation.getQuantity(), available);
+            }
+        }
+
+        logger.info("Committed {} inventory reservations for payment intent {}", reservations.size(), paymentIntentId);
+        return reservations;
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public List<InventoryReservation> getReservations(Integer userId, String paymentIntentId) {
+        return reservationRepository.findByPaymentIntentId(paymentIntentId).stream()
+                .filter(reservation -> reservation.getUserId().equals(userId))
+                .toList();
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public int release(Integer userId, String paymentIntentId) {
+        List<InventoryReservation> reservations = reservationRepository.findByPaymentIntentId(paymentIntentId);
+        if (reservations.stream().anyMatch(reservation -> reservation.getStatus() == ReservationStatus.COMMITTED)) {
+            // The payment succeeded, so its stock is sold and cannot be handed back by the client
+            logger.warn("User {} tried to release the committed payment intent {}", userId, paymentIntentId);
+            return 0;
+        }
+
+        int released = 0;
+        for (InventoryReservation reservation : reservations) {
+            if (reservation.getUserId().equals(userId) && releaseReservation(reservation)) {
+                released++;
+            }
+        }
+
+        logger.info("Released {} inventory reservations for payment intent {}", released, paymentIntentId);
+        return released;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${inventory.reservation.sweep-interval-ms:60000}")
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public int releaseExpired() {
+        List<InventoryReservation> expired = reservationRepository.findExpired(
+                ReservationStatus.RESERVED, LocalDateTime.now(), PageRequest.of(0, EXPIRY_BATCH_SIZE));
+
+        int released = 0;
+        for (InventoryReservation reservation : expired) {
+            if (releaseReservation(reservation)) {
+                released++;
+            }
+        }
+
+        if (released > 0) {
+            logger.info("Released {} expired inventory reservations", released);
+        }
+        return released;
+    }
+
+    /**
+     * Give a held reservation's stock back to its product
+     * @param reservation the reservation
+     * @return true if this call released it, false if it was no longer held
+     */
+    private boolean releaseReservation(InventoryReservation reservation) {
+        if (reservationRepository.transition(reservation.getReservationId(),
+                ReservationStatus.RESERVED, ReservationStatus.RELEASED) == 0) {
+            return false;
+        }
+        productRepository.incrementStock(reservation.getProductId(), reservation.getQuantity());
+        return true;
+    }
+}
@@ -3,121 +3,183 @@ package com.example.agrifinpalestine.service.impl;
 import com.example.agrifinpalestine.Entity.*;
 import com.example.agrifinpalestine.Repository.OrderRepository;
 import com.example.agrifinpalestine.Repository.CartRepository;
+import com.example.agrifinpalestine.Repository.ProductRepository;
 import com.example.agrifinpalestine.Repository.UserRepository;
 import com.example.agrifinpalestine.Repository.OrderItemRepository;
 import com.example.agrifinpalestine.Repository.CartItemRepository;
-import com.example.agrifinpalestine.service.CartCleanupService;
-import com.example.agrifinpalestine.service.CartService;
+import com.example.agrifinpalestine.dto.CheckoutLine;
+import com.example.agrifinpalestine.exception.inventory.ReservationMismatchException;
+import com.example.agrifinpalestine.service.InventoryService;
 import com.example.agrifinpalestine.service.OrderService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 // Using only JPA/Hibernate, no JDBC
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderServiceImpl implements OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderServiceImpl.class);
 
+    // Attempts of a transaction that lost a race on a cart or order row
+    private static final int MAX_ATTEMPTS = 3;
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final CartItemRepository cartItemRepository;
-    private final CartService cartService;
     private final UserRepository userRepository;
     private final CartRepository cartRepository;
-    private final CartCleanupService cartCleanupService;
+    private final ProductRepository productRepository;
+    private final InventoryService inventoryService;
+    private final TransactionTemplate readCommittedTransaction;
 
     // Constructor injection
     @Autowired
-    public OrderServiceImpl(OrderRepository orderRepository, OrderItemRepository orderItemRepository, CartItemRepository cartItemRepository, CartService cartService, UserRepository userRepository, CartRepository cartRepository, CartCleanupService cartCleanupService) {
+    public OrderServiceImpl(OrderRepository orderRepository, OrderItemRepository orderItemRepository, CartItemRepository cartItemRepository, UserRepository userRepository, CartRepository cartRepository, ProductRepository productRepository, InventoryService inventoryService, PlatformTransactionManager transactionManager) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.cartItemRepository = cartItemRepository;
-        this.cartService = cartService;
         this.userRepository = userRepository;
         this.cartRepository = cartRepository;
-        this.cartCleanupService = cartCleanupService;
+        this.productRepository = productRepository;
+        this.inventoryService = inventoryService;
+        // Conflicts are detected with row versions, so the range locks of REPEATABLE READ are not needed
+        this.readCommittedTransaction = new TransactionTemplate(transactionManager);
+        this.readCommittedTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
     }
 
-
-
-
+    /**
+     * Statements issued for a cart of N lines, each with one stock reservation:
+     * 1 order lookup, 1 cart lines query, 1 + N reservation lookup and commits,
+     * 1 order insert, 1 batch of N order line inserts, 1 completed cart delete,
+     * 1 cart completion and 1 new cart insert, so 8 + N in total. Order line ids
+     * come from the id_generators table, which costs 2 more statements for every
+     * 50 order lines created.
+     */
     @Override
-    @Transactional
-    public Order createOrderFromCart(Integer userId, String paymentIntentId) {
-        // Get user
-        Optional<User> userOptional = userRepository.findById(userId);
-        if (userOptional.isEmpty()) {
-            throw new RuntimeException("User not found");
+    public Order completeCheckout(Integer userId, String paymentIntentId) {
+        return inTransactionWithRetry("checkout of payment intent " + paymentIntentId,
+                () -> completeCheckoutOnce(userId, paymentIntentId));
+    }
+
+    private Order completeCheckoutOnce(Integer userId, String paymentIntentId) {
+        // The client may report the same payment more than once
+        Optional<Order> existingOrder = orderRepository.findByPaymentIntentId(paymentIntentId);
+        if (existingOrder.isPresent()) {
+            if (!existingOrder.get().getUser().getUserId().equals(userId)) {
+                throw new RuntimeException("Payment belongs to another user");
+            }
+            logger.info("[ORDER] Payment intent {} was already processed as order {}",
+                    paymentIntentId, existingOrder.get().getOrderId());
+            return existingOrder.get();
         }
-        User user = userOptional.get();
 
-        // Get active cart
-        Optional<Cart> cartOptional = cartRepository.findActiveCartByUserId(userId);
-        if (cartOptional.isEmpty() || cartOptional.get().getCartItems().isEmpty()) {
+        List<CheckoutLine> lines = cartItemRepository.findCheckoutLines(userId);
+        if (lines.isEmpty()) {
             throw new RuntimeException("Cart is empty");
         }
-        Cart cart = cartOptional.get();
 
-        // Calculate total
-        BigDecimal total = cart.getCartItems().stream()
-                .map(item -> item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // The stock was reserved when the payment intent was created; the payment makes it a sale.
+        // The order is built from the reservations, which hold what the payment was created for
+        List<InventoryReservation> reservations = inventoryService.commit(userId, paymentIntentId);
+        if (!quantitiesByProduct(reservations).equals(lines.stream()
+                .collect(Collectors.toMap(CheckoutLine::getProductId, CheckoutLine::getQuantity, Integer::sum)))) {
+            throw new ReservationMismatchException(paymentIntentId);
+        }
+        Map<Integer, BigDecimal> cartPrices = lines.stream()
+                .collect(Collectors.toMap(CheckoutLine::getProductId, CheckoutLine::getPrice, (first, second) -> first));
+
+        // References only, the user and products are not loaded
+        User user = userRepository.getReferenceById(userId);
 
-        // Create order
         Order order = new Order();
         order.setUser(user);
         order.setOrderDate(LocalDateTime.now());
-        order.setTotalAmount(total);
         order.setStatus("PAID");
         order.setPaymentMethod("Stripe");
         order.setPaymentIntentId(paymentIntentId);
         order.setPaymentStatus("COMPLETED");
 
-        // Save order
-        Order savedOrder = orderRepository.save(order);
-
-        // Create order items from cart items
-        for (CartItem cartItem : cart.getCartItems()) {
+        BigDecimal total = BigDecimal.ZERO;
+        List<OrderItem> orderItems = new ArrayList<>(reservations.size());
+        for (InventoryReservation reservation : reservations) {
+            // Reservations made before prices were recorded on them fall back to the cart price
+            BigDecimal price = reservation.getUnitPrice() != null
+                    ? reservation.getUnitPrice()
+                    : cartPrices.get(reservation.getProductId());
             OrderItem orderItem = new OrderItem();
-            orderItem.setOrder(savedOrder);
-            orderItem.setProduct(cartItem.getProduct());
-            orderItem.setQuantity(cartItem.getQuantity());
-            orderItem.setPricePerUnit(cartItem.getProduct().getPrice());
-
-            // Save order item
-            orderItemRepository.save(orderItem);
-
-            // Add to order's item list
-            savedOrder.getOrderItems().add(orderItem);
+            orderItem.setOrder(order);
+            orderItem.setProduct(productRepository.getReferenceById(reservation.getProductId()));
+            orderItem.setQuantity(reservation.getQuantity());
+            orderItem.setPricePerUnit(price);
+            orderItems.add(orderItem);
+            total = total.add(price.multiply(BigDecimal.valueOf(reservation.getQuantity())));
+        }
+        order.setTotalAmount(total);
+        Order savedOrder = orderRepository.save(order);
+        savedOrder.getOrderItems().addAll(orderItemRepository.saveAll(orderItems));
+
+        // The completed cart keeps its lines until the next checkout replaces it
+        cartRepository.deleteCompletedCartsByUserId(userId);
+        CheckoutLine first = lines.get(0);
+        if (cartRepository.completeCart(first.getCartId(), first.getCartVersion()) == 0) {
+            // The cart changed after its lines were read, so the order could be missing a line
+            throw new OptimisticLockingFailureException("Cart " + first.getCartId() + " changed during checkout");
         }
 
-        // Note: We don't mark the cart as completed or clear items here
-        // This will be done in a separate method after payment confirmation
-        // to prevent losing the cart if payment fails
+        Cart newCart = new Cart();
+        newCart.setUser(user);
+        newCart.setTotalPrice(BigDecimal.ZERO);
+        newCart.setTotalQuantity(0);
+        newCart.setStatus(CartStatus.ACTIVE);
+        cartRepository.save(newCart);
 
+        logger.info("[ORDER] Created order {} with {} items for user {} and opened cart {}",
+                savedOrder.getOrderId(), orderItems.size(), userId, newCart.getCartId());
         return savedOrder;
     }
 
+    private static Map<Integer, Integer> quantitiesByProduct(List<InventoryReservation> reservations) {
+        return reservations.stream()
+                .collect(Collectors.toMap(InventoryReservation::getProductId, InventoryReservation::getQuantity, Integer::sum));
+    }
+
     @Override
     public List<Order> getUserOrders(Integer userId) {
         return orderRepository.findByUser_UserId(userId);
     }
 
+    // Read-write, so on the primary: the payment success page reads the order right after it was
+    // created, possibly on another instance, before the replica may have it
     @Override
+    @Transactional
     public Order getOrderById(Integer orderId) {
         return orderRepository.findById(orderId).orElse(null);
     }
 
+    @Override
+    @Transactional
+    public Order getOrderByPaymentIntentId(String paymentIntentId) {
+        return orderRepository.findByPaymentIntentId(paymentIntentId).orElse(null);
+    }
+
     @Override
     @Transactional
     public boolean deleteOrder(Integer orderId, Integer userId) {
@@ -154,203 +216,36 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
-    @Transactional
     public Order updateOrderPaymentStatus(Integer orderId, String paymentStatus) {
-        Order order = orderRepository.findById(orderId).orElse(null);
-        if (order == null) {
-            throw new RuntimeException("Order not found");
-        }
-
-        order.setStatus(paymentStatus);
-        return orderRepository.save(order);
-    }
-
-    @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW, isolation = Isolation.SERIALIZABLE)
-    public boolean finalizeOrder(Integer userId, Integer orderId) {
-        logger.info("[ORDER] Starting finalizeOrder for userId: {} and orderId: {}", userId, orderId);
-
-        try {
-            // Verify order exists
+        return inTransactionWithRetry("status update of order " + orderId, () -> {
             Order order = orderRepository.findById(orderId).orElse(null);
             if (order == null) {
-                logger.error("[ORDER] Order not found with ID: {}", orderId);
                 throw new RuntimeException("Order not found");
             }
-            logger.info("[ORDER] Found order with ID: {}, status: {}, total: {}",
-                    orderId, order.getStatus(), order.getTotalAmount());
 
-            // Verify the user owns the order
-            if (!order.getUser().getUserId().equals(userId)) {
-                logger.error("[ORDER] User {} does not own order {}", userId, orderId);
-                throw new RuntimeException("User does not own this order");
-            }
-            logger.info("[ORDER] Verified user {} owns order {}", userId, orderId);
-
-            // Check if a user has any cart items before processing
-            try {
-                List<CartItem> initialCartItems = cartItemRepository.findAllByUserIdAndCartStatusActive(userId);
-                logger.info("[ORDER] User has {} cart items before processing", initialCartItems.size());
-
-                // Log each item for debugging
-                for (CartItem item : initialCartItems) {
-                    logger.info("[ORDER] Cart item before processing: ID={}, productId={}, quantity={}, cartId={}",
-                            item.getCartItemId(), item.getProduct().getProductId(),
-                            item.getQuantity(), item.getCart().getCartId());
-                }
-            } catch (Exception e) {
-                logger.warn("[ORDER] Error checking initial cart items: {}", e.getMessage());
-            }
-
-            // Get active cart
-            Optional<Cart> cartOptional = cartRepository.findActiveCartByUserId(userId);
-            if (cartOptional.isEmpty()) {
-                // Cart already finalized or doesn't exist
-                logger.warn("[ORDER] No active cart found for user {}, order may have already been finalized", userId);
-                return true;
-            }
-
-            Cart cart = cartOptional.get();
-            logger.info("[ORDER] Found active cart with ID: {} for user: {}, status: {}",
-                    cart.getCartId(), userId, cart.getStatus());
-
-            // Log cart items before deletion
-            List<CartItem> cartItems = cart.getCartItems();
-            int itemCount = cartItems != null ? cartItems.size() : 0;
-            logger.info("[ORDER] Cart {} has {} items before deletion", cart.getCartId(), itemCount);
-
-            if (itemCount > 0) {
-                for (CartItem item : cartItems) {
-                    logger.info("[ORDER] Cart item before deletion: ID={}, productId={}, quantity={}",
-                            item.getCartItemId(), item.getProduct().getProductId(), item.getQuantity());
-                }
-            }
-
-            // Use the CartCleanupService to handle the entire checkout process
-            logger.info("[ORDER] Using CartCleanupService to complete checkout process");
-            boolean success = cartCleanupService.completeCheckoutProcess(userId, orderId);
-
-            if (success) {
-                logger.info("[ORDER] Successfully completed checkout process for order: {}", orderId);
-
-                // Verify the cart is empty after cleanup
-                try {
-                    List<CartItem> remainingItems = cartItemRepository.findAllByUserIdAndCartStatusActive(userId);
-                    logger.info("[ORDER] After CartCleanupService, user has {} cart items", remainingItems.size());
-
-                    if (!remainingItems.isEmpty()) {
-                        logger.warn("[ORDER] Items still remain after CartCleanupService");
-
-                        // Log the remaining items
-                        for (CartItem item : remainingItems) {
-                            logger.warn("[ORDER] Remaining item: cartId={}, itemId={}, productId={}, quantity={}",
-                                    item.getCart().getCartId(), item.getCartItemId(),
-                                    item.getProduct().getProductId(), item.getQuantity());
-                        }
-                    }
-                } catch (Exception e) {
-                    logger.error("[ORDER] Error checking remaining items: {}", e.getMessage(), e);
-                }
-            } else {
-                logger.warn("[ORDER] Failed to complete checkout process for order: {}", orderId);
-
-                // Fallback to a direct approach if the service fails
-                logger.info("[ORDER] Falling back to direct approach");
-
-                // Get the cart ID before we modify anything
-                Integer cartId = cart.getCartId();
-
-                // Use JPA to delete cart items
-                logger.info("[ORDER] Using JPA to delete cart items for cart ID: {}", cartId);
-                List<CartItem> itemsToDelete = cartItemRepository.findAllByCartCartId(cartId);
-                logger.info("[ORDER] Found {} items to delete", itemsToDelete.size());
-
-                cartItemRepository.deleteAll(itemsToDelete);
-                cartItemRepository.flush();
-                logger.info("[ORDER] Deleted {} cart items using JPA", itemsToDelete.size());
-
-                // Mark cart as completed
-                logger.info("[ORDER] Marking cart {} as completed using JPA", cartId);
-                cart.setStatus(CartStatus.COMPLETED);
-                cart.setUpdatedAt(LocalDateTime.now());
-                cartRepository.save(cart);
-                cartRepository.flush();
-                logger.info("[ORDER] Updated cart status to COMPLETED");
-
-                // Create a new active cart for the user
-                logger.info("[ORDER] Creating new active cart for user {}", userId);
-                Cart newCart = cartService.createCartForUser(cart.getUser());
-                logger.info("[ORDER] Created new active cart with ID: {} for user ID: {}", newCart.getCartId(), userId);
-
-                // Verify cart is empty after JPA approach
-                try {
-                    List<CartItem> remainingItems = cartItemRepository.findAllByCartCartId(cartId);
-                    int remainingCount = remainingItems.size();
-
-                    logger.info("[ORDER] After JPA approach, cart {} has {} items remaining", cartId, remainingCount);
-
-                    if (remainingCount > 0) {
-                        logger.warn("[ORDER] Items STILL remain after JPA approach");
-
-                        // Log remaining items
-                        for (CartItem item : remainingItems) {
-                            logger.warn("[ORDER] Remaining item: ID={}, productId={}, quantity={}",
-                                    item.getCartItemId(), item.getProduct().getProductId(), item.getQuantity());
-                        }
-
-                        // Try one more time with individual deletes
-                        try {
-                            logger.info("[ORDER] Attempting final individual deletes");
-                            int finalDeleted = 0;
-                            for (CartItem item : remainingItems) {
-                                cartItemRepository.delete(item);
-                                finalDeleted++;
-                            }
-                            cartItemRepository.flush();
-                            logger.info("[ORDER] Final individual deletes removed {} items", finalDeleted);
-                        } catch (Exception e) {
-                            logger.error("[ORDER] Error in final individual deletes: {}", e.getMessage(), e);
-                        }
-                    }
-                } catch (Exception e) {
-                    logger.error("[ORDER] Error checking remaining items after JPA approach: {}", e.getMessage(), e);
-                }
-            }
+            // Written with a version check, so a concurrent change fails instead of being overwritten
+            order.setStatus(paymentStatus);
+            return orderRepository.save(order);
+        });
+    }
 
-            // Final verification
+    /**
+     * Run an operation in a READ COMMITTED transaction, starting it again when it loses a race:
+     * a row version changed, a deadlock or lock timeout, or a unique key taken by a concurrent
+     * request. Each attempt reads the current state again.
+     */
+    private <T> T inTransactionWithRetry(String operation, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
             try {
-                List<CartItem> finalCheck = cartItemRepository.findAllByUserIdAndCartStatusActive(userId);
-                logger.info("[ORDER] Final verification: User has {} active cart items", finalCheck.size());
-
-                if (!finalCheck.isEmpty()) {
-                    logger.warn("[ORDER] Cart items STILL exist after all cleanup attempts!");
-
-                    // Log remaining items
-                    for (CartItem item : finalCheck) {
-                        logger.warn("[ORDER] Final remaining item: ID={}, productId={}, quantity={}, cartId={}",
-                                item.getCartItemId(), item.getProduct().getProductId(),
-                                item.getQuantity(), item.getCart().getCartId());
-                    }
-
-                    // Try one more time with the CartCleanupService
-                    try {
-                        logger.info("[ORDER] Trying CartCleanupService again for final cleanup");
-                        boolean cleanupSuccess = cartCleanupService.completeCheckoutProcess(userId, orderId);
-                        logger.info("[ORDER] CartCleanupService retry result: {}", cleanupSuccess);
-                    } catch (Exception e) {
-                        logger.error("[ORDER] Error in CartCleanupService retry: {}", e.getMessage(), e);
-                    }
-                } else {
-                    logger.info("[ORDER] Cart is empty after all cleanup attempts");
+                return readCommittedTransaction.execute(status -> work.get());
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    logger.error("[ORDER] Giving up {} after {} attempts: {}", operation, attempt, e.getMessage());
+                    throw e;
                 }
-            } catch (Exception e) {
-                logger.error("[ORDER] Error in final verification: {}", e.getMessage(), e);
+                logger.warn("[ORDER] Conflict in {} (attempt {} of {}), retrying: {}",
+                        operation, attempt, MAX_ATTEMPTS, e.getMessage());
             }
-
-            return true;
-        } catch (Exception e) {
-            logger.error("[ORDER] Error finalizing order: {}", e.getMessage(), e);
-            throw e;
         }
     }
 }
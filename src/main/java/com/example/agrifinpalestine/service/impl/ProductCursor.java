@@ -0,0 +1,238 @@
+package com.example.agrifinpalestine.service.impl;
+
+import com.example.agrifinpalestine.dto.ProductListingRow;
+import com.example.agrifinpalestine.exception.product.InvalidProductCursorException;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Opaque continuation token for cursor paginated product listings.
+ *
+ * Database listings use a keyset cursor holding the sort key and product ID of the last
+ * product returned, so the next page is a direct index seek instead of an OFFSET scan.
+ * Keyword searches answered by the search index use a relevance cursor holding the
+ * position in the ranked result list, which is already held in memory.
+ */
+public final class ProductCursor {
+
+    private static final String VERSION = "1";
+    private static final String KEYSET = "k";
+    private static final String RELEVANCE = "r";
+    private static final String SEPARATOR = "|";
+
+    private static final String PRODUCT_ID = "productId";
+
+    private final String sortProperty;
+    private final Sort.Direction direction;
+    private final Integer lastProductId;
+    private final Object lastSortValue;
+    private final int offset;
+
+    private ProductCursor(String sortProperty, Sort.Direction direction, Integer lastProductId,
+                          Object lastSortValue, int offset) {
+        this.sortProperty = sortProperty;
+        this.direction = direction;
+        this.lastProductId = lastProductId;
+        this.lastSortValue = lastSortValue;
+        this.offset = offset;
+    }
+
+    /**
+     * Create a keyset cursor positioned after the given listing row
+     * @param sortProperty the resolved sort property
+     * @param direction the sort direction
+     * @param lastRow the last row of the current page
+     * @return the cursor
+     */
+    public static ProductCursor after(String sortProperty, Sort.Direction direction, ProductListingRow lastRow) {
+        return after(sortProperty, direction, lastRow.getProductId(), sortValue(sortProperty, lastRow));
+    }
+
+    /**
+     * Create a keyset cursor positioned after the given sort key
+     * @param sortProperty the resolved sort property
+     * @param direction the sort direction
+     * @param lastProductId the product ID of the last row of the current page
+     * @param lastSortValue the sort property value of that row; ignored when sorting by productId
+     * @return the cursor
+     */
+    public static ProductCursor after(String sortProperty, Sort.Direction direction,
+                                      Integer lastProductId, Object lastSortValue) {
+        return new ProductCursor(sortProperty, direction, lastProductId,
+                PRODUCT_ID.equals(sortProperty) ? null : lastSortValue, 0);
+    }
+
+    /**
+     * Create a relevance cursor positioned at the given offset of the ranked search results
+     * @param sortProperty the resolved sort property used to break relevance ties
+     * @param direction the sort direction
+     * @param offset the number of results already returned
+     * @return the cursor
+     */
+    public static ProductCursor atOffset(String sortProperty, Sort.Direction direction, int offset) {
+        return new ProductCursor(sortProperty, direction, null, null, offset);
+    }
+
+    /**
+     * Map a client supplied sort field to a product property that supports keyset pagination
+     * @param sortBy the requested sort field, e.g. "name" or "price"
+     * @return the product property; productId for unknown fields
+     */
+    public static String resolveSortProperty(String sortBy) {
+        if (sortBy == null) {
+            return PRODUCT_ID;
+        }
+        switch (sortBy) {
+            case "name":
+            case "productName":
+                return "productName";
+            case "price":
+                return "price";
+            case "createdAt":
+                return "createdAt";
+            default:
+                return PRODUCT_ID;
+        }
+    }
+
+    /**
+     * Get the sort for a keyset listing; productId is always the final key so the order is total
+     * @param sortProperty the resolved sort property
+     * @param direction the sort direction
+     * @return the sort
+     */
+    public static Sort keysetSort(String sortProperty, Sort.Direction direction) {
+        if (PRODUCT_ID.equals(sortProperty)) {
+            return Sort.by(direction, PRODUCT_ID);
+        }
+        return Sort.by(direction, sortProperty).and(Sort.by(direction, PRODUCT_ID));
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()}
+     * @param token the token sent by the client
+     * @return the cursor
+     * @throws InvalidProductCursorException if the token is malformed
+     */
+    public static ProductCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The sort value goes last so it may itself contain the separator
+            String[] parts = decoded.split("\\" + SEPARATOR, 6);
+            if (parts.length < 5 || !VERSION.equals(parts[0])) {
+                throw new InvalidProductCursorException("Unsupported cursor");
+            }
+
+            String sortProperty = resolveSortProperty(parts[2]);
+            Sort.Direction direction = Sort.Direction.fromString(parts[3]);
+
+            if (RELEVANCE.equals(parts[1])) {
+                return new ProductCursor(sortProperty, direction, null, null, Integer.parseInt(parts[4]));
+            }
+            if (KEYSET.equals(parts[1])) {
+                // Without a sort value field the last row had none, e.g. no price
+                Object sortValue = PRODUCT_ID.equals(sortProperty) || parts.length == 5
+                        ? null : parseSortValue(sortProperty, parts[5]);
+                return new ProductCursor(sortProperty, direction, Integer.valueOf(parts[4]), sortValue, 0);
+            }
+            throw new InvalidProductCursorException("Unsupported cursor");
+        } catch (InvalidProductCursorException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new InvalidProductCursorException("Malformed cursor", e);
+        }
+    }
+
+    /**
+     * Encode the cursor as an opaque URL-safe token
+     * @return the token
+     */
+    public String encode() {
+        String value;
+        if (isRelevance()) {
+            value = String.join(SEPARATOR, VERSION, RELEVANCE, sortProperty, direction.name(), String.valueOf(offset));
+        } else {
+            value = String.join(SEPARATOR, VERSION, KEYSET, sortProperty, direction.name(), String.valueOf(lastProductId));
+            // A null sort value is left out, so that it is not confused with an empty name
+            if (lastSortValue != null) {
+                value += SEPARATOR + lastSortValue;
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Check if this is a relevance cursor for index-backed keyword searches
+     * @return true for relevance cursors, false for keyset cursors
+     */
+    public boolean isRelevance() {
+        return lastProductId == null;
+    }
+
+    /**
+     * Get the offset into the ranked results of a relevance cursor
+     * @return the offset
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Check that the cursor was issued for the given listing order
+     * @param expectedSortProperty the resolved sort property of the current request
+     * @param expectedDirection the sort direction of the current request
+     * @param relevance whether the current request is an index-backed keyword search
+     * @throws InvalidProductCursorException if the cursor belongs to a different listing
+     */
+    public void verify(String expectedSortProperty, Sort.Direction expectedDirection, boolean relevance) {
+        if (!sortProperty.equals(expectedSortProperty) || direction != expectedDirection || isRelevance() != relevance) {
+            throw new InvalidProductCursorException("Cursor does not match the requested sort order");
+        }
+    }
+
+    /**
+     * Get the sort key values of a keyset cursor, in {@link #keysetSort} order
+     * @return the key values of the last product of the previous page; the sort value may be null
+     */
+    public Map<String, Object> toKeys() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        if (!PRODUCT_ID.equals(sortProperty)) {
+            keys.put(sortProperty, lastSortValue);
+        }
+        keys.put(PRODUCT_ID, lastProductId);
+        return keys;
+    }
+
+    private static Object sortValue(String sortProperty, ProductListingRow row) {
+        switch (sortProperty) {
+            case "productName":
+                return row.getProductName();
+            case "price":
+                return row.getPrice();
+            case "createdAt":
+                return row.getCreatedAt();
+            default:
+                return null;
+        }
+    }
+
+    private static Object parseSortValue(String sortProperty, String value) {
+        switch (sortProperty) {
+            case "productName":
+                return value;
+            // Earlier tokens encoded a null sort value as an empty string
+            case "price":
+                return value.isEmpty() ? null : new BigDecimal(value);
+            case "createdAt":
+                return value.isEmpty() ? null : LocalDateTime.parse(value);
+            default:
+                throw new InvalidProductCursorException("Unsupported cursor sort: " + sortProperty);
+        }
+    }
+}
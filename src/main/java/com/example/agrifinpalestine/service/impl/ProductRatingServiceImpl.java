@@ -0,0 +1,74 @@
+package com.example.agrifinpalestine.service.impl;
+
+import com.example.agrifinpalestine.Entity.ProductRatingSummary;
+import com.example.agrifinpalestine.Entity.Review;
+import com.example.agrifinpalestine.Repository.ProductRatingSummaryRepository;
+import com.example.agrifinpalestine.Repository.ReviewRepository;
+import com.example.agrifinpalestine.service.ProductRatingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class ProductRatingServiceImpl implements ProductRatingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductRatingServiceImpl.class);
+
+    private final ReviewRepository reviewRepository;
+    private final ProductRatingSummaryRepository ratingSummaryRepository;
+
+    @Autowired
+    public ProductRatingServiceImpl(ReviewRepository reviewRepository,
+                                    ProductRatingSummaryRepository ratingSummaryRepository) {
+        this.reviewRepository = reviewRepository;
+        this.ratingSummaryRepository = ratingSummaryRepository;
+    }
+
+    @Override
+    @Transactional
+    public Review saveReview(Review review) {
+        Review savedReview = reviewRepository.save(review);
+        ratingSummaryRepository.addRating(savedReview.getProduct().getProductId(), savedReview.getRating());
+        logger.debug("Added rating {} to summary of product {}",
+                savedReview.getRating(), savedReview.getProduct().getProductId());
+        return savedReview;
+    }
+
+    @Override
+    @Transactional
+    public void deleteReview(Review review) {
+        reviewRepository.delete(review);
+        int updated = ratingSummaryRepository.removeRating(review.getProduct().getProductId(), review.getRating());
+        if (updated == 0) {
+            logger.warn("No rating summary found for product {} while deleting review {}",
+                    review.getProduct().getProductId(), review.getReviewId());
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Integer, ProductRatingSummary> getSummaries(Collection<Integer> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        return ratingSummaryRepository.findByProductIdIn(productIds).stream()
+                .collect(Collectors.toMap(ProductRatingSummary::getProductId, Function.identity()));
+    }
+
+    @Override
+    @Transactional
+    public int rebuildSummaries() {
+        int rows = ratingSummaryRepository.rebuildAllFromReviews();
+        logger.info("Rebuilt product rating summaries ({} rows affected)", rows);
+        return rows;
+    }
+}
@@ -2,26 +2,33 @@ package com.example.agrifinpalestine.service.impl;
 
 import com.example.agrifinpalestine.Entity.Product;
 import com.example.agrifinpalestine.Entity.ProductCategory;
-import com.example.agrifinpalestine.Entity.Review;
+import com.example.agrifinpalestine.Entity.ProductRatingSummary;
 import com.example.agrifinpalestine.Entity.Store;
 import com.example.agrifinpalestine.Repository.ProductCategoryRepository;
+import com.example.agrifinpalestine.Repository.ProductRatingSummaryRepository;
 import com.example.agrifinpalestine.Repository.ProductRepository;
-import com.example.agrifinpalestine.Repository.ReviewRepository;
+import com.example.agrifinpalestine.Repository.ProductSpecifications;
 import com.example.agrifinpalestine.Repository.StoreRepository;
+import com.example.agrifinpalestine.dto.CursorPageResponse;
+import com.example.agrifinpalestine.dto.ProductListingRow;
 import com.example.agrifinpalestine.dto.ProductRequest;
 import com.example.agrifinpalestine.dto.ProductResponse;
 import com.example.agrifinpalestine.dto.ProductSearchRequest;
+import com.example.agrifinpalestine.dto.ProductSuggestionResponse;
 import com.example.agrifinpalestine.exception.product.CategoryNotFoundException;
 import com.example.agrifinpalestine.exception.product.ProductCreationException;
 import com.example.agrifinpalestine.exception.product.ProductDeletionException;
 import com.example.agrifinpalestine.exception.product.ProductNotFoundException;
 import com.example.agrifinpalestine.exception.product.ProductUpdateException;
 import com.example.agrifinpalestine.exception.store.StoreNotFoundException;
+import com.example.agrifinpalestine.search.ProductSearchHits;
+import com.example.agrifinpalestine.search.ProductSearchIndex;
 import com.example.agrifinpalestine.service.ProductService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -30,9 +37,13 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -43,17 +54,20 @@ public class ProductServiceImpl implements ProductService {
     private final ProductRepository productRepository;
     private final StoreRepository storeRepository;
     private final ProductCategoryRepository categoryRepository;
-    private final ReviewRepository reviewRepository;
+    private final ProductRatingSummaryRepository ratingSummaryRepository;
+    private final ProductSearchIndex productSearchIndex;
 
     @Autowired
     public ProductServiceImpl(ProductRepository productRepository,
                              StoreRepository storeRepository,
                              ProductCategoryRepository categoryRepository,
-                             ReviewRepository reviewRepository) {
+                             ProductRatingSummaryRepository ratingSummaryRepository,
+                             ProductSearchIndex productSearchIndex) {
         this.productRepository = productRepository;
         this.storeRepository = storeRepository;
         this.categoryRepository = categoryRepository;
-        this.reviewRepository = reviewRepository;
+        this.ratingSummaryRepository = ratingSummaryRepository;
+        this.productSearchIndex = productSearchIndex;
     }
 
     @Override
@@ -91,8 +105,11 @@ public class ProductServiceImpl implements ProductService {
             // Save product to database
             Product savedProduct = productRepository.save(product);
 
-            // Return response
-            return mapToProductResponse(savedProduct);
+            // Make the product searchable once the transaction commits
+            productSearchIndex.index(savedProduct);
+
+            // Return response (a new product has no reviews yet)
+            return mapToProductResponse(savedProduct, null);
         } catch (StoreNotFoundException | CategoryNotFoundException e) {
             // Re-throw these exceptions as they are already handled
             throw e;
@@ -104,10 +121,10 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public ProductResponse getProductById(Integer productId) {
-        Product product = productRepository.findById(productId)
+        Product product = productRepository.findDetailByProductId(productId)
                 .orElseThrow(() -> new ProductNotFoundException(productId));
 
-        return mapToProductResponse(product);
+        return mapToProductResponse(product, loadRatingSummary(productId));
     }
 
     @Override
@@ -176,8 +193,11 @@ public class ProductServiceImpl implements ProductService {
             // Save updated product
             Product updatedProduct = productRepository.save(existingProduct);
 
+            // Re-index the product once the transaction commits
+            productSearchIndex.index(updatedProduct);
+
             // Return response
-            return mapToProductResponse(updatedProduct);
+            return mapToProductResponse(updatedProduct, loadRatingSummary(productId));
         } catch (ProductNotFoundException | StoreNotFoundException | CategoryNotFoundException e) {
             // Re-throw these exceptions as they are already handled
             throw e;
@@ -195,6 +215,11 @@ public class ProductServiceImpl implements ProductService {
                 throw new ProductNotFoundException(productId);
             }
             productRepository.deleteById(productId);
+
+            // Drop the rating summary along with the product's reviews
+            ratingSummaryRepository.deleteById(productId);
+
+            productSearchIndex.remove(productId);
             return true;
         } catch (ProductNotFoundException e) {
             // Re-throw this exception as it's already handled
@@ -207,32 +232,60 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public List<ProductResponse> getAllProducts() {
-        List<Product> products = productRepository.findAll();
-        return products.stream()
-                .map(this::mapToProductResponse)
-                .collect(Collectors.toList());
+        List<ProductListingRow> rows = productRepository.findListings(null, Sort.by("productId"), null, 0);
+        return mapToProductResponses(rows);
     }
 
     @Override
     public List<ProductResponse> getProductsByStore(Integer storeId) {
-        Store store = storeRepository.findById(storeId)
+        storeRepository.findById(storeId)
                 .orElseThrow(() -> new StoreNotFoundException(storeId));
 
-        List<Product> products = productRepository.findByStore(store);
-        return products.stream()
-                .map(this::mapToProductResponse)
-                .collect(Collectors.toList());
+        List<ProductListingRow> rows = productRepository.findListings(
+                ProductSpecifications.inStore(storeId), Sort.by("productId"), null, 0);
+        return mapToProductResponses(rows);
     }
 
     @Override
     public List<ProductResponse> getProductsByCategory(Integer categoryId) {
-        ProductCategory category = categoryRepository.findById(categoryId)
+        categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new CategoryNotFoundException(categoryId));
 
-        List<Product> products = productRepository.findByCategory(category);
-        return products.stream()
-                .map(this::mapToProductResponse)
+        List<ProductListingRow> rows = productRepository.findListings(
+                ProductSpecifications.inCategory(categoryId), Sort.by("productId"), null, 0);
+        return mapToProductResponses(rows);
+    }
+
+    @Override
+    public List<ProductResponse> getProductsByIds(List<Integer> productIds) {
+        List<Integer> distinctIds = productIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
                 .collect(Collectors.toList());
+        if (distinctIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Integer, ProductListingRow> rowsById = productRepository.findListingsByIds(distinctIds).stream()
+                .collect(Collectors.toMap(ProductListingRow::getProductId, Function.identity()));
+
+        List<ProductListingRow> rows = new ArrayList<>();
+        for (Integer productId : distinctIds) {
+            ProductListingRow row = rowsById.get(productId);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return mapToProductResponses(rows);
+    }
+
+    @Override
+    public List<ProductResponse> getRelatedProducts(Integer productId, int limit) {
+        Integer categoryId = productRepository.findCategoryIdByProductId(productId)
+                .orElseThrow(() -> new ProductNotFoundException(productId));
+
+        List<ProductListingRow> rows = productRepository.findRelatedListings(categoryId, productId, limit);
+        return mapToProductResponses(rows);
     }
 
     @Override
@@ -248,15 +301,21 @@ public class ProductServiceImpl implements ProductService {
                 searchRequest.getSize(),
                 sort);
 
-        // Perform search using the repository method
-        Page<Product> productPage = productRepository.searchProducts(
-                searchRequest.getStoreId(),
-                searchRequest.getCategoryId(),
-                searchRequest.getKeyword(),
-                searchRequest.getMinPrice(),
-                searchRequest.getMaxPrice(),
-                searchRequest.getIsOrganic(),
-                searchRequest.getIsAvailable(),
+        // Answer keyword searches from the in-memory index
+        if (canSearchIndex(searchRequest.getKeyword())) {
+            return searchIndex(searchRequest.getKeyword(), searchRequest, pageable);
+        }
+
+        // Perform search using the listing projection
+        Page<ProductListingRow> productPage = productRepository.findListings(
+                ProductSpecifications.matching(
+                        searchRequest.getStoreId(),
+                        searchRequest.getCategoryId(),
+                        searchRequest.getKeyword(),
+                        searchRequest.getMinPrice(),
+                        searchRequest.getMaxPrice(),
+                        searchRequest.getIsOrganic(),
+                        searchRequest.getIsAvailable()),
                 pageable);
 
         // Map the results to DTOs
@@ -271,21 +330,177 @@ public class ProductServiceImpl implements ProductService {
             return searchProducts(searchRequest);
         }
 
-        // Perform search using the repository method with the provided pageable
-        Page<Product> productPage = productRepository.searchProducts(
-                searchRequest.getStoreId(),
-                searchRequest.getCategoryId(),
-                searchRequest.getSearchTerm(), // Use searchTerm instead of keyword for compatibility
-                searchRequest.getMinPrice(),
-                searchRequest.getMaxPrice(),
-                searchRequest.getIsOrganic(),
-                searchRequest.getIsAvailable(),
+        // Answer keyword searches from the in-memory index
+        if (canSearchIndex(searchRequest.getSearchTerm())) {
+            return searchIndex(searchRequest.getSearchTerm(), searchRequest, pageable);
+        }
+
+        // Perform search using the listing projection with the provided pageable
+        Page<ProductListingRow> productPage = productRepository.findListings(
+                ProductSpecifications.matching(
+                        searchRequest.getStoreId(),
+                        searchRequest.getCategoryId(),
+                        searchRequest.getSearchTerm(), // Use searchTerm instead of keyword for compatibility
+                        searchRequest.getMinPrice(),
+                        searchRequest.getMaxPrice(),
+                        searchRequest.getIsOrganic(),
+                        searchRequest.getIsAvailable()),
                 pageable);
 
         // Map the results to DTOs
         return productPage.map(this::mapToProductResponse);
     }
 
+    @Override
+    public CursorPageResponse<ProductResponse> searchProductsByCursor(ProductSearchRequest searchRequest) {
+        int size = searchRequest.getSize() != null ? searchRequest.getSize() : 10;
+        String keyword = searchRequest.getSearchTerm() != null ? searchRequest.getSearchTerm() : searchRequest.getKeyword();
+        String sortProperty = ProductCursor.resolveSortProperty(searchRequest.getSortBy());
+        Sort.Direction direction = "desc".equalsIgnoreCase(searchRequest.getSortDirection()) ?
+                Sort.Direction.DESC : Sort.Direction.ASC;
+
+        boolean useIndex = canSearchIndex(keyword);
+        boolean firstPage = searchRequest.getCursor() == null || searchRequest.getCursor().isBlank();
+        ProductCursor cursor = firstPage ? null : ProductCursor.decode(searchRequest.getCursor());
+        if (cursor != null) {
+            cursor.verify(sortProperty, direction, useIndex);
+        }
+
+        // Keyword searches are ranked by the in-memory index; page through the ranked IDs
+        if (useIndex) {
+            int offset = cursor != null ? cursor.getOffset() : 0;
+            ProductSearchHits hits = productSearchIndex.search(keyword, searchRequest, Sort.by(direction, sortProperty),
+                    offset + size);
+            List<Integer> matchingIds = hits.getProductIds();
+            int fromIndex = Math.min(offset, matchingIds.size());
+            int toIndex = Math.min(fromIndex + size, matchingIds.size());
+
+            List<ProductListingRow> rows = loadListingsInOrder(matchingIds.subList(fromIndex, toIndex));
+            boolean hasNext = toIndex < hits.getTotalMatches();
+            String nextCursor = hasNext ? ProductCursor.atOffset(sortProperty, direction, toIndex).encode() : null;
+            return toCursorPage(rows, size, hasNext, nextCursor);
+        }
+
+        // Seek past the last product of the previous page instead of counting and skipping rows;
+        // one extra row tells whether another page follows
+        List<ProductListingRow> rows = productRepository.findListings(
+                ProductSpecifications.matching(
+                        searchRequest.getStoreId(),
+                        searchRequest.getCategoryId(),
+                        keyword,
+                        searchRequest.getMinPrice(),
+                        searchRequest.getMaxPrice(),
+                        searchRequest.getIsOrganic(),
+                        searchRequest.getIsAvailable()),
+                ProductCursor.keysetSort(sortProperty, direction),
+                cursor != null ? cursor.toKeys() : null,
+                size + 1);
+
+        boolean hasNext = rows.size() > size;
+        if (hasNext) {
+            rows = rows.subList(0, size);
+        }
+        String nextCursor = hasNext
+                ? ProductCursor.after(sortProperty, direction, rows.get(rows.size() - 1)).encode()
+                : null;
+        return toCursorPage(rows, size, hasNext, nextCursor);
+    }
+
+    private CursorPageResponse<ProductResponse> toCursorPage(List<ProductListingRow> rows, int size,
+                                                            boolean hasNext, String nextCursor) {
+        return CursorPageResponse.<ProductResponse>builder()
+                .content(mapToProductResponses(rows))
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    @Override
+    public List<ProductSuggestionResponse> suggestProducts(String query, int limit) {
+        if (query == null || query.isBlank() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        if (canSearchIndex(query)) {
+            return productSearchIndex.suggest(query, limit).stream()
+                    .map(document -> ProductSuggestionResponse.builder()
+                            .productId(document.getProductId())
+                            .productName(document.getProductName())
+                            .categoryId(document.getCategoryId())
+                            .categoryName(document.getCategoryNameEn())
+                            .price(document.getPrice())
+                            .build())
+                    .collect(Collectors.toList());
+        }
+
+        // Index not built yet; fall back to a bounded name lookup
+        return productRepository.findByProductNameContainingIgnoreCase(query.trim(), PageRequest.of(0, limit))
+                .stream()
+                .map(product -> ProductSuggestionResponse.builder()
+                        .productId(product.getProductId())
+                        .productName(product.getProductName())
+                        .categoryId(product.getCategory().getCategoryId())
+                        .categoryName(product.getCategory().getCategoryNameEn())
+                        .price(product.getPrice())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Check if a keyword search can be answered by the search index
+     *
+     * @param keyword the search keyword
+     * @return true if the index is available and the keyword contains searchable terms
+     */
+    private boolean canSearchIndex(String keyword) {
+        return keyword != null && productSearchIndex.isReady() && productSearchIndex.isSearchable(keyword);
+    }
+
+    /**
+     * Search products using the in-memory index and load only the requested page from the database
+     *
+     * @param keyword the search keyword
+     * @param searchRequest the filters to apply
+     * @param pageable pagination information; the sort breaks relevance ties
+     * @return Page of ProductResponse objects ordered by relevance
+     */
+    private Page<ProductResponse> searchIndex(String keyword, ProductSearchRequest searchRequest, Pageable pageable) {
+        // Only the results up to the end of the requested page are ranked in order
+        int limit = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE);
+        ProductSearchHits hits = productSearchIndex.search(keyword, searchRequest, pageable.getSort(), limit);
+        List<Integer> matchingIds = hits.getProductIds();
+
+        int fromIndex = (int) Math.min(pageable.getOffset(), matchingIds.size());
+        int toIndex = Math.min(fromIndex + pageable.getPageSize(), matchingIds.size());
+
+        List<ProductListingRow> rows = loadListingsInOrder(matchingIds.subList(fromIndex, toIndex));
+        return new PageImpl<>(mapToProductResponses(rows), pageable, hits.getTotalMatches());
+    }
+
+    /**
+     * Load listing rows by product ID in one query, keeping the given order
+     *
+     * @param productIds the product IDs in result order
+     * @return the rows of the products that still exist
+     */
+    private List<ProductListingRow> loadListingsInOrder(List<Integer> productIds) {
+        Map<Integer, ProductListingRow> rowsById = productRepository.findListingsByIds(productIds).stream()
+                .collect(Collectors.toMap(ProductListingRow::getProductId, Function.identity()));
+
+        List<ProductListingRow> rows = new ArrayList<>();
+        for (Integer productId : productIds) {
+            ProductListingRow row = rowsById.get(productId);
+            if (row != null) {
+                rows.add(row);
+            } else {
+                // Deleted on another node; drop the stale entry
+                productSearchIndex.delete(productId);
+            }
+        }
+        return rows;
+    }
+
     /**
      * Helper method to sort products based on Sort specification
      *
@@ -317,29 +532,37 @@ public class ProductServiceImpl implements ProductService {
         return sortedProducts;
     }
 
-    // Helper method to map Product entity to ProductResponse DTO
-    private ProductResponse mapToProductResponse(Product product) {
-        // Get reviews for this product
-        List<Review> reviews = new ArrayList<>();
-        double averageRating = 0.0;
-
-        // Check if reviewRepository is not null (for tests)
-        if (reviewRepository != null) {
-            try {
-                reviews = reviewRepository.findByProduct_ProductId(product.getProductId());
-
-                // Calculate average rating
-                if (!reviews.isEmpty()) {
-                    averageRating = reviews.stream()
-                            .mapToInt(Review::getRating)
-                            .average()
-                            .orElse(0.0);
-                }
-            } catch (Exception e) {
-                logger.warn("Error fetching reviews for product {}: {}", product.getProductId(), e.getMessage());
-                // Continue with empty reviews list
-            }
+    /**
+     * Map listing rows to DTOs; the rows already carry their rating summary
+     *
+     * @param rows the listing rows to map
+     * @return list of ProductResponse objects
+     */
+    private List<ProductResponse> mapToProductResponses(List<ProductListingRow> rows) {
+        return rows.stream()
+                .map(this::mapToProductResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Load the rating summary for a single product
+     *
+     * @param productId the product ID
+     * @return the rating summary, or null if the product has no reviews
+     */
+    private ProductRatingSummary loadRatingSummary(Integer productId) {
+        try {
+            return ratingSummaryRepository.findById(productId).orElse(null);
+        } catch (Exception e) {
+            logger.warn("Error fetching rating summary for product {}: {}", productId, e.getMessage());
+            return null;
         }
+    }
+
+    // Helper method to map Product entity to ProductResponse DTO
+    private ProductResponse mapToProductResponse(Product product, ProductRatingSummary ratingSummary) {
+        double averageRating = ratingSummary != null ? ratingSummary.getAverageRating() : 0.0;
+        int reviewCount = ratingSummary != null ? ratingSummary.getReviewCount() : 0;
 
         // Build store response
         Store store = product.getStore();
@@ -380,9 +603,45 @@ public class ProductServiceImpl implements ProductService {
                 .imageUrl(product.getProductImage())
                 .store(storeResponse)
                 .averageRating(averageRating)
-                .reviewCount(reviews.size())
+                .reviewCount(reviewCount)
                 .build();
 
         return response;
     }
+
+    // Helper method to map a listing row to ProductResponse DTO; only the store fields shown in listings are set
+    private ProductResponse mapToProductResponse(ProductListingRow row) {
+        com.example.agrifinpalestine.dto.StoreResponse storeResponse = com.example.agrifinpalestine.dto.StoreResponse.builder()
+                .id(row.getStoreId())
+                .userId(row.getStoreUserId())
+                .name(row.getStoreName())
+                .location(row.getStoreLocation())
+                .build();
+
+        return ProductResponse.builder()
+                .productId(row.getProductId())
+                .storeId(row.getStoreId())
+                .storeName(row.getStoreName())
+                .categoryId(row.getCategoryId())
+                .categoryName(row.getCategoryName())
+                .productName(row.getProductName())
+                .productDescription(row.getProductDescription())
+                .price(row.getPrice())
+                .quantity(row.getQuantity())
+                .unit(row.getUnit())
+                .productImage(row.getProductImage())
+                .isOrganic(row.getIsOrganic())
+                .isAvailable(row.getIsAvailable())
+                .createdAt(row.getCreatedAt())
+                .updatedAt(row.getUpdatedAt())
+                // Additional fields for frontend compatibility
+                .id(row.getProductId())
+                .name(row.getProductName())
+                .description(row.getProductDescription())
+                .imageUrl(row.getProductImage())
+                .store(storeResponse)
+                .averageRating(row.getAverageRating())
+                .reviewCount(row.getReviewCount() != null ? row.getReviewCount() : 0)
+                .build();
+    }
 }
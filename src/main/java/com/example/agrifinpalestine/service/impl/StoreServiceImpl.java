@@ -5,6 +5,7 @@ import com.example.agrifinpalestine.Entity.Store;
 import com.example.agrifinpalestine.Entity.User;
 import com.example.agrifinpalestine.Repository.StoreRepository;
 import com.example.agrifinpalestine.Repository.UserRepository;
+import com.example.agrifinpalestine.cache.ReferenceDataChangedEvent;
 import com.example.agrifinpalestine.exception.auth.SellerRoleRequiredException;
 import com.example.agrifinpalestine.dto.StoreRequest;
 import com.example.agrifinpalestine.dto.StoreResponse;
@@ -14,10 +15,12 @@ import com.example.agrifinpalestine.exception.store.StoreNotFoundException;
 import com.example.agrifinpalestine.exception.store.StoreCreationException;
 import com.example.agrifinpalestine.exception.store.StoreUpdateException;
 import com.example.agrifinpalestine.exception.store.UserAlreadyHasStoreException;
+import com.example.agrifinpalestine.search.ProductSearchIndex;
 import com.example.agrifinpalestine.service.StoreService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -32,11 +35,16 @@ public class StoreServiceImpl implements StoreService {
 
     private final StoreRepository storeRepository;
     private final UserRepository userRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public StoreServiceImpl(StoreRepository storeRepository, UserRepository userRepository) {
+    public StoreServiceImpl(StoreRepository storeRepository, UserRepository userRepository,
+                            ProductSearchIndex productSearchIndex, ApplicationEventPublisher eventPublisher) {
         this.storeRepository = storeRepository;
         this.userRepository = userRepository;
+        this.productSearchIndex = productSearchIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -140,6 +148,7 @@ public class StoreServiceImpl implements StoreService {
 
             // Save updated store
             Store updatedStore = storeRepository.save(existingStore);
+            eventPublisher.publishEvent(new ReferenceDataChangedEvent(Store.class, storeId));
 
             // Return response
             return mapToStoreResponse(updatedStore);
@@ -160,6 +169,10 @@ public class StoreServiceImpl implements StoreService {
                 throw new StoreNotFoundException(storeId);
             }
             storeRepository.deleteById(storeId);
+
+            // The store's products are deleted with it
+            productSearchIndex.removeByStore(storeId);
+            eventPublisher.publishEvent(new ReferenceDataChangedEvent(Store.class, storeId));
             return true;
         } catch (StoreNotFoundException e) {
             // Re-throw this exception as it's already handled
@@ -11,6 +11,7 @@ import com.example.agrifinpalestine.dto.LoginRequest;
 import com.example.agrifinpalestine.dto.LoginResponse;
 import com.example.agrifinpalestine.dto.RegistrationRequest;
 import com.example.agrifinpalestine.dto.RegistrationResponse;
+import com.example.agrifinpalestine.exception.ratelimit.PasswordHashingBusyException;
 import com.example.agrifinpalestine.security.TokenManager;
 import com.example.agrifinpalestine.security.RoleManager;
 import com.example.agrifinpalestine.security.UserDetailsImpl;
@@ -125,7 +126,13 @@ public class UserServiceImpl implements UserService {
                     .success(true)
                     .build();
 
+        } catch (PasswordHashingBusyException e) {
+            // Surfaced as 429 so that clients retry instead of reporting wrong credentials
+            throw e;
         } catch (AuthenticationException e) {
+            if (e.getCause() instanceof PasswordHashingBusyException busy) {
+                throw busy;
+            }
             logger.error("Authentication failed: {}", e.getMessage());
             return LoginResponse.builder()
                     .message("Invalid username or password")
@@ -217,6 +224,8 @@ public class UserServiceImpl implements UserService {
                     .message("Registration successful")
                     .success(true)
                     .build();
+        } catch (PasswordHashingBusyException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error during registration: {}", e.getMessage());
             return RegistrationResponse.builder()
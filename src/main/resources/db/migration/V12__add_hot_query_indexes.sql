@@ -0,0 +1,11 @@
+-- Indexes for the most frequent lookups. Foreign keys already index their own column,
+-- e.g. reviews(product_id) and cart_items(cart_id); these cover the remaining filters and sorts.
+
+-- CartRepository.findFirstByUserUserIdAndStatusOrderByUpdatedAtDesc: filter and sort from the index
+CREATE INDEX idx_carts_user_status_updated ON carts (user_id, status, updated_at);
+
+-- Product listings filtered by category and availability and sorted or ranged by price
+CREATE INDEX idx_products_category_available_price ON products (category_id, is_available, price);
+
+-- StoreRepository.findByUser_Region joins stores to users filtered by region
+CREATE INDEX idx_users_region ON users (region);
@@ -0,0 +1,22 @@
+-- Order items, products and reviews take their ids from this table in blocks of 50 instead of
+-- AUTO_INCREMENT, so that Hibernate can send their inserts as JDBC batches. Hibernate creates
+-- the same table on new databases.
+CREATE TABLE IF NOT EXISTS id_generators (
+    sequence_name VARCHAR(255) NOT NULL PRIMARY KEY,
+    next_val BIGINT
+);
+
+-- The pooled optimizer hands out the block below the stored value, so each counter starts a
+-- full block above the largest id already in use. The seed rows are selected through a derived
+-- table so that the update can refer to them, as MySQL only allows a row alias after VALUES
+INSERT INTO id_generators (sequence_name, next_val)
+SELECT * FROM (SELECT 'order_items' AS sequence_name, COALESCE(MAX(item_id), 0) + 51 AS next_val FROM order_items) AS seed
+ON DUPLICATE KEY UPDATE next_val = GREATEST(id_generators.next_val, seed.next_val);
+
+INSERT INTO id_generators (sequence_name, next_val)
+SELECT * FROM (SELECT 'products' AS sequence_name, COALESCE(MAX(product_id), 0) + 51 AS next_val FROM products) AS seed
+ON DUPLICATE KEY UPDATE next_val = GREATEST(id_generators.next_val, seed.next_val);
+
+INSERT INTO id_generators (sequence_name, next_val)
+SELECT * FROM (SELECT 'reviews' AS sequence_name, COALESCE(MAX(review_id), 0) + 51 AS next_val FROM reviews) AS seed
+ON DUPLICATE KEY UPDATE next_val = GREATEST(id_generators.next_val, seed.next_val);
@@ -13,8 +13,8 @@ async function validateToken(redirectOnFailure = true, redirectUrl = window.loca
     try {
         console.log('Validating authentication token...');
 
-        // Get token from localStorage
-        const token = localStorage.getItem('token');
+        // Get token from localStorage, or renew it from the refresh token cookie
+        const token = localStorage.getItem('token') || await refreshAccessToken();
 
         // If no token, handle unauthenticated state
         if (!token) {
@@ -71,6 +71,30 @@ async function validateToken(redirectOnFailure = true, redirectUrl = window.loca
     }
 }
 
+/**
+ * Get a new access token using the HttpOnly refresh token cookie
+ * @returns {Promise<string|null>} - The new access token, or null if the user has to log in again
+ */
+async function refreshAccessToken() {
+    try {
+        const response = await fetch('/api/auth/refresh', {
+            method: 'POST',
+            credentials: 'include'
+        });
+
+        if (!response.ok) {
+            return null;
+        }
+
+        const data = await response.json();
+        localStorage.setItem('token', data.token);
+        return data.token;
+    } catch (error) {
+        console.error('Error refreshing token:', error);
+        return null;
+    }
+}
+
 /**
  * Redirect to login page with a redirect URL
  * @param {string} redirectUrl - URL to redirect to after login
@@ -144,11 +168,23 @@ async function authenticatedFetch(url, options = {}, validateTokenFirst = true,
         });
 
         // Make request with validated headers
-        const response = await fetch(url, {
+        let response = await fetch(url, {
             ...options,
             headers
         });
 
+        // The access token may have expired, renew it once and retry
+        if (response.status === 401) {
+            const refreshedToken = await refreshAccessToken();
+            if (refreshedToken) {
+                headers.set('Authorization', `Bearer ${refreshedToken}`);
+                response = await fetch(url, {
+                    ...options,
+                    headers
+                });
+            }
+        }
+
         // Handle 401 Unauthorized responses
         if (response.status === 401) {
             localStorage.removeItem('token');
@@ -83,12 +83,16 @@ function initCheckout() {
         // Disable the submit button to prevent multiple submissions
         setLoading(true);
 
+        // ID of the payment intent whose stock is reserved, released again if the payment fails
+        let reservedPaymentIntentId = null;
+
         // Create payment intent on the server
         createPaymentIntent()
             .then(function(result) {
                 if (result.error) {
                     throw new Error(result.error);
                 }
+                reservedPaymentIntentId = result.paymentIntentId;
 
                 // Confirm the card payment with the client secret
                 return stripe.confirmCardPayment(result.clientSecret, {
@@ -104,6 +108,7 @@ function initCheckout() {
                 if (result.error) {
                     // Show error to customer
                     showError(result.error.message);
+                    releaseReservation(reservedPaymentIntentId);
                 } else {
                     // Payment succeeded
                     if (result.paymentIntent.status === 'succeeded') {
@@ -322,6 +327,34 @@ async function createPaymentIntent() {
     }
 }
 
+/**
+ * Return the stock reserved for a payment that failed
+ */
+async function releaseReservation(paymentIntentId) {
+    if (!paymentIntentId) {
+        return;
+    }
+    try {
+        const csrfToken = document.getElementById('csrf-token')?.value;
+        const headers = {
+            'Content-Type': 'application/json'
+        };
+
+        if (csrfToken) {
+            headers['X-CSRF-TOKEN'] = csrfToken;
+        }
+
+        await fetch('/api/checkout/release-reservation', {
+            method: 'POST',
+            headers: headers,
+            body: JSON.stringify({ paymentIntentId: paymentIntentId })
+        });
+    } catch (error) {
+        // The reservation also expires on the server
+        console.error('Error releasing reservation:', error);
+    }
+}
+
 /**
  * Notify the server that payment was successful
  */
@@ -336,92 +369,6 @@ async function notifyPaymentSuccess(paymentIntentId) {
         localStorage.setItem('last_payment_intent', paymentIntentId);
         localStorage.setItem('payment_timestamp', new Date().toISOString());
 
-        // First, try to clear the cart directly with multiple retries
-        let cartCleared = false;
-        const maxRetries = 3;
-
-        // Get the order ID if available from the response
-        let orderId = null;
-
-        for (let attempt = 1; attempt <= maxRetries; attempt++) {
-            try {
-                console.log(`Attempting to clear cart before payment notification (attempt ${attempt} of ${maxRetries})`);
-
-                // Try force mode first
-                console.log(`Using force mode for cart clearing (attempt ${attempt})`);
-                try {
-                    const forceResponse = await fetch('/api/cart/force-clear', {
-                        method: 'DELETE',
-                        headers: {
-                            'Content-Type': 'application/json'
-                        }
-                    });
-
-                    if (forceResponse.ok) {
-                        const forceResult = await forceResponse.json();
-                        console.log(`Force mode cart clearing successful (attempt ${attempt}):`, forceResult);
-                        cartCleared = true;
-                        break; // Exit the retry loop if successful
-                    } else {
-                        console.warn(`Force mode cart clearing failed (attempt ${attempt}): ${forceResponse.status}`);
-                    }
-                } catch (forceError) {
-                    console.error(`Error with force mode cart clearing (attempt ${attempt}):`, forceError);
-                }
-
-                // Try the comprehensive endpoint if we have an order ID
-                if (orderId) {
-                    console.log(`Using comprehensive cart clearing with orderId: ${orderId}`);
-                    try {
-                        const comprehensiveResponse = await fetch(`/api/cart/clear-after-payment?orderId=${orderId}`, {
-                            method: 'DELETE',
-                            headers: {
-                                'Content-Type': 'application/json'
-                            }
-                        });
-
-                        if (comprehensiveResponse.ok) {
-                            const comprehensiveResult = await comprehensiveResponse.json();
-                            console.log(`Comprehensive cart clearing successful (attempt ${attempt}):`, comprehensiveResult);
-                            cartCleared = true;
-                            break; // Exit the retry loop if successful
-                        } else {
-                            console.warn(`Comprehensive cart clearing failed (attempt ${attempt}): ${comprehensiveResponse.status}`);
-                        }
-                    } catch (comprehensiveError) {
-                        console.error(`Error with comprehensive cart clearing (attempt ${attempt}):`, comprehensiveError);
-                    }
-                }
-
-                // Fall back to the regular clear endpoint
-                const clearResponse = await fetch('/api/cart/clear', {
-                    method: 'DELETE',
-                    headers: {
-                        'Content-Type': 'application/json'
-                    }
-                });
-
-                if (clearResponse.ok) {
-                    const clearResult = await clearResponse.json();
-                    console.log(`Cart cleared from database (attempt ${attempt}):`, clearResult);
-                    cartCleared = true;
-                    break; // Exit the retry loop if successful
-                } else {
-                    console.warn(`Cart clear request failed with status: ${clearResponse.status}`);
-                }
-            } catch (clearError) {
-                console.error(`Error clearing cart (attempt ${attempt}):`, clearError);
-                // Wait a short time before retrying
-                if (attempt < maxRetries) {
-                    await new Promise(resolve => setTimeout(resolve, 500 * attempt));
-                }
-            }
-        }
-
-        if (!cartCleared) {
-            console.warn('Failed to clear cart after multiple attempts. Continuing with payment notification.');
-        }
-
         // Get CSRF token
         const csrfToken = document.getElementById('csrf-token')?.value;
         const headers = {
@@ -433,6 +380,8 @@ async function notifyPaymentSuccess(paymentIntentId) {
             headers['X-CSRF-TOKEN'] = csrfToken;
         }
 
+        // The server creates the order and empties the cart in one transaction,
+        // so the cart must not be cleared before this call
         console.log('Sending payment success notification to server');
         const response = await fetch('/api/checkout/payment-success', {
             method: 'POST',
@@ -444,121 +393,8 @@ async function notifyPaymentSuccess(paymentIntentId) {
         const responseData = await response.json();
         console.log('Payment success notification response data:', responseData);
 
-        // Try to clear the cart again after payment notification with multiple retries
-        if (!cartCleared) {
-            // Get the order ID from the response if available
-            if (responseData && responseData.orderId) {
-                orderId = responseData.orderId;
-                console.log(`Order ID from response: ${orderId}`);
-
-                // Try force mode first
-                for (let attempt = 1; attempt <= maxRetries; attempt++) {
-                    try {
-                        console.log(`Attempting force mode cart clearing after payment (attempt ${attempt} of ${maxRetries})`);
-                        const forceResponse = await fetch('/api/cart/force-clear', {
-                            method: 'DELETE',
-                            headers: {
-                                'Content-Type': 'application/json'
-                            }
-                        });
-
-                        if (forceResponse.ok) {
-                            const forceResult = await forceResponse.json();
-                            console.log(`Force mode cart clearing successful after payment (attempt ${attempt}):`, forceResult);
-                            cartCleared = true;
-                            // Store the order ID in localStorage for use in the success page
-                            if (orderId) localStorage.setItem('last_order_id', orderId);
-                            break; // Exit the retry loop if successful
-                        } else {
-                            console.warn(`Force mode cart clearing failed after payment (attempt ${attempt}): ${forceResponse.status}`);
-                        }
-                    } catch (forceError) {
-                        console.error(`Error with force mode cart clearing after payment (attempt ${attempt}):`, forceError);
-                        // Wait a short time before retrying
-                        if (attempt < maxRetries) {
-                            await new Promise(resolve => setTimeout(resolve, 500 * attempt));
-                        }
-                    }
-                }
-
-                // If force mode didn't work, try the comprehensive endpoint with the order ID
-                if (!cartCleared) {
-                    for (let attempt = 1; attempt <= maxRetries; attempt++) {
-                        try {
-                            console.log(`Attempting comprehensive cart clearing after payment (attempt ${attempt} of ${maxRetries})`);
-                            const comprehensiveResponse = await fetch(`/api/cart/clear-after-payment?orderId=${orderId}`, {
-                                method: 'DELETE',
-                                headers: {
-                                    'Content-Type': 'application/json'
-                                }
-                            });
-
-                            if (comprehensiveResponse.ok) {
-                                const comprehensiveResult = await comprehensiveResponse.json();
-                                console.log(`Comprehensive cart clearing successful after payment (attempt ${attempt}):`, comprehensiveResult);
-                                cartCleared = true;
-                                // Store the order ID in localStorage for use in the success page
-                                localStorage.setItem('last_order_id', orderId);
-                                break; // Exit the retry loop if successful
-                            } else {
-                                console.warn(`Comprehensive cart clearing failed after payment (attempt ${attempt}): ${comprehensiveResponse.status}`);
-                            }
-                        } catch (comprehensiveError) {
-                            console.error(`Error with comprehensive cart clearing after payment (attempt ${attempt}):`, comprehensiveError);
-                            // Wait a short time before retrying
-                            if (attempt < maxRetries) {
-                                await new Promise(resolve => setTimeout(resolve, 500 * attempt));
-                            }
-                        }
-                    }
-                }
-            }
-
-            // If still not cleared, try the regular endpoint
-            if (!cartCleared) {
-                for (let attempt = 1; attempt <= maxRetries; attempt++) {
-                    try {
-                        console.log(`Attempting to clear cart after payment notification (attempt ${attempt} of ${maxRetries})`);
-                        const clearResponse = await fetch('/api/cart/clear', {
-                            method: 'DELETE',
-                            headers: {
-                                'Content-Type': 'application/json'
-                            }
-                        });
-
-                        if (clearResponse.ok) {
-                            const clearResult = await clearResponse.json();
-                            console.log(`Cart cleared from database after payment notification (attempt ${attempt}):`, clearResult);
-                            cartCleared = true;
-                            break; // Exit the retry loop if successful
-                        } else {
-                            console.warn(`Cart clear request after payment failed with status: ${clearResponse.status}`);
-                        }
-                    } catch (clearError) {
-                        console.error(`Error clearing cart after payment (attempt ${attempt}):`, clearError);
-                        // Wait a short time before retrying
-                        if (attempt < maxRetries) {
-                            await new Promise(resolve => setTimeout(resolve, 500 * attempt));
-                        }
-                    }
-                }
-            }
-
-            if (!cartCleared) {
-                console.warn('Failed to clear cart after payment notification and multiple attempts.');
-                // As a last resort, schedule a final attempt after a delay
-                setTimeout(() => {
-                    fetch('/api/cart/clear', {
-                        method: 'DELETE',
-                        headers: {
-                            'Content-Type': 'application/json'
-                        }
-                    })
-                    .then(response => response.json())
-                    .then(result => console.log('Final delayed cart clear attempt result:', result))
-                    .catch(error => console.error('Error in final delayed cart clear attempt:', error));
-                }, 3000); // Try one more time after 3 seconds
-            }
+        if (responseData && responseData.orderId) {
+            localStorage.setItem('last_order_id', responseData.orderId);
         }
 
         return responseData;
@@ -635,104 +471,17 @@ function showSuccess(result) {
         localStorage.setItem('checkout_success', 'true');
         localStorage.setItem('checkout_timestamp', new Date().toISOString());
 
-        // Call the API to clear the cart in the database with multiple retries
-        const maxRetries = 3;
-        let attempt = 0;
-
-        function attemptClearCart() {
-            attempt++;
-            console.log(`Attempting to clear cart in showSuccess (attempt ${attempt} of ${maxRetries})`);
-
-            return fetch('/api/cart/clear', {
-                method: 'DELETE',
-                headers: {
-                    'Content-Type': 'application/json'
-                }
-            })
-            .then(response => {
-                if (!response.ok) {
-                    throw new Error(`Server returned ${response.status}: ${response.statusText}`);
-                }
-                return response.json();
-            })
-            .then(clearResult => {
-                console.log(`Cart cleared from database (attempt ${attempt}):`, clearResult);
-                return clearResult;
-            })
-            .catch(error => {
-                console.error(`Error clearing cart (attempt ${attempt}):`, error);
-                if (attempt < maxRetries) {
-                    // Wait longer between each retry
-                    const delay = 500 * attempt;
-                    console.log(`Retrying after ${delay}ms...`);
-                    return new Promise(resolve => setTimeout(() => resolve(attemptClearCart()), delay));
-                } else {
-                    console.warn('Failed to clear cart after maximum retries');
-                    // Schedule one final attempt with a longer delay
-                    setTimeout(() => {
-                        console.log('Making final delayed cart clear attempt');
-
-                        // Try to get the order ID from localStorage or result
-                        const orderId = localStorage.getItem('last_order_id') ||
-                                      (result && result.orderId ? result.orderId : null);
-
-                        // Try force mode first
-                        console.log('Using force mode for cart clearing');
-                        fetch('/api/cart/force-clear', {
-                            method: 'DELETE',
-                            headers: {
-                                'Content-Type': 'application/json'
-                            }
-                        })
-                        .then(response => response.json())
-                        .then(result => console.log('Final delayed force mode cart clear attempt result:', result))
-                        .catch(error => console.error('Error in final delayed force mode cart clear attempt:', error));
-
-                        // Try the comprehensive endpoint if we have an order ID
-                        if (orderId) {
-                            console.log(`Using comprehensive cart clearing with orderId: ${orderId}`);
-                            fetch(`/api/cart/clear-after-payment?orderId=${orderId}`, {
-                                method: 'DELETE',
-                                headers: {
-                                    'Content-Type': 'application/json'
-                                }
-                            })
-                            .then(response => response.json())
-                            .then(result => console.log('Final delayed comprehensive cart clear attempt result:', result))
-                            .catch(error => console.error('Error in final delayed comprehensive cart clear attempt:', error));
-                        }
-
-                        // Also try the regular endpoint as a fallback
-                        fetch('/api/cart/clear', {
-                            method: 'DELETE',
-                            headers: {
-                                'Content-Type': 'application/json'
-                            }
-                        })
-                        .then(response => response.json())
-                        .then(result => console.log('Final delayed cart clear attempt result:', result))
-                        .catch(error => console.error('Error in final delayed cart clear attempt:', error));
-                    }, 3000); // Try one more time after 3 seconds
-                    return Promise.resolve({ success: false, error: error.message });
-                }
-            });
-        }
-
-        // Start the cart clearing process
-        attemptClearCart()
-        .finally(() => {
-            // Redirect to the payment success page with order details after a short delay
-            setTimeout(() => {
-                if (result && result.orderId) {
-                    // Redirect with order details
-                    window.location.href = `/payment-success?orderId=${result.orderId}`;
-                } else {
-                    // Redirect with payment intent ID if available
-                    const paymentIntentId = result && result.paymentIntentId ? result.paymentIntentId : '';
-                    window.location.href = `/payment-success?paymentIntentId=${paymentIntentId}`;
-                }
-            }, 1500); // 1.5 second delay to show the success message and allow cart clearing to complete
-        });
+        // The server completed the cart in the same transaction that created the order
+        setTimeout(() => {
+            if (result && result.orderId) {
+                // Redirect with order details
+                window.location.href = `/payment-success?orderId=${result.orderId}`;
+            } else {
+                // Redirect with payment intent ID if available
+                const paymentIntentId = result && result.paymentIntentId ? result.paymentIntentId : '';
+                window.location.href = `/payment-success?paymentIntentId=${paymentIntentId}`;
+            }
+        }, 1500); // 1.5 second delay to show the success message
     } catch (error) {
         console.error('Error redirecting to success page:', error);
         // Fallback to direct redirect
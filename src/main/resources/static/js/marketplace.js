@@ -6,6 +6,8 @@
 let currentPage = 1;
 let totalPages = 1;
 let productsPerPage = 12;
+// Cursor for each visited page (index 0 = first page); the API seeks from these instead of using offsets
+let pageCursors = [''];
 let currentFilters = {
     search: '',
     category: '',
@@ -254,7 +256,7 @@ function setupEventListeners() {
         };
 
         // Reset pagination
-        currentPage = 1;
+        resetPagination();
 
         // Hide search status
         document.getElementById('search-status').classList.add('hidden');
@@ -301,7 +303,7 @@ function applyFilters() {
     currentFilters.organic = organicFilter.checked;
 
     // Reset to first page
-    currentPage = 1;
+    resetPagination();
 
     // Show loading indicator on filter button
     const filterButton = document.getElementById('filter-button');
@@ -348,11 +350,20 @@ function updateSearchStatus() {
         // Hide search status
         searchStatus.classList.add('hidden');
 
-        // Reload products
+        // Reload products from the first page
+        resetPagination();
         loadProducts();
     }, { once: true }); // Use once: true to prevent multiple event listeners
 }
 
+/**
+ * Go back to the first page and forget the cursors of the previous result set
+ */
+function resetPagination() {
+    currentPage = 1;
+    pageCursors = [''];
+}
+
 /**
  * Load products with current filters and pagination
  * @returns {Promise} A promise that resolves when products are loaded
@@ -375,6 +386,8 @@ async function loadProducts() {
         const queryParams = new URLSearchParams();
         queryParams.append('page', currentPage - 1); // API uses 0-based indexing
         queryParams.append('size', productsPerPage);
+        // Cursor pagination keeps deep pages as cheap as the first one
+        queryParams.append('cursor', pageCursors[currentPage - 1] || '');
 
         // Add search parameter if not empty
         if (currentFilters.search && currentFilters.search.trim() !== '') {
@@ -416,7 +429,8 @@ async function loadProducts() {
                 page: currentPage - 1,
                 size: productsPerPage,
                 sortBy: 'productName',
-                sortDirection: 'asc'
+                sortDirection: 'asc',
+                cursor: pageCursors[currentPage - 1] || ''
             };
 
             console.log('Search request body:', searchBody);
@@ -460,6 +474,12 @@ async function loadProducts() {
             // Custom response format from POST endpoint
             products = data.products;
             totalPagesValue = data.totalPages || 1;
+        }
+
+        if (data.hasNext !== undefined) {
+            // Cursor responses have no total count; remember where the next page starts
+            pageCursors[currentPage] = data.nextCursor || '';
+            totalPagesValue = data.hasNext ? currentPage + 1 : currentPage;
         } else if (Array.isArray(data)) {
             // Direct array response
             products = data;
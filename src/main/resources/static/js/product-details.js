@@ -208,7 +208,7 @@ async function loadProductData(productId) {
         loadProductReviews(productId);
 
         // Load related products
-        loadRelatedProducts(product.categoryId);
+        loadRelatedProducts(product.productId);
 
         // Show product content
         showProductContent();
@@ -476,13 +476,13 @@ function displayReviews(reviews) {
 }
 
 /**
- * Load related products
+ * Load the top rated products from the same category
  */
-async function loadRelatedProducts(categoryId) {
-    if (!categoryId) return;
+async function loadRelatedProducts(currentProductId) {
+    if (!currentProductId) return;
 
     try {
-        const response = await fetch(`/api/products/category/${categoryId}`, {
+        const response = await fetch(`/api/products/${currentProductId}/related?limit=4`, {
             method: 'GET',
             headers: {
                 'Content-Type': 'application/json'
@@ -493,12 +493,8 @@ async function loadRelatedProducts(categoryId) {
             throw new Error('Failed to load related products');
         }
 
-        let products = await response.json();
-
-        // Filter out current product and limit to 4 products
-        products = products
-            .filter(p => p.productId !== parseInt(productId))
-            .slice(0, 4);
+        // The server already excludes the current product and limits the result
+        const products = await response.json();
 
         relatedProducts = products;
         console.log('Related products:', relatedProducts);
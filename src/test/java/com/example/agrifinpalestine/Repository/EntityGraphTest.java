@@ -0,0 +1,127 @@
+package com.example.agrifinpalestine.Repository;
+
+import com.example.agrifinpalestine.Entity.CartItem;
+import com.example.agrifinpalestine.Entity.Order;
+import com.example.agrifinpalestine.Entity.OrderItem;
+import com.example.agrifinpalestine.Entity.Product;
+import com.example.agrifinpalestine.Entity.Role;
+import com.example.agrifinpalestine.Entity.User;
+import com.example.agrifinpalestine.support.TestData;
+import org.hibernate.Hibernate;
+import org.hibernate.LazyInitializationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that associations are only loaded by the entity graph of the use case, and that
+ * reading one that was not loaded fails instead of querying, since no session is held open
+ * outside the repository call.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:entity-graphs;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "migration.enabled=false"
+})
+class EntityGraphTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private int buyerId;
+    private int productId;
+    private int cartId;
+
+    @BeforeEach
+    void setUp() {
+        TestData testData = new TestData(jdbcTemplate);
+        productId = testData.insertProductOfNewSeller();
+        buyerId = testData.insertUser(Role.ERole.ROLE_USER);
+        cartId = testData.insertCart(buyerId);
+        testData.insertCartItem(cartId, productId);
+        testData.insertOrderItem(testData.insertOrder(buyerId), productId);
+    }
+
+    @Test
+    void findById_ShouldNotLoadTheStoreOrCategory() {
+        Product product = productRepository.findById(productId).orElseThrow();
+
+        assertFalse(Hibernate.isInitialized(product.getStore()));
+        assertFalse(Hibernate.isInitialized(product.getCategory()));
+        // The foreign key is known without loading the store
+        assertNotNull(product.getStore().getStoreId());
+        assertThrows(LazyInitializationException.class, () -> product.getStore().getStoreName());
+    }
+
+    @Test
+    void findDetailByProductId_ShouldLoadTheStoreAndCategory() {
+        Product product = productRepository.findDetailByProductId(productId).orElseThrow();
+
+        assertTrue(Hibernate.isInitialized(product.getStore()));
+        assertTrue(Hibernate.isInitialized(product.getCategory()));
+        assertFalse(Hibernate.isInitialized(product.getStore().getUser()));
+    }
+
+    @Test
+    void findAllWithProductsByCartId_ShouldLoadTheCartAndProducts() {
+        List<CartItem> items = cartItemRepository.findAllWithProductsByCartId(cartId);
+
+        assertEquals(1, items.size());
+        assertTrue(Hibernate.isInitialized(items.get(0).getCart()));
+        assertTrue(Hibernate.isInitialized(items.get(0).getProduct()));
+        assertFalse(Hibernate.isInitialized(items.get(0).getProduct().getStore()));
+    }
+
+    @Test
+    void findCheckoutItemsByCartId_ShouldLoadOnlyTheProducts() {
+        List<CartItem> items = cartItemRepository.findCheckoutItemsByCartId(cartId);
+
+        assertEquals(1, items.size());
+        assertTrue(Hibernate.isInitialized(items.get(0).getProduct()));
+        assertFalse(Hibernate.isInitialized(items.get(0).getCart()));
+    }
+
+    @Test
+    void findOrdersByUser_ShouldLoadTheItemsAndTheirProducts() {
+        List<Order> orders = orderRepository.findByUser_UserId(buyerId);
+
+        assertEquals(1, orders.size());
+        Order order = orders.get(0);
+        assertFalse(Hibernate.isInitialized(order.getUser()));
+        assertTrue(Hibernate.isInitialized(order.getOrderItems()));
+        OrderItem item = order.getOrderItems().get(0);
+        assertTrue(Hibernate.isInitialized(item.getProduct()));
+        assertEquals(productId, item.getProduct().getProductId());
+    }
+
+    @Test
+    void findUserById_ShouldLoadTheRoles() {
+        User user = userRepository.findById(buyerId).orElseThrow();
+
+        assertTrue(Hibernate.isInitialized(user.getRoles()));
+        assertTrue(user.isBuyer());
+    }
+}
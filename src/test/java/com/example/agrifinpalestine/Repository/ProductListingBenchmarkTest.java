@@ -0,0 +1,172 @@
+package com.example.agrifinpalestine.Repository;
+
+import com.example.agrifinpalestine.Entity.Product;
+import com.example.agrifinpalestine.Entity.Role;
+import com.example.agrifinpalestine.support.StatementRecorder;
+import com.example.agrifinpalestine.support.StatementRecorderConfiguration;
+import com.example.agrifinpalestine.support.TestData;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cost per listing page of loading Product entities, as the listings did before, against the
+ * column projection they use now: SQL statements, rows and bytes sent by MySQL, and bytes
+ * allocated by the calling thread. Runs in a disposable MySQL container with store logos and
+ * banners of a realistic size. Excluded from the default test run, see the
+ * test.excludedGroups property in the pom, and skipped when Docker is not available.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Import(StatementRecorderConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ProductListingBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductListingBenchmarkTest.class);
+
+    private static final int STORES = 50;
+    private static final int PRODUCTS_PER_STORE = 40;
+    private static final int PAGE_SIZE = 20;
+    private static final int PAGES = STORES * PRODUCTS_PER_STORE / PAGE_SIZE;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final Specification<Product> ALL_PRODUCTS =
+            ProductSpecifications.matching(null, null, null, null, null, null, null);
+    // Base64 images as the store form uploads them
+    private static final String IMAGE = "data:image/png;base64," + "A".repeat(48_000);
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    @DynamicPropertySource
+    static void mysqlProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+        registry.add("datasource.replica.enabled", () -> "false");
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StatementRecorder statementRecorder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @BeforeAll
+    void seed() {
+        TestData testData = new TestData(jdbcTemplate);
+        int categoryId = testData.anyCategory();
+        for (int s = 0; s < STORES; s++) {
+            int storeId = testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+            jdbcTemplate.update("UPDATE stores SET store_logo = ?, store_banner = ? WHERE store_id = ?",
+                    IMAGE, IMAGE, storeId);
+            for (int p = 0; p < PRODUCTS_PER_STORE; p++) {
+                testData.insertProduct(storeId, categoryId);
+            }
+        }
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Test
+    void findListings_ShouldCostLessPerPageThanLoadingEntities() {
+        PageCost entities = measure(page -> {
+            for (Product product : productRepository.findAll(ALL_PRODUCTS, pageRequest(page))) {
+                // What the entity mapper read for a listing
+                product.getStore().getStoreName();
+                product.getCategory().getCategoryNameEn();
+            }
+        });
+        PageCost projection = measure(page -> productRepository.findListings(ALL_PRODUCTS, pageRequest(page)).getContent());
+
+        logger.info("Listing page of {} products with entities: {}", PAGE_SIZE, entities);
+        logger.info("Listing page of {} products with the projection: {}", PAGE_SIZE, projection);
+
+        assertTrue(projection.statements() <= entities.statements(), "Projection " + projection + ", entities " + entities);
+        assertTrue(projection.rowsSent() < entities.rowsSent(), "Projection " + projection + ", entities " + entities);
+        assertTrue(projection.bytesSent() < entities.bytesSent(), "Projection " + projection + ", entities " + entities);
+        assertTrue(projection.allocatedBytes() < entities.allocatedBytes(), "Projection " + projection + ", entities " + entities);
+    }
+
+    private static PageRequest pageRequest(int page) {
+        return PageRequest.of(page, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by("productId")));
+    }
+
+    /**
+     * Read every page, after a few warmup rounds, and average the costs per page
+     */
+    private PageCost measure(IntConsumer readPage) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (int page = 0; page < PAGES; page++) {
+                int current = page;
+                readOnlyTransaction.executeWithoutResult(status -> readPage.accept(current));
+            }
+        }
+
+        long statements = 0;
+        Map<String, Object> before = serverCounters();
+        long allocatedBefore = allocatedBytes();
+        for (int page = 0; page < PAGES; page++) {
+            int current = page;
+            statements += statementRecorder.record(
+                    () -> readOnlyTransaction.executeWithoutResult(status -> readPage.accept(current))).size();
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+        Map<String, Object> after = serverCounters();
+
+        return new PageCost(statements / PAGES,
+                (counter(after, "rows_sent") - counter(before, "rows_sent")) / PAGES,
+                (counter(after, "bytes_sent") - counter(before, "bytes_sent")) / PAGES,
+                allocated / PAGES);
+    }
+
+    // Read in one statement, so that reading them adds the same to both measurements
+    private Map<String, Object> serverCounters() {
+        return jdbcTemplate.queryForMap("SELECT "
+                + "(SELECT SUM(sum_rows_sent) FROM performance_schema.events_statements_summary_global_by_event_name) AS rows_sent, "
+                + "(SELECT variable_value FROM performance_schema.global_status WHERE variable_name = 'Bytes_sent') AS bytes_sent");
+    }
+
+    private static long counter(Map<String, Object> counters, String name) {
+        return Long.parseLong(counters.get(name).toString());
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private record PageCost(long statements, long rowsSent, long bytesSent, long allocatedBytes) {
+    }
+}
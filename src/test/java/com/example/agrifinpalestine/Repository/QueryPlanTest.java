@@ -0,0 +1,215 @@
+package com.example.agrifinpalestine.Repository;
+
+import com.example.agrifinpalestine.Entity.CartStatus;
+import com.example.agrifinpalestine.support.StatementRecorder;
+import com.example.agrifinpalestine.support.StatementRecorder.RecordedStatement;
+import com.example.agrifinpalestine.support.StatementRecorderConfiguration;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs EXPLAIN in a disposable MySQL container for the SQL that the hot repository methods
+ * actually send, with their real bind parameters, and checks that each table is read through
+ * the index meant for the query. The schema comes from Hibernate and db/migration as in
+ * production, and enough rows are seeded that the optimizer does not prefer a scan.
+ *
+ * Skipped when Docker is not available.
+ */
+@SpringBootTest
+@Import(StatementRecorderConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    // Above the rows created by the data initializers
+    private static final int BASE_ID = 100_000;
+    private static final int USERS = 2_000;
+    private static final int STORES = 1_000;
+    private static final int CATEGORIES = 20;
+    private static final int PRODUCTS_PER_STORE = 20;
+    private static final int PRODUCTS = STORES * PRODUCTS_PER_STORE;
+    private static final int CART_LINES = 3;
+    private static final int REVIEWS = 20_000;
+    private static final String[] REGIONS = {"Jenin", "Nablus", "Hebron", "Jericho", "Ramallah",
+            "Tulkarm", "Qalqilya", "Bethlehem", "Tubas", "Salfit"};
+
+    @DynamicPropertySource
+    static void mysqlProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+        registry.add("datasource.replica.enabled", () -> "false");
+    }
+
+    @Autowired
+    private StatementRecorder statementRecorder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeAll
+    void seed() {
+        LocalDateTime now = LocalDateTime.now();
+        insertRows("INSERT INTO users (user_id, username, email, password_hash, full_name, region, agriculture_type, "
+                        + "status, is_active, created_at, updated_at) "
+                        + "VALUES (?, ?, ?, 'not-a-hash', ?, ?, 'Olives', 'ACTIVE', TRUE, ?, ?)",
+                USERS, i -> new Object[] {BASE_ID + i, "plan" + i, "plan" + i + "@example.com", "User " + i,
+                        REGIONS[i % REGIONS.length], now, now});
+        insertRows("INSERT INTO stores (store_id, user_id, store_name, created_at, updated_at) VALUES (?, ?, ?, ?, ?)",
+                STORES, i -> new Object[] {BASE_ID + i, BASE_ID + i, "Store " + i, now, now});
+        insertRows("INSERT INTO product_categories (category_id, category_name_en, category_name_ar) VALUES (?, ?, ?)",
+                CATEGORIES, i -> new Object[] {BASE_ID + i, "Category " + i, "Category " + i});
+        insertRows("INSERT INTO products (product_id, store_id, category_id, product_name, price, quantity, unit, "
+                        + "is_available, is_organic, created_at, updated_at) VALUES (?, ?, ?, ?, ?, 100, 'kg', ?, ?, ?, ?)",
+                PRODUCTS, i -> new Object[] {BASE_ID + i, BASE_ID + i / PRODUCTS_PER_STORE, BASE_ID + i % CATEGORIES,
+                        "Product " + i, BigDecimal.valueOf(i % 10_000, 2), i % 4 != 0, i % 3 == 0,
+                        now.minusMinutes(i), now});
+        // Every user has an active and a completed cart, allowed once each by UK_user_active_cart
+        insertRows("INSERT INTO carts (cart_id, user_id, total_price, total_quantity, status, version, created_at, updated_at) "
+                        + "VALUES (?, ?, 0, 0, ?, 0, ?, ?)",
+                USERS * 2, i -> new Object[] {BASE_ID + i, BASE_ID + i / 2,
+                        i % 2 == 0 ? CartStatus.ACTIVE.name() : CartStatus.COMPLETED.name(), now, now});
+        insertRows("INSERT INTO cart_items (cart_id, product_id, quantity, price, created_at, updated_at) "
+                        + "VALUES (?, ?, 1, 10.00, ?, ?)",
+                USERS * CART_LINES, i -> new Object[] {BASE_ID + (i / CART_LINES) * 2, BASE_ID + i % PRODUCTS, now, now});
+        insertRows("INSERT INTO reviews (review_id, product_id, user_id, rating, created_at) VALUES (?, ?, ?, ?, ?)",
+                REVIEWS, i -> new Object[] {BASE_ID + i, BASE_ID + i % PRODUCTS, BASE_ID + i % USERS, 1 + i % 5, now});
+
+        jdbcTemplate.execute("ANALYZE TABLE users, stores, product_categories, products, carts, cart_items, reviews");
+    }
+
+    @Test
+    void findLatestCartByUserAndStatus_ShouldUseTheUserStatusIndex() {
+        assertUsesIndex(() -> cartRepository.findFirstByUserUserIdAndStatusOrderByUpdatedAtDesc(BASE_ID + 1, CartStatus.ACTIVE),
+                "carts", "user_id", "status");
+    }
+
+    @Test
+    void findCartItemByCartAndProduct_ShouldUseTheCartProductKey() {
+        assertUsesIndex(() -> cartItemRepository.findByCartCartIdAndProductProductId(BASE_ID, BASE_ID),
+                "cart_items", "cart_id", "product_id");
+    }
+
+    @Test
+    void findReviewsByProduct_ShouldUseTheProductIndex() {
+        assertUsesIndex(() -> reviewRepository.findResponsesByProductId(BASE_ID + 1),
+                "reviews", "product_id");
+    }
+
+    @Test
+    void findStoresByRegion_ShouldUseTheRegionIndex() {
+        assertUsesIndex(() -> storeRepository.findByUser_Region("Nablus"),
+                "users", "region");
+    }
+
+    @Test
+    void findListingsByCategoryAndPrice_ShouldUseTheCategoryPriceIndex() {
+        assertUsesIndex(() -> productRepository.findListings(
+                        ProductSpecifications.matching(null, BASE_ID + 1, null, new BigDecimal("5"), new BigDecimal("50"), null, true),
+                        PageRequest.of(0, 20, Sort.by("price"))),
+                "products", "category_id", "is_available", "price");
+    }
+
+    @Test
+    void findListingsByStore_ShouldUseTheStoreIndex() {
+        assertUsesIndex(() -> productRepository.findListings(
+                        ProductSpecifications.matching(BASE_ID + 1, null, null, null, null, null, null),
+                        PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "createdAt"))),
+                "products", "store_id");
+    }
+
+    /**
+     * Check that no table of the query is scanned, and that the table is read through an
+     * index whose leading columns are the given ones. Checked by columns rather than by name,
+     * since Hibernate derives the names of foreign key indexes from a hash.
+     */
+    private void assertUsesIndex(Runnable query, String table, String... leadingColumns) {
+        List<RecordedStatement> selects = statementRecorder.record(query).stream()
+                .filter(RecordedStatement::isSelect)
+                .toList();
+        assertFalse(selects.isEmpty(), "The query ran no SELECT statements");
+
+        List<String> usedKeys = new ArrayList<>();
+        boolean expectedKeyUsed = false;
+        for (RecordedStatement select : selects) {
+            List<Map<String, Object>> plan =
+                    jdbcTemplate.queryForList("EXPLAIN " + select.sql(), select.parameters().toArray());
+            for (Map<String, Object> row : plan) {
+                assertNotEquals("ALL", row.get("type"),
+                        "Full scan of " + row.get("table") + " in: " + select.sql() + "\nPlan: " + plan);
+                Object key = row.get("key");
+                if (key != null) {
+                    usedKeys.add(row.get("table") + "." + key);
+                    expectedKeyUsed |= startsWith(indexColumns(table, key.toString()), leadingColumns);
+                }
+            }
+        }
+        assertTrue(expectedKeyUsed, "No index on " + table + " (" + String.join(", ", leadingColumns)
+                + ") was used, the plans used " + usedKeys + " for: " + selects);
+    }
+
+    private List<String> indexColumns(String table, String index) {
+        return jdbcTemplate.queryForList("SELECT column_name FROM information_schema.statistics "
+                        + "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ? ORDER BY seq_in_index",
+                String.class, table, index);
+    }
+
+    private static boolean startsWith(List<String> columns, String... leadingColumns) {
+        if (columns.size() < leadingColumns.length) {
+            return false;
+        }
+        for (int i = 0; i < leadingColumns.length; i++) {
+            if (!columns.get(i).equalsIgnoreCase(leadingColumns[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insertRows(String sql, int count, IntFunction<Object[]> row) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(row.apply(i));
+        }
+        jdbcTemplate.batchUpdate(sql, rows);
+    }
+}
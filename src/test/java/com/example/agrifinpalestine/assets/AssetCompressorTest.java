@@ -0,0 +1,56 @@
+package com.example.agrifinpalestine.assets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssetCompressorTest {
+
+    private Path staticDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        staticDir = Files.createTempDirectory("static");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(staticDir);
+    }
+
+    @Test
+    void compressAll_ShouldWriteGzipVariantsOfCompressibleAssets() throws IOException {
+        Path js = staticDir.resolve("js/i18n/en.js");
+        Files.createDirectories(js.getParent());
+        String script = "const messages = {};\n".repeat(100);
+        Files.writeString(js, script);
+        Files.write(staticDir.resolve("logo.png"), new byte[1024]);
+        Files.writeString(staticDir.resolve("tiny.css"), "body{margin:0}");
+
+        int written = AssetCompressor.compressAll(staticDir);
+
+        assertEquals(1, written);
+        assertFalse(Files.exists(staticDir.resolve("logo.png.gz")));
+        assertFalse(Files.exists(staticDir.resolve("tiny.css.gz")));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(staticDir.resolve("js/i18n/en.js.gz")))) {
+            assertEquals(script, new String(in.readAllBytes()));
+        }
+    }
+
+    @Test
+    void compressAll_ShouldSkipVariantsThatAreUpToDate() throws IOException {
+        Files.writeString(staticDir.resolve("main.css"), ".card { padding: 1rem; }\n".repeat(50));
+
+        assertEquals(1, AssetCompressor.compressAll(staticDir));
+        assertEquals(0, AssetCompressor.compressAll(staticDir));
+    }
+}
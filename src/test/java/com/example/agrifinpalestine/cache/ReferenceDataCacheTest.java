@@ -0,0 +1,110 @@
+package com.example.agrifinpalestine.cache;
+
+import com.example.agrifinpalestine.Entity.ProductCategory;
+import com.example.agrifinpalestine.dto.CategoryRequest;
+import com.example.agrifinpalestine.service.CategoryService;
+import com.example.agrifinpalestine.support.StatementRecorder;
+import com.example.agrifinpalestine.support.StatementRecorder.RecordedStatement;
+import com.example.agrifinpalestine.support.StatementRecorderConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that categories are served from the second-level cache after the first lookup,
+ * and that changes are visible on the next lookup.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reference-data-cache;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "migration.enabled=false"
+})
+@Import(StatementRecorderConfiguration.class)
+class ReferenceDataCacheTest {
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StatementRecorder statementRecorder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void getCategoryById_SecondLookup_ShouldNotQueryTheDatabase() {
+        int categoryId = insertCategory("Olive oil");
+        long hitsBefore = categoryMetrics().getHits();
+
+        assertEquals("Olive oil", categoryService.getCategoryById(categoryId).getNameEn());
+        List<RecordedStatement> statements = statementRecorder.record(() -> {
+            assertEquals("Olive oil", categoryService.getCategoryById(categoryId).getNameEn());
+        });
+
+        assertTrue(statements.isEmpty(), "Cached category was loaded again: " + statements);
+        assertEquals(hitsBefore + 1, categoryMetrics().getHits());
+        assertTrue(categoryMetrics().getHitRatio() > 0);
+    }
+
+    @Test
+    void updateCategory_ShouldServeTheNewStateOnTheNextLookup() {
+        int categoryId = insertCategory("Dates");
+        categoryService.getCategoryById(categoryId);
+
+        CategoryRequest request = new CategoryRequest();
+        request.setNameEn("Medjool dates");
+        categoryService.updateCategory(categoryId, request);
+
+        assertEquals("Medjool dates", categoryService.getCategoryById(categoryId).getNameEn());
+    }
+
+    @Test
+    void onReferenceDataChanged_ShouldDropTheCachedEntry() {
+        int categoryId = insertCategory("Za'atar");
+        categoryService.getCategoryById(categoryId);
+
+        // A change that bypasses Hibernate is only seen once the entry is evicted
+        jdbcTemplate.update("UPDATE product_categories SET category_name_en = ? WHERE category_id = ?",
+                "Wild za'atar", categoryId);
+        assertEquals("Za'atar", categoryService.getCategoryById(categoryId).getNameEn());
+
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ProductCategory.class, categoryId));
+
+        assertEquals("Wild za'atar", categoryService.getCategoryById(categoryId).getNameEn());
+    }
+
+    private CacheRegionMetrics categoryMetrics() {
+        return referenceDataCache.getMetrics().stream()
+                .filter(metrics -> metrics.getRegion().equals(CacheRegions.PRODUCT_CATEGORIES))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private int insertCategory(String name) {
+        return new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("product_categories")
+                .usingGeneratedKeyColumns("category_id")
+                .executeAndReturnKey(Map.of("category_name_en", name, "category_name_ar", name))
+                .intValue();
+    }
+}
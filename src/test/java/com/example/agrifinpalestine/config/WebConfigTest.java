@@ -0,0 +1,28 @@
+package com.example.agrifinpalestine.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.web.servlet.resource.ContentVersionStrategy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebConfigTest {
+
+    @Test
+    void isFingerprintedAsset_ShouldMatchContentVersionedPaths() {
+        ContentVersionStrategy strategy = new ContentVersionStrategy();
+        String version = strategy.getResourceVersion(new ByteArrayResource("console.log('hi');".getBytes()));
+
+        assertTrue(WebConfig.isFingerprintedAsset(strategy.addVersion("/js/common.js", version)));
+        assertTrue(WebConfig.isFingerprintedAsset(strategy.addVersion("/js/i18n/en.js", version)));
+        assertTrue(WebConfig.isFingerprintedAsset(strategy.addVersion("/css/cart-api.css", version)));
+    }
+
+    @Test
+    void isFingerprintedAsset_ShouldNotMatchPlainPaths() {
+        assertFalse(WebConfig.isFingerprintedAsset("/js/common.js"));
+        assertFalse(WebConfig.isFingerprintedAsset("/js/cart-api.js"));
+        assertFalse(WebConfig.isFingerprintedAsset("/api/products/common-5d41402abc4b2a76b9719d911017c592.js"));
+        assertFalse(WebConfig.isFingerprintedAsset(null));
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.agrifinpalestine.controller;
+
+import com.example.agrifinpalestine.Entity.InventoryReservation;
+import com.example.agrifinpalestine.Entity.Order;
+import com.example.agrifinpalestine.Entity.ReservationStatus;
+import com.example.agrifinpalestine.Repository.CartItemRepository;
+import com.example.agrifinpalestine.security.UserDetailsImpl;
+import com.example.agrifinpalestine.service.InventoryService;
+import com.example.agrifinpalestine.service.OrderService;
+import com.example.agrifinpalestine.service.StripeService;
+import com.stripe.model.PaymentIntent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CheckoutControllerTest {
+
+    private static final Integer USER_ID = 7;
+    private static final String PAYMENT_INTENT_ID = "pi_test";
+
+    @Mock
+    private StripeService stripeService;
+
+    @Mock
+    private CartItemRepository cartItemRepository;
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    @InjectMocks
+    private CheckoutController checkoutController;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        UserDetailsImpl user = new UserDetailsImpl(USER_ID, "buyer", "buyer@example.com", null, authorities, true);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, authorities));
+
+        // 2 x 12.50 + 1 x 40.00
+        when(inventoryService.getReservations(USER_ID, PAYMENT_INTENT_ID)).thenReturn(List.of(
+                reservation(1, 2, "12.50"), reservation(2, 1, "40.00")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void paymentSuccess_WithUnconfirmedIntent_ShouldNotCreateAnOrder() throws Exception {
+        when(stripeService.retrievePaymentIntent(PAYMENT_INTENT_ID))
+                .thenReturn(paymentIntent("requires_payment_method", 6500L, "ils"));
+
+        ResponseEntity<Map<String, Object>> response = checkoutController.paymentSuccess(
+                Map.of("paymentIntentId", PAYMENT_INTENT_ID));
+
+        assertEquals(HttpStatus.PAYMENT_REQUIRED, response.getStatusCode());
+        verify(orderService, never()).completeCheckout(any(), any());
+        verify(inventoryService, never()).commit(any(), any());
+        verify(stripeService, never()).refundPaymentIntent(anyString());
+    }
+
+    @Test
+    void paymentSuccess_WithAmountNotMatchingTheReservation_ShouldNotCreateAnOrder() throws Exception {
+        when(stripeService.retrievePaymentIntent(PAYMENT_INTENT_ID))
+                .thenReturn(paymentIntent("succeeded", 100L, "ils"));
+
+        ResponseEntity<Map<String, Object>> response = checkoutController.paymentSuccess(
+                Map.of("paymentIntentId", PAYMENT_INTENT_ID));
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        verify(orderService, never()).completeCheckout(any(), any());
+        verify(inventoryService, never()).commit(any(), any());
+    }
+
+    @Test
+    void paymentSuccess_WithOtherCurrency_ShouldNotCreateAnOrder() throws Exception {
+        when(stripeService.retrievePaymentIntent(PAYMENT_INTENT_ID))
+                .thenReturn(paymentIntent("succeeded", 6500L, "usd"));
+
+        ResponseEntity<Map<String, Object>> response = checkoutController.paymentSuccess(
+                Map.of("paymentIntentId", PAYMENT_INTENT_ID));
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        verify(orderService, never()).completeCheckout(any(), any());
+    }
+
+    @Test
+    void paymentSuccess_WithoutReservation_ShouldNotCreateAnOrder() throws Exception {
+        when(stripeService.retrievePaymentIntent(PAYMENT_INTENT_ID))
+                .thenReturn(paymentIntent("succeeded", 6500L, "ils"));
+        when(inventoryService.getReservations(USER_ID, PAYMENT_INTENT_ID)).thenReturn(List.of());
+
+        ResponseEntity<Map<String, Object>> response = checkoutController.paymentSuccess(
+                Map.of("paymentIntentId", PAYMENT_INTENT_ID));
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        verify(orderService, never()).completeCheckout(any(), any());
+    }
+
+    @Test
+    void paymentSuccess_WithSucceededIntentForTheReservedAmount_ShouldCreateTheOrder() throws Exception {
+        when(stripeService.retrievePaymentIntent(PAYMENT_INTENT_ID))
+                .thenReturn(paymentIntent("succeeded", 6500L, "ils"));
+        Order order = new Order();
+        order.setOrderId(42);
+        order.setOrderDate(LocalDateTime.now());
+        order.setTotalAmount(new BigDecimal("65.00"));
+        when(orderService.completeCheckout(USER_ID, PAYMENT_INTENT_ID)).thenReturn(order);
+
+        ResponseEntity<Map<String, Object>> response = checkoutController.paymentSuccess(
+                Map.of("paymentIntentId", PAYMENT_INTENT_ID));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(42, response.getBody().get("orderId"));
+        verify(orderService).completeCheckout(USER_ID, PAYMENT_INTENT_ID);
+    }
+
+    private static PaymentIntent paymentIntent(String status, Long amount, String currency) {
+        PaymentIntent paymentIntent = new PaymentIntent();
+        paymentIntent.setId(PAYMENT_INTENT_ID);
+        paymentIntent.setStatus(status);
+        paymentIntent.setAmount(amount);
+        paymentIntent.setCurrency(currency);
+        return paymentIntent;
+    }
+
+    private static InventoryReservation reservation(Integer productId, Integer quantity, String unitPrice) {
+        InventoryReservation reservation = new InventoryReservation();
+        reservation.setPaymentIntentId(PAYMENT_INTENT_ID);
+        reservation.setUserId(USER_ID);
+        reservation.setProductId(productId);
+        reservation.setQuantity(quantity);
+        reservation.setUnitPrice(new BigDecimal(unitPrice));
+        reservation.setStatus(ReservationStatus.RESERVED);
+        return reservation;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.agrifinpalestine.controller;
+
+import com.example.agrifinpalestine.Entity.Role;
+import com.example.agrifinpalestine.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Product batch and related product endpoints, on an in-memory database in MySQL mode
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-controller;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "migration.enabled=false"
+})
+@AutoConfigureMockMvc
+class ProductControllerTest {
+
+    private static final int UNKNOWN_PRODUCT_ID = Integer.MAX_VALUE;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestData testData;
+    private int storeId;
+
+    @BeforeEach
+    void setUp() {
+        testData = new TestData(jdbcTemplate);
+        storeId = testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+    }
+
+    @Test
+    void getProductsByIds_ShouldReturnProductsInRequestedOrderWithoutDuplicates() throws Exception {
+        int first = testData.insertProduct(storeId, testData.anyCategory());
+        int second = testData.insertProduct(storeId, testData.anyCategory());
+
+        mockMvc.perform(get("/api/products/batch")
+                        .param("ids", second + "," + first + "," + second + "," + UNKNOWN_PRODUCT_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].productId").value(List.of(second, first)));
+    }
+
+    @Test
+    void getProductsByIds_WithMoreThan100Ids_ShouldReturnBadRequest() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 1; i <= 101; i++) {
+            ids.add(String.valueOf(i));
+        }
+
+        mockMvc.perform(get("/api/products/batch").param("ids", String.join(",", ids)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").exists());
+    }
+
+    @Test
+    void getRelatedProducts_ShouldExcludeTheProductAndUnavailableProducts() throws Exception {
+        int categoryId = testData.insertCategory();
+        int product = testData.insertProduct(storeId, categoryId);
+        int available = testData.insertProduct(storeId, categoryId);
+        int unavailable = testData.insertProduct(storeId, categoryId);
+        jdbcTemplate.update("UPDATE products SET is_available = FALSE WHERE product_id = ?", unavailable);
+        testData.insertProduct(storeId, testData.insertCategory());
+
+        mockMvc.perform(get("/api/products/{productId}/related", product).param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].productId").value(List.of(available)));
+    }
+
+    @Test
+    void getRelatedProducts_ShouldRankUnreviewedProductsAtThePriorMean() throws Exception {
+        int categoryId = testData.insertCategory();
+        int product = testData.insertProduct(storeId, categoryId);
+        int low = testData.insertProduct(storeId, categoryId);
+        int unreviewed = testData.insertProduct(storeId, categoryId);
+        int high = testData.insertProduct(storeId, categoryId);
+        insertRatingSummary(low, 2.5);
+        insertRatingSummary(high, 4.5);
+
+        mockMvc.perform(get("/api/products/{productId}/related", product))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].productId").value(List.of(high, unreviewed, low)));
+    }
+
+    @Test
+    void getRelatedProducts_WithLimitAbove20_ShouldReturnAtMost20() throws Exception {
+        int categoryId = testData.insertCategory();
+        int product = testData.insertProduct(storeId, categoryId);
+        for (int i = 0; i < 25; i++) {
+            testData.insertProduct(storeId, categoryId);
+        }
+
+        mockMvc.perform(get("/api/products/{productId}/related", product).param("limit", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(20));
+    }
+
+    @Test
+    void getRelatedProducts_WithUnknownProduct_ShouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/api/products/{productId}/related", UNKNOWN_PRODUCT_ID))
+                .andExpect(status().isNotFound());
+    }
+
+    private void insertRatingSummary(int productId, double score) {
+        jdbcTemplate.update("INSERT INTO product_rating_summaries (product_id, review_count, rating_sum, "
+                        + "one_star_count, two_star_count, three_star_count, four_star_count, five_star_count, "
+                        + "score, updated_at) VALUES (?, 0, 0, 0, 0, 0, 0, 0, ?, ?)",
+                productId, score, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,746 @@
+package com.example.agrifinpalestine.controller;
+
+import com.example.agrifinpalestine.Entity.Role;
+import com.example.agrifinpalestine.security.TokenManager;
+import com.example.agrifinpalestine.support.StatementRecorder;
+import com.example.agrifinpalestine.support.StatementRecorder.RecordedStatement;
+import com.example.agrifinpalestine.support.StatementRecorderConfiguration;
+import com.example.agrifinpalestine.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Counts the SQL statements that a request to each handler annotated with {@link QueryBudget}
+ * executes, on an in-memory database in MySQL mode. Every GET handler must have a budget.
+ *
+ * Handlers that return lists are requested with 1, 40 and 100 rows of the data they return;
+ * a test fails when the count is different for different sizes, which means the handler runs
+ * a query per returned row. Batch fetching is switched off so that such queries are not hidden
+ * in batches. Every test fails when the count exceeds the budget of the handler, and every
+ * annotated handler must have a test here.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-budget;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.default_batch_fetch_size=1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "migration.enabled=false"
+})
+@AutoConfigureMockMvc
+@Import(StatementRecorderConfiguration.class)
+class QueryBudgetTest {
+
+    private static final int[] SIZES = {1, 40, 100};
+
+    private static final Set<String> COVERED_PATTERNS = Set.of(
+            "/api/admin/users",
+            "/api/admin/users/{id}",
+            "/api/admin/sellers",
+            "/api/admin/buyers",
+            "/api/admin/admins",
+            "/api/admin/dashboard-stats",
+            "/api/admin/locks/metrics",
+            "/api/admin/datasource/metrics",
+            "/api/admin/cache/metrics",
+            "/api/admin/products",
+            "/api/admin/categories",
+            "/api/admin/stores/user/{userId}",
+            "/api/admin/stores/{storeId}",
+            "/api/admin/stores/{storeId}/products",
+            "/api/admin/orders",
+            "/api/auth/me",
+            "/api/auth/check-auth",
+            "/api/auth/logout",
+            "/api/cart",
+            "/api/cart/check/{productId}",
+            "/api/cart/test",
+            "/api/categories",
+            "/api/categories/{categoryId}",
+            "/api/messages",
+            "/api/messages/status/{status}",
+            "/api/messages/{messageId}",
+            "/api/products",
+            "/api/products/all",
+            "/api/products/batch",
+            "/api/products/suggest",
+            "/api/products/user",
+            "/api/products/{productId}",
+            "/api/products/{productId}/related",
+            "/api/products/store/{storeId}",
+            "/api/products/category/{categoryId}",
+            "/api/regions",
+            "/api/regions/stores",
+            "/api/reviews/product/{productId}",
+            "/api/reviews/user/{userId}",
+            "/api/seller/dashboard",
+            "/api/seller/sales",
+            "/api/seller/products",
+            "/api/stores",
+            "/api/stores/{storeId}",
+            "/api/stores/user/{userId}",
+            "/api/stores/region/{region}",
+            "/api/stores/check",
+            "/api/stripe/config",
+            "/api/test/cart/add/{productId}/{quantity}",
+            "/api/test/cart/check",
+            "/api/user-role/is-buyer",
+            "/admin",
+            "/admin/login",
+            "/admin/dashboard",
+            "/admin/store-details",
+            "/seller/dashboard",
+            "/orders",
+            "/checkout-page",
+            "/payment-success",
+            "/",
+            "/login",
+            "/register",
+            "/dashboard",
+            "/products",
+            "/product",
+            "/stores",
+            "/store",
+            "/marketplace",
+            "/product/{productId}",
+            "/edit-product/{productId}",
+            "/edit-profile",
+            "/cart",
+            "/create-store",
+            "/edit-store",
+            "/edit-store/{storeId}",
+            "/add-product",
+            "/edit-product",
+            "/category-management",
+            "/error",
+            "/error/unauthorized");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StatementRecorder statementRecorder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TokenManager tokenManager;
+
+    @Autowired
+    @Qualifier("requestMappingHandlerMapping")
+    private RequestMappingHandlerMapping handlerMapping;
+
+    private TestData testData;
+    private String adminToken;
+
+    @BeforeEach
+    void setUp() {
+        testData = new TestData(jdbcTemplate);
+        adminToken = tokenFor(testData.insertUser(Role.ERole.ROLE_ADMIN));
+    }
+
+    @Test
+    void everyGetHandler_ShouldHaveABudget() {
+        Set<String> unbudgeted = new TreeSet<>();
+        handlerMapping.getHandlerMethods().forEach((mapping, handler) -> {
+            Set<RequestMethod> methods = mapping.getMethodsCondition().getMethods();
+            boolean get = methods.isEmpty() || methods.contains(RequestMethod.GET);
+            if (get && handler.getBeanType().getPackageName().startsWith("com.example.agrifinpalestine")
+                    && !handler.hasMethodAnnotation(QueryBudget.class)) {
+                unbudgeted.add(handler.getShortLogMessage());
+            }
+        });
+
+        assertTrue(unbudgeted.isEmpty(), "GET handlers without a @QueryBudget: " + unbudgeted);
+    }
+
+    @Test
+    void everyBudgetedHandler_ShouldHaveAScenario() {
+        Set<String> budgeted = new TreeSet<>();
+        handlerMapping.getHandlerMethods().forEach((mapping, handler) -> {
+            if (handler.hasMethodAnnotation(QueryBudget.class)) {
+                budgeted.addAll(mapping.getPatternValues());
+            }
+        });
+
+        budgeted.removeAll(COVERED_PATTERNS);
+        assertTrue(budgeted.isEmpty(), "Handlers with a @QueryBudget but no scenario in this test: " + budgeted);
+    }
+
+    // --- Admin ---
+
+    @Test
+    void getAllUsers_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/admin/users", size -> {
+            for (int i = 0; i < size; i++) {
+                testData.insertCart(testData.insertUser(Role.ERole.ROLE_USER));
+            }
+            return get("/api/admin/users").header("Authorization", "Bearer " + adminToken);
+        });
+    }
+
+    @Test
+    void getAllSellers_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/admin/sellers", size -> {
+            for (int i = 0; i < size; i++) {
+                int store = testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+                testData.insertProduct(store, testData.anyCategory());
+            }
+            return get("/api/admin/sellers").header("Authorization", "Bearer " + adminToken);
+        });
+    }
+
+    @Test
+    void getAllBuyers_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/admin/buyers", size -> {
+            for (int i = 0; i < size; i++) {
+                testData.insertCart(testData.insertUser(Role.ERole.ROLE_USER));
+            }
+            return get("/api/admin/buyers").header("Authorization", "Bearer " + adminToken);
+        });
+    }
+
+    @Test
+    void getAllAdmins_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/admin/admins", size -> {
+            for (int i = 0; i < size; i++) {
+                testData.insertUser(Role.ERole.ROLE_ADMIN);
+            }
+            return get("/api/admin/admins").header("Authorization", "Bearer " + adminToken);
+        });
+    }
+
+    @Test
+    void getDashboardStats_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/admin/dashboard-stats", size -> {
+            for (int i = 0; i < size; i++) {
+                testData.insertProductOfNewSeller();
+            }
+            return get("/api/admin/dashboard-stats").header("Authorization", "Bearer " + adminToken);
+        });
+    }
+
+    @Test
+    void getAdminProducts_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/admin/products", size -> {
+            int store = testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+            for (int i = 0; i < size; i++) {
+                testData.insertProduct(store, testData.insertCategory());
+            }
+            return get("/api/admin/products").header("Authorization", "Bearer " + adminToken);
+        });
+    }
+
+    @Test
+    void getAdminCategories_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/admin/categories", size -> {
+            for (int i = 0; i < size; i++) {
+                testData.insertCategory();
+            }
+            return get("/api/admin/categories").header("Authorization", "Bearer " + adminToken);
+        });
+    }
+
+    @Test
+    void getAdminStoreProducts_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/admin/stores/{storeId}/products", size -> {
+            int store = testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+            for (int i = 0; i < size; i++) {
+                testData.insertProduct(store, testData.anyCategory());
+            }
+            return get("/api/admin/stores/{storeId}/products", store).header("Authorization", "Bearer " + adminToken);
+        });
+    }
+
+    @Test
+    void adminLookups_ShouldStayWithinTheirBudgets() {
+        int seller = testData.insertUser(Role.ERole.ROLE_SELLER);
+        int store = testData.insertStore(seller);
+        testData.insertProduct(store, testData.anyCategory());
+
+        assertWithinBudget("/api/admin/users/{id}",
+                () -> get("/api/admin/users/{id}", seller).header("Authorization", "Bearer " + adminToken));
+        assertWithinBudget("/api/admin/stores/user/{userId}",
+                () -> get("/api/admin/stores/user/{userId}", seller).header("Authorization", "Bearer " + adminToken));
+        assertWithinBudget("/api/admin/stores/{storeId}",
+                () -> get("/api/admin/stores/{storeId}", store).header("Authorization", "Bearer " + adminToken));
+        assertWithinBudget("/api/admin/locks/metrics",
+                () -> get("/api/admin/locks/metrics").header("Authorization", "Bearer " + adminToken));
+        assertWithinBudget("/api/admin/datasource/metrics",
+                () -> get("/api/admin/datasource/metrics").header("Authorization", "Bearer " + adminToken));
+        assertWithinBudget("/api/admin/cache/metrics",
+                () -> get("/api/admin/cache/metrics").header("Authorization", "Bearer " + adminToken));
+        assertWithinBudget("/api/admin/orders",
+                () -> get("/api/admin/orders").header("Authorization", "Bearer " + adminToken));
+    }
+
+    // --- Cart ---
+
+    @Test
+    void getCart_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/cart", size -> {
+            int store = testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+            int buyer = testData.insertUser(Role.ERole.ROLE_USER);
+            int cart = testData.insertCart(buyer);
+            for (int i = 0; i < size; i++) {
+                testData.insertCartItem(cart, testData.insertProduct(store, testData.anyCategory()));
+            }
+            return get("/api/cart").header("Authorization", "Bearer " + tokenFor(buyer));
+        });
+    }
+
+    @Test
+    void testCheckCart_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/test/cart/check", size -> {
+            int store = testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+            int buyer = testData.insertUser(Role.ERole.ROLE_USER);
+            int cart = testData.insertCart(buyer);
+            for (int i = 0; i < size; i++) {
+                testData.insertCartItem(cart, testData.insertProduct(store, testData.anyCategory()));
+            }
+            return get("/api/test/cart/check").header("Authorization", "Bearer " + tokenFor(buyer));
+        });
+    }
+
+    @Test
+    void cartLookups_ShouldStayWithinTheirBudgets() {
+        int product = testData.insertProductOfNewSeller();
+        int buyer = testData.insertUser(Role.ERole.ROLE_USER);
+        testData.insertCartItem(testData.insertCart(buyer), product);
+        String token = tokenFor(buyer);
+
+        assertWithinBudget("/api/cart/check/{productId}",
+                () -> get("/api/cart/check/{productId}", product).header("Authorization", "Bearer " + token));
+        assertWithinBudget("/api/cart/test", () -> get("/api/cart/test").header("Authorization", "Bearer " + token));
+        assertWithinBudget("/api/test/cart/add/{productId}/{quantity}",
+                () -> get("/api/test/cart/add/{productId}/{quantity}", product, 2).header("Authorization", "Bearer " + token));
+    }
+
+    // --- Products ---
+
+    @Test
+    void getProductsByIds_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/products/batch", size -> {
+            int store = testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                ids.add(String.valueOf(testData.insertProduct(store, testData.anyCategory())));
+            }
+            return get("/api/products/batch").param("ids", String.join(",", ids));
+        });
+    }
+
+    @Test
+    void getRelatedProducts_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/products/{productId}/related", size -> {
+            int store = testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+            int category = testData.insertCategory();
+            int product = testData.insertProduct(store, category);
+            for (int i = 0; i < size; i++) {
+                testData.insertProduct(store, category);
+            }
+            return get("/api/products/{productId}/related", product).param("limit", "20");
+        });
+    }
+
+    @Test
+    void getAllProducts_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/products/all", size -> {
+            int store = testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+            for (int i = 0; i < size; i++) {
+                testData.insertProduct(store, testData.anyCategory());
+            }
+            return get("/api/products/all");
+        });
+    }
+
+    @Test
+    void getPaginatedProducts_ShouldRunAConstantNumberOfQueries() {
+        // In cursor mode a page is read with one query; page mode adds a count when the page is full
+        assertWithinBudget("/api/products", size -> {
+            int category = testData.insertCategory();
+            int store = testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+            for (int i = 0; i < size; i++) {
+                testData.insertProduct(store, category);
+            }
+            return get("/api/products").param("categoryId", String.valueOf(category))
+                    .param("size", "100").param("cursor", "");
+        });
+    }
+
+    @Test
+    void suggestProducts_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/products/suggest", size -> {
+            int store = testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+            for (int i = 0; i < size; i++) {
+                testData.insertProduct(store, testData.anyCategory());
+            }
+            return get("/api/products/suggest").param("q", "Product").param("limit", "20");
+        });
+    }
+
+    @Test
+    void getProductsByStore_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/products/store/{storeId}", size -> {
+            int store = testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+            for (int i = 0; i < size; i++) {
+                testData.insertProduct(store, testData.anyCategory());
+            }
+            return get("/api/products/store/{storeId}", store);
+        });
+    }
+
+    @Test
+    void getProductsByCategory_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/products/category/{categoryId}", size -> {
+            int category = testData.insertCategory();
+            for (int i = 0; i < size; i++) {
+                testData.insertProduct(testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER)), category);
+            }
+            return get("/api/products/category/{categoryId}", category);
+        });
+    }
+
+    @Test
+    void getUserProducts_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/products/user", size -> {
+            int seller = testData.insertUser(Role.ERole.ROLE_SELLER);
+            int store = testData.insertStore(seller);
+            for (int i = 0; i < size; i++) {
+                testData.insertProduct(store, testData.anyCategory());
+            }
+            return get("/api/products/user").header("Authorization", "Bearer " + tokenFor(seller));
+        });
+    }
+
+    @Test
+    void getProductById_ShouldStayWithinItsBudget() {
+        int product = testData.insertProductOfNewSeller();
+        testData.insertReview(product, testData.insertUser(Role.ERole.ROLE_USER));
+
+        assertWithinBudget("/api/products/{productId}", () -> get("/api/products/{productId}", product));
+    }
+
+    // --- Stores, categories and regions ---
+
+    @Test
+    void getAllStores_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/stores", size -> {
+            for (int i = 0; i < size; i++) {
+                testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+            }
+            return get("/api/stores").header("Authorization", "Bearer " + adminToken);
+        });
+    }
+
+    @Test
+    void getStoresByRegion_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/stores/region/{region}", size -> {
+            for (int i = 0; i < size; i++) {
+                testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+            }
+            return get("/api/stores/region/{region}", "Ramallah").header("Authorization", "Bearer " + adminToken);
+        });
+    }
+
+    @Test
+    void getRegions_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/regions/stores", size -> {
+            for (int i = 0; i < size; i++) {
+                testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+            }
+            return get("/api/regions/stores");
+        });
+        assertWithinBudget("/api/regions", size -> {
+            for (int i = 0; i < size; i++) {
+                testData.insertUser(Role.ERole.ROLE_USER);
+            }
+            return get("/api/regions");
+        });
+    }
+
+    @Test
+    void getAllCategories_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/categories", size -> {
+            for (int i = 0; i < size; i++) {
+                testData.insertCategory();
+            }
+            return get("/api/categories");
+        });
+    }
+
+    @Test
+    void storeAndCategoryLookups_ShouldStayWithinTheirBudgets() {
+        int seller = testData.insertUser(Role.ERole.ROLE_SELLER);
+        int store = testData.insertStore(seller);
+        int category = testData.insertCategory();
+        String token = tokenFor(seller);
+
+        assertWithinBudget("/api/stores/{storeId}",
+                () -> get("/api/stores/{storeId}", store).header("Authorization", "Bearer " + token));
+        assertWithinBudget("/api/stores/user/{userId}",
+                () -> get("/api/stores/user/{userId}", seller).header("Authorization", "Bearer " + token));
+        assertWithinBudget("/api/stores/check", () -> get("/api/stores/check").header("Authorization", "Bearer " + token));
+        assertWithinBudget("/api/categories/{categoryId}", () -> get("/api/categories/{categoryId}", category));
+    }
+
+    // --- Reviews and messages ---
+
+    @Test
+    void getReviewsByProduct_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/reviews/product/{productId}", size -> {
+            int product = testData.insertProductOfNewSeller();
+            for (int i = 0; i < size; i++) {
+                testData.insertReview(product, testData.insertUser(Role.ERole.ROLE_USER));
+            }
+            return get("/api/reviews/product/{productId}", product);
+        });
+    }
+
+    @Test
+    void getReviewsByUser_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/reviews/user/{userId}", size -> {
+            int reviewer = testData.insertUser(Role.ERole.ROLE_USER);
+            for (int i = 0; i < size; i++) {
+                testData.insertReview(testData.insertProductOfNewSeller(), reviewer);
+            }
+            return get("/api/reviews/user/{userId}", reviewer).header("Authorization", "Bearer " + adminToken);
+        });
+    }
+
+    @Test
+    void getMessages_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/api/messages", size -> {
+            for (int i = 0; i < size; i++) {
+                testData.insertMessage("NEW");
+            }
+            return get("/api/messages").header("Authorization", "Bearer " + adminToken);
+        });
+        assertWithinBudget("/api/messages/status/{status}", size -> {
+            for (int i = 0; i < size; i++) {
+                testData.insertMessage("READ");
+            }
+            return get("/api/messages/status/{status}", "READ").header("Authorization", "Bearer " + adminToken);
+        });
+    }
+
+    @Test
+    void getMessageById_ShouldStayWithinItsBudget() {
+        int message = testData.insertMessage("NEW");
+
+        assertWithinBudget("/api/messages/{messageId}",
+                () -> get("/api/messages/{messageId}", message).header("Authorization", "Bearer " + adminToken));
+    }
+
+    // --- Sellers, accounts and payments ---
+
+    @Test
+    void sellerLookups_ShouldStayWithinTheirBudgets() {
+        int seller = testData.insertUser(Role.ERole.ROLE_SELLER);
+        testData.insertStore(seller);
+        String token = tokenFor(seller);
+
+        assertWithinBudget("/api/seller/dashboard", () -> get("/api/seller/dashboard").header("Authorization", "Bearer " + token));
+        assertWithinBudget("/api/seller/sales", () -> get("/api/seller/sales").header("Authorization", "Bearer " + token));
+        assertWithinBudget("/api/seller/products", () -> get("/api/seller/products").header("Authorization", "Bearer " + token));
+        assertWithinBudget("/seller/dashboard", () -> get("/seller/dashboard").header("Authorization", "Bearer " + token));
+    }
+
+    @Test
+    void accountLookups_ShouldStayWithinTheirBudgets() {
+        int buyer = testData.insertUser(Role.ERole.ROLE_USER);
+        String token = tokenFor(buyer);
+
+        assertWithinBudget("/api/auth/me", () -> get("/api/auth/me").header("Authorization", "Bearer " + token));
+        assertWithinBudget("/api/auth/check-auth", () -> get("/api/auth/check-auth").header("Authorization", "Bearer " + token));
+        assertWithinBudget("/api/user-role/is-buyer", () -> get("/api/user-role/is-buyer").header("Authorization", "Bearer " + token));
+        assertWithinBudget("/api/stripe/config", () -> get("/api/stripe/config").header("Authorization", "Bearer " + token));
+        // Logging out revokes the token, so every request gets a new one
+        assertWithinBudget("/api/auth/logout", () -> get("/api/auth/logout").header("Authorization", "Bearer " + tokenFor(buyer)));
+    }
+
+    @Test
+    void getOrdersPage_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/orders", size -> {
+            int product = testData.insertProductOfNewSeller();
+            int buyer = testData.insertUser(Role.ERole.ROLE_USER);
+            for (int i = 0; i < size; i++) {
+                testData.insertOrderItem(testData.insertOrder(buyer), product);
+            }
+            return get("/orders").header("Authorization", "Bearer " + tokenFor(buyer));
+        });
+    }
+
+    @Test
+    void getCheckoutPage_ShouldRunAConstantNumberOfQueries() {
+        assertWithinBudget("/checkout-page", size -> {
+            int store = testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+            int buyer = testData.insertUser(Role.ERole.ROLE_USER);
+            int cart = testData.insertCart(buyer);
+            for (int i = 0; i < size; i++) {
+                testData.insertCartItem(cart, testData.insertProduct(store, testData.anyCategory()));
+            }
+            return get("/checkout-page").header("Authorization", "Bearer " + tokenFor(buyer));
+        });
+    }
+
+    @Test
+    void getPaymentSuccessPage_ShouldStayWithinItsBudget() {
+        int buyer = testData.insertUser(Role.ERole.ROLE_USER);
+        int order = testData.insertOrder(buyer);
+        String token = tokenFor(buyer);
+
+        assertWithinBudget("/payment-success",
+                () -> get("/payment-success").param("orderId", String.valueOf(order)).header("Authorization", "Bearer " + token));
+    }
+
+    // --- Pages ---
+
+    @Test
+    void adminPages_ShouldStayWithinTheirBudgets() {
+        assertWithinBudget("/admin", () -> get("/admin").header("Authorization", "Bearer " + adminToken));
+        assertWithinBudget("/admin/login", () -> get("/admin/login"));
+        assertWithinBudget("/admin/dashboard", () -> get("/admin/dashboard").header("Authorization", "Bearer " + adminToken));
+        assertWithinBudget("/admin/store-details",
+                () -> get("/admin/store-details").param("id", "1").header("Authorization", "Bearer " + adminToken));
+    }
+
+    @Test
+    void staticPages_ShouldNotQueryTheDatabase() {
+        String token = tokenFor(testData.insertUser(Role.ERole.ROLE_USER));
+        Map<String, Supplier<MockHttpServletRequestBuilder>> pages = new LinkedHashMap<>();
+        pages.put("/", () -> get("/"));
+        pages.put("/login", () -> get("/login"));
+        pages.put("/register", () -> get("/register"));
+        pages.put("/dashboard", () -> get("/dashboard"));
+        pages.put("/products", () -> get("/products"));
+        pages.put("/product", () -> get("/product"));
+        pages.put("/stores", () -> get("/stores"));
+        pages.put("/store", () -> get("/store"));
+        pages.put("/marketplace", () -> get("/marketplace"));
+        pages.put("/product/{productId}", () -> get("/product/{productId}", 1));
+        pages.put("/edit-product/{productId}", () -> get("/edit-product/{productId}", 1));
+        pages.put("/edit-profile", () -> get("/edit-profile"));
+        pages.put("/cart", () -> get("/cart"));
+        pages.put("/create-store", () -> get("/create-store"));
+        pages.put("/edit-store", () -> get("/edit-store").param("id", "1"));
+        pages.put("/edit-store/{storeId}", () -> get("/edit-store/{storeId}", 1));
+        pages.put("/add-product", () -> get("/add-product"));
+        pages.put("/edit-product", () -> get("/edit-product").param("id", "1"));
+        pages.put("/category-management", () -> get("/category-management"));
+        pages.put("/error", () -> get("/error"));
+        pages.put("/error/unauthorized", () -> get("/error/unauthorized"));
+
+        pages.forEach((pattern, request) ->
+                assertWithinBudget(pattern, () -> request.get().header("Authorization", "Bearer " + token)));
+    }
+
+    /**
+     * Seed each size, request the endpoint and compare the statement counts
+     * @param pattern the mapping of the handler, as listed in COVERED_PATTERNS
+     * @param seed seeds the given number of rows and returns the request that reads them
+     */
+    private void assertWithinBudget(String pattern, IntFunction<MockHttpServletRequestBuilder> seed) {
+        assertTrue(COVERED_PATTERNS.contains(pattern), pattern + " is missing from COVERED_PATTERNS");
+
+        Map<Integer, List<String>> statementsBySize = new HashMap<>();
+        QueryBudget budget = null;
+        for (int size : SIZES) {
+            MockHttpServletRequestBuilder request = seed.apply(size);
+
+            // The first request fills per-user caches such as the authenticated user details
+            perform(request);
+
+            MvcResult[] result = new MvcResult[1];
+            List<RecordedStatement> statements = statementRecorder.record(() -> result[0] = perform(request));
+
+            assertEquals(200, result[0].getResponse().getStatus(), pattern + " failed with " + size + " rows");
+            budget = budgetOf(result[0]);
+
+            statementsBySize.put(size, statements.stream().map(RecordedStatement::sql).collect(Collectors.toList()));
+        }
+
+        List<String> smallest = statementsBySize.get(SIZES[0]);
+        List<String> largest = statementsBySize.get(SIZES[SIZES.length - 1]);
+        for (int size : SIZES) {
+            assertEquals(smallest.size(), statementsBySize.get(size).size(),
+                    pattern + " runs a different number of statements for " + SIZES[0] + " and " + size
+                            + " rows, probably a query per row:\n" + String.join("\n", statementsBySize.get(size)));
+        }
+        assertTrue(largest.size() <= budget.value(), pattern + " runs " + largest.size()
+                + " statements, more than its budget of " + budget.value() + ":\n" + String.join("\n", largest));
+    }
+
+    /**
+     * Request a handler whose statements do not depend on the size of the data, and check its budget
+     * @param pattern the mapping of the handler, as listed in COVERED_PATTERNS
+     * @param request creates the request; called once for the warm-up and once for the measured request
+     */
+    private void assertWithinBudget(String pattern, Supplier<MockHttpServletRequestBuilder> request) {
+        assertTrue(COVERED_PATTERNS.contains(pattern), pattern + " is missing from COVERED_PATTERNS");
+
+        // The first request fills per-user caches such as the authenticated user details
+        perform(request.get());
+
+        MockHttpServletRequestBuilder measured = request.get();
+        MvcResult[] result = new MvcResult[1];
+        List<RecordedStatement> statements = statementRecorder.record(() -> result[0] = perform(measured));
+
+        // Pages may redirect, e.g. to the dashboard of the role of the user
+        int status = result[0].getResponse().getStatus();
+        assertTrue(status < 400, pattern + " failed with status " + status);
+        QueryBudget budget = budgetOf(result[0]);
+        List<String> sql = statements.stream().map(RecordedStatement::sql).collect(Collectors.toList());
+        assertTrue(sql.size() <= budget.value(), pattern + " runs " + sql.size()
+                + " statements, more than its budget of " + budget.value() + ":\n" + String.join("\n", sql));
+    }
+
+    private QueryBudget budgetOf(MvcResult result) {
+        HandlerMethod handler = (HandlerMethod) result.getHandler();
+        QueryBudget budget = handler.getMethodAnnotation(QueryBudget.class);
+        assertNotNull(budget, handler + " has no @QueryBudget");
+        return budget;
+    }
+
+    private MvcResult perform(MockHttpServletRequestBuilder request) {
+        try {
+            return mockMvc.perform(request).andReturn();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String tokenFor(int userId) {
+        return tokenManager.generateTokenFromUsername(testData.username(userId));
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.agrifinpalestine.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private ReplicaLagMonitor lagMonitor;
+    private RecentWriters recentWriters;
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() {
+        lagMonitor = new ReplicaLagMonitor(failingDataSource(), 5);
+        lagMonitor.recordLag(0L);
+        recentWriters = new RecentWriters(10_000);
+        routingDataSource = new ReadWriteRoutingDataSource(fakeDataSource("primary"), fakeDataSource("replica"),
+                lagMonitor, recentWriters);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getConnection_OutsideTransaction_ShouldUsePrimary() throws Exception {
+        assertEquals("primary", routingDataSource.getConnection().getCatalog());
+        assertEquals(1, routingDataSource.getPrimaryConnections());
+    }
+
+    @Test
+    void getConnection_InReadOnlyTransaction_ShouldUseReplica() throws Exception {
+        assertEquals("replica", inTransaction(true, () -> routingDataSource.getConnection().getCatalog()));
+        assertEquals(1, routingDataSource.getReplicaConnections());
+    }
+
+    @Test
+    void getConnection_InReadWriteTransaction_ShouldUsePrimary() throws Exception {
+        assertEquals("primary", inTransaction(false, () -> routingDataSource.getConnection().getCatalog()));
+    }
+
+    @Test
+    void getConnection_WhenReplicaLags_ShouldFallBackToPrimary() throws Exception {
+        lagMonitor.recordLag(30L);
+
+        assertEquals("primary", inTransaction(true, () -> routingDataSource.getConnection().getCatalog()));
+        assertEquals(1, routingDataSource.getFallbackConnections());
+        assertEquals(0, routingDataSource.getReplicaConnections());
+
+        lagMonitor.recordLag(2L);
+        assertEquals("replica", inTransaction(true, () -> routingDataSource.getConnection().getCatalog()));
+    }
+
+    @Test
+    void getConnection_AfterTheUserCommittedAWrite_ShouldReadFromThePrimary() throws Exception {
+        authenticate("farmer");
+        assertEquals("replica", inTransaction(true, () -> routingDataSource.getConnection().getCatalog()));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            inTransaction(false, () -> routingDataSource.getConnection().getCatalog());
+            // Not pinned before the write is committed
+            assertFalse(recentWriters.wroteRecently("farmer"));
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals("primary", inTransaction(true, () -> routingDataSource.getConnection().getCatalog()));
+        assertEquals(1, routingDataSource.getPinnedConnections());
+
+        // Other users keep reading from the replica
+        authenticate("buyer");
+        assertEquals("replica", inTransaction(true, () -> routingDataSource.getConnection().getCatalog()));
+    }
+
+    @Test
+    void getConnection_WhenTheWriteWindowHasPassed_ShouldReadFromTheReplica() throws Exception {
+        recentWriters = new RecentWriters(0);
+        routingDataSource = new ReadWriteRoutingDataSource(fakeDataSource("primary"), fakeDataSource("replica"),
+                lagMonitor, recentWriters);
+        authenticate("farmer");
+
+        inTransaction(false, () -> routingDataSource.getConnection().getCatalog());
+
+        assertEquals("replica", inTransaction(true, () -> routingDataSource.getConnection().getCatalog()));
+        assertEquals(0, recentWriters.size());
+    }
+
+    @Test
+    void check_OnMySqlBefore8022_ShouldReadTheSlaveStatus() {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(legacyReplicaDataSource(3), 5);
+
+        monitor.check();
+        monitor.check();
+
+        assertTrue(monitor.isReplicaUsable());
+        assertEquals(Long.valueOf(3), monitor.getLagSeconds());
+    }
+
+    @Test
+    void check_WhenReplicaIsUnreachable_ShouldMarkItUnusable() {
+        assertTrue(lagMonitor.isReplicaUsable());
+
+        lagMonitor.check();
+
+        assertFalse(lagMonitor.isReplicaUsable());
+        assertNull(lagMonitor.getLagSeconds());
+    }
+
+    @Test
+    void lazyProxy_ShouldRouteByTheTransactionThatIsActiveAtTheFirstStatement() throws Exception {
+        LazyConnectionDataSourceProxy lazyDataSource = new LazyConnectionDataSourceProxy();
+        lazyDataSource.setTargetDataSource(routingDataSource);
+        lazyDataSource.setDefaultAutoCommit(true);
+        lazyDataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        lazyDataSource.afterPropertiesSet();
+
+        // The transaction manager takes the connection before the read-only flag is set
+        Connection connection = lazyDataSource.getConnection();
+        connection.setAutoCommit(false);
+
+        assertEquals("replica", inTransaction(true, connection::getCatalog));
+    }
+
+    private static <T> T inTransaction(boolean readOnly, Callable<T> action) throws Exception {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+        try {
+            return action.call();
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                username, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+
+    // A replica that only knows SHOW SLAVE STATUS and reports the given lag
+    private static DataSource legacyReplicaDataSource(long lagSeconds) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(),
+                new Class<?>[] {ResultSetMetaData.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getColumnCount" -> 1;
+                    case "getColumnLabel" -> "Seconds_Behind_Master";
+                    default -> null;
+                });
+        Statement statement = (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                new Class<?>[] {Statement.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("executeQuery")) {
+                        return null;
+                    }
+                    if (!args[0].equals("SHOW SLAVE STATUS")) {
+                        throw new SQLSyntaxErrorException("You have an error in your SQL syntax", "42000", 1064);
+                    }
+                    boolean[] read = new boolean[1];
+                    return Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                            new Class<?>[] {ResultSet.class}, (resultSet, call, callArgs) -> switch (call.getName()) {
+                                case "next" -> !read[0] && (read[0] = true);
+                                case "getMetaData" -> metaData;
+                                case "getLong" -> lagSeconds;
+                                case "wasNull" -> false;
+                                default -> null;
+                            });
+                });
+        Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) ->
+                        method.getName().equals("createStatement") ? statement : null);
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[] {DataSource.class}, (proxy, method, args) ->
+                        method.getName().equals("getConnection") ? connection : null);
+    }
+
+    // A pool whose connections report its name as their catalog
+    private static DataSource fakeDataSource(String name) {
+        Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getCatalog", "toString" -> name;
+                    case "getAutoCommit" -> true;
+                    case "getTransactionIsolation" -> Connection.TRANSACTION_REPEATABLE_READ;
+                    default -> null;
+                });
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[] {DataSource.class}, (proxy, method, args) ->
+                        method.getName().equals("getConnection") ? connection : null);
+    }
+
+    private static DataSource failingDataSource() {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[] {DataSource.class}, (proxy, method, args) -> {
+                    throw new SQLException("Connection refused");
+                });
+    }
+}
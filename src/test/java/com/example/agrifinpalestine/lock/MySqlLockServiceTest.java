@@ -0,0 +1,132 @@
+package com.example.agrifinpalestine.lock;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MySqlLockServiceTest {
+
+    private final List<String> statements = new ArrayList<>();
+    private final AtomicInteger connectionsTaken = new AtomicInteger();
+    private final AtomicInteger connectionsClosed = new AtomicInteger();
+    private Connection connection;
+    private DataSource dataSource;
+    private MySqlLockService lockService;
+
+    @BeforeEach
+    void setUp() {
+        connection = fakeConnection();
+        dataSource = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[] {DataSource.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getConnection" -> {
+                        connectionsTaken.incrementAndGet();
+                        yield connection;
+                    }
+                    // Transaction resources are bound by DataSource
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> null;
+                });
+        lockService = new MySqlLockService(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.hasResource(dataSource)) {
+            TransactionSynchronizationManager.unbindResource(dataSource);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void callWithLock_InTransaction_ShouldUseTheTransactionsConnection() {
+        beginTransaction(false);
+
+        lockService.callWithLock("cart:user:1", Duration.ofSeconds(1), () -> null);
+
+        assertEquals(0, connectionsTaken.get());
+        assertEquals(List.of("SELECT GET_LOCK(?, ?)"), statements);
+
+        // Released when the transaction completes, on the same connection, which stays open
+        TransactionSynchronizationUtils.invokeAfterCompletion(
+                TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(List.of("SELECT GET_LOCK(?, ?)", "SELECT RELEASE_LOCK(?)"), statements);
+        assertEquals(0, connectionsClosed.get());
+    }
+
+    @Test
+    void callWithLock_OutsideTransaction_ShouldCloseItsConnectionAfterTheRelease() {
+        lockService.callWithLock("migration", Duration.ofSeconds(1), () -> null);
+
+        assertEquals(1, connectionsTaken.get());
+        assertEquals(List.of("SELECT GET_LOCK(?, ?)", "SELECT RELEASE_LOCK(?)"), statements);
+        assertEquals(1, connectionsClosed.get());
+    }
+
+    @Test
+    void callWithLock_InReadOnlyTransaction_ShouldFail() {
+        beginTransaction(true);
+
+        assertThrows(IllegalStateException.class,
+                () -> lockService.callWithLock("cart:user:1", Duration.ofSeconds(1), () -> null));
+        assertTrue(statements.isEmpty());
+    }
+
+    private void beginTransaction(boolean readOnly) {
+        TransactionSynchronizationManager.bindResource(dataSource, new ConnectionHolder(connection, true));
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+
+    // A connection on which every GET_LOCK succeeds
+    private Connection fakeConnection() {
+        ResultSet lockResult = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "next" -> true;
+                    case "getInt" -> 1;
+                    default -> null;
+                });
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "prepareStatement" -> {
+                        statements.add((String) args[0]);
+                        yield Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                new Class<?>[] {PreparedStatement.class}, (statement, call, callArgs) ->
+                                        switch (call.getName()) {
+                                            case "executeQuery" -> lockResult;
+                                            case "execute" -> true;
+                                            default -> null;
+                                        });
+                    }
+                    case "close" -> {
+                        connectionsClosed.incrementAndGet();
+                        yield null;
+                    }
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "isClosed" -> false;
+                    default -> null;
+                });
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.agrifinpalestine.lock;
+
+import com.example.agrifinpalestine.exception.lock.LockTimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedLockServiceTest {
+
+    private StripedLockService lockService;
+
+    @BeforeEach
+    void setUp() {
+        lockService = new StripedLockService(16);
+    }
+
+    @Test
+    void callWithLock_ShouldSerializeCallersOfTheSameName() throws InterruptedException {
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 200; j++) {
+                    lockService.callWithLock("cart:user:1", Duration.ofSeconds(5), () -> {
+                        maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                        inside.decrementAndGet();
+                        return null;
+                    });
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, maxInside.get());
+        assertEquals(1600, lockService.getMetrics().getAcquired());
+        assertEquals(0, lockService.getMetrics().getHeld());
+    }
+
+    @Test
+    void callWithLock_WhenLockIsHeld_ShouldTimeOut() throws InterruptedException {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread holder = new Thread(() -> lockService.callWithLock("cart:user:2", Duration.ofSeconds(5), () -> {
+            locked.countDown();
+            try {
+                done.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        holder.start();
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        try {
+            assertThrows(LockTimeoutException.class,
+                    () -> lockService.callWithLock("cart:user:2", Duration.ofMillis(50), () -> "never"));
+        } finally {
+            done.countDown();
+            holder.join();
+        }
+
+        assertEquals(1, lockService.getMetrics().getTimeouts());
+        assertEquals("acquired", lockService.callWithLock("cart:user:2", Duration.ofSeconds(1), () -> "acquired"));
+    }
+
+    @Test
+    void toLockName_ShouldKeepMySqlNamesWithinTheLengthLimit() {
+        assertEquals("agrifin:cart:user:3", MySqlLockService.toLockName("cart:user:3"));
+        assertEquals(48, MySqlLockService.toLockName("x".repeat(100)).length());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.agrifinpalestine.migration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SchemaMigratorTest {
+
+    private Connection connection;
+    private Statement statement;
+    private PreparedStatement insert;
+    private ResultSet historyTables;
+    private ResultSet historyRows;
+
+    private final List<MigrationScript> scripts = new ArrayList<>(List.of(
+            MigrationScript.of("V10__add_orders_index.sql", "CREATE INDEX idx_orders_user ON orders (user_id);"),
+            MigrationScript.of("V1__alter_product_image_column.sql", "ALTER TABLE products MODIFY COLUMN product_image TEXT;"),
+            MigrationScript.of("V2__add_user_status.sql", "ALTER TABLE users ADD COLUMN status VARCHAR(20);")));
+
+    private final SchemaMigrator migrator = new SchemaMigrator(null, null, "classpath:db/migration/V*__*.sql", "2");
+
+    @BeforeEach
+    void setUp() throws Exception {
+        scripts.sort(null);
+
+        connection = mock(Connection.class);
+        statement = mock(Statement.class);
+        insert = mock(PreparedStatement.class);
+        historyTables = mock(ResultSet.class);
+        historyRows = mock(ResultSet.class);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(metaData.getTables(any(), any(), eq(SchemaMigrator.HISTORY_TABLE), any())).thenReturn(historyTables);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.prepareStatement(anyString())).thenReturn(insert);
+        when(statement.executeQuery(anyString())).thenReturn(historyRows);
+    }
+
+    @Test
+    void migrate_WithoutHistory_ShouldBaselineOldScriptsAndApplyNewOnes() throws Exception {
+        when(historyTables.next()).thenReturn(false);
+
+        int applied = migrator.migrate(connection, scripts);
+
+        assertEquals(1, applied);
+        verify(statement).execute(startsWith("CREATE TABLE schema_history"));
+        verify(statement).execute("CREATE INDEX idx_orders_user ON orders (user_id)");
+        verify(statement, never()).execute(startsWith("ALTER TABLE"));
+        // Two baseline rows and one applied row
+        verify(insert, times(3)).executeUpdate();
+    }
+
+    @Test
+    void migrate_WithCurrentSchema_ShouldRunNoStatements() throws Exception {
+        givenHistory(scripts.get(0), scripts.get(1), scripts.get(2));
+
+        int applied = migrator.migrate(connection, scripts);
+
+        assertEquals(0, applied);
+        verify(statement, never()).execute(anyString());
+        verify(insert, never()).executeUpdate();
+    }
+
+    @Test
+    void migrate_WithChangedScript_ShouldFail() throws Exception {
+        MigrationScript original = MigrationScript.of("V2__add_user_status.sql", "ALTER TABLE users ADD COLUMN status VARCHAR(10);");
+        givenHistory(scripts.get(0), original, scripts.get(2));
+
+        assertThrows(IllegalStateException.class, () -> migrator.migrate(connection, scripts));
+        verify(statement, never()).execute(anyString());
+    }
+
+    @Test
+    void scripts_ShouldSortByNumericVersion() {
+        MigrationScript v7 = MigrationScript.of("V7__a.sql", "");
+        MigrationScript v71 = MigrationScript.of("V7.1__b.sql", "");
+        MigrationScript v10 = MigrationScript.of("V10__c.sql", "");
+
+        List<MigrationScript> sorted = new ArrayList<>(List.of(v10, v71, v7));
+        sorted.sort(null);
+
+        assertEquals(List.of(v7, v71, v10), sorted);
+        assertEquals("b", v71.getDescription());
+        assertThrows(IllegalArgumentException.class, () -> MigrationScript.of("V3_missing_separator.sql", ""));
+    }
+
+    @Test
+    void checksum_ShouldIgnoreLineEndings() {
+        assertEquals(MigrationScript.of("V1__a.sql", "SELECT 1;\nSELECT 2;\n").getChecksum(),
+                MigrationScript.of("V1__a.sql", "SELECT 1;\r\nSELECT 2;\r\n").getChecksum());
+    }
+
+    @Test
+    void split_ShouldIgnoreSemicolonsInCommentsAndStrings() {
+        String script = "-- Clear carts; keep users\n"
+                + "DELETE FROM carts WHERE note = 'a;b' /* old; data */;\n"
+                + "# MySQL comment;\n"
+                + "UPDATE users SET bio = 'it''s'; ;\n";
+
+        List<String> statements = SqlScriptSplitter.split(script);
+
+        assertEquals(2, statements.size());
+        assertEquals("DELETE FROM carts WHERE note = 'a;b'", statements.get(0));
+        assertEquals("UPDATE users SET bio = 'it''s'", statements.get(1));
+    }
+
+    private void givenHistory(MigrationScript... applied) throws Exception {
+        when(historyTables.next()).thenReturn(true);
+        Boolean[] more = new Boolean[applied.length];
+        for (int i = 0; i < applied.length; i++) {
+            more[i] = i < applied.length - 1;
+        }
+        when(historyRows.next()).thenReturn(true, more);
+        String[] versions = new String[applied.length];
+        String[] checksums = new String[applied.length];
+        for (int i = 0; i < applied.length; i++) {
+            versions[i] = applied[i].getVersion();
+            checksums[i] = applied[i].getChecksum();
+        }
+        when(historyRows.getString(1)).thenReturn(versions[0], java.util.Arrays.copyOfRange(versions, 1, versions.length));
+        when(historyRows.getString(2)).thenReturn(checksums[0], java.util.Arrays.copyOfRange(checksums, 1, checksums.length));
+    }
+}
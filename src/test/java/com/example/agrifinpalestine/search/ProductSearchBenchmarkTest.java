@@ -0,0 +1,114 @@
+package com.example.agrifinpalestine.search;
+
+import com.example.agrifinpalestine.dto.ProductSearchRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Search and typeahead latency over 50k synthetic products with mixed Arabic and English names.
+ * Excluded from the default test run, see the test.excludedGroups property in the pom.
+ */
+@Tag("benchmark")
+class ProductSearchBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchBenchmarkTest.class);
+
+    private static final int PRODUCTS = 50_000;
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURED_ROUNDS = 5_000;
+
+    private static final String[] NAMES_EN = {"Tomatoes", "Olive Oil", "Cucumbers", "Dates", "Honey",
+            "Za'atar", "Lemons", "Almonds", "Figs", "Grapes", "Eggplants", "Peppers"};
+    private static final String[] NAMES_AR = {"طماطم", "زيت زيتون", "خيار", "تمر", "عسل",
+            "زعتر", "ليمون", "لوز", "تين", "عنب", "باذنجان", "فلفل"};
+    private static final String[] ADJECTIVES_EN = {"Fresh", "Organic", "Local", "Baladi", "Dried", "Green"};
+    private static final String[] ADJECTIVES_AR = {"طازج", "عضوي", "بلدي", "مجفف", "أخضر", "الأصلي"};
+    private static final String[] REGIONS = {"جنين", "أريحا", "نابلس", "الخليل", "Jenin", "Jericho", "Hebron"};
+
+    // Queries use other hamza, alef maqsura and article forms than the indexed text
+    private static final String[] QUERIES = {"الطماطم", "زيت الزيتون", "fresh tomato", "عسل بلدي",
+            "organic dates", "اريحا", "baladi figs", "ليمون بلدى", "dried almonds", "olive",
+            "فلفل اخضر", "grapes hebron"};
+    private static final String[] PREFIXES = {"طما", "alm", "زيت", "tom", "الخ", "oli", "عن", "fig", "بلد", "hon"};
+
+    private ProductSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        searchIndex = new ProductSearchIndex(new ProductTextAnalyzer(), null, null, 0);
+
+        Random random = new Random(42);
+        for (int id = 1; id <= PRODUCTS; id++) {
+            int kind = random.nextInt(NAMES_EN.length);
+            boolean arabic = random.nextBoolean();
+            String name = arabic
+                    ? NAMES_AR[kind] + " " + ADJECTIVES_AR[random.nextInt(ADJECTIVES_AR.length)]
+                    : ADJECTIVES_EN[random.nextInt(ADJECTIVES_EN.length)] + " " + NAMES_EN[kind];
+            String description = (arabic ? "من " : "From ") + REGIONS[random.nextInt(REGIONS.length)]
+                    + " " + NAMES_EN[random.nextInt(NAMES_EN.length)];
+            searchIndex.put(new ProductDocument(id, random.nextInt(500) + 1, kind + 1, NAMES_EN[kind], NAMES_AR[kind],
+                    name, description, BigDecimal.valueOf(random.nextInt(10_000), 2), random.nextBoolean(),
+                    true, LocalDateTime.now()));
+        }
+    }
+
+    @Test
+    void search_With50kProducts_ShouldAnswerWithinMilliseconds() {
+        long[] latencies = measure(i -> {
+            ProductSearchHits hits = searchIndex.search(QUERIES[i % QUERIES.length], new ProductSearchRequest(),
+                    Sort.unsorted(), 20);
+            assertTrue(hits.getTotalMatches() > 0, "No match for " + QUERIES[i % QUERIES.length]);
+        });
+
+        report("search", latencies);
+        assertTrue(percentile(latencies, 99) < 50_000_000L, "search p99 above 50 ms");
+    }
+
+    @Test
+    void suggest_With50kProducts_ShouldAnswerWithinMilliseconds() {
+        long[] latencies = measure(i -> {
+            List<ProductDocument> suggestions = searchIndex.suggest(PREFIXES[i % PREFIXES.length], 8);
+            assertFalse(suggestions.isEmpty(), "No suggestion for " + PREFIXES[i % PREFIXES.length]);
+        });
+
+        report("suggest", latencies);
+        assertTrue(percentile(latencies, 99) < 50_000_000L, "suggest p99 above 50 ms");
+    }
+
+    private static long[] measure(IntConsumer query) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            query.accept(i);
+        }
+        long[] latencies = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long startedAt = System.nanoTime();
+            query.accept(i);
+            latencies[i] = System.nanoTime() - startedAt;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static long percentile(long[] sortedLatencies, int percentile) {
+        return sortedLatencies[Math.min(sortedLatencies.length - 1, sortedLatencies.length * percentile / 100)];
+    }
+
+    private static void report(String operation, long[] sortedLatencies) {
+        logger.info("{} over {} products: p50 {} ms, p99 {} ms", operation, PRODUCTS,
+                String.format("%.2f", percentile(sortedLatencies, 50) / 1e6),
+                String.format("%.2f", percentile(sortedLatencies, 99) / 1e6));
+    }
+}
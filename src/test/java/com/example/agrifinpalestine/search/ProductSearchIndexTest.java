@@ -0,0 +1,159 @@
+package com.example.agrifinpalestine.search;
+
+import com.example.agrifinpalestine.Entity.ProductDeletion;
+import com.example.agrifinpalestine.Repository.ProductDeletionRepository;
+import com.example.agrifinpalestine.Repository.ProductRepository;
+import com.example.agrifinpalestine.dto.ProductSearchRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        searchIndex = new ProductSearchIndex(new ProductTextAnalyzer(), null, null, 0);
+
+        searchIndex.put(document(1, 1, 1, "Fresh Tomatoes", "Red tomatoes from Jenin", "5.00", true));
+        searchIndex.put(document(2, 1, 2, "Olive Oil", "Cold pressed oil, goes well with tomatoes", "40.00", true));
+        searchIndex.put(document(3, 2, 1, "Cherry Tomatoes", "Sweet small tomatoes", "8.00", false));
+        searchIndex.put(document(4, 2, 3, "Wildflower Honey", "Raw honey", "30.00", true));
+    }
+
+    @Test
+    void search_RanksNameMatchesAboveDescriptionMatches() {
+        List<Integer> results = search("tomatoes", new ProductSearchRequest(), Sort.by("productId"));
+
+        assertEquals(List.of(1, 3, 2), results);
+    }
+
+    @Test
+    void search_RequiresAllTerms() {
+        List<Integer> results = search("cherry tomatoes", new ProductSearchRequest(), Sort.by("productId"));
+
+        assertEquals(List.of(3), results);
+    }
+
+    @Test
+    void search_MatchesPrefixOfLastTerm() {
+        List<Integer> results = search("hon", new ProductSearchRequest(), Sort.by("productId"));
+
+        assertEquals(List.of(4), results);
+    }
+
+    @Test
+    void search_AppliesFilters() {
+        ProductSearchRequest filters = new ProductSearchRequest();
+        filters.setStoreId(2);
+        filters.setIsOrganic(false);
+
+        List<Integer> results = search("tomatoes", filters, Sort.by("productId"));
+
+        assertEquals(List.of(3), results);
+
+        filters = new ProductSearchRequest();
+        filters.setMaxPrice(new BigDecimal("6.00"));
+
+        assertEquals(List.of(1), search("tomatoes", filters, Sort.by("productId")));
+    }
+
+    @Test
+    void delete_RemovesProductFromResults() {
+        searchIndex.delete(1);
+
+        List<Integer> results = search("tomatoes", new ProductSearchRequest(), Sort.by("productId"));
+
+        assertEquals(List.of(3, 2), results);
+        assertEquals(3, searchIndex.size());
+    }
+
+    @Test
+    void put_ReplacesPreviousVersion() {
+        searchIndex.put(document(4, 2, 3, "Thyme Honey", "Mountain honey", "35.00", true));
+
+        assertTrue(search("wildflower", new ProductSearchRequest(), Sort.unsorted()).isEmpty());
+        assertEquals(List.of(4), search("thyme", new ProductSearchRequest(), Sort.unsorted()));
+    }
+
+    @Test
+    void search_MatchesArabicRegardlessOfHamzaArticleAndDiacritics() {
+        searchIndex.put(new ProductDocument(5, 3, 4, "Vegetables", "خضروات", "طَمَاطِم بلدية",
+                "زراعة عضوية في أريحا", new BigDecimal("6.00"), true, true, LocalDateTime.now()));
+
+        assertEquals(List.of(5), search("الطماطم", new ProductSearchRequest(), Sort.unsorted()));
+        assertEquals(List.of(5), search("اريحا", new ProductSearchRequest(), Sort.unsorted()));
+        assertEquals(List.of(5), search("خضروات", new ProductSearchRequest(), Sort.unsorted()));
+        assertEquals(List.of(5), search("vegetable", new ProductSearchRequest(), Sort.unsorted()));
+    }
+
+    @Test
+    void search_WithALimit_ShouldReturnTheBestMatchesAndTheTotal() {
+        ProductSearchHits hits = searchIndex.search("tomatoes", new ProductSearchRequest(), Sort.by("productId"), 2);
+
+        assertEquals(List.of(1, 3), hits.getProductIds());
+        assertEquals(3, hits.getTotalMatches());
+
+        hits = searchIndex.search("tomatoes", new ProductSearchRequest(), Sort.by(Sort.Direction.DESC, "price"), 1);
+        assertEquals(List.of(3), hits.getProductIds());
+    }
+
+    @Test
+    void refresh_ShouldDropProductsDeletedOnOtherNodes() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ProductDeletionRepository deletionRepository = mock(ProductDeletionRepository.class);
+        when(productRepository.findSearchDocumentsAfter(eq(0), any())).thenReturn(List.of(
+                document(1, 1, 1, "Fresh Tomatoes", "Red tomatoes from Jenin", "5.00", true),
+                document(3, 2, 1, "Cherry Tomatoes", "Sweet small tomatoes", "8.00", false)));
+        when(productRepository.findSearchDocumentsUpdatedSince(any())).thenReturn(List.of());
+        ProductDeletion storeDeletion = new ProductDeletion();
+        storeDeletion.setStoreId(2);
+        when(deletionRepository.findByDeletedAtGreaterThanEqual(any())).thenReturn(List.of(storeDeletion));
+
+        ProductSearchIndex index = new ProductSearchIndex(new ProductTextAnalyzer(), productRepository, deletionRepository, 120_000);
+        index.rebuild();
+        index.refresh();
+
+        assertEquals(List.of(1), index.search("tomatoes", new ProductSearchRequest(), Sort.unsorted(), 10).getProductIds());
+        verify(productRepository).findSearchDocumentsUpdatedSince(argThat(since -> since.isBefore(LocalDateTime.now().minusMinutes(1))));
+    }
+
+    @Test
+    void suggest_ReturnsPrefixMatchesForBothScripts() {
+        searchIndex.put(new ProductDocument(5, 3, 4, "Vegetables", "خضروات", "طماطم بلدية",
+                "", new BigDecimal("6.00"), true, true, LocalDateTime.now()));
+
+        assertEquals(List.of(5), searchIndex.suggest("طما", 8).stream().map(ProductDocument::getProductId).toList());
+        assertEquals(List.of(1, 3, 2), searchIndex.suggest("tom", 8).stream().map(ProductDocument::getProductId).toList());
+        assertEquals(1, searchIndex.suggest("tom", 1).size());
+    }
+
+    @Test
+    void updateCategoryNames_ReindexesProductsOfCategory() {
+        searchIndex.updateCategoryNames(3, "Bee Products", "منتجات النحل");
+
+        assertEquals(List.of(4), search("نحل", new ProductSearchRequest(), Sort.unsorted()));
+        assertEquals(List.of(4), search("bee", new ProductSearchRequest(), Sort.unsorted()));
+    }
+
+    private List<Integer> search(String keyword, ProductSearchRequest filters, Sort sort) {
+        return searchIndex.search(keyword, filters, sort, Integer.MAX_VALUE).getProductIds();
+    }
+
+    private ProductDocument document(int productId, int storeId, int categoryId, String name,
+                                     String description, String price, boolean organic) {
+        return new ProductDocument(productId, storeId, categoryId, null, null, name, description,
+                new BigDecimal(price), organic, true, LocalDateTime.now());
+    }
+}
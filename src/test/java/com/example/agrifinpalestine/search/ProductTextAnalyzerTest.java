@@ -0,0 +1,49 @@
+package com.example.agrifinpalestine.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductTextAnalyzerTest {
+
+    private final ProductTextAnalyzer analyzer = new ProductTextAnalyzer();
+
+    @Test
+    void normalize_FoldsHamzaAlefAndTaaMarbuta() {
+        assertEquals(analyzer.normalize("اريحا"), analyzer.normalize("أريحا"));
+        assertEquals(analyzer.normalize("زيتون"), analyzer.normalize("زيتون"));
+        assertEquals("عضويه", analyzer.normalize("عضوية"));
+        assertEquals("مصطفي", analyzer.normalize("مصطفى"));
+    }
+
+    @Test
+    void normalize_StripsDiacriticsAndTatweel() {
+        assertEquals("طماطم", analyzer.normalize("طَمَاطِم"));
+        assertEquals("طماطم", analyzer.normalize("طمـــاطم"));
+        assertEquals("cafe", analyzer.normalize("Café"));
+    }
+
+    @Test
+    void normalize_ConvertsArabicIndicDigits() {
+        assertEquals("500", analyzer.normalize("٥٠٠"));
+    }
+
+    @Test
+    void analyze_StripsArabicArticleAndPrefixes() {
+        assertEquals(List.of("زيت", "زيتون"), analyzer.analyze("الزيت وزيتون"));
+        assertEquals(analyzer.analyze("طماطم"), analyzer.analyze("بالطماطم"));
+    }
+
+    @Test
+    void analyze_StemsEnglishPlurals() {
+        assertEquals(List.of("apple", "berry", "tomato", "glass"), analyzer.analyze("Apples, berries; TOMATOES glass"));
+    }
+
+    @Test
+    void analyze_ReturnsEmptyListForBlankText() {
+        assertTrue(analyzer.analyze(null).isEmpty());
+        assertTrue(analyzer.analyze("  - , ").isEmpty());
+    }
+}
@@ -10,13 +10,16 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Collections;
 
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -68,6 +71,38 @@ public class JwtAuthenticationTest {
                 .andExpect(jsonPath("$.token").value("test-jwt-token"));
     }
 
+    @Test
+    public void testLoginSetsTokenCookiesWithoutSession() throws Exception {
+        LoginResponse mockResponse = LoginResponse.builder()
+                .username("testuser")
+                .token("test-jwt-token")
+                .tokenType("Bearer")
+                .success(true)
+                .build();
+
+        when(userService.authenticateUser(any(LoginRequest.class))).thenReturn(mockResponse);
+
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"testuser\",\"password\":\"password\"}"))
+                .andExpect(status().isOk())
+                .andExpect(cookie().value(TokenCookieService.ACCESS_TOKEN_COOKIE, "test-jwt-token"))
+                .andExpect(cookie().httpOnly(TokenCookieService.ACCESS_TOKEN_COOKIE, true))
+                .andExpect(cookie().exists(TokenCookieService.REFRESH_TOKEN_COOKIE))
+                .andExpect(cookie().httpOnly(TokenCookieService.REFRESH_TOKEN_COOKIE, true))
+                .andReturn();
+
+        // Stateless mode must not create a server-side session
+        assertNull(result.getRequest().getSession(false));
+    }
+
+    @Test
+    public void testRefreshWithoutCookie() throws Exception {
+        mockMvc.perform(post("/api/auth/refresh"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
     @Test
     public void testLoginFailure() throws Exception {
         // Mock the authentication service
@@ -0,0 +1,75 @@
+package com.example.agrifinpalestine.security;
+
+import com.example.agrifinpalestine.exception.ratelimit.LoginRateLimitedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginRateLimiterTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private LoginRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        // 10 attempts per client and 3 per username, each refilling one token every 6 / 20 seconds
+        rateLimiter = new LoginRateLimiter(10, 10, 3, 3, 1000, nanoTime::get);
+    }
+
+    @Test
+    void checkLogin_OverUsernameLimit_ShouldRejectWithRetryAfter() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.checkLogin("10.0.0." + i, "farmer");
+        }
+
+        LoginRateLimitedException e = assertThrows(LoginRateLimitedException.class,
+                () -> rateLimiter.checkLogin("10.0.0.9", "Farmer"));
+        assertEquals(20, e.getRetryAfterSeconds());
+        assertEquals(429, e.getStatus().value());
+
+        // Other accounts are not affected
+        rateLimiter.checkLogin("10.0.0.9", "seller");
+    }
+
+    @Test
+    void checkLogin_OverIpLimit_ShouldRejectAnyUsername() {
+        for (int i = 0; i < 10; i++) {
+            rateLimiter.checkLogin("10.0.0.1", "user" + i);
+        }
+
+        assertThrows(LoginRateLimitedException.class, () -> rateLimiter.checkLogin("10.0.0.1", "another"));
+        assertThrows(LoginRateLimitedException.class, () -> rateLimiter.checkRegistration("10.0.0.1"));
+        rateLimiter.checkLogin("10.0.0.2", "another");
+    }
+
+    @Test
+    void checkLogin_AfterRefill_ShouldAdmitAgain() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.checkLogin("10.0.0.1", "farmer");
+        }
+        assertThrows(LoginRateLimitedException.class, () -> rateLimiter.checkLogin("10.0.0.1", "farmer"));
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(20));
+
+        rateLimiter.checkLogin("10.0.0.1", "farmer");
+        assertThrows(LoginRateLimitedException.class, () -> rateLimiter.checkLogin("10.0.0.1", "farmer"));
+    }
+
+    @Test
+    void removeIdleBuckets_ShouldDropOnlyRefilledBuckets() {
+        rateLimiter.checkLogin("10.0.0.1", "farmer");
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        rateLimiter.checkLogin("10.0.0.2", "seller");
+        assertEquals(4, rateLimiter.size());
+
+        // Both clients and the first username have refilled, the second username has not
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(15));
+        rateLimiter.removeIdleBuckets();
+
+        assertEquals(1, rateLimiter.size());
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.agrifinpalestine.security;
+
+import com.example.agrifinpalestine.exception.ratelimit.PasswordHashingBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingExecutorTest {
+
+    private PasswordHashingExecutor hashingExecutor;
+    private ExecutorService requestThreads;
+
+    @AfterEach
+    void tearDown() {
+        if (hashingExecutor != null) {
+            hashingExecutor.shutdown();
+        }
+        if (requestThreads != null) {
+            requestThreads.shutdownNow();
+        }
+    }
+
+    @Test
+    void call_WhenQueueIsFull_ShouldRejectImmediately() throws Exception {
+        hashingExecutor = new PasswordHashingExecutor(1, 1, 10_000);
+        requestThreads = Executors.newFixedThreadPool(2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> running = requestThreads.submit(() -> hashingExecutor.call(() -> {
+            started.countDown();
+            await(release);
+            return "first";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> queued = requestThreads.submit(() -> hashingExecutor.call(() -> "second"));
+        waitUntil(() -> hashingExecutor.getQueuedTasks() == 1);
+
+        long start = System.nanoTime();
+        assertThrows(PasswordHashingBusyException.class, () -> hashingExecutor.call(() -> "third"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+
+        release.countDown();
+        assertEquals("first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("second", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void call_WhenTaskThrows_ShouldRethrowTheSameException() {
+        hashingExecutor = new PasswordHashingExecutor(1, 1, 10_000);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> hashingExecutor.call(() -> {
+                    throw new IllegalArgumentException("bad hash");
+                }));
+        assertEquals("bad hash", e.getMessage());
+    }
+
+    @Test
+    void boundedEncoder_ShouldMatchLikeTheDelegate() {
+        hashingExecutor = new PasswordHashingExecutor(1, 4, 10_000);
+        PasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), hashingExecutor);
+
+        String hash = encoder.encode("secret123");
+
+        assertTrue(encoder.matches("secret123", hash));
+        assertFalse(encoder.matches("wrong", hash));
+    }
+
+    /**
+     * Login storm benchmark: a pool of request threads serves a burst of logins mixed with
+     * cheap browsing requests. Hashing is bounded, so browsing keeps free request threads
+     * and its p99 latency stays far below the time of a single BCrypt hash.
+     * Timing dependent, so excluded from the default test run with the other benchmarks.
+     */
+    @Test
+    @Tag("benchmark")
+    void loginStorm_ShouldNotStallBrowsingRequests() throws Exception {
+        hashingExecutor = new PasswordHashingExecutor(1, 4, 10_000);
+        PasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(10), hashingExecutor);
+        String hash = new BCryptPasswordEncoder(10).encode("secret123");
+        requestThreads = Executors.newFixedThreadPool(16);
+
+        AtomicInteger rejectedLogins = new AtomicInteger();
+        List<Long> browsingLatencies = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> requests = new ArrayList<>();
+
+        for (int i = 0; i < 200; i++) {
+            requests.add(requestThreads.submit(() -> {
+                try {
+                    encoder.matches("secret123", hash);
+                } catch (PasswordHashingBusyException e) {
+                    rejectedLogins.incrementAndGet();
+                }
+            }));
+            long submitted = System.nanoTime();
+            requests.add(requestThreads.submit(() -> {
+                browse();
+                browsingLatencies.add(System.nanoTime() - submitted);
+            }));
+        }
+        for (Future<?> request : requests) {
+            request.get(60, TimeUnit.SECONDS);
+        }
+
+        List<Long> sorted = new ArrayList<>(browsingLatencies);
+        Collections.sort(sorted);
+        long p99Millis = TimeUnit.NANOSECONDS.toMillis(sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1));
+
+        assertTrue(rejectedLogins.get() > 0, "No login of 200 was rejected, browsing p99 was " + p99Millis + " ms");
+        assertTrue(p99Millis < 250, "Browsing p99 was " + p99Millis + " ms with "
+                + rejectedLogins.get() + " of 200 logins rejected");
+    }
+
+    private static void browse() {
+        // Stands in for rendering a product page: a little CPU work and no hashing
+        long sum = 0;
+        for (int i = 0; i < 10_000; i++) {
+            sum += i * 31L;
+        }
+        assertTrue(sum > 0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
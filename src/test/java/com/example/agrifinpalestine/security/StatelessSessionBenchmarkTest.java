@@ -0,0 +1,184 @@
+package com.example.agrifinpalestine.security;
+
+import com.example.agrifinpalestine.Entity.Role;
+import com.example.agrifinpalestine.support.TestData;
+import jakarta.servlet.http.HttpSessionEvent;
+import jakarta.servlet.http.HttpSessionListener;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Logs in growing numbers of distinct users over real HTTP and replays authenticated pages,
+ * API calls and a cookie refresh for each, then checks that no HTTP session was created and
+ * that the heap retained after a full GC does not grow with the number of users. The caches
+ * keyed by user are bounded low and rate limiting is off, so that whatever grows per user past
+ * the warmup is state the stateless login should not keep. Runs in a disposable MySQL
+ * container. Excluded from the default test run, see the test.excludedGroups property in the
+ * pom, and skipped when Docker is not available.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers(disabledWithoutDocker = true)
+class StatelessSessionBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatelessSessionBenchmarkTest.class);
+
+    private static final String PASSWORD = "Olive-Harvest-2024";
+    private static final int WARMUP_USERS = 200;
+    private static final int[] ROUNDS = {250, 500, 1000};
+    // A Tomcat session holding a SecurityContext alone takes several times this
+    private static final long MAX_RETAINED_BYTES_PER_USER = 1024;
+    private static final int BOUNDED_CACHE_ENTRIES = 50;
+
+    private static final AtomicInteger SESSIONS_CREATED = new AtomicInteger();
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    @DynamicPropertySource
+    static void mysqlProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+        registry.add("datasource.replica.enabled", () -> "false");
+        registry.add("security.stateless", () -> "true");
+        registry.add("security.login-rate-limit.ip.capacity", () -> "0");
+        registry.add("security.login-rate-limit.username.capacity", () -> "0");
+        registry.add("security.user-details-cache.max-entries", () -> String.valueOf(BOUNDED_CACHE_ENTRIES));
+        registry.add("jwt.verified-cache.max-entries", () -> String.valueOf(BOUNDED_CACHE_ENTRIES));
+    }
+
+    @TestConfiguration
+    static class SessionCounterConfiguration {
+
+        @Bean
+        HttpSessionListener sessionCounter() {
+            return new HttpSessionListener() {
+                @Override
+                public void sessionCreated(HttpSessionEvent event) {
+                    SESSIONS_CREATED.incrementAndGet();
+                }
+            };
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+
+    @Test
+    void authenticatedTraffic_ShouldKeepNoSessionsAndNoHeapPerUser() throws Exception {
+        TestData testData = new TestData(jdbcTemplate);
+        String passwordHash = passwordEncoder.encode(PASSWORD);
+
+        replayUsers(testData, passwordHash, WARMUP_USERS);
+        long retained = retainedHeap();
+        for (int users : ROUNDS) {
+            replayUsers(testData, passwordHash, users);
+            long retainedAfter = retainedHeap();
+            long bytesPerUser = (retainedAfter - retained) / users;
+            logger.info("{} more users: retained heap {} -> {} bytes, {} bytes per user",
+                    users, retained, retainedAfter, bytesPerUser);
+
+            assertTrue(bytesPerUser < MAX_RETAINED_BYTES_PER_USER,
+                    "Retained heap grew by " + bytesPerUser + " bytes per user over " + users + " users");
+            retained = retainedAfter;
+        }
+        assertEquals(0, SESSIONS_CREATED.get(), "HTTP sessions created");
+    }
+
+    /**
+     * Log in new users, then for each load two pages and the cart API, refresh the access token
+     * cookie and call the API again with the refreshed one
+     */
+    private void replayUsers(TestData testData, String passwordHash, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            int userId = testData.insertUser(Role.ERole.ROLE_USER);
+            jdbcTemplate.update("UPDATE users SET password_hash = ? WHERE user_id = ?", passwordHash, userId);
+
+            Map<String, String> cookies = new HashMap<>();
+            send(HttpRequest.newBuilder(uri("/api/auth/login"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"" + testData.username(userId)
+                            + "\",\"password\":\"" + PASSWORD + "\"}")), cookies);
+            assertTrue(cookies.containsKey(TokenCookieService.ACCESS_TOKEN_COOKIE), "No access token cookie");
+
+            send(HttpRequest.newBuilder(uri("/cart")).GET(), cookies);
+            // Renders a CSRF token
+            send(HttpRequest.newBuilder(uri("/orders")).GET(), cookies);
+            send(HttpRequest.newBuilder(uri("/api/cart")).GET(), cookies);
+            send(HttpRequest.newBuilder(uri("/api/auth/refresh")).POST(HttpRequest.BodyPublishers.noBody()), cookies);
+            send(HttpRequest.newBuilder(uri("/api/cart")).GET(), cookies);
+        }
+    }
+
+    /**
+     * Send a request with the given cookies, check that it was served without a session, and
+     * take over the cookies the response sets
+     */
+    private void send(HttpRequest.Builder request, Map<String, String> cookies) throws Exception {
+        if (!cookies.isEmpty()) {
+            request.header("Cookie", String.join("; ", cookies.entrySet().stream()
+                    .map(cookie -> cookie.getKey() + "=" + cookie.getValue())
+                    .toList()));
+        }
+        HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        assertTrue(response.statusCode() < 400, response.request().uri() + " returned " + response.statusCode());
+
+        List<String> setCookies = response.headers().allValues("Set-Cookie");
+        for (String setCookie : setCookies) {
+            String pair = setCookie.split(";", 2)[0];
+            int equals = pair.indexOf('=');
+            String name = pair.substring(0, equals);
+            assertNotEquals("JSESSIONID", name, "Session cookie set by " + response.request().uri());
+            cookies.put(name, pair.substring(equals + 1));
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static long retainedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
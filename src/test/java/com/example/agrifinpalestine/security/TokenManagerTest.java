@@ -0,0 +1,224 @@
+package com.example.agrifinpalestine.security;
+
+import com.example.agrifinpalestine.exception.auth.InvalidTokenException;
+import com.example.agrifinpalestine.exception.auth.TokenExpiredException;
+import com.example.agrifinpalestine.exception.auth.TokenRevokedException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenManagerTest {
+
+    private SecretKey signingKey;
+    private TokenRevocationList revocationList;
+    private TokenManager tokenManager;
+
+    @BeforeEach
+    void setUp() {
+        signingKey = Keys.secretKeyFor(SignatureAlgorithm.HS512);
+        revocationList = new TokenRevocationList(1000);
+        tokenManager = new TokenManager(signingKey, revocationList, 60_000, 600_000, 100);
+    }
+
+    @Test
+    void parseAndValidate_ShouldVerifyATokenOnce() {
+        String token = token("farmer", new Date(System.currentTimeMillis() + 60_000));
+
+        Claims claims = tokenManager.parseAndValidate(token);
+
+        assertEquals("farmer", claims.getSubject());
+        assertSame(claims, tokenManager.parseAndValidate(token));
+        assertEquals("farmer", tokenManager.getUsernameFromToken(token));
+        assertTrue(tokenManager.validateToken(token));
+    }
+
+    @Test
+    void parseAndValidate_WithTamperedToken_ShouldThrowInvalidToken() {
+        String token = token("farmer", new Date(System.currentTimeMillis() + 60_000));
+        tokenManager.parseAndValidate(token);
+
+        String otherKeyToken = Jwts.builder()
+                .setSubject("farmer")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.secretKeyFor(SignatureAlgorithm.HS512), SignatureAlgorithm.HS512)
+                .compact();
+
+        assertThrows(InvalidTokenException.class, () -> tokenManager.parseAndValidate(otherKeyToken));
+        assertThrows(InvalidTokenException.class, () -> tokenManager.parseAndValidate(token + "x"));
+        assertThrows(InvalidTokenException.class, () -> tokenManager.parseAndValidate("not-a-token"));
+        assertThrows(InvalidTokenException.class, () -> tokenManager.parseAndValidate(""));
+    }
+
+    @Test
+    void parseAndValidate_WithExpiredToken_ShouldThrowTokenExpired() {
+        String token = token("farmer", new Date(System.currentTimeMillis() - 1_000));
+
+        assertThrows(TokenExpiredException.class, () -> tokenManager.parseAndValidate(token));
+        assertTrue(tokenManager.isTokenExpired(token));
+    }
+
+    @Test
+    void issueTokens_ShouldIssueANewRefreshToken() {
+        String refreshToken = tokenManager.generateRefreshToken("farmer");
+
+        TokenPair tokens = tokenManager.issueTokens("farmer");
+
+        assertEquals("farmer", tokens.getUsername());
+        assertEquals("farmer", tokenManager.parseAndValidate(tokens.getAccessToken()).getSubject());
+        assertNotEquals(refreshToken, tokens.getRefreshToken());
+        assertEquals("farmer", tokenManager.parseRefreshToken(tokens.getRefreshToken()).getSubject());
+    }
+
+    @Test
+    void tokenTypes_ShouldNotBeInterchangeable() {
+        String accessToken = tokenManager.generateTokenFromUsername("farmer");
+        String refreshToken = tokenManager.generateRefreshToken("farmer");
+
+        assertThrows(InvalidTokenException.class, () -> tokenManager.parseAndValidate(refreshToken));
+        assertThrows(InvalidTokenException.class, () -> tokenManager.parseRefreshToken(accessToken));
+    }
+
+    @Test
+    void revokedToken_ShouldBeRejectedEvenWhenCached() {
+        String token = tokenManager.generateTokenFromUsername("farmer");
+        String otherToken = tokenManager.generateTokenFromUsername("farmer");
+        Claims claims = tokenManager.parseAndValidate(token);
+
+        revocationList.revokeToken(claims.getId(), claims.getExpiration().getTime());
+
+        assertThrows(TokenRevokedException.class, () -> tokenManager.parseAndValidate(token));
+        assertEquals("farmer", tokenManager.getUsernameFromToken(otherToken));
+    }
+
+    @Test
+    void revokedUser_ShouldRejectTokensIssuedBefore() {
+        String accessToken = tokenManager.generateTokenFromUsername("farmer");
+        String refreshToken = tokenManager.generateRefreshToken("farmer");
+        String otherUserToken = tokenManager.generateTokenFromUsername("seller");
+
+        revocationList.revokeUserTokens("farmer", System.currentTimeMillis());
+
+        assertThrows(TokenRevokedException.class, () -> tokenManager.parseAndValidate(accessToken));
+        assertThrows(TokenRevokedException.class, () -> tokenManager.parseRefreshToken(refreshToken));
+        assertEquals("seller", tokenManager.getUsernameFromToken(otherUserToken));
+
+        // Tokens issued in a later second are accepted again
+        String laterToken = Jwts.builder()
+                .setSubject("farmer")
+                .setIssuedAt(new Date(System.currentTimeMillis() + 2_000))
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(signingKey, SignatureAlgorithm.HS512)
+                .compact();
+        assertEquals("farmer", tokenManager.getUsernameFromToken(laterToken));
+    }
+
+    @Test
+    void revocationList_ShouldForgetExpiredRevocations() {
+        long now = System.currentTimeMillis();
+        revocationList.revokeToken("expired", now - 1);
+        revocationList.revokeToken("live", now + 60_000);
+        revocationList.revokeUserTokens("old", now - 700_000);
+        revocationList.revokeUserTokens("recent", now);
+
+        revocationList.purge(now, 600_000);
+
+        assertEquals(2, revocationList.size());
+        assertTrue(revocationList.isRevoked(Jwts.claims().setId("live")));
+        assertFalse(revocationList.isRevoked(Jwts.claims().setId("expired")));
+    }
+
+    @Test
+    void bloomFilter_ShouldHaveNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.add("jti:" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("jti:" + i));
+            if (filter.mightContain("other:" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50);
+    }
+
+    @Test
+    void cache_ShouldNotReturnClaimsAfterTheTokenExpires() {
+        MutableClock clock = new MutableClock(1_000_000);
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, clock);
+        Claims claims = Jwts.claims().setSubject("farmer").setExpiration(new Date(1_060_000));
+
+        cache.put("token", claims);
+        assertSame(claims, cache.get("token"));
+
+        clock.millis = 1_060_000;
+        assertNull(cache.get("token"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void cache_ShouldStayWithinItsBound() {
+        MutableClock clock = new MutableClock(1_000_000);
+        VerifiedTokenCache cache = new VerifiedTokenCache(3, clock);
+
+        for (int i = 0; i < 10; i++) {
+            cache.put("token-" + i, Jwts.claims().setExpiration(new Date(2_000_000)));
+        }
+        cache.put("no-expiry", Jwts.claims().setSubject("farmer"));
+
+        assertEquals(3, cache.size());
+        assertNotNull(cache.get("token-9"));
+        assertNull(cache.get("no-expiry"));
+    }
+
+    private String token(String username, Date expiration) {
+        return Jwts.builder()
+                .setSubject(username)
+                .setIssuedAt(new Date())
+                .setExpiration(expiration)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
+                .compact();
+    }
+
+    private static class MutableClock extends Clock {
+        private long millis;
+
+        MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
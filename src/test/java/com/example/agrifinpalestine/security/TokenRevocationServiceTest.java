@@ -0,0 +1,83 @@
+package com.example.agrifinpalestine.security;
+
+import com.example.agrifinpalestine.Entity.TokenRevocation;
+import com.example.agrifinpalestine.Repository.TokenRevocationRepository;
+import com.example.agrifinpalestine.exception.auth.TokenRevokedException;
+import com.example.agrifinpalestine.lock.StripedLockService;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationServiceTest {
+
+    private TokenRevocationRepository revocationRepository;
+    private TokenRevocationList revocationList;
+    private TokenManager tokenManager;
+
+    @BeforeEach
+    void setUp() {
+        revocationRepository = mock(TokenRevocationRepository.class);
+        when(revocationRepository.save(any(TokenRevocation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        revocationList = new TokenRevocationList(1000);
+        tokenManager = new TokenManager(Keys.secretKeyFor(SignatureAlgorithm.HS512), revocationList, 60_000, 600_000, 100);
+    }
+
+    @Test
+    void rotateRefreshToken_ShouldRevokeThePresentedToken() {
+        TokenRevocationService service = service(10_000);
+        String refreshToken = tokenManager.generateRefreshToken("farmer");
+
+        TokenPair tokens = service.rotateRefreshToken(refreshToken);
+
+        assertEquals("farmer", tokens.getUsername());
+        assertThrows(TokenRevokedException.class, () -> tokenManager.parseRefreshToken(refreshToken));
+        assertEquals("farmer", tokenManager.parseRefreshToken(tokens.getRefreshToken()).getSubject());
+        verify(revocationRepository).save(argThat(revocation -> revocation.getRotatedAt() != null));
+    }
+
+    @Test
+    void rotateRefreshToken_WithinTheGraceWindow_ShouldIssueTokensAgain() {
+        TokenRevocationService service = service(10_000);
+        String refreshToken = tokenManager.generateRefreshToken("farmer");
+
+        TokenPair first = service.rotateRefreshToken(refreshToken);
+        TokenPair second = service.rotateRefreshToken(refreshToken);
+
+        // A parallel refresh does not sign the other tab out
+        assertEquals("farmer", tokenManager.parseAndValidate(first.getAccessToken()).getSubject());
+        assertEquals("farmer", tokenManager.parseAndValidate(second.getAccessToken()).getSubject());
+    }
+
+    @Test
+    void rotateRefreshToken_ReusedAfterTheGraceWindow_ShouldRevokeEveryTokenOfTheUser() {
+        TokenRevocationService service = service(0);
+        String refreshToken = tokenManager.generateRefreshToken("farmer");
+        TokenPair rotated = service.rotateRefreshToken(refreshToken);
+
+        sleepPastTheGraceWindow();
+        assertThrows(TokenRevokedException.class, () -> service.rotateRefreshToken(refreshToken));
+
+        assertThrows(TokenRevokedException.class, () -> tokenManager.parseAndValidate(rotated.getAccessToken()));
+        assertThrows(TokenRevokedException.class, () -> tokenManager.parseRefreshToken(rotated.getRefreshToken()));
+        verify(revocationRepository).save(argThat(revocation -> "farmer".equals(revocation.getUsername())));
+    }
+
+    private TokenRevocationService service(long graceMillis) {
+        return new TokenRevocationService(revocationRepository, revocationList, tokenManager,
+                new StripedLockService(16), graceMillis);
+    }
+
+    private static void sleepPastTheGraceWindow() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
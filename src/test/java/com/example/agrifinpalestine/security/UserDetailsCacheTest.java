@@ -0,0 +1,72 @@
+package com.example.agrifinpalestine.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDetailsCacheTest {
+
+    private UserDetailsCache cache;
+    private AtomicInteger loads;
+    private Function<String, UserDetailsImpl> loader;
+
+    @BeforeEach
+    void setUp() {
+        cache = new UserDetailsCache(60_000, 100);
+        loads = new AtomicInteger();
+        loader = username -> {
+            loads.incrementAndGet();
+            return new UserDetailsImpl(1, username, username + "@example.com", "hash",
+                    List.of(new SimpleGrantedAuthority("ROLE_USER")), true).withoutPassword();
+        };
+    }
+
+    @Test
+    void get_ShouldLoadAUserOnce() {
+        UserDetailsImpl first = cache.get("farmer", loader);
+
+        assertSame(first, cache.get("farmer", loader));
+        assertEquals(1, loads.get());
+        assertNull(first.getPassword());
+        assertEquals(1, first.getAuthorities().size());
+    }
+
+    @Test
+    void userAccountChanged_ShouldEvictTheUser() {
+        cache.get("farmer", loader);
+        cache.get("seller", loader);
+
+        cache.onUserAccountChanged(new UserAccountChangedEvent("farmer"));
+
+        cache.get("farmer", loader);
+        cache.get("seller", loader);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void get_WhenEvictedWhileLoading_ShouldNotCacheTheLoadedUser() {
+        cache.get("farmer", username -> {
+            cache.evict(username);
+            return loader.apply(username);
+        });
+
+        cache.get("farmer", loader);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_AfterTheTtl_ShouldLoadAgain() {
+        cache = new UserDetailsCache(0, 100);
+
+        cache.get("farmer", loader);
+        cache.get("farmer", loader);
+
+        assertEquals(2, loads.get());
+    }
+}
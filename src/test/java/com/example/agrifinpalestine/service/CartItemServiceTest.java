@@ -0,0 +1,153 @@
+package com.example.agrifinpalestine.service;
+
+import com.example.agrifinpalestine.Entity.Cart;
+import com.example.agrifinpalestine.Entity.CartItem;
+import com.example.agrifinpalestine.Entity.CartStatus;
+import com.example.agrifinpalestine.Entity.Product;
+import com.example.agrifinpalestine.Entity.User;
+import com.example.agrifinpalestine.Repository.CartItemRepository;
+import com.example.agrifinpalestine.Repository.CartRepository;
+import com.example.agrifinpalestine.Repository.ProductRepository;
+import com.example.agrifinpalestine.Repository.UserRepository;
+import com.example.agrifinpalestine.dto.CartItemRequest;
+import com.example.agrifinpalestine.dto.CartItemResponse;
+import com.example.agrifinpalestine.dto.CartTotals;
+import com.example.agrifinpalestine.exception.inventory.InsufficientInventoryException;
+import com.example.agrifinpalestine.service.impl.CartItemServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CartItemServiceTest {
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private CartItemRepository cartItemRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private CartItemServiceImpl cartItemService;
+
+    private Cart testCart;
+    private CartItem testCartItem;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        User user = new User();
+        user.setUserId(7);
+
+        testCart = new Cart();
+        testCart.setCartId(3);
+        testCart.setUser(user);
+        testCart.setStatus(CartStatus.ACTIVE);
+
+        Product product = new Product();
+        product.setProductId(11);
+        product.setProductName("Olive Oil");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setQuantity(100);
+
+        testCartItem = new CartItem();
+        testCartItem.setCartItemId(5);
+        testCartItem.setCart(testCart);
+        testCartItem.setProduct(product);
+        testCartItem.setQuantity(2);
+        testCartItem.setPrice(new BigDecimal("10.00"));
+
+        when(cartRepository.findActiveCartByUserId(7)).thenReturn(Optional.of(testCart));
+        when(cartItemRepository.findById(5)).thenReturn(Optional.of(testCartItem));
+    }
+
+    @Test
+    void addToCart_ShouldUpsertLineAndIncrementTotals() {
+        testCartItem.setQuantity(3);
+        when(cartItemRepository.upsertLine(3, 11, 3)).thenReturn(1);
+        when(cartItemRepository.findLineWithProduct(3, 11)).thenReturn(Optional.of(testCartItem));
+
+        CartItemResponse response = cartItemService.addToCart(7, cartItemRequest(11, 3));
+
+        assertEquals(5, response.getId());
+        assertEquals(3, response.getQuantity());
+        verify(cartRepository).addLineQuantityToTotals(3, 11, 3);
+        verify(userRepository, never()).findById(anyInt());
+        verify(cartItemRepository, never()).save(any(CartItem.class));
+    }
+
+    @Test
+    void addToCart_WhenStockDoesNotCoverLine_ShouldThrowWithoutTouchingTotals() {
+        when(cartItemRepository.upsertLine(3, 11, 99)).thenReturn(0);
+        when(productRepository.findById(11)).thenReturn(Optional.of(testCartItem.getProduct()));
+        when(cartItemRepository.findByCartCartIdAndProductProductId(3, 11)).thenReturn(Optional.of(testCartItem));
+
+        InsufficientInventoryException exception = assertThrows(InsufficientInventoryException.class,
+                () -> cartItemService.addToCart(7, cartItemRequest(11, 99)));
+
+        assertEquals(101, exception.getRequestedQuantity());
+        assertEquals(100, exception.getAvailableQuantity());
+        verify(cartRepository, never()).addLineQuantityToTotals(anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void updateCartItem_ShouldApplyOnlyTheChangedLineToTotals() {
+        cartItemService.updateCartItem(7, 5, cartItemRequest(11, 5));
+
+        verify(cartRepository).applyTotalsDelta(3, new BigDecimal("30.00"), 3);
+        verify(cartItemRepository, never()).findAllByCartCartId(anyInt());
+        verify(cartRepository, never()).save(any(Cart.class));
+    }
+
+    @Test
+    void removeFromCart_ShouldSubtractTheRemovedLineFromTotals() {
+        assertTrue(cartItemService.removeFromCart(7, 5));
+
+        verify(cartItemRepository).delete(testCartItem);
+        verify(cartRepository).applyTotalsDelta(eq(3), eq(new BigDecimal("-20.00")), eq(-2));
+    }
+
+    @Test
+    void reconcileCartTotals_ShouldOnlyRepairCartsUnchangedSinceTheyWereRead() {
+        when(cartRepository.findDriftedActiveCartTotals()).thenReturn(List.of(
+                new CartTotals(3, 4L, new BigDecimal("20.00"), 2L),
+                new CartTotals(8, 1L, BigDecimal.ZERO, 0L)));
+        when(cartRepository.repairTotals(3, 4L, new BigDecimal("20.00"), 2)).thenReturn(1);
+        // Cart 8 had an item added after its totals were computed, so its version moved on
+        when(cartRepository.repairTotals(8, 1L, BigDecimal.ZERO, 0)).thenReturn(0);
+
+        cartItemService.reconcileCartTotals();
+
+        verify(cartRepository).repairTotals(3, 4L, new BigDecimal("20.00"), 2);
+        verify(cartRepository).repairTotals(8, 1L, BigDecimal.ZERO, 0);
+    }
+
+    private static CartItemRequest cartItemRequest(Integer productId, Integer quantity) {
+        CartItemRequest request = new CartItemRequest();
+        request.setProductId(productId);
+        request.setQuantity(quantity);
+        return request;
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.agrifinpalestine.service;
+
+import com.example.agrifinpalestine.Entity.Cart;
+import com.example.agrifinpalestine.Entity.CartItem;
+import com.example.agrifinpalestine.Entity.CartStatus;
+import com.example.agrifinpalestine.Entity.Order;
+import com.example.agrifinpalestine.Entity.Product;
+import com.example.agrifinpalestine.Entity.ProductCategory;
+import com.example.agrifinpalestine.Entity.Store;
+import com.example.agrifinpalestine.Entity.User;
+import com.example.agrifinpalestine.Repository.CartItemRepository;
+import com.example.agrifinpalestine.Repository.CartRepository;
+import com.example.agrifinpalestine.Repository.ProductCategoryRepository;
+import com.example.agrifinpalestine.Repository.ProductRepository;
+import com.example.agrifinpalestine.Repository.StoreRepository;
+import com.example.agrifinpalestine.Repository.UserRepository;
+import com.example.agrifinpalestine.exception.inventory.ReservationMismatchException;
+import com.example.agrifinpalestine.exception.inventory.ReservationNotFoundException;
+import com.example.agrifinpalestine.support.StatementRecorder;
+import com.example.agrifinpalestine.support.StatementRecorder.RecordedStatement;
+import com.example.agrifinpalestine.support.StatementRecorderConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs checkouts against the configured database. Counts their SQL statements, so that a
+ * change to the checkout pipeline that adds queries fails here instead of in production,
+ * and checks that concurrent reports of one payment create a single order.
+ */
+@SpringBootTest
+@Import(StatementRecorderConfiguration.class)
+class CheckoutIntegrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutIntegrationTest.class);
+
+    // 8 fixed statements, including one batch of order line inserts, plus a reservation commit per cart line
+    private static final int FIXED_STATEMENTS = 8;
+    private static final int STATEMENTS_PER_LINE = 1;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private ProductCategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StatementRecorder statementRecorder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String runId;
+    private User seller;
+    private User buyer;
+    private ProductCategory category;
+    private Product olives;
+    private Product oil;
+    private final List<Product> extraProducts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        runId = UUID.randomUUID().toString().substring(0, 8);
+
+        seller = userRepository.save(newUser("seller-" + runId));
+        buyer = userRepository.save(newUser("buyer-" + runId));
+
+        Store store = new Store();
+        store.setUser(seller);
+        store.setStoreName("Checkout Store " + runId);
+        store.setCreatedAt(LocalDateTime.now());
+        store.setUpdatedAt(LocalDateTime.now());
+        store = storeRepository.save(store);
+
+        category = new ProductCategory();
+        category.setCategoryNameEn("Checkout " + runId);
+        category.setCategoryNameAr("Checkout " + runId);
+        category = categoryRepository.save(category);
+
+        olives = productRepository.save(newProduct(store, "Olives " + runId, "12.50"));
+        oil = productRepository.save(newProduct(store, "Olive Oil " + runId, "40.00"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (SELECT order_id FROM orders WHERE user_id = ?)",
+                buyer.getUserId());
+        jdbcTemplate.update("DELETE FROM orders WHERE user_id = ?", buyer.getUserId());
+        jdbcTemplate.update("DELETE FROM inventory_reservations WHERE user_id = ?", buyer.getUserId());
+        jdbcTemplate.update("DELETE FROM carts WHERE user_id = ?", buyer.getUserId());
+        extraProducts.forEach(product -> productRepository.deleteById(product.getProductId()));
+        productRepository.deleteById(olives.getProductId());
+        productRepository.deleteById(oil.getProductId());
+        userRepository.deleteById(buyer.getUserId());
+        userRepository.deleteById(seller.getUserId());
+        categoryRepository.deleteById(category.getCategoryId());
+    }
+
+    @Test
+    void completeCheckout_ShouldIssueAFixedNumberOfStatementsPerCartLine() {
+        Cart cart = cartRepository.save(newCart());
+
+        // The second checkout also replaces the cart completed by the first one
+        for (int checkout = 1; checkout <= 2; checkout++) {
+            cartItemRepository.save(new CartItem(cart, olives, 3));
+            cartItemRepository.save(new CartItem(cart, oil, 1));
+            String paymentIntentId = "pi_count_" + runId + "_" + checkout;
+            inventoryService.reserve(buyer.getUserId(), paymentIntentId, cartItemRepository.findCheckoutLines(buyer.getUserId()));
+
+            Order[] result = new Order[1];
+            List<RecordedStatement> statements = checkoutStatements(statementRecorder.record(
+                    () -> result[0] = orderService.completeCheckout(buyer.getUserId(), paymentIntentId)));
+            Order order = result[0];
+
+            assertEquals(FIXED_STATEMENTS + 2 * STATEMENTS_PER_LINE, statements.size());
+            assertEquals(0, new BigDecimal("77.50").compareTo(order.getTotalAmount()));
+            assertEquals(2, order.getOrderItems().size());
+
+            List<Cart> completed = cartRepository.findAllByUserUserIdAndStatus(buyer.getUserId(), CartStatus.COMPLETED);
+            assertEquals(1, completed.size());
+            assertEquals(cart.getCartId(), completed.get(0).getCartId());
+
+            cart = cartRepository.findActiveCartByUserId(buyer.getUserId()).orElseThrow();
+            assertNotEquals(completed.get(0).getCartId(), cart.getCartId());
+            assertEquals(0, cartItemRepository.countByUserIdAndCartStatusActive(buyer.getUserId()));
+
+            // Reporting the same payment again returns the order without creating another one
+            assertEquals(order.getOrderId(), orderService.completeCheckout(buyer.getUserId(), paymentIntentId).getOrderId());
+        }
+    }
+
+    /**
+     * Order lines take their ids from a pooled table generator instead of AUTO_INCREMENT, so
+     * the lines of a 50-line order go to the database as a single JDBC batch, which the MySQL
+     * driver rewrites into one multi-row INSERT
+     */
+    @Test
+    void completeCheckout_WithFiftyLines_ShouldInsertTheOrderLinesInOneBatch() {
+        Store store = olives.getStore();
+        Cart cart = cartRepository.save(newCart());
+        for (int i = 0; i < 50; i++) {
+            Product product = productRepository.save(newProduct(store, "Produce " + i + " " + runId, "5.00"));
+            extraProducts.add(product);
+            cartItemRepository.save(new CartItem(cart, product, 1));
+        }
+        String paymentIntentId = "pi_batch_" + runId;
+        inventoryService.reserve(buyer.getUserId(), paymentIntentId, cartItemRepository.findCheckoutLines(buyer.getUserId()));
+
+        long start = System.nanoTime();
+        Order[] result = new Order[1];
+        List<RecordedStatement> statements = checkoutStatements(statementRecorder.record(
+                () -> result[0] = orderService.completeCheckout(buyer.getUserId(), paymentIntentId)));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        List<RecordedStatement> lineInserts = statements.stream()
+                .filter(statement -> statement.sql().toLowerCase().startsWith("insert into order_items"))
+                .collect(Collectors.toList());
+        logger.info("50-line checkout: {} statements, order lines in {} round trip(s), {} ms",
+                statements.size(), lineInserts.size(), elapsedMillis);
+
+        assertEquals(1, lineInserts.size(), "Order line inserts: " + lineInserts);
+        assertEquals(50, lineInserts.get(0).batchSize(), "Order lines in the batch");
+        assertEquals(FIXED_STATEMENTS + 50 * STATEMENTS_PER_LINE, statements.size(), "Checkout statements: " + statements);
+        assertEquals(50, result[0].getOrderItems().size());
+    }
+
+    @Test
+    void completeCheckout_ReportedConcurrently_ShouldCreateOneOrder() throws Exception {
+        Cart cart = cartRepository.save(newCart());
+        cartItemRepository.save(new CartItem(cart, olives, 2));
+        String paymentIntentId = "pi_twice_" + runId;
+        inventoryService.reserve(buyer.getUserId(), paymentIntentId, cartItemRepository.findCheckoutLines(buyer.getUserId()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        Callable<Integer> report = () -> {
+            start.await();
+            return orderService.completeCheckout(buyer.getUserId(), paymentIntentId).getOrderId();
+        };
+
+        try {
+            Future<Integer> first = executor.submit(report);
+            Future<Integer> second = executor.submit(report);
+            start.countDown();
+
+            // The losing request retries and finds the order of the winner
+            assertEquals(first.get(1, TimeUnit.MINUTES), second.get(1, TimeUnit.MINUTES));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, orderService.getUserOrders(buyer.getUserId()).size());
+        assertEquals(98, productRepository.findById(olives.getProductId()).orElseThrow().getQuantity());
+        assertEquals(1, cartRepository.findAllActiveCartsByUserId(buyer.getUserId()).size());
+    }
+
+    @Test
+    void completeCheckout_AfterAPriceChange_ShouldChargeTheReservedPrice() {
+        Cart cart = cartRepository.save(newCart());
+        cartItemRepository.save(new CartItem(cart, olives, 2));
+        String paymentIntentId = "pi_price_" + runId;
+        inventoryService.reserve(buyer.getUserId(), paymentIntentId, cartItemRepository.findCheckoutLines(buyer.getUserId()));
+
+        jdbcTemplate.update("UPDATE products SET price = ? WHERE product_id = ?", new BigDecimal("99.00"), olives.getProductId());
+        Order order = orderService.completeCheckout(buyer.getUserId(), paymentIntentId);
+
+        assertEquals(0, new BigDecimal("25.00").compareTo(order.getTotalAmount()));
+        assertEquals(0, new BigDecimal("12.50").compareTo(order.getOrderItems().get(0).getPricePerUnit()));
+    }
+
+    @Test
+    void completeCheckout_WhenTheCartChangedAfterThePayment_ShouldNotCreateAnOrder() {
+        Cart cart = cartRepository.save(newCart());
+        cartItemRepository.save(new CartItem(cart, olives, 2));
+        String paymentIntentId = "pi_changed_" + runId;
+        inventoryService.reserve(buyer.getUserId(), paymentIntentId, cartItemRepository.findCheckoutLines(buyer.getUserId()));
+        cartItemRepository.save(new CartItem(cart, oil, 1));
+
+        assertThrows(ReservationMismatchException.class,
+                () -> orderService.completeCheckout(buyer.getUserId(), paymentIntentId));
+
+        assertTrue(orderService.getUserOrders(buyer.getUserId()).isEmpty());
+        // The commit rolled back with the order, so the stock is still only reserved
+        assertEquals("RESERVED", jdbcTemplate.queryForObject(
+                "SELECT status FROM inventory_reservations WHERE payment_intent_id = ?", String.class, paymentIntentId));
+    }
+
+    @Test
+    void completeCheckout_WithoutAReservation_ShouldNotCreateAnOrder() {
+        Cart cart = cartRepository.save(newCart());
+        cartItemRepository.save(new CartItem(cart, olives, 2));
+
+        assertThrows(ReservationNotFoundException.class,
+                () -> orderService.completeCheckout(buyer.getUserId(), "pi_unknown_" + runId));
+
+        assertTrue(orderService.getUserOrders(buyer.getUserId()).isEmpty());
+        assertEquals(100, productRepository.findById(olives.getProductId()).orElseThrow().getQuantity());
+    }
+
+    // Ids are allocated 50 at a time, so only some checkouts touch id_generators; those statements are not counted
+    private static List<RecordedStatement> checkoutStatements(List<RecordedStatement> statements) {
+        return statements.stream()
+                .filter(statement -> !statement.sql().toLowerCase().contains("id_generators"))
+                .collect(Collectors.toList());
+    }
+
+    private User newUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPasswordHash("not-a-real-hash");
+        user.setFullName("Checkout Test");
+        user.setRegion("Nablus");
+        user.setAgricultureType("Olives");
+        user.setCreatedAt(LocalDateTime.now());
+        user.setUpdatedAt(LocalDateTime.now());
+        return user;
+    }
+
+    private Product newProduct(Store store, String name, String price) {
+        Product product = new Product();
+        product.setStore(store);
+        product.setCategory(category);
+        product.setProductName(name);
+        product.setPrice(new BigDecimal(price));
+        product.setQuantity(100);
+        product.setUnit("kg");
+        product.setIsAvailable(true);
+        product.setCreatedAt(LocalDateTime.now());
+        product.setUpdatedAt(LocalDateTime.now());
+        return product;
+    }
+
+    private Cart newCart() {
+        Cart cart = new Cart();
+        cart.setUser(buyer);
+        cart.setTotalPrice(BigDecimal.ZERO);
+        cart.setTotalQuantity(0);
+        cart.setStatus(CartStatus.ACTIVE);
+        return cart;
+    }
+}
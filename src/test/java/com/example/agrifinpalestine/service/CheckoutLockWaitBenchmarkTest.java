@@ -0,0 +1,166 @@
+package com.example.agrifinpalestine.service;
+
+import com.example.agrifinpalestine.Entity.Role;
+import com.example.agrifinpalestine.Repository.CartItemRepository;
+import com.example.agrifinpalestine.support.TestData;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * InnoDB lock waits of a burst of concurrent checkouts over the same products, with the
+ * checkout transaction at READ COMMITTED as shipped and at SERIALIZABLE as it ran before
+ * carts and orders were versioned. Runs in a disposable MySQL container, since the lock
+ * counters are InnoDB's. Excluded from the default test run, see the test.excludedGroups
+ * property in the pom, and skipped when Docker is not available.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class CheckoutLockWaitBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutLockWaitBenchmarkTest.class);
+
+    private static final int BUYERS = 40;
+    private static final int PRODUCTS = 3;
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    @DynamicPropertySource
+    static void mysqlProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> String.valueOf(BUYERS + 5));
+        registry.add("datasource.replica.enabled", () -> "false");
+    }
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void completeCheckout_InABurst_ShouldWaitLessForLocksAtReadCommitted() throws Exception {
+        Burst serializable = checkoutBurst(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        Burst readCommitted = checkoutBurst(TransactionDefinition.ISOLATION_READ_COMMITTED);
+
+        logger.info("{} concurrent checkouts at SERIALIZABLE: {}", BUYERS, serializable);
+        logger.info("{} concurrent checkouts at READ COMMITTED: {}", BUYERS, readCommitted);
+
+        assertEquals(0, readCommitted.failedCheckouts(), "Failed checkouts at READ COMMITTED");
+        assertTrue(readCommitted.lockWaits() <= serializable.lockWaits(),
+                "READ COMMITTED " + readCommitted + ", SERIALIZABLE " + serializable);
+    }
+
+    /**
+     * Reserve stock for one cart per buyer, then complete all the checkouts at once
+     */
+    private Burst checkoutBurst(int isolationLevel) throws Exception {
+        TestData testData = new TestData(jdbcTemplate);
+        int storeId = testData.insertStore(testData.insertUser(Role.ERole.ROLE_SELLER));
+        int categoryId = testData.anyCategory();
+        List<Integer> productIds = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            productIds.add(testData.insertProduct(storeId, categoryId));
+        }
+        List<Integer> buyerIds = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            int buyerId = testData.insertUser(Role.ERole.ROLE_USER);
+            int cartId = testData.insertCart(buyerId);
+            productIds.forEach(productId -> testData.insertCartItem(cartId, productId));
+            inventoryService.reserve(buyerId, paymentIntentId(buyerId), cartItemRepository.findCheckoutLines(buyerId));
+            buyerIds.add(buyerId);
+        }
+
+        TransactionTemplate checkoutTransaction = (TransactionTemplate) ReflectionTestUtils.getField(
+                AopTestUtils.getTargetObject(orderService), "readCommittedTransaction");
+        int shippedIsolationLevel = checkoutTransaction.getIsolationLevel();
+        checkoutTransaction.setIsolationLevel(isolationLevel);
+
+        ExecutorService executor = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            LockCounters before = lockCounters();
+            List<Future<?>> checkouts = new ArrayList<>();
+            for (int buyerId : buyerIds) {
+                checkouts.add(executor.submit(() -> {
+                    start.await();
+                    return orderService.completeCheckout(buyerId, paymentIntentId(buyerId));
+                }));
+            }
+            long startedAt = System.nanoTime();
+            start.countDown();
+
+            int failed = 0;
+            for (Future<?> checkout : checkouts) {
+                try {
+                    checkout.get(2, TimeUnit.MINUTES);
+                } catch (Exception e) {
+                    failed++;
+                }
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            LockCounters after = lockCounters();
+            return new Burst(after.waits() - before.waits(), after.waitMillis() - before.waitMillis(),
+                    after.deadlocks() - before.deadlocks(), failed, elapsedMillis);
+        } finally {
+            executor.shutdownNow();
+            checkoutTransaction.setIsolationLevel(shippedIsolationLevel);
+        }
+    }
+
+    private LockCounters lockCounters() {
+        return new LockCounters(
+                globalStatus("Innodb_row_lock_waits"),
+                globalStatus("Innodb_row_lock_time"),
+                jdbcTemplate.queryForObject(
+                        "SELECT `count` FROM information_schema.innodb_metrics WHERE name = 'lock_deadlocks'", Long.class));
+    }
+
+    private long globalStatus(String name) {
+        return jdbcTemplate.queryForObject("SELECT variable_value FROM performance_schema.global_status "
+                + "WHERE variable_name = ?", Long.class, name);
+    }
+
+    private static String paymentIntentId(int buyerId) {
+        return "pi_burst_" + buyerId;
+    }
+
+    private record LockCounters(long waits, long waitMillis, long deadlocks) {
+    }
+
+    private record Burst(long lockWaits, long lockWaitMillis, long deadlocks, int failedCheckouts, long elapsedMillis) {
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.agrifinpalestine.service;
+
+import com.example.agrifinpalestine.Entity.Product;
+import com.example.agrifinpalestine.Entity.ProductCategory;
+import com.example.agrifinpalestine.Entity.Store;
+import com.example.agrifinpalestine.Entity.User;
+import com.example.agrifinpalestine.Repository.ProductCategoryRepository;
+import com.example.agrifinpalestine.Repository.ProductRepository;
+import com.example.agrifinpalestine.Repository.StoreRepository;
+import com.example.agrifinpalestine.Repository.UserRepository;
+import com.example.agrifinpalestine.dto.CheckoutLine;
+import com.example.agrifinpalestine.exception.inventory.InsufficientInventoryException;
+import com.example.agrifinpalestine.exception.inventory.ReservationNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs many checkouts of the same product at once against the configured database
+ * and checks that stock is never oversold
+ */
+@SpringBootTest
+class InventoryReservationStressTest {
+
+    private static final int CHECKOUTS = 500;
+    private static final int STOCK = 120;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private ProductCategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String runId;
+    private User seller;
+    private ProductCategory category;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        runId = UUID.randomUUID().toString().substring(0, 8);
+        LocalDateTime now = LocalDateTime.now();
+
+        seller = new User();
+        seller.setUsername("stress-" + runId);
+        seller.setEmail("stress-" + runId + "@example.com");
+        seller.setPasswordHash("not-a-real-hash");
+        seller.setFullName("Inventory Stress Test");
+        seller.setRegion("Nablus");
+        seller.setAgricultureType("Olives");
+        seller.setCreatedAt(now);
+        seller.setUpdatedAt(now);
+        seller = userRepository.save(seller);
+
+        Store store = new Store();
+        store.setUser(seller);
+        store.setStoreName("Stress Store " + runId);
+        store.setCreatedAt(now);
+        store.setUpdatedAt(now);
+        store = storeRepository.save(store);
+
+        category = new ProductCategory();
+        category.setCategoryNameEn("Stress " + runId);
+        category.setCategoryNameAr("Stress " + runId);
+        category = categoryRepository.save(category);
+
+        product = new Product();
+        product.setStore(store);
+        product.setCategory(category);
+        product.setProductName("Stress Olive Oil " + runId);
+        product.setPrice(new BigDecimal("25.00"));
+        product.setQuantity(STOCK);
+        product.setUnit("liter");
+        product.setIsAvailable(true);
+        product.setCreatedAt(now);
+        product.setUpdatedAt(now);
+        product = productRepository.save(product);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM inventory_reservations WHERE product_id = ?", product.getProductId());
+        productRepository.deleteById(product.getProductId());
+        userRepository.deleteById(seller.getUserId());
+        categoryRepository.deleteById(category.getCategoryId());
+    }
+
+    @Test
+    void concurrentCheckoutsOfTheSameProduct_ShouldNeverOversell() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CHECKOUTS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> checkouts = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < CHECKOUTS; i++) {
+                // Reservations reference users by ID only, so each checkout gets its own buyer ID
+                int buyerId = -(i + 1);
+                String paymentIntentId = "pi_stress_" + runId + "_" + i;
+                checkouts.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        inventoryService.reserve(buyerId, paymentIntentId, List.of(line(1)));
+                        reserved.incrementAndGet();
+                    } catch (InsufficientInventoryException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> checkout : checkouts) {
+                checkout.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(STOCK, reserved.get());
+        assertEquals(CHECKOUTS - STOCK, rejected.get());
+        assertEquals(0, productRepository.findById(product.getProductId()).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void releaseAndLateCommit_ShouldReturnAndRetakeStock() {
+        String paymentIntentId = "pi_release_" + runId;
+        inventoryService.reserve(-1, paymentIntentId, List.of(line(20)));
+        assertEquals(STOCK - 20, productRepository.findById(product.getProductId()).orElseThrow().getQuantity());
+
+        assertEquals(1, inventoryService.release(-1, paymentIntentId));
+        assertEquals(0, inventoryService.release(-1, paymentIntentId));
+        assertEquals(STOCK, productRepository.findById(product.getProductId()).orElseThrow().getQuantity());
+
+        // A payment that completes after its reservation was released takes the stock again
+        assertEquals(1, inventoryService.commit(-1, paymentIntentId).size());
+        assertEquals(STOCK - 20, productRepository.findById(product.getProductId()).orElseThrow().getQuantity());
+
+        // Once committed, the stock is sold and the client cannot hand it back
+        assertEquals(0, inventoryService.release(-1, paymentIntentId));
+        assertEquals(STOCK - 20, productRepository.findById(product.getProductId()).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void lateCommit_WhenTheReleasedStockWasSold_ShouldFail() {
+        String paymentIntentId = "pi_sold_" + runId;
+        inventoryService.reserve(-1, paymentIntentId, List.of(line(20)));
+        inventoryService.release(-1, paymentIntentId);
+        inventoryService.reserve(-2, "pi_other_" + runId, List.of(line(STOCK - 10)));
+
+        assertThrows(InsufficientInventoryException.class, () -> inventoryService.commit(-1, paymentIntentId));
+
+        // Nothing was committed, so the reservation stays released and the stock is untouched
+        assertEquals("RELEASED", jdbcTemplate.queryForObject(
+                "SELECT status FROM inventory_reservations WHERE payment_intent_id = ?", String.class, paymentIntentId));
+        assertEquals(10, productRepository.findById(product.getProductId()).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void commit_OfAnotherUsersPaymentIntent_ShouldFail() {
+        String paymentIntentId = "pi_owner_" + runId;
+        inventoryService.reserve(-1, paymentIntentId, List.of(line(5)));
+
+        assertThrows(ReservationNotFoundException.class, () -> inventoryService.commit(-2, paymentIntentId));
+        assertEquals(1, inventoryService.release(-1, paymentIntentId));
+    }
+
+    private CheckoutLine line(int quantity) {
+        return new CheckoutLine(null, null, product.getProductId(), quantity, product.getPrice());
+    }
+}
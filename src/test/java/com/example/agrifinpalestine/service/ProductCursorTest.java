@@ -0,0 +1,85 @@
+package com.example.agrifinpalestine.service;
+
+import com.example.agrifinpalestine.exception.product.InvalidProductCursorException;
+import com.example.agrifinpalestine.service.impl.ProductCursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCursorTest {
+
+    @Test
+    void keysetCursor_RoundTripsSortKeyAndProductId() {
+        String token = ProductCursor.after("productName", Sort.Direction.ASC, 42, "Olive Oil | Extra Virgin").encode();
+        ProductCursor cursor = ProductCursor.decode(token);
+        cursor.verify("productName", Sort.Direction.ASC, false);
+
+        Map<String, Object> keys = cursor.toKeys();
+        assertEquals(Map.of("productName", "Olive Oil | Extra Virgin", "productId", 42), keys);
+        assertEquals(List.of("productName", "productId"), List.copyOf(keys.keySet()));
+    }
+
+    @Test
+    void keysetCursor_ParsesTypedSortValues() {
+        ProductCursor cursor = ProductCursor.decode(
+                ProductCursor.after("price", Sort.Direction.DESC, 7, new BigDecimal("12.00")).encode());
+
+        assertEquals(new BigDecimal("12.00"), cursor.toKeys().get("price"));
+        assertFalse(cursor.isRelevance());
+    }
+
+    @Test
+    void keysetCursor_WithoutSortValue_ShouldRoundTripNull() {
+        ProductCursor cursor = ProductCursor.decode(
+                ProductCursor.after("price", Sort.Direction.ASC, 7, null).encode());
+
+        Map<String, Object> keys = cursor.toKeys();
+        assertTrue(keys.containsKey("price"));
+        assertNull(keys.get("price"));
+        assertEquals(7, keys.get("productId"));
+    }
+
+    @Test
+    void keysetCursor_WithAnEmptyName_ShouldNotBecomeNull() {
+        ProductCursor cursor = ProductCursor.decode(
+                ProductCursor.after("productName", Sort.Direction.ASC, 7, "").encode());
+
+        assertEquals("", cursor.toKeys().get("productName"));
+    }
+
+    @Test
+    void relevanceCursor_RoundTripsOffset() {
+        ProductCursor cursor = ProductCursor.decode(ProductCursor.atOffset("productId", Sort.Direction.ASC, 24).encode());
+
+        assertTrue(cursor.isRelevance());
+        assertEquals(24, cursor.getOffset());
+    }
+
+    @Test
+    void verify_RejectsCursorFromDifferentSort() {
+        ProductCursor cursor = ProductCursor.decode(
+                ProductCursor.after("price", Sort.Direction.ASC, 1, BigDecimal.ONE).encode());
+
+        assertThrows(InvalidProductCursorException.class, () -> cursor.verify("price", Sort.Direction.DESC, false));
+        assertThrows(InvalidProductCursorException.class, () -> cursor.verify("productName", Sort.Direction.ASC, false));
+    }
+
+    @Test
+    void decode_RejectsMalformedTokens() {
+        assertThrows(InvalidProductCursorException.class, () -> ProductCursor.decode("not a cursor!"));
+        assertThrows(InvalidProductCursorException.class, () -> ProductCursor.decode("eHl6"));
+    }
+
+    @Test
+    void resolveSortProperty_MapsAliasesAndDefaultsToProductId() {
+        assertEquals("productName", ProductCursor.resolveSortProperty("name"));
+        assertEquals("price", ProductCursor.resolveSortProperty("price"));
+        assertEquals("productId", ProductCursor.resolveSortProperty("quantity"));
+        assertEquals("productId", ProductCursor.resolveSortProperty(null));
+    }
+}
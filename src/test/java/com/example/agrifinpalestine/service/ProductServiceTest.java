@@ -4,16 +4,20 @@ import com.example.agrifinpalestine.Entity.Product;
 import com.example.agrifinpalestine.Entity.ProductCategory;
 import com.example.agrifinpalestine.Entity.Store;
 import com.example.agrifinpalestine.Repository.ProductCategoryRepository;
+import com.example.agrifinpalestine.Repository.ProductRatingSummaryRepository;
 import com.example.agrifinpalestine.Repository.ProductRepository;
 import com.example.agrifinpalestine.Repository.StoreRepository;
+import com.example.agrifinpalestine.dto.ProductListingRow;
 import com.example.agrifinpalestine.dto.ProductRequest;
 import com.example.agrifinpalestine.dto.ProductResponse;
+import com.example.agrifinpalestine.search.ProductSearchIndex;
 import com.example.agrifinpalestine.service.impl.ProductServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -23,6 +27,8 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 class ProductServiceTest {
@@ -36,6 +42,12 @@ class ProductServiceTest {
     @Mock
     private ProductCategoryRepository categoryRepository;
 
+    @Mock
+    private ProductRatingSummaryRepository ratingSummaryRepository;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
     @InjectMocks
     private ProductServiceImpl productService;
 
@@ -105,6 +117,7 @@ class ProductServiceTest {
         assertEquals(testProduct.getProductName(), result.getProductName());
         assertEquals(testProduct.getPrice(), result.getPrice());
         verify(productRepository, times(1)).save(any(Product.class));
+        verify(productSearchIndex).index(testProduct);
     }
 
     @Test
@@ -162,12 +175,15 @@ class ProductServiceTest {
         // Assert
         assertTrue(result);
         verify(productRepository, times(1)).deleteById(1);
+        verify(ratingSummaryRepository).deleteById(1);
+        verify(productSearchIndex).remove(1);
     }
 
     @Test
     void getAllProducts_Success() {
         // Arrange
-        when(productRepository.findAll()).thenReturn(Arrays.asList(testProduct));
+        when(productRepository.findListings(isNull(), any(Sort.class), isNull(), anyInt()))
+                .thenReturn(Arrays.asList(listingRow(testProduct)));
 
         // Act
         List<ProductResponse> results = productService.getAllProducts();
@@ -182,7 +198,8 @@ class ProductServiceTest {
     void getProductsByStore_Success() {
         // Arrange
         when(storeRepository.findById(1)).thenReturn(Optional.of(testStore));
-        when(productRepository.findByStore(testStore)).thenReturn(Arrays.asList(testProduct));
+        when(productRepository.findListings(any(), any(Sort.class), isNull(), anyInt()))
+                .thenReturn(Arrays.asList(listingRow(testProduct)));
 
         // Act
         List<ProductResponse> results = productService.getProductsByStore(1);
@@ -197,7 +214,8 @@ class ProductServiceTest {
     void getProductsByCategory_Success() {
         // Arrange
         when(categoryRepository.findById(1)).thenReturn(Optional.of(testCategory));
-        when(productRepository.findByCategory(testCategory)).thenReturn(Arrays.asList(testProduct));
+        when(productRepository.findListings(any(), any(Sort.class), isNull(), anyInt()))
+                .thenReturn(Arrays.asList(listingRow(testProduct)));
 
         // Act
         List<ProductResponse> results = productService.getProductsByCategory(1);
@@ -206,5 +224,15 @@ class ProductServiceTest {
         assertNotNull(results);
         assertEquals(1, results.size());
         assertEquals(testProduct.getProductId(), results.get(0).getProductId());
+        assertEquals("Test Category", results.get(0).getCategoryName());
+    }
+
+    private ProductListingRow listingRow(Product product) {
+        return new ProductListingRow(product.getProductId(), product.getStore().getStoreId(),
+                product.getStore().getStoreName(), null, null, product.getCategory().getCategoryId(),
+                product.getCategory().getCategoryNameEn(), product.getProductName(), product.getProductDescription(),
+                product.getPrice(), product.getQuantity(), product.getUnit(), product.getProductImage(),
+                product.getIsOrganic(), product.getIsAvailable(), product.getCreatedAt(), product.getUpdatedAt(),
+                null, null);
     }
 }
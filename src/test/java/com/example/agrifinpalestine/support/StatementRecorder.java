@@ -0,0 +1,148 @@
+package com.example.agrifinpalestine.support;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the SQL statements executed through a wrapped DataSource, with their bind
+ * parameters, while recording is switched on. A JDBC batch is recorded once, as it is
+ * sent to the database in one round trip.
+ */
+public class StatementRecorder {
+
+    private final List<RecordedStatement> statements = new CopyOnWriteArrayList<>();
+    private volatile boolean recording;
+
+    /**
+     * Run an action and return the statements it executed
+     * @param action the action to run
+     * @return the statements in execution order
+     */
+    public List<RecordedStatement> record(Runnable action) {
+        statements.clear();
+        recording = true;
+        try {
+            action.run();
+            return List.copyOf(statements);
+        } finally {
+            recording = false;
+        }
+    }
+
+    /**
+     * Wrap a DataSource so that its statements are recorded
+     * @param dataSource the DataSource to wrap
+     * @return the wrapped DataSource
+     */
+    public DataSource wrap(DataSource dataSource) {
+        return proxy(DataSource.class, dataSource, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            return result instanceof Connection connection ? wrap(connection) : result;
+        });
+    }
+
+    private Connection wrap(Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (method.getName().equals("prepareStatement") && result instanceof PreparedStatement preparedStatement
+                    && args[0] instanceof String sql) {
+                return wrap(preparedStatement, sql);
+            }
+            if (method.getName().equals("createStatement") && result instanceof Statement statement) {
+                return wrap(statement);
+            }
+            return result;
+        });
+    }
+
+    private PreparedStatement wrap(PreparedStatement statement, String sql) {
+        Map<Integer, Object> parameters = new TreeMap<>();
+        int[] batchSize = {0};
+        return proxy(PreparedStatement.class, statement, (target, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameters.put(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch")) {
+                batchSize[0]++;
+            } else if (name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+                add(sql, List.of(), batchSize[0]);
+                batchSize[0] = 0;
+            } else if (name.startsWith("execute")) {
+                add(sql, new ArrayList<>(parameters.values()), 0);
+            }
+            return invoke(target, method, args);
+        });
+    }
+
+    private Statement wrap(Statement statement) {
+        return proxy(Statement.class, statement, (target, method, args) -> {
+            if (method.getName().startsWith("execute") && args != null && args.length > 0
+                    && args[0] instanceof String sql) {
+                add(sql, List.of(), 0);
+            }
+            return invoke(target, method, args);
+        });
+    }
+
+    private void add(String sql, List<Object> parameters, int batchSize) {
+        if (recording) {
+            statements.add(new RecordedStatement(sql, parameters, batchSize));
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            // Callers keep statements in hash maps, so a proxy must only be equal to itself
+            if (method.getName().equals("equals") && args != null && args.length == 1) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode") && args == null) {
+                return System.identityHashCode(proxy);
+            }
+            if (method.getName().equals("unwrap") || method.getName().equals("isWrapperFor")) {
+                return invoke(target, method, args);
+            }
+            return handler.handle(target, method, args);
+        };
+        return (T) Proxy.newProxyInstance(StatementRecorder.class.getClassLoader(), new Class<?>[] {type}, invocationHandler);
+    }
+
+    private interface Handler {
+        Object handle(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    /**
+     * An executed statement, or a batch of executions of one statement sent in a single round trip
+     * @param sql the SQL, with ? placeholders
+     * @param parameters the bind parameters in placeholder order; empty for a batch
+     * @param batchSize the number of executions in the batch, or 0 if the statement was not batched
+     */
+    public record RecordedStatement(String sql, List<Object> parameters, int batchSize) {
+
+        public boolean isSelect() {
+            return sql.stripLeading().regionMatches(true, 0, "select", 0, 6);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.agrifinpalestine.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application DataSource so that tests can record the statements it executes.
+ * Import it into a Spring Boot test and autowire {@link StatementRecorder}.
+ */
+@TestConfiguration
+public class StatementRecorderConfiguration {
+
+    private static final StatementRecorder RECORDER = new StatementRecorder();
+
+    @Bean
+    public StatementRecorder statementRecorder() {
+        return RECORDER;
+    }
+
+    @Bean
+    public static BeanPostProcessor statementRecordingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? RECORDER.wrap(dataSource) : bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.agrifinpalestine.support;
+
+import com.example.agrifinpalestine.Entity.Role;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Inserts test rows with plain JDBC, so that seeding does not load entities or warm the
+ * caches that a test measures. Every row gets unique names and the minimum of valid columns.
+ */
+public class TestData {
+
+    // Products, reviews and order items take their ids from the id_generators table, so they are
+    // assigned here, above the blocks Hibernate hands out
+    private static final AtomicInteger SEQUENCE = new AtomicInteger(100_000);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TestData(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public int insertUser(Role.ERole role) {
+        int n = SEQUENCE.incrementAndGet();
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> user = new HashMap<>();
+        user.put("username", "user" + n);
+        user.put("email", "user" + n + "@example.com");
+        user.put("password_hash", "not-a-hash");
+        user.put("full_name", "User " + n);
+        user.put("region", "Ramallah");
+        user.put("agriculture_type", "Vegetables");
+        user.put("status", "ACTIVE");
+        user.put("is_active", true);
+        user.put("created_at", now);
+        user.put("updated_at", now);
+        int userId = insert("users", "user_id", user);
+
+        Integer roleId = jdbcTemplate.queryForObject("SELECT id FROM roles WHERE name = ?", Integer.class, role.name());
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)", userId, roleId);
+        return userId;
+    }
+
+    public String username(int userId) {
+        return jdbcTemplate.queryForObject("SELECT username FROM users WHERE user_id = ?", String.class, userId);
+    }
+
+    public int insertStore(int userId) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> store = new HashMap<>();
+        store.put("user_id", userId);
+        store.put("store_name", "Store " + SEQUENCE.incrementAndGet());
+        store.put("created_at", now);
+        store.put("updated_at", now);
+        return insert("stores", "store_id", store);
+    }
+
+    /**
+     * @return the ID of an existing category, or of a new one if there is none
+     */
+    public int anyCategory() {
+        List<Integer> ids = jdbcTemplate.queryForList("SELECT category_id FROM product_categories", Integer.class);
+        return ids.isEmpty() ? insertCategory() : ids.get(0);
+    }
+
+    public int insertCategory() {
+        int n = SEQUENCE.incrementAndGet();
+        Map<String, Object> category = new HashMap<>();
+        category.put("category_name_en", "Category " + n);
+        category.put("category_name_ar", "Category " + n);
+        return insert("product_categories", "category_id", category);
+    }
+
+    public int insertProduct(int storeId, int categoryId) {
+        LocalDateTime now = LocalDateTime.now();
+        int productId = SEQUENCE.incrementAndGet();
+        Map<String, Object> product = new HashMap<>();
+        product.put("product_id", productId);
+        product.put("store_id", storeId);
+        product.put("category_id", categoryId);
+        product.put("product_name", "Product " + productId);
+        product.put("price", new BigDecimal("10.00"));
+        product.put("quantity", 100);
+        product.put("unit", "kg");
+        product.put("is_available", true);
+        product.put("is_organic", false);
+        product.put("created_at", now);
+        product.put("updated_at", now);
+        insert("products", product);
+        return productId;
+    }
+
+    /**
+     * @return the ID of a new product in the store of a new seller
+     */
+    public int insertProductOfNewSeller() {
+        return insertProduct(insertStore(insertUser(Role.ERole.ROLE_SELLER)), anyCategory());
+    }
+
+    public int insertCart(int userId) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> cart = new HashMap<>();
+        cart.put("user_id", userId);
+        cart.put("total_price", BigDecimal.ZERO);
+        cart.put("total_quantity", 0);
+        cart.put("status", "ACTIVE");
+        cart.put("version", 0L);
+        cart.put("created_at", now);
+        cart.put("updated_at", now);
+        return insert("carts", "cart_id", cart);
+    }
+
+    public void insertCartItem(int cartId, int productId) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> item = new HashMap<>();
+        item.put("cart_id", cartId);
+        item.put("product_id", productId);
+        item.put("quantity", 1);
+        item.put("price", new BigDecimal("10.00"));
+        item.put("created_at", now);
+        item.put("updated_at", now);
+        insert("cart_items", "cart_item_id", item);
+    }
+
+    public void insertReview(int productId, int userId) {
+        Map<String, Object> review = new HashMap<>();
+        review.put("review_id", SEQUENCE.incrementAndGet());
+        review.put("product_id", productId);
+        review.put("user_id", userId);
+        review.put("rating", 4);
+        review.put("review_text", "Fresh");
+        review.put("created_at", LocalDateTime.now());
+        insert("reviews", review);
+    }
+
+    public int insertOrder(int userId) {
+        Map<String, Object> order = new HashMap<>();
+        order.put("user_id", userId);
+        order.put("order_date", LocalDateTime.now());
+        order.put("total_amount", new BigDecimal("10.00"));
+        order.put("status", "PAID");
+        order.put("version", 0L);
+        return insert("orders", "order_id", order);
+    }
+
+    public void insertOrderItem(int orderId, int productId) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("item_id", SEQUENCE.incrementAndGet());
+        item.put("order_id", orderId);
+        item.put("product_id", productId);
+        item.put("quantity", 1);
+        item.put("price_per_unit", new BigDecimal("10.00"));
+        insert("order_items", item);
+    }
+
+    public int insertMessage(String status) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> message = new HashMap<>();
+        message.put("name", "Visitor " + SEQUENCE.incrementAndGet());
+        message.put("email", "visitor@example.com");
+        message.put("message", "Do you deliver to Nablus?");
+        message.put("status", status);
+        message.put("created_at", now);
+        message.put("updated_at", now);
+        return insert("user_messages", "message_id", message);
+    }
+
+    private void insert(String table, Map<String, Object> values) {
+        new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName(table)
+                .usingColumns(values.keySet().toArray(new String[0]))
+                .execute(values);
+    }
+
+    private int insert(String table, String keyColumn, Map<String, Object> values) {
+        return new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName(table)
+                .usingColumns(values.keySet().toArray(new String[0]))
+                .usingGeneratedKeyColumns(keyColumn)
+                .executeAndReturnKey(values)
+                .intValue();
+    }
+}